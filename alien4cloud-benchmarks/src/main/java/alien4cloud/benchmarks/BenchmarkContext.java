@@ -0,0 +1,21 @@
+package alien4cloud.benchmarks;
+
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+/**
+ * Spring context shared by the benchmarks that use alien's services. Services that depend on elastic search are mocked (see benchmark-context.xml) so the
+ * benchmarks must provide the TOSCA types they need.
+ */
+public final class BenchmarkContext {
+    private static ClassPathXmlApplicationContext context;
+
+    private BenchmarkContext() {
+    }
+
+    public static synchronized <T> T getBean(Class<T> beanClass) {
+        if (context == null) {
+            context = new ClassPathXmlApplicationContext("benchmark-context.xml");
+        }
+        return context.getBean(beanClass);
+    }
+}
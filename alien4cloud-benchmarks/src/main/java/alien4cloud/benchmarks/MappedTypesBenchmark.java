@@ -0,0 +1,87 @@
+package alien4cloud.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.mapping.MappingBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import alien4cloud.dao.ElasticSearchDAO;
+import alien4cloud.dao.MappedTypes;
+import alien4cloud.model.application.Application;
+import alien4cloud.model.application.ApplicationEnvironment;
+import alien4cloud.model.application.ApplicationVersion;
+import alien4cloud.model.components.Csar;
+import alien4cloud.model.components.IndexedArtifactToscaElement;
+import alien4cloud.model.components.IndexedArtifactType;
+import alien4cloud.model.components.IndexedCapabilityType;
+import alien4cloud.model.components.IndexedDataType;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.IndexedRelationshipType;
+import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.model.topology.Topology;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Per-query resolution of the elastic search types and index of a requested class, as done by the daos on every search, count and delete: walk of the mapped
+ * classes (as done before the lookup tables) against a lookup in the tables resolved when the mapping is completed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MappedTypesBenchmark {
+    /** The requested class, an abstract class requests all its mapped sub classes. */
+    @Param({ "alien4cloud.model.components.IndexedToscaElement", "alien4cloud.model.components.IndexedNodeType" })
+    private String requestedClass;
+
+    private Class<?> clazz;
+    private Map<String, Class<?>> typesToClasses;
+    private Map<String, String> typesToIndices;
+    private MappedTypes mappedTypes;
+
+    @Setup
+    public void setup() throws ClassNotFoundException {
+        clazz = Class.forName(requestedClass);
+        typesToClasses = Maps.newHashMap();
+        typesToIndices = Maps.newHashMap();
+        // same classes and indices as the main dao
+        map(ElasticSearchDAO.TOSCA_ELEMENT_INDEX, IndexedCapabilityType.class, IndexedArtifactType.class, IndexedRelationshipType.class, IndexedNodeType.class,
+                IndexedDataType.class, IndexedArtifactToscaElement.class, IndexedToscaElement.class);
+        for (Class<?> indexClass : new Class<?>[] { Application.class, ApplicationVersion.class, ApplicationEnvironment.class, Topology.class, Csar.class }) {
+            map(indexClass.getSimpleName().toLowerCase(), indexClass);
+        }
+        mappedTypes = new MappedTypes(typesToClasses, typesToIndices);
+    }
+
+    private void map(String index, Class<?>... classes) {
+        for (Class<?> mappedClass : classes) {
+            String typeName = MappingBuilder.indexTypeFromClass(mappedClass);
+            typesToClasses.put(typeName, mappedClass);
+            typesToIndices.put(typeName, index);
+        }
+    }
+
+    @Benchmark
+    public MappedTypes.MappedType resolve() {
+        return MappedTypes.resolve(clazz, typesToClasses, typesToIndices);
+    }
+
+    @Benchmark
+    public MappedTypes.MappedType lookup() {
+        return mappedTypes.get(clazz);
+    }
+}
@@ -0,0 +1,120 @@
+package alien4cloud.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import alien4cloud.deployment.matching.services.nodes.DefaultNodeMatcher;
+import alien4cloud.model.components.AbstractPropertyValue;
+import alien4cloud.model.components.IndexedCapabilityType;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.PropertyDefinition;
+import alien4cloud.model.components.ScalarPropertyValue;
+import alien4cloud.model.components.constraints.GreaterOrEqualConstraint;
+import alien4cloud.model.components.constraints.IMatchPropertyConstraint;
+import alien4cloud.model.deployment.matching.MatchingConfiguration;
+import alien4cloud.model.deployment.matching.MatchingFilterDefinition;
+import alien4cloud.model.orchestrators.locations.LocationResourceTemplate;
+import alien4cloud.model.orchestrators.locations.LocationResources;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.tosca.normative.NormativeComputeConstants;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Matching of an abstract compute node against the on-demand resources of a location (as done for every node on every deployment setup update).
+ * <p>
+ * The location defines <code>resourceCount</code> compute templates of <code>resourceTypeCount</code> different types, with a number of cpus. The matching
+ * configuration of computes filters the templates on their number of cpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class NodeMatcherBenchmark {
+    private static final String NUM_CPUS = "num_cpus";
+
+    @Param({ "10", "1000" })
+    private int resourceCount;
+    @Param({ "5" })
+    private int resourceTypeCount;
+
+    private DefaultNodeMatcher nodeMatcher;
+    private NodeTemplate nodeTemplate;
+    private IndexedNodeType nodeType;
+    private LocationResources locationResources;
+    private Map<String, MatchingConfiguration> matchingConfigurations;
+
+    @Setup
+    public void setup() {
+        // the matcher doesn't use its services when matching on-demand resources
+        nodeMatcher = new DefaultNodeMatcher();
+
+        Map<String, PropertyDefinition> properties = Maps.newHashMap();
+        PropertyDefinition numCpus = new PropertyDefinition();
+        numCpus.setType("integer");
+        properties.put(NUM_CPUS, numCpus);
+
+        nodeType = new IndexedNodeType();
+        nodeType.setElementId(NormativeComputeConstants.COMPUTE_TYPE);
+        nodeType.setAbstract(true);
+        nodeType.setProperties(properties);
+        nodeTemplate = new NodeTemplate();
+        nodeTemplate.setType(NormativeComputeConstants.COMPUTE_TYPE);
+        nodeTemplate.setProperties(Maps.<String, AbstractPropertyValue> newHashMap());
+        nodeTemplate.getProperties().put(NUM_CPUS, new ScalarPropertyValue("4"));
+
+        Map<String, IndexedNodeType> resourceTypes = Maps.newHashMap();
+        for (int i = 0; i < resourceTypeCount; i++) {
+            IndexedNodeType resourceType = new IndexedNodeType();
+            resourceType.setElementId("alien.benchmarks.nodes.Compute" + i);
+            resourceType.setDerivedFrom(Lists.newArrayList(NormativeComputeConstants.COMPUTE_TYPE, SyntheticTopology.NODE_ROOT_TYPE));
+            resourceType.setProperties(properties);
+            resourceTypes.put(resourceType.getElementId(), resourceType);
+        }
+        List<LocationResourceTemplate> resourceTemplates = Lists.newArrayList();
+        for (int i = 0; i < resourceCount; i++) {
+            NodeTemplate template = new NodeTemplate();
+            template.setType("alien.benchmarks.nodes.Compute" + i % resourceTypeCount);
+            template.setProperties(Maps.<String, AbstractPropertyValue> newHashMap());
+            template.getProperties().put(NUM_CPUS, new ScalarPropertyValue(String.valueOf(1 << (i % 4))));
+            LocationResourceTemplate resourceTemplate = new LocationResourceTemplate();
+            resourceTemplate.setId("resource_" + i);
+            resourceTemplate.setName("resource_" + i);
+            resourceTemplate.setEnabled(true);
+            resourceTemplate.setTemplate(template);
+            resourceTemplates.add(resourceTemplate);
+        }
+        locationResources = new LocationResources();
+        locationResources.setNodeTypes(resourceTypes);
+        locationResources.setCapabilityTypes(Maps.<String, IndexedCapabilityType> newHashMap());
+        locationResources.setNodeTemplates(resourceTemplates);
+
+        // the node requires at least the number of cpus of the resource
+        MatchingConfiguration computeMatching = new MatchingConfiguration();
+        computeMatching.getProperties().put(NUM_CPUS, Lists.<IMatchPropertyConstraint> newArrayList(new GreaterOrEqualConstraint()));
+        computeMatching.setCapabilities(Maps.<String, MatchingFilterDefinition> newHashMap());
+        matchingConfigurations = Maps.newHashMap();
+        matchingConfigurations.put(NormativeComputeConstants.COMPUTE_TYPE, computeMatching);
+    }
+
+    @Benchmark
+    public List<LocationResourceTemplate> matchNode() {
+        return nodeMatcher.matchNode(nodeTemplate, nodeType, locationResources, matchingConfigurations);
+    }
+}
@@ -0,0 +1,74 @@
+package alien4cloud.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import alien4cloud.dao.ElasticSearchMapper;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.topology.Topology;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JSON serialization and deserialization of topologies and node types with the mapper used to read and write elastic search documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({ "10", "100" })
+    private int computeCount;
+    @Param({ "3" })
+    private int softwarePerCompute;
+
+    private ObjectMapper mapper;
+    private Topology topology;
+    private byte[] topologyJson;
+    private IndexedNodeType nodeType;
+    private byte[] nodeTypeJson;
+
+    @Setup
+    public void setup() throws IOException {
+        mapper = ElasticSearchMapper.getInstance();
+        SyntheticTopology syntheticTopology = new SyntheticTopology(computeCount, softwarePerCompute);
+        topology = syntheticTopology.getTopology();
+        topologyJson = mapper.writeValueAsBytes(topology);
+        nodeType = syntheticTopology.getTypes().get(IndexedNodeType.class, SyntheticTopology.SOFTWARE_TYPE);
+        nodeTypeJson = mapper.writeValueAsBytes(nodeType);
+    }
+
+    @Benchmark
+    public byte[] writeTopology() throws IOException {
+        return mapper.writeValueAsBytes(topology);
+    }
+
+    @Benchmark
+    public Topology readTopology() throws IOException {
+        return mapper.readValue(topologyJson, Topology.class);
+    }
+
+    @Benchmark
+    public byte[] writeNodeType() throws IOException {
+        return mapper.writeValueAsBytes(nodeType);
+    }
+
+    @Benchmark
+    public IndexedNodeType readNodeType() throws IOException {
+        return mapper.readValue(nodeTypeJson, IndexedNodeType.class);
+    }
+}
@@ -0,0 +1,93 @@
+package alien4cloud.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates a synthetic TOSCA archive (a directory with a single definitions file) for the parser benchmarks.
+ * <p>
+ * The archive defines the given number of node types, every type being derived from the previous one, with properties (and constraints), attributes,
+ * capabilities, requirements and interfaces so the parsing exercises the same parsers as a real types archive.
+ */
+public final class SyntheticArchive {
+    private SyntheticArchive() {
+    }
+
+    /**
+     * Generate an archive in a new temporary directory.
+     *
+     * @param nodeTypeCount The number of node types in the archive.
+     * @return The path of the archive directory.
+     */
+    public static Path generate(int nodeTypeCount) throws IOException {
+        StringBuilder definitions = new StringBuilder();
+        definitions.append("tosca_definitions_version: tosca_simple_yaml_1_0_0_wd03\n");
+        definitions.append("template_name: benchmark-types\n");
+        definitions.append("template_version: 1.0.0\n");
+        definitions.append("template_author: alien4cloud\n\n");
+        definitions.append("description: Synthetic types generated for benchmarks.\n\n");
+
+        definitions.append("capability_types:\n");
+        definitions.append("  alien.benchmarks.capabilities.Root:\n");
+        definitions.append("    description: Root capability.\n");
+        definitions.append("  alien.benchmarks.capabilities.Endpoint:\n");
+        definitions.append("    derived_from: alien.benchmarks.capabilities.Root\n");
+        definitions.append("    properties:\n");
+        definitions.append("      port:\n");
+        definitions.append("        type: integer\n");
+        definitions.append("        constraints:\n");
+        definitions.append("          - in_range: [ 1, 65535 ]\n\n");
+
+        definitions.append("relationship_types:\n");
+        definitions.append("  alien.benchmarks.relationships.Root:\n");
+        definitions.append("    description: Root relationship.\n");
+        definitions.append("  alien.benchmarks.relationships.ConnectsTo:\n");
+        definitions.append("    derived_from: alien.benchmarks.relationships.Root\n");
+        definitions.append("    valid_targets: [ alien.benchmarks.capabilities.Endpoint ]\n\n");
+
+        definitions.append("node_types:\n");
+        for (int i = 0; i < nodeTypeCount; i++) {
+            definitions.append("  alien.benchmarks.nodes.Type").append(i).append(":\n");
+            if (i > 0) {
+                definitions.append("    derived_from: alien.benchmarks.nodes.Type").append(i - 1).append('\n');
+            }
+            definitions.append("    description: Synthetic node type number ").append(i).append(".\n");
+            definitions.append("    properties:\n");
+            definitions.append("      name_").append(i).append(":\n");
+            definitions.append("        type: string\n");
+            definitions.append("        default: node").append(i).append('\n');
+            definitions.append("        constraints:\n");
+            definitions.append("          - min_length: 1\n");
+            definitions.append("          - max_length: 64\n");
+            definitions.append("      size_").append(i).append(":\n");
+            definitions.append("        type: integer\n");
+            definitions.append("        required: false\n");
+            definitions.append("        constraints:\n");
+            definitions.append("          - greater_or_equal: 0\n");
+            definitions.append("    attributes:\n");
+            definitions.append("      state_").append(i).append(":\n");
+            definitions.append("        type: string\n");
+            definitions.append("    capabilities:\n");
+            definitions.append("      endpoint_").append(i).append(":\n");
+            definitions.append("        type: alien.benchmarks.capabilities.Endpoint\n");
+            definitions.append("    requirements:\n");
+            definitions.append("      - dependency_").append(i).append(": alien.benchmarks.capabilities.Endpoint\n");
+            definitions.append("        relationship_type: alien.benchmarks.relationships.ConnectsTo\n");
+            definitions.append("        lower_bound: 0\n");
+            definitions.append("        upper_bound: unbounded\n");
+            definitions.append("    interfaces:\n");
+            definitions.append("      Standard:\n");
+            definitions.append("        create: scripts/create.sh\n");
+            definitions.append("        start:\n");
+            definitions.append("          inputs:\n");
+            definitions.append("            NAME: { get_property: [ SELF, name_").append(i).append(" ] }\n");
+            definitions.append("          implementation: scripts/start.sh\n");
+        }
+
+        Path archive = Files.createTempDirectory("benchmark-archive");
+        Files.write(archive.resolve("benchmark-types.yml"), definitions.toString().getBytes(StandardCharsets.UTF_8));
+        return archive;
+    }
+}
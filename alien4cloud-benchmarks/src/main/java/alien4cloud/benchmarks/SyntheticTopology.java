@@ -0,0 +1,198 @@
+package alien4cloud.benchmarks;
+
+import java.util.Map;
+
+import lombok.Getter;
+import alien4cloud.model.components.AbstractPropertyValue;
+import alien4cloud.model.components.AttributeDefinition;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.ConcatPropertyValue;
+import alien4cloud.model.components.FunctionPropertyValue;
+import alien4cloud.model.components.IValue;
+import alien4cloud.model.components.IndexedInheritableToscaElement;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.IndexedRelationshipType;
+import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.model.components.Interface;
+import alien4cloud.model.components.Operation;
+import alien4cloud.model.components.PropertyDefinition;
+import alien4cloud.model.components.ScalarPropertyValue;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.RelationshipTemplate;
+import alien4cloud.model.topology.Topology;
+import alien4cloud.paas.model.InstanceInformation;
+import alien4cloud.paas.model.InstanceStatus;
+import alien4cloud.paas.plan.ToscaNodeLifecycleConstants;
+import alien4cloud.paas.wf.WorkflowsBuilderService.TopologyContext;
+import alien4cloud.tosca.normative.NormativeComputeConstants;
+import alien4cloud.tosca.normative.NormativeRelationshipConstants;
+import alien4cloud.tosca.normative.ToscaFunctionConstants;
+import alien4cloud.utils.TypeMap;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Generates a synthetic topology and its types for the benchmarks.
+ * <p>
+ * The topology contains <code>computeCount</code> computes that each host a stack of <code>softwarePerCompute</code> software components (every component
+ * is hosted on the previous one). Every component of a stack depends on the component at the same level of the previous stack. The software type defines the
+ * standard lifecycle operations, a property and an attribute that uses functions so the topology exercises the workflows, the functions and the
+ * relationships processing.
+ */
+@Getter
+public class SyntheticTopology {
+    public static final String ARCHIVE_NAME = "benchmark-types";
+    public static final String ARCHIVE_VERSION = "1.0.0";
+
+    public static final String NODE_ROOT_TYPE = "tosca.nodes.Root";
+    public static final String SOFTWARE_COMPONENT_TYPE = "tosca.nodes.SoftwareComponent";
+    public static final String SOFTWARE_TYPE = "alien.benchmarks.nodes.Software";
+    public static final String IP_ADDRESS_ATTRIBUTE = "ip_address";
+    public static final String URL_ATTRIBUTE = "url";
+    public static final String PORT_PROPERTY = "port";
+
+    /** The node and relationship types of the topology. */
+    private final TypeMap types = new TypeMap();
+    private final Topology topology = new Topology();
+
+    public SyntheticTopology(int computeCount, int softwarePerCompute) {
+        addTypes();
+        topology.setId("benchmark-topology");
+        topology.setDependencies(Sets.newHashSet(new CSARDependency(ARCHIVE_NAME, ARCHIVE_VERSION)));
+        Map<String, NodeTemplate> nodeTemplates = Maps.newLinkedHashMap();
+        for (int i = 0; i < computeCount; i++) {
+            String hostName = computeName(i);
+            nodeTemplates.put(hostName, nodeTemplate(NormativeComputeConstants.COMPUTE_TYPE));
+            for (int j = 0; j < softwarePerCompute; j++) {
+                NodeTemplate software = nodeTemplate(SOFTWARE_TYPE);
+                software.getProperties().put(PORT_PROPERTY, new ScalarPropertyValue(String.valueOf(8000 + j)));
+                software.getRelationships().put("hostedOn", relationship(NormativeRelationshipConstants.HOSTED_ON, hostName, "host"));
+                if (i > 0) {
+                    software.getRelationships().put("dependsOn", relationship(NormativeRelationshipConstants.DEPENDS_ON, softwareName(i - 1, j), "dependency"));
+                }
+                hostName = softwareName(i, j);
+                nodeTemplates.put(hostName, software);
+            }
+        }
+        topology.setNodeTemplates(nodeTemplates);
+    }
+
+    public static String computeName(int compute) {
+        return "compute_" + compute;
+    }
+
+    public static String softwareName(int compute, int level) {
+        return "software_" + compute + "_" + level;
+    }
+
+    private void addTypes() {
+        addType(new IndexedNodeType(), NODE_ROOT_TYPE);
+        IndexedNodeType compute = addType(new IndexedNodeType(), NormativeComputeConstants.COMPUTE_TYPE, NODE_ROOT_TYPE);
+        Map<String, IValue> computeAttributes = Maps.newHashMap();
+        AttributeDefinition ipAddress = new AttributeDefinition();
+        ipAddress.setType("string");
+        computeAttributes.put(IP_ADDRESS_ATTRIBUTE, ipAddress);
+        compute.setAttributes(computeAttributes);
+        addType(new IndexedNodeType(), SOFTWARE_COMPONENT_TYPE, NODE_ROOT_TYPE);
+
+        IndexedNodeType software = addType(new IndexedNodeType(), SOFTWARE_TYPE, SOFTWARE_COMPONENT_TYPE, NODE_ROOT_TYPE);
+        Map<String, PropertyDefinition> properties = Maps.newHashMap();
+        PropertyDefinition port = new PropertyDefinition();
+        port.setType("integer");
+        properties.put(PORT_PROPERTY, port);
+        software.setProperties(properties);
+        // url: concat: ["http://", get_attribute: [HOST, ip_address], ":", get_property: [SELF, port]]
+        ConcatPropertyValue url = new ConcatPropertyValue();
+        url.setFunction_concat("concat");
+        url.setParameters(Lists.<IValue> newArrayList(new ScalarPropertyValue("http://"),
+                new FunctionPropertyValue(ToscaFunctionConstants.GET_ATTRIBUTE, Lists.newArrayList(ToscaFunctionConstants.HOST, IP_ADDRESS_ATTRIBUTE)),
+                new ScalarPropertyValue(":"),
+                new FunctionPropertyValue(ToscaFunctionConstants.GET_PROPERTY, Lists.newArrayList(ToscaFunctionConstants.SELF, PORT_PROPERTY))));
+        Map<String, IValue> softwareAttributes = Maps.newHashMap();
+        softwareAttributes.put(URL_ATTRIBUTE, url);
+        software.setAttributes(softwareAttributes);
+        Interface standard = new Interface();
+        for (String operation : new String[] { ToscaNodeLifecycleConstants.CREATE, ToscaNodeLifecycleConstants.CONFIGURE, ToscaNodeLifecycleConstants.START,
+                ToscaNodeLifecycleConstants.STOP, ToscaNodeLifecycleConstants.DELETE }) {
+            standard.getOperations().put(operation, new Operation());
+        }
+        Map<String, Interface> interfaces = Maps.newHashMap();
+        interfaces.put(ToscaNodeLifecycleConstants.STANDARD, standard);
+        software.setInterfaces(interfaces);
+
+        addType(new IndexedRelationshipType(), NormativeRelationshipConstants.ROOT);
+        addType(new IndexedRelationshipType(), NormativeRelationshipConstants.HOSTED_ON, NormativeRelationshipConstants.ROOT);
+        addType(new IndexedRelationshipType(), NormativeRelationshipConstants.DEPENDS_ON, NormativeRelationshipConstants.ROOT);
+    }
+
+    private <T extends IndexedInheritableToscaElement> T addType(T type, String elementId, String... derivedFrom) {
+        type.setElementId(elementId);
+        type.setArchiveName(ARCHIVE_NAME);
+        type.setArchiveVersion(ARCHIVE_VERSION);
+        type.setHighestVersion(true);
+        if (derivedFrom.length > 0) {
+            type.setDerivedFrom(Lists.newArrayList(derivedFrom));
+        }
+        types.put(elementId, type);
+        return type;
+    }
+
+    private NodeTemplate nodeTemplate(String type) {
+        NodeTemplate nodeTemplate = new NodeTemplate();
+        nodeTemplate.setType(type);
+        nodeTemplate.setProperties(Maps.<String, AbstractPropertyValue> newHashMap());
+        nodeTemplate.setRelationships(Maps.<String, RelationshipTemplate> newHashMap());
+        return nodeTemplate;
+    }
+
+    private RelationshipTemplate relationship(String type, String target, String requirementName) {
+        RelationshipTemplate relationshipTemplate = new RelationshipTemplate();
+        relationshipTemplate.setType(type);
+        relationshipTemplate.setTarget(target);
+        relationshipTemplate.setRequirementName(requirementName);
+        return relationshipTemplate;
+    }
+
+    /**
+     * @return A topology context that resolves the types from the generated types rather than from elastic search.
+     */
+    public TopologyContext getTopologyContext() {
+        return new TopologyContext() {
+            @Override
+            public Topology getTopology() {
+                return topology;
+            }
+
+            @Override
+            public <T extends IndexedToscaElement> T findElement(Class<T> clazz, String id) {
+                return types.get(clazz, id);
+            }
+        };
+    }
+
+    /**
+     * Generate the runtime information of the topology as returned by an orchestrator, every node having the given number of instances.
+     */
+    public Map<String, Map<String, InstanceInformation>> getInstanceInformations(int instanceCount) {
+        Map<String, Map<String, InstanceInformation>> instanceInformations = Maps.newHashMap();
+        int address = 0;
+        for (Map.Entry<String, NodeTemplate> nodeTemplateEntry : topology.getNodeTemplates().entrySet()) {
+            Map<String, InstanceInformation> nodeInstances = Maps.newHashMap();
+            for (int i = 0; i < instanceCount; i++) {
+                Map<String, String> attributes = Maps.newHashMap();
+                if (NormativeComputeConstants.COMPUTE_TYPE.equals(nodeTemplateEntry.getValue().getType())) {
+                    attributes.put(IP_ADDRESS_ATTRIBUTE, "10.0." + (address / 256) % 256 + "." + address % 256);
+                    address++;
+                } else {
+                    attributes.put(URL_ATTRIBUTE, "");
+                }
+                nodeInstances.put(String.valueOf(i), new InstanceInformation(ToscaNodeLifecycleConstants.STARTED, InstanceStatus.SUCCESS, attributes,
+                        Maps.<String, String> newHashMap(), Maps.<String, String> newHashMap()));
+            }
+            instanceInformations.put(nodeTemplateEntry.getKey(), nodeInstances);
+        }
+        return instanceInformations;
+    }
+}
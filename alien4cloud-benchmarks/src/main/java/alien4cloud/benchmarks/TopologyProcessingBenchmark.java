@@ -0,0 +1,66 @@
+package alien4cloud.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import alien4cloud.paas.function.FunctionEvaluator;
+import alien4cloud.paas.model.InstanceInformation;
+import alien4cloud.paas.model.PaaSTopology;
+import alien4cloud.paas.plan.TopologyTreeBuilderService;
+
+/**
+ * Build of the PaaS topology from a topology (as done on every deployment and runtime topology request) and evaluation of the functions of the instances
+ * attributes (as done on every instance information request).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TopologyProcessingBenchmark {
+    @Param({ "10", "100" })
+    private int computeCount;
+    @Param({ "3" })
+    private int softwarePerCompute;
+    @Param({ "2" })
+    private int instanceCount;
+
+    private TopologyTreeBuilderService topologyTreeBuilderService;
+    private SyntheticTopology syntheticTopology;
+    private PaaSTopology paaSTopology;
+    private Map<String, Map<String, InstanceInformation>> instanceInformations;
+
+    @Setup
+    public void setup() {
+        topologyTreeBuilderService = BenchmarkContext.getBean(TopologyTreeBuilderService.class);
+        syntheticTopology = new SyntheticTopology(computeCount, softwarePerCompute);
+        paaSTopology = topologyTreeBuilderService.buildPaaSTopology(syntheticTopology.getTopology(), syntheticTopology.getTypes());
+        instanceInformations = syntheticTopology.getInstanceInformations(instanceCount);
+    }
+
+    @Benchmark
+    public PaaSTopology buildPaaSTopology() {
+        // all the types are in the type map so no search request is performed
+        return topologyTreeBuilderService.buildPaaSTopology(syntheticTopology.getTopology(), syntheticTopology.getTypes());
+    }
+
+    @Benchmark
+    public Map<String, Map<String, InstanceInformation>> postProcessInstanceInformation() {
+        // evaluated attributes are computed from the type definitions so the instance informations can be processed again
+        FunctionEvaluator.postProcessInstanceInformation(instanceInformations, syntheticTopology.getTopology(), paaSTopology);
+        return instanceInformations;
+    }
+}
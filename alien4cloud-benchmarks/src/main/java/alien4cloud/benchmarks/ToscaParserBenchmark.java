@@ -0,0 +1,67 @@
+package alien4cloud.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import alien4cloud.tosca.ArchiveParser;
+import alien4cloud.tosca.model.ArchiveRoot;
+import alien4cloud.tosca.parser.ParsingException;
+import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.utils.FileUtil;
+
+/**
+ * Parsing (and post processing) of a types archive.
+ * <p>
+ * To benchmark the normative types, run with <code>-p archivePath=/path/to/tosca-normative-types</code> (a checkout of the tosca-normative-types
+ * repository), a synthetic archive of <code>nodeTypeCount</code> types is generated otherwise.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ToscaParserBenchmark {
+    /** Path of the archive directory to parse, empty to generate a synthetic archive. */
+    @Param({ "" })
+    private String archivePath;
+    /** Number of node types of the synthetic archive. */
+    @Param({ "10", "100" })
+    private int nodeTypeCount;
+
+    private ArchiveParser archiveParser;
+    private Path archive;
+
+    @Setup
+    public void setup() throws IOException {
+        archiveParser = BenchmarkContext.getBean(ArchiveParser.class);
+        archive = archivePath.isEmpty() ? SyntheticArchive.generate(nodeTypeCount) : Paths.get(archivePath);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (archivePath.isEmpty()) {
+            FileUtil.delete(archive);
+        }
+    }
+
+    @Benchmark
+    public ParsingResult<ArchiveRoot> parseArchive() throws ParsingException {
+        return archiveParser.parseDir(archive);
+    }
+}
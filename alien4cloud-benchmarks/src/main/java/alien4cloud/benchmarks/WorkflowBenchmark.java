@@ -0,0 +1,71 @@
+package alien4cloud.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import alien4cloud.paas.wf.AbstractStep;
+import alien4cloud.paas.wf.Workflow;
+import alien4cloud.paas.wf.WorkflowsBuilderService;
+import alien4cloud.paas.wf.WorkflowsBuilderService.TopologyContext;
+import alien4cloud.paas.wf.util.WorkflowGraph;
+import alien4cloud.paas.wf.validation.WorkflowValidator;
+
+/**
+ * Generation and validation of the install workflow of a topology (validation is performed on every topology edit).
+ * <p>
+ * The enumeration of all the paths of the workflow (WorkflowGraphUtils.getWorkflowGraphPaths) is not benchmarked as the number of paths grows exponentially
+ * with the dependencies between the stacks of the synthetic topology.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class WorkflowBenchmark {
+    @Param({ "10", "100" })
+    private int computeCount;
+    @Param({ "3" })
+    private int softwarePerCompute;
+
+    private WorkflowsBuilderService workflowsBuilderService;
+    private WorkflowValidator workflowValidator;
+    private TopologyContext topologyContext;
+    private Workflow installWorkflow;
+
+    @Setup
+    public void setup() {
+        workflowsBuilderService = BenchmarkContext.getBean(WorkflowsBuilderService.class);
+        workflowValidator = BenchmarkContext.getBean(WorkflowValidator.class);
+        topologyContext = new SyntheticTopology(computeCount, softwarePerCompute).getTopologyContext();
+        workflowsBuilderService.initWorkflows(topologyContext);
+        installWorkflow = topologyContext.getTopology().getWorkflows().get(Workflow.INSTALL_WF);
+    }
+
+    @Benchmark
+    public Workflow reinitWorkflow() {
+        return workflowsBuilderService.reinitWorkflow(Workflow.INSTALL_WF, topologyContext);
+    }
+
+    @Benchmark
+    public int validateWorkflow() {
+        return workflowValidator.validate(topologyContext, installWorkflow);
+    }
+
+    @Benchmark
+    public List<AbstractStep> topologicalOrder() {
+        return new WorkflowGraph(installWorkflow).getTopologicalOrder();
+    }
+}
@@ -5,35 +5,101 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lombok.SneakyThrows;
 
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ListenableActionFuture;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.deletebyquery.DeleteByQueryRequestBuilder;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.get.MultiGetItemResponse;
 import org.elasticsearch.action.get.MultiGetResponse;
-import org.elasticsearch.common.collect.Lists;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.collect.Sets;
 import org.elasticsearch.index.query.QueryBuilder;
-import org.elasticsearch.mapping.MappingBuilder;
 
 import alien4cloud.exception.IndexingServiceException;
 
+import com.google.common.collect.Maps;
+
 /**
  * ElasticSearch DAO to manage id based operations.
  * 
  * @author luc boutier
  */
 public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericIdDAO {
+    /** Number of writes performed on each index, by index name. */
+    private final ConcurrentMap<String, AtomicLong> indicesToVersions = Maps.newConcurrentMap();
+
+    @Override
+    public long getIndexVersion(String indexName) {
+        AtomicLong version = indicesToVersions.get(indexName);
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * Increment the version of an index once a write on the index completed.
+     *
+     * @param indexName The name of the written index.
+     */
+    private void indexWritten(String indexName) {
+        AtomicLong version = indicesToVersions.get(indexName);
+        if (version == null) {
+            AtomicLong newVersion = new AtomicLong();
+            version = indicesToVersions.putIfAbsent(indexName, newVersion);
+            if (version == null) {
+                version = newVersion;
+            }
+        }
+        version.incrementAndGet();
+    }
 
     @Override
-    @SneakyThrows({ IOException.class })
     public <T> void save(T data) {
+        RefreshPolicy refreshPolicy = getRefreshPolicy(data.getClass());
+        String indexName = getIndexForType(data.getClass());
+        try {
+            prepareIndex(data, refreshPolicy).execute().actionGet();
+            if (RefreshPolicy.Mode.WAIT_FOR.equals(refreshPolicy.getMode())) {
+                waitForRefresh(indexName);
+            }
+        } finally {
+            // a failed request may have been applied
+            indexWritten(indexName);
+        }
+    }
+
+    @Override
+    public <T> ListenableActionFuture<IndexResponse> saveAsync(T data) {
+        final String indexName = getIndexForType(data.getClass());
+        ListenableActionFuture<IndexResponse> future = prepareIndex(data, getRefreshPolicy(data.getClass())).execute();
+        future.addListener(new ActionListener<IndexResponse>() {
+            @Override
+            public void onResponse(IndexResponse response) {
+                indexWritten(indexName);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                indexWritten(indexName);
+            }
+        });
+        return future;
+    }
+
+    @SneakyThrows({ IOException.class })
+    private <T> IndexRequestBuilder prepareIndex(T data, RefreshPolicy refreshPolicy) {
         String indexName = getIndexForType(data.getClass());
-        String typeName = MappingBuilder.indexTypeFromClass(data.getClass());
+        String typeName = getTypeName(data.getClass());
 
         String json = getJsonMapper().writeValueAsString(data);
-        getClient().prepareIndex(indexName, typeName).setOperationThreaded(false).setSource(json).setRefresh(true).execute().actionGet();
+        return getClient().prepareIndex(indexName, typeName).setOperationThreaded(false).setSource(json)
+                .setRefresh(RefreshPolicy.Mode.IMMEDIATE.equals(refreshPolicy.getMode()));
     }
 
     @Override
@@ -42,15 +108,35 @@ public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericId
         if (entities == null || entities.length == 0) {
             return;
         }
-        BulkRequestBuilder bulkRequestBuilder = getClient().prepareBulk().setRefresh(true);
+        BulkRequestBuilder bulkRequestBuilder = getClient().prepareBulk();
+        boolean refresh = false;
+        Set<String> indicesToWaitFor = Sets.newHashSet();
+        Set<String> writtenIndices = Sets.newHashSet();
         for (T data : entities) {
             String indexName = getIndexForType(data.getClass());
-            String typeName = MappingBuilder.indexTypeFromClass(data.getClass());
+            writtenIndices.add(indexName);
+            String typeName = getTypeName(data.getClass());
+            RefreshPolicy refreshPolicy = getRefreshPolicy(data.getClass());
+            refresh = refresh || RefreshPolicy.Mode.IMMEDIATE.equals(refreshPolicy.getMode());
+            if (RefreshPolicy.Mode.WAIT_FOR.equals(refreshPolicy.getMode())) {
+                indicesToWaitFor.add(indexName);
+            }
 
             String json = getJsonMapper().writeValueAsString(data);
             bulkRequestBuilder.add(getClient().prepareIndex(indexName, typeName).setSource(json));
         }
-        bulkRequestBuilder.execute().actionGet();
+        try {
+            bulkRequestBuilder.setRefresh(refresh).execute().actionGet();
+            if (!refresh) {
+                for (String indexName : indicesToWaitFor) {
+                    waitForRefresh(indexName);
+                }
+            }
+        } finally {
+            for (String indexName : writtenIndices) {
+                indexWritten(indexName);
+            }
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -60,7 +146,7 @@ public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericId
         boolean abstractType = Modifier.isAbstract(clazz.getModifiers());
         assertIdNotNullFor(id, "findById");
         String indexName = getIndexForType(clazz);
-        String typeName = abstractType ? null : MappingBuilder.indexTypeFromClass(clazz);
+        String typeName = abstractType ? null : getTypeName(clazz);
         GetResponse response = getClient().prepareGet(indexName, typeName, id).execute().actionGet();
 
         if (response == null || !response.isExists()) {
@@ -71,17 +157,17 @@ public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericId
         ESIndexMapper.getLog().debug("Found one in index <{}>, type <{}>, for Id <{}>.", indexName, typeName, id);
 
         if (abstractType) {
-            return (T) getJsonMapper().readValue(response.getSourceAsString(), getTypesToClasses().get(response.getType()));
+            return (T) readSource(response.getSourceAsBytesRef(), getTypesToClasses().get(response.getType()));
         }
 
-        return getJsonMapper().readValue(response.getSourceAsString(), clazz);
+        return readSource(response.getSourceAsBytesRef(), clazz);
     }
 
     @Override
     @SneakyThrows({ IOException.class })
     public <T> List<T> findByIds(Class<T> clazz, String... ids) {
         String indexName = getIndexForType(clazz);
-        String typeName = MappingBuilder.indexTypeFromClass(clazz);
+        String typeName = getTypeName(clazz);
         MultiGetResponse response = getClient().prepareMultiGet().add(indexName, typeName, ids).execute().actionGet();
 
         if (response == null || response.getResponses() == null || response.getResponses().length == 0) {
@@ -92,7 +178,7 @@ public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericId
         List<T> result = new ArrayList<>();
         for (MultiGetItemResponse getItemResponse : response.getResponses()) {
             if (getItemResponse.getResponse().isExists()) {
-                result.add(getJsonMapper().readValue(getItemResponse.getResponse().getSourceAsString(), clazz));
+                result.add(readSource(getItemResponse.getResponse().getSourceAsBytesRef(), clazz));
             }
         }
 
@@ -103,21 +189,32 @@ public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericId
     public void delete(Class<?> clazz, String id) {
         assertIdNotNullFor(id, "delete");
         String indexName = getIndexForType(clazz);
-        String typeName = MappingBuilder.indexTypeFromClass(clazz);
-        getClient().prepareDelete(indexName, typeName, id).setRefresh(true).execute().actionGet();
+        String typeName = getTypeName(clazz);
+        RefreshPolicy refreshPolicy = getRefreshPolicy(clazz);
+        try {
+            getClient().prepareDelete(indexName, typeName, id).setRefresh(RefreshPolicy.Mode.IMMEDIATE.equals(refreshPolicy.getMode())).execute().actionGet();
+            if (RefreshPolicy.Mode.WAIT_FOR.equals(refreshPolicy.getMode())) {
+                waitForRefresh(indexName);
+            }
+        } finally {
+            indexWritten(indexName);
+        }
     }
 
     @Override
     public void delete(Class<?> clazz, QueryBuilder query) {
         String indexName = getIndexForType(clazz);
-        Class<?>[] clazzes = getRequestedTypes(clazz);
-        String[] classes = getTypesStrings(clazzes);
+        String[] classes = getRequestedTypesStrings(clazz);
 
         DeleteByQueryRequestBuilder deleteRequestBuilder = getClient().prepareDeleteByQuery(indexName).setTypes(classes);
         if (query != null) {
             deleteRequestBuilder.setQuery(query);
         }
-        deleteRequestBuilder.execute().actionGet();
+        try {
+            deleteRequestBuilder.execute().actionGet();
+        } finally {
+            indexWritten(indexName);
+        }
     }
 
     private void assertIdNotNullFor(String id, String operation) {
@@ -128,31 +225,16 @@ public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericId
     }
 
     protected Class<?>[] getRequestedTypes(Class<?> clazz) {
-        if (Modifier.isAbstract(clazz.getModifiers())) {
-            List<Class<?>> classes = Lists.newArrayList();
-            for (Class<?> registeredClass : this.getTypesToClasses().values()) {
-                if (clazz.isAssignableFrom(registeredClass)) {
-                    classes.add(registeredClass);
-                }
-            }
-            return classes.toArray(new Class<?>[classes.size()]);
-        }
-        return new Class<?>[] { clazz };
+        return getMappedType(clazz).getRequestedTypes();
     }
 
-    protected String[] getTypesStrings(Class<?>... classes) {
-        if (classes == null) {
-            return null;
-        }
-        List<String> types = new ArrayList<String>(classes.length);
-        for (Class<?> clazz : classes) {
-            if (clazz != null) {
-                types.add(MappingBuilder.indexTypeFromClass(clazz));
-            }
-        }
-        if (types.isEmpty()) {
-            return null;
-        }
-        return types.toArray(new String[types.size()]);
+    /**
+     * Get the elastic search types to request for the given class.
+     *
+     * @param clazz The requested class.
+     * @return The types of the mapped sub classes for an abstract class, the type of the class otherwise, null if there is no type to request.
+     */
+    protected String[] getRequestedTypesStrings(Class<?> clazz) {
+        return getMappedType(clazz).getRequestedTypesStrings();
     }
 }
\ No newline at end of file
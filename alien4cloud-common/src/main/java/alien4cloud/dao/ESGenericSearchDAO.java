@@ -53,7 +53,7 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
     @Override
     public <T> long count(Class<T> clazz, QueryBuilder query) {
         String indexName = getIndexForType(clazz);
-        String typeName = MappingBuilder.indexTypeFromClass(clazz);
+        String typeName = getTypeName(clazz);
         CountRequestBuilder countRequestBuilder = getClient().prepareCount(indexName).setTypes(typeName);
         if (query != null) {
             countRequestBuilder.setQuery(query);
@@ -83,12 +83,13 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
         if (!somethingFound(response)) {
             return null;
         } else {
-            List<T> hits = Lists.newArrayList();
-            for (int i = 0; i < response.getHits().getHits().length; i++) {
-                String hit = response.getHits().getAt(i).sourceAsString();
-                hits.add((T) getJsonMapper().readValue(hit, getClassFromType(response.getHits().getAt(i).getType())));
+            Object[] hits = new Object[response.getHits().getHits().length];
+            readHits(response.getHits().getHits(), null, hits);
+            List<T> result = Lists.newArrayListWithCapacity(hits.length);
+            for (Object hit : hits) {
+                result.add((T) hit);
             }
-            return hits;
+            return result;
         }
     }
 
@@ -275,10 +276,11 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
             return null;
         }
 
-        List<T> result = new ArrayList<>();
-
-        for (int i = 0; i < searchResponse.getHits().getHits().length; i++) {
-            result.add(getJsonMapper().readValue(searchResponse.getHits().getAt(i).getSourceAsString(), clazz));
+        Object[] hits = new Object[searchResponse.getHits().getHits().length];
+        readHits(searchResponse.getHits().getHits(), clazz, hits);
+        List<T> result = new ArrayList<>(hits.length);
+        for (Object hit : hits) {
+            result.add(clazz.cast(hit));
         }
 
         return result;
@@ -299,8 +301,8 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
         T[] resultData = (T[]) Array.newInstance(clazz, resultTypes.length);
         for (int i = 0; i < resultTypes.length; i++) {
             resultTypes[i] = searchResponse.getHits().getAt(i).getType();
-            resultData[i] = (T) getJsonMapper().readValue(searchResponse.getHits().getAt(i).getSourceAsString(), getClassFromType(resultTypes[i]));
         }
+        readHits(searchResponse.getHits().getHits(), null, resultData);
         finalResponse.setData(resultData);
 
         finalResponse.setTypes(resultTypes);
@@ -310,7 +312,7 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
             int from, int maxElements, boolean enableFacets, String fieldSort, boolean sortOrder) {
         String[] searchIndexes = clazz == null ? getAllIndexes() : new String[] { getIndexForType(clazz) };
         Class<?>[] requestedTypes = getRequestedTypes(clazz);
-        String[] esTypes = getTypesStrings(requestedTypes);
+        String[] esTypes = getRequestedTypesStrings(clazz);
 
         SearchQueryHelperBuilder query = this.queryHelper.buildSearchQuery(searchIndexes, searchText).types(requestedTypes).fetchContext(fetchContext)
                 .filters(filters).customFilter(customFilter).facets(enableFacets);
@@ -381,7 +383,7 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
 
         // TODO: correctly manage "from" and "size"
         SearchRequestBuilder searchRequestBuilder = getClient().prepareSearch(getIndexForType(clazz))
-                .setQuery(QueryBuilders.idsQuery(MappingBuilder.indexTypeFromClass(clazz)).ids(ids)).setFetchSource(inc, exc).setSize(20);
+                .setQuery(QueryBuilders.idsQuery(getTypeName(clazz)).ids(ids)).setFetchSource(inc, exc).setSize(20);
 
         SearchResponse searchResponse = searchRequestBuilder.execute().actionGet();
         return toGetListOfData(searchResponse, clazz);
@@ -391,7 +393,7 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
     public String[] selectPath(String index, Class<?>[] types, QueryBuilder queryBuilder, SortOrder sortOrder, String path, int from, int size) {
         String[] esTypes = new String[types.length];
         for (int i = 0; i < types.length; i++) {
-            esTypes[i] = MappingBuilder.indexTypeFromClass(types[i]);
+            esTypes[i] = getTypeName(types[i]);
         }
         return doSelectPath(index, esTypes, queryBuilder, sortOrder, path, from, size);
     }
@@ -3,12 +3,20 @@ package alien4cloud.dao;
 import java.beans.IntrospectionException;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 
 import lombok.Getter;
-import lombok.Setter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
@@ -18,14 +26,19 @@ import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRequest;
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.mapping.ElasticSearchClient;
 import org.elasticsearch.mapping.MappingBuilder;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.util.MapUtil;
+import org.springframework.beans.factory.annotation.Value;
 
 import alien4cloud.exception.IndexingServiceException;
 import alien4cloud.rest.utils.JsonUtil;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
@@ -45,27 +58,79 @@ public abstract class ESIndexMapper {
     @Getter
     private MappingBuilder mappingBuilder;
 
+    /** Number of threads used to deserialize large search pages, 0 to use all the available processors but one. */
+    @Value("${elasticSearch.decoding.threadpool_size:0}")
+    private int decodingThreadPoolSize;
+    /** Minimum number of hits of a page for their sources to be deserialized in parallel. */
+    @Value("${elasticSearch.decoding.parallel_threshold:64}")
+    private int parallelDecodingThreshold = 64;
+    /** Threads of this mapper that deserialize large search pages, pages are deserialized by the calling thread only when null. */
+    private ThreadPoolExecutor decodingExecutor;
+
     @SuppressWarnings("PMD.UnusedPrivateField")
     @Getter
     private final Map<String, String> typesToIndices = Maps.newHashMap();
     @SuppressWarnings("PMD.UnusedPrivateField")
     @Getter
     private final Map<String, Class<?>> typesToClasses = Maps.newHashMap();
+    /** Lookup tables of the mapped classes, resolved once all the classes are mapped. */
+    private volatile MappedTypes mappedTypes;
+    /** Readers of the json mapper resolved once per class. */
+    private final Map<Class<?>, ObjectReader> classesToReaders = Maps.newConcurrentMap();
+
+    private final Map<String, RefreshPolicy> typesToRefreshPolicies = Maps.newHashMap();
+    /** Refreshes that are shared by writers waiting for visibility, per index. */
+    private final Map<String, IndexRefresh> indicesToRefreshes = Maps.newHashMap();
 
     @SuppressWarnings("PMD.UnusedPrivateField")
     @Getter
     private String[] allIndexes;
     @SuppressWarnings("PMD.UnusedPrivateField")
     @Getter
-    @Setter
     private ObjectMapper jsonMapper = new ObjectMapper();
 
+    @PostConstruct
+    public void initDecodingExecutor() {
+        int threads = decodingThreadPoolSize > 0 ? decodingThreadPoolSize : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        final String namePrefix = "es-hits-decoding-" + getClass().getSimpleName() + "-";
+        decodingExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // every dao owns its pool, the threads of the idle daos are released
+        decodingExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdownDecodingExecutor() {
+        if (decodingExecutor != null) {
+            decodingExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Set the json mapper used to serialize and deserialize the documents.
+     *
+     * @param jsonMapper The json mapper.
+     */
+    public void setJsonMapper(ObjectMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+        this.classesToReaders.clear();
+    }
+
     /**
      * Initialize the array of all indices managed by this dao.
      */
     public void initCompleted() {
         Set<String> indices = new HashSet<>(typesToIndices.values());
         allIndexes = indices.toArray(new String[indices.size()]);
+        mappedTypes = new MappedTypes(typesToClasses, typesToIndices);
         esClient.waitForGreenStatus(allIndexes);
     }
 
@@ -76,13 +141,37 @@ public abstract class ESIndexMapper {
      * @param indexName The index to initialize
      * @param classes An array of classes to map to this index.
      */
-    @SneakyThrows({ IOException.class, IntrospectionException.class })
     public void initIndices(String indexName, String ttl, Class<?>... classes) {
+        initIndices(indexName, ttl, RefreshPolicy.IMMEDIATE, classes);
+    }
+
+    /**
+     * Create if not exist indices.
+     * A TTL can be defined for all indices under this index (ESearch TTL notation)
+     *
+     * @param indexName The index to initialize
+     * @param ttl The ttl of the documents in the index (may be null).
+     * @param refreshPolicy The policy that defines when writes on the given classes become visible to searches.
+     * @param classes An array of classes to map to this index.
+     */
+    @SneakyThrows({ IOException.class, IntrospectionException.class })
+    public void initIndices(String indexName, String ttl, RefreshPolicy refreshPolicy, Class<?>... classes) {
+        for (Class<?> clazz : classes) {
+            typesToRefreshPolicies.put(MappingBuilder.indexTypeFromClass(clazz), refreshPolicy);
+        }
         if (indexExist(indexName)) {
             addToMappedClasses(indexName, classes);
+            if (refreshPolicy.getRefreshInterval() != null) {
+                esClient.getClient().admin().indices().prepareUpdateSettings(indexName)
+                        .setSettings(ImmutableSettings.settingsBuilder().put("index.refresh_interval", refreshPolicy.getRefreshInterval())).execute()
+                        .actionGet();
+            }
         } else {
             // create the index and add the mapping
             CreateIndexRequestBuilder createIndexRequestBuilder = esClient.getClient().admin().indices().prepareCreate(indexName);
+            if (refreshPolicy.getRefreshInterval() != null) {
+                createIndexRequestBuilder.setSettings(ImmutableSettings.settingsBuilder().put("index.refresh_interval", refreshPolicy.getRefreshInterval()));
+            }
             for (Class<?> clazz : classes) {
                 String typeName = addToMappedClasses(indexName, clazz);
                 String typeMapping = mappingBuilder.getMapping(clazz);
@@ -156,6 +245,9 @@ public abstract class ESIndexMapper {
         String typeName = MappingBuilder.indexTypeFromClass(clazz);
         typesToIndices.put(typeName, indexName);
         typesToClasses.put(typeName, clazz);
+        // tables are resolved again when the mapping is completed
+        mappedTypes = null;
+        classesToReaders.put(clazz, jsonMapper.reader(clazz));
         return typeName;
     }
 
@@ -166,13 +258,65 @@ public abstract class ESIndexMapper {
      * @return The index in which the given type lies.
      */
     public String getIndexForType(Class<?> clazz) {
-        String typeName = MappingBuilder.indexTypeFromClass(clazz);
-        String index = typesToIndices.get(typeName);
-        if (index == null) {
+        MappedTypes.MappedType mappedType = getMappedType(clazz);
+        if (mappedType.getIndex() == null) {
             log.error("Class <" + clazz.getName() + "> is not registered in any indexes.");
-            throw new IndexingServiceException("Requested type <" + typeName + "> is not registered in any indexes.");
+            throw new IndexingServiceException("Requested type <" + mappedType.getTypeName() + "> is not registered in any indexes.");
+        }
+        return mappedType.getIndex();
+    }
+
+    /**
+     * Get the elastic search type of the given class.
+     *
+     * @param clazz The class for which to get the type.
+     * @return The elastic search type of the class.
+     */
+    public String getTypeName(Class<?> clazz) {
+        return getMappedType(clazz).getTypeName();
+    }
+
+    /**
+     * Get the mapping of the given class from the lookup tables, or resolve it if the mapping is not completed.
+     *
+     * @param clazz The requested class.
+     * @return The mapping of the class.
+     */
+    protected MappedTypes.MappedType getMappedType(Class<?> clazz) {
+        MappedTypes tables = mappedTypes;
+        if (tables == null) {
+            return MappedTypes.resolve(clazz, typesToClasses, typesToIndices);
+        }
+        return tables.get(clazz);
+    }
+
+    /**
+     * Get the refresh policy of the given type.
+     *
+     * @param clazz The type for which to get the refresh policy.
+     * @return The refresh policy declared when the type has been mapped, {@link RefreshPolicy#IMMEDIATE} if none.
+     */
+    public RefreshPolicy getRefreshPolicy(Class<?> clazz) {
+        RefreshPolicy refreshPolicy = typesToRefreshPolicies.get(getTypeName(clazz));
+        return refreshPolicy == null ? RefreshPolicy.IMMEDIATE : refreshPolicy;
+    }
+
+    /**
+     * Wait for the given index to be refreshed after the call to this method. Concurrent callers share the same refresh request.
+     *
+     * @param indexName The index that must be refreshed.
+     * @throws IndexingServiceException if the thread is interrupted while waiting for the refresh, the interrupt flag of the thread is restored.
+     */
+    public void waitForRefresh(String indexName) {
+        IndexRefresh indexRefresh;
+        synchronized (indicesToRefreshes) {
+            indexRefresh = indicesToRefreshes.get(indexName);
+            if (indexRefresh == null) {
+                indexRefresh = new IndexRefresh(indexName);
+                indicesToRefreshes.put(indexName, indexRefresh);
+            }
         }
-        return index;
+        indexRefresh.await();
     }
 
     /**
@@ -209,15 +353,91 @@ public abstract class ESIndexMapper {
         }
     }
 
-    public String[] getTypesFromClass(Class<?> clazz) {
-        List<String> types = Lists.newArrayList();
-        Collection<Class<?>> allManagedClasses = typesToClasses.values();
-        for (Class<?> managedClass : allManagedClasses) {
-            if (clazz.isAssignableFrom(managedClass)) {
-                types.add(MappingBuilder.indexTypeFromClass(managedClass));
+    /**
+     * Get the json reader for the given class.
+     *
+     * @param clazz The class of the objects to read.
+     * @return The reader of the json mapper for the given class.
+     */
+    public ObjectReader getReader(Class<?> clazz) {
+        ObjectReader reader = classesToReaders.get(clazz);
+        if (reader == null) {
+            reader = jsonMapper.reader(clazz);
+            classesToReaders.put(clazz, reader);
+        }
+        return reader;
+    }
+
+    /**
+     * Deserialize a document source directly from its bytes.
+     *
+     * @param source The source of the document.
+     * @param clazz The class of the document.
+     * @return The deserialized document.
+     */
+    public <T> T readSource(BytesReference source, Class<T> clazz) throws IOException {
+        ObjectReader reader = getReader(clazz);
+        if (source.hasArray()) {
+            return reader.readValue(source.array(), source.arrayOffset(), source.length());
+        }
+        return reader.readValue(source.streamInput());
+    }
+
+    /**
+     * Deserialize the sources of the given hits, large pages are deserialized in parallel.
+     *
+     * @param hits The hits to deserialize.
+     * @param clazz The class of the hits, null to use the class mapped to the type of each hit.
+     * @param results The array in which to set the deserialized hits, in the order of the hits.
+     */
+    protected void readHits(final SearchHit[] hits, final Class<?> clazz, final Object[] results) throws IOException {
+        ThreadPoolExecutor executor = decodingExecutor;
+        if (executor == null || executor.isShutdown() || hits.length < parallelDecodingThreshold) {
+            readHits(hits, clazz, results, 0, hits.length);
+            return;
+        }
+        int threads = executor.getMaximumPoolSize();
+        int chunkSize = (hits.length + threads) / (threads + 1);
+        List<Future<Void>> futures = Lists.newArrayList();
+        for (int start = chunkSize; start < hits.length; start += chunkSize) {
+            final int from = start;
+            final int to = Math.min(start + chunkSize, hits.length);
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    readHits(hits, clazz, results, from, to);
+                    return null;
+                }
+            }));
+        }
+        // the calling thread deserializes the first chunk
+        readHits(hits, clazz, results, 0, chunkSize);
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IndexingServiceException("Interrupted while deserializing search hits.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IndexingServiceException("Failed to deserialize search hits.", e.getCause());
+        }
+    }
+
+    private void readHits(SearchHit[] hits, Class<?> clazz, Object[] results, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            results[i] = readSource(hits[i].sourceRef(), clazz == null ? getClassFromType(hits[i].getType()) : clazz);
         }
-        return types.toArray(new String[types.size()]);
+    }
+
+    public String[] getTypesFromClass(Class<?> clazz) {
+        return getMappedType(clazz).getSubTypesStrings();
     }
 
     /**
@@ -232,4 +452,57 @@ public abstract class ESIndexMapper {
     public static org.slf4j.Logger getLog() {
         return log;
     }
+
+    /**
+     * Group refresh of an index: a caller that requests a refresh while another refresh is running waits for the next one, which serves all the callers that
+     * arrived in the meantime.
+     */
+    private class IndexRefresh {
+        private final String indexName;
+        private long requested;
+        private long completed;
+        private boolean running;
+
+        private IndexRefresh(String indexName) {
+            this.indexName = indexName;
+        }
+
+        private void await() {
+            long target;
+            synchronized (this) {
+                target = ++requested;
+                while (running && completed < target) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // the write is not visible yet, the caller must not go on as if it was
+                        Thread.currentThread().interrupt();
+                        throw new IndexingServiceException("Interrupted while waiting for the refresh of index <" + indexName + ">.", e);
+                    }
+                }
+                if (completed >= target) {
+                    return;
+                }
+                running = true;
+            }
+            long served;
+            synchronized (this) {
+                served = requested;
+            }
+            boolean refreshed = false;
+            try {
+                getClient().admin().indices().prepareRefresh(indexName).execute().actionGet();
+                refreshed = true;
+            } finally {
+                synchronized (this) {
+                    running = false;
+                    // when the refresh fails the waiting callers are woken up and the next one runs a new refresh
+                    if (refreshed) {
+                        completed = Math.max(completed, served);
+                    }
+                    notifyAll();
+                }
+            }
+        }
+    }
 }
@@ -2,6 +2,8 @@ package alien4cloud.dao;
 
 import java.util.List;
 
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.index.query.QueryBuilder;
 
 /**
@@ -17,6 +19,15 @@ public interface IGenericIdDAO {
      */
     <T> void save(T entity);
 
+    /**
+     * Saves an entity into the repository without waiting for the operation to complete. The entity type refresh policy applies but the returned future
+     * doesn't wait for a shared index refresh.
+     * 
+     * @param entity the entity to save
+     * @return A future on the index operation.
+     */
+    <T> ListenableActionFuture<IndexResponse> saveAsync(T entity);
+
     /**
      * Bulk save multiple entities into the repository
      * 
@@ -57,4 +68,13 @@ public interface IGenericIdDAO {
      * @param query
      */
     public void delete(Class<?> clazz, QueryBuilder query);
+
+    /**
+     * Get the version of an index, incremented by every write on the index through this dao. Data read from the index may be cached as long as the version
+     * doesn't change.
+     *
+     * @param indexName The name of the index.
+     * @return The number of writes performed on the index.
+     */
+    long getIndexVersion(String indexName);
 }
\ No newline at end of file
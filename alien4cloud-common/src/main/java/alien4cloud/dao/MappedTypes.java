@@ -0,0 +1,124 @@
+package alien4cloud.dao;
+
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import org.elasticsearch.mapping.MappingBuilder;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Lookup tables of the classes mapped by an {@link ESIndexMapper}, resolved once all the classes are mapped so that search, count and delete requests don't
+ * walk the mapped classes nor compute type names.
+ */
+public final class MappedTypes {
+    private final Map<String, Class<?>> typesToClasses;
+    private final Map<String, String> typesToIndices;
+    private final Map<Class<?>, MappedType> classesToMappedTypes;
+
+    /**
+     * Resolve the tables for the mapped classes and all their super classes and interfaces.
+     *
+     * @param typesToClasses The mapped classes by elastic search type.
+     * @param typesToIndices The indices by elastic search type.
+     */
+    public MappedTypes(Map<String, Class<?>> typesToClasses, Map<String, String> typesToIndices) {
+        this.typesToClasses = ImmutableMap.copyOf(typesToClasses);
+        this.typesToIndices = ImmutableMap.copyOf(typesToIndices);
+        Map<Class<?>, MappedType> mappedTypes = Maps.newHashMap();
+        for (Class<?> mappedClass : typesToClasses.values()) {
+            for (Class<?> clazz : getSuperTypes(mappedClass)) {
+                if (!mappedTypes.containsKey(clazz)) {
+                    mappedTypes.put(clazz, resolve(clazz, this.typesToClasses, this.typesToIndices));
+                }
+            }
+        }
+        this.classesToMappedTypes = ImmutableMap.copyOf(mappedTypes);
+    }
+
+    /**
+     * Get the resolved mapping of a class, classes that are not related to any mapped class are resolved on every call.
+     *
+     * @param clazz The requested class.
+     * @return The mapping of the class.
+     */
+    public MappedType get(Class<?> clazz) {
+        MappedType mappedType = classesToMappedTypes.get(clazz);
+        return mappedType == null ? resolve(clazz, typesToClasses, typesToIndices) : mappedType;
+    }
+
+    /**
+     * Resolve the mapping of a class by walking the mapped classes.
+     *
+     * @param clazz The requested class.
+     * @param typesToClasses The mapped classes by elastic search type.
+     * @param typesToIndices The indices by elastic search type.
+     * @return The mapping of the class.
+     */
+    public static MappedType resolve(Class<?> clazz, Map<String, Class<?>> typesToClasses, Map<String, String> typesToIndices) {
+        String typeName = MappingBuilder.indexTypeFromClass(clazz);
+        List<Class<?>> subTypes = Lists.newArrayList();
+        List<String> subTypesStrings = Lists.newArrayList();
+        for (Class<?> mappedClass : typesToClasses.values()) {
+            if (clazz.isAssignableFrom(mappedClass)) {
+                subTypes.add(mappedClass);
+                subTypesStrings.add(MappingBuilder.indexTypeFromClass(mappedClass));
+            }
+        }
+        Class<?>[] requestedTypes;
+        String[] requestedTypesStrings;
+        if (Modifier.isAbstract(clazz.getModifiers())) {
+            requestedTypes = subTypes.toArray(new Class<?>[subTypes.size()]);
+            requestedTypesStrings = subTypesStrings.isEmpty() ? null : subTypesStrings.toArray(new String[subTypesStrings.size()]);
+        } else {
+            requestedTypes = new Class<?>[] { clazz };
+            requestedTypesStrings = new String[] { typeName };
+        }
+        return new MappedType(typeName, typesToIndices.get(typeName), requestedTypes, requestedTypesStrings, subTypesStrings.toArray(new String[subTypesStrings
+                .size()]));
+    }
+
+    private static Set<Class<?>> getSuperTypes(Class<?> clazz) {
+        Set<Class<?>> superTypes = Sets.newHashSet();
+        for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+            superTypes.add(current);
+            addInterfaces(current, superTypes);
+        }
+        return superTypes;
+    }
+
+    private static void addInterfaces(Class<?> clazz, Set<Class<?>> superTypes) {
+        for (Class<?> interfaceClass : clazz.getInterfaces()) {
+            if (superTypes.add(interfaceClass)) {
+                addInterfaces(interfaceClass, superTypes);
+            }
+        }
+    }
+
+    /**
+     * Mapping of a requested class. The arrays are shared by all the requests and must not be modified.
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class MappedType {
+        /** Elastic search type of the class. */
+        private final String typeName;
+        /** Index of the class, null if the class is not mapped. */
+        private final String index;
+        /** Classes to request for the class: the mapped sub classes for an abstract class, the class itself otherwise. */
+        private final Class<?>[] requestedTypes;
+        /** Elastic search types of the requested classes, null if there is none. */
+        private final String[] requestedTypesStrings;
+        /** Elastic search types of all the mapped classes assignable to the class. */
+        private final String[] subTypesStrings;
+    }
+}
@@ -0,0 +1,38 @@
+package alien4cloud.dao;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Defines when the writes (index and delete operations) on a type become visible to searches.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RefreshPolicy {
+    /** Every write refreshes the index before returning (default policy). */
+    public static final RefreshPolicy IMMEDIATE = new RefreshPolicy(Mode.IMMEDIATE, null);
+    /**
+     * Writes don't refresh the index by themselves but wait for the index to be refreshed before returning. A single refresh is shared by all the writes that
+     * are concurrently waiting for visibility on the same index.
+     */
+    public static final RefreshPolicy WAIT_FOR = new RefreshPolicy(Mode.WAIT_FOR, null);
+
+    private final Mode mode;
+    /** Elastic search refresh interval of the index (ES time notation) for {@link Mode#EVENTUAL} policies. */
+    private final String refreshInterval;
+
+    /**
+     * Writes return as soon as they are indexed and become visible to searches once elastic search refreshes the index in background.
+     *
+     * @param refreshInterval The interval in which the index is refreshed (ES time notation, for example 1s or 500ms).
+     * @return An eventual refresh policy.
+     */
+    public static RefreshPolicy eventual(String refreshInterval) {
+        return new RefreshPolicy(Mode.EVENTUAL, refreshInterval);
+    }
+
+    public enum Mode {
+        IMMEDIATE, WAIT_FOR, EVENTUAL
+    }
+}
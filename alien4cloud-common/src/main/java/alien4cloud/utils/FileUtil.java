@@ -18,6 +18,8 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -30,11 +32,18 @@ import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 
 import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Closeables;
 
 @Slf4j
 public final class FileUtil {
+    /** Names of the version control metadata directories that are not part of the content of a directory. */
+    private static final Set<String> VCS_DIRECTORIES = Sets.newHashSet(".git", ".svn", ".hg");
+
     /**
      * Utility class should have private constructor.
      */
@@ -300,4 +309,59 @@ public final class FileUtil {
         });
         return files;
     }
+
+    /**
+     * Compute the SHA-1 digest of the content of a file or directory. Files of a directory are streamed in the order of their relative paths and the relative
+     * paths are part of the digest so renaming or moving a file changes the digest. Version control metadata directories (.git, .svn, .hg) are ignored so the
+     * digest of a working tree doesn't change on fetch or pull.
+     *
+     * @param path The file or directory to digest.
+     * @return The hexadecimal digest of the content.
+     * @throws IOException In case a file cannot be read.
+     */
+    public static String digest(final Path path) throws IOException {
+        if (!Files.exists(path)) {
+            throw new FileNotFoundException("File not found " + path);
+        }
+        Hasher hasher = Hashing.sha1().newHasher();
+        byte[] buffer = new byte[8192];
+        if (!Files.isDirectory(path)) {
+            putFileContent(hasher, path, buffer);
+            return hasher.hash().toString();
+        }
+        // sort the files so the digest doesn't depend on the order of the directory entries
+        final Map<String, Path> files = Maps.newTreeMap();
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (dir.getFileName() != null && VCS_DIRECTORIES.contains(dir.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                files.put(path.relativize(file).toString().replace(path.getFileSystem().getSeparator(), "/"), file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        for (Map.Entry<String, Path> file : files.entrySet()) {
+            hasher.putString(file.getKey(), Charsets.UTF_8).putLong(Files.size(file.getValue()));
+            putFileContent(hasher, file.getValue(), buffer);
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void putFileContent(Hasher hasher, Path file, byte[] buffer) throws IOException {
+        InputStream input = Files.newInputStream(file);
+        try {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                hasher.putBytes(buffer, 0, read);
+            }
+        } finally {
+            input.close();
+        }
+    }
 }
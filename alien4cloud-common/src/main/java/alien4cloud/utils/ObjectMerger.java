@@ -0,0 +1,152 @@
+package alien4cloud.utils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeansException;
+
+import alien4cloud.exception.InvalidArgumentException;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Merge the non null properties of an object into another object.
+ * <p>
+ * The properties to merge are resolved once per (source class, target class, ignored properties) into a merge plan of method handles. Values which type
+ * differs from the type of the target property are converted and set through a bean wrapper as done by {@link ReflectionUtil#setPropertyValue(Object,
+ * String, Object)}.
+ */
+public final class ObjectMerger {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final Map<PlanKey, PropertyMerge[]> PLANS = Maps.newConcurrentMap();
+
+    private ObjectMerger() {
+    }
+
+    /**
+     * Merge object from an object to another. Failsafe : resist to invalid property.
+     *
+     * @param from source of the update
+     * @param to target of the update
+     * @param ignores properties names that should be ignored
+     */
+    public static void merge(Object from, Object to, String... ignores) {
+        PropertyMerge[] plan = getPlan(from.getClass(), to.getClass(), ignores);
+        // read all the values before updating the target
+        Object[] values = new Object[plan.length];
+        for (int i = 0; i < plan.length; i++) {
+            values[i] = plan[i].get(from);
+        }
+        for (int i = 0; i < plan.length; i++) {
+            if (values[i] != null) {
+                plan[i].set(to, values[i]);
+            }
+        }
+    }
+
+    private static PropertyMerge[] getPlan(Class<?> fromClass, Class<?> toClass, String[] ignores) {
+        PlanKey key = new PlanKey(fromClass, toClass, Arrays.asList(ignores));
+        PropertyMerge[] plan = PLANS.get(key);
+        if (plan == null) {
+            plan = createPlan(fromClass, toClass, Sets.newHashSet(ignores));
+            PLANS.put(key, plan);
+        }
+        return plan;
+    }
+
+    private static PropertyMerge[] createPlan(Class<?> fromClass, Class<?> toClass, Set<String> ignores) {
+        List<PropertyMerge> plan = Lists.newArrayList();
+        for (PropertyDescriptor property : ReflectionUtil.getPropertyDescriptors(fromClass)) {
+            if (property.getReadMethod() == null || property.getWriteMethod() == null || ignores.contains(property.getName())) {
+                continue;
+            }
+            // same resolution of the target property as a bean wrapper, values of properties that are not writable on the target are ignored
+            PropertyDescriptor targetProperty = BeanUtils.getPropertyDescriptor(toClass, property.getName());
+            Method setter = targetProperty == null ? null : targetProperty.getWriteMethod();
+            if (setter == null) {
+                continue;
+            }
+            MethodHandle getter = unreflect(property.getReadMethod(), GETTER_TYPE);
+            if (property.getReadMethod().getGenericReturnType().equals(setter.getGenericParameterTypes()[0])) {
+                plan.add(new PropertyMerge(property.getName(), getter, unreflect(setter, SETTER_TYPE)));
+            } else {
+                // the value may have to be converted
+                plan.add(new PropertyMerge(property.getName(), getter, null));
+            }
+        }
+        return plan.toArray(new PropertyMerge[plan.size()]);
+    }
+
+    private static MethodHandle unreflect(Method method, MethodType type) {
+        try {
+            if (!method.isAccessible()) {
+                method.setAccessible(true);
+            }
+            return MethodHandles.lookup().unreflect(method).asType(type);
+        } catch (IllegalAccessException | SecurityException e) {
+            throw new InvalidArgumentException("Cannot merge object, method [" + method + "] is not accessible", e);
+        }
+    }
+
+    /**
+     * Merge of a single property.
+     */
+    @AllArgsConstructor
+    private static final class PropertyMerge {
+        private final String name;
+        private final MethodHandle getter;
+        /** Setter of the target property, null if the value has to be set through a bean wrapper. */
+        private final MethodHandle setter;
+
+        private Object get(Object from) {
+            try {
+                return (Object) getter.invokeExact(from);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new InvalidArgumentException("Cannot merge object", e);
+            }
+        }
+
+        private void set(Object to, Object value) {
+            if (setter == null) {
+                try {
+                    ReflectionUtil.setPropertyValue(to, name, value);
+                } catch (BeansException e) {
+                    throw new InvalidArgumentException("Cannot merge object", e);
+                }
+                return;
+            }
+            try {
+                setter.invokeExact(to, value);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new InvalidArgumentException("Cannot merge object", e);
+            }
+        }
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class PlanKey {
+        private final Class<?> fromClass;
+        private final Class<?> toClass;
+        private final List<String> ignores;
+    }
+}
@@ -6,7 +6,6 @@ import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -19,7 +18,6 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.BeanWrapperImpl;
-import org.springframework.beans.BeansException;
 import org.springframework.util.ReflectionUtils;
 
 import alien4cloud.exception.InvalidArgumentException;
@@ -190,28 +188,7 @@ public final class ReflectionUtil {
      * @param ignores properties names that should be ignored
      */
     public static void mergeObject(Object from, Object to, String... ignores) {
-        Set<String> ignoredProps = Sets.newHashSet(ignores);
-        try {
-            Map<String, Object> settablePropertiesMap = Maps.newHashMap();
-            PropertyDescriptor[] propertyDescriptors = getPropertyDescriptors(from.getClass());
-            for (PropertyDescriptor property : propertyDescriptors) {
-                if (property.getReadMethod() == null || property.getWriteMethod() == null) {
-                    continue;
-                }
-                Object value = property.getReadMethod().invoke(from);
-                if (value != null && !ignoredProps.contains(property.getName())) {
-                    settablePropertiesMap.put(property.getName(), value);
-                }
-            }
-            for (Map.Entry<String, Object> settableProperty : settablePropertiesMap.entrySet()) {
-                // Set new values
-                String propertyName = settableProperty.getKey();
-                Object propertyValue = settableProperty.getValue();
-                setPropertyValue(to, propertyName, propertyValue);
-            }
-        } catch (IllegalAccessException | InvocationTargetException | BeansException e) {
-            throw new InvalidArgumentException("Cannot merge object", e);
-        }
+        ObjectMerger.merge(from, to, ignores);
     }
 
     /**
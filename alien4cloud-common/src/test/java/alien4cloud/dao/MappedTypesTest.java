@@ -0,0 +1,94 @@
+package alien4cloud.dao;
+
+import java.util.Map;
+
+import org.elasticsearch.mapping.MappingBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import alien4cloud.dao.MappedTypes.MappedType;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class MappedTypesTest {
+    private interface Element {
+    }
+
+    private abstract static class AbstractNode implements Element {
+    }
+
+    private static class Compute extends AbstractNode {
+    }
+
+    private static class ScalableCompute extends Compute {
+    }
+
+    private static class Network extends AbstractNode {
+    }
+
+    private abstract static class UnmappedNode {
+    }
+
+    private Map<String, Class<?>> typesToClasses = Maps.newHashMap();
+    private Map<String, String> typesToIndices = Maps.newHashMap();
+    private MappedTypes mappedTypes;
+
+    @Before
+    public void before() {
+        for (Class<?> clazz : new Class<?>[] { Compute.class, ScalableCompute.class, Network.class }) {
+            typesToClasses.put(type(clazz), clazz);
+            typesToIndices.put(type(clazz), "nodes");
+        }
+        mappedTypes = new MappedTypes(typesToClasses, typesToIndices);
+    }
+
+    private String type(Class<?> clazz) {
+        return MappingBuilder.indexTypeFromClass(clazz);
+    }
+
+    @Test
+    public void abstractClassShouldRequestItsMappedSubClasses() {
+        for (Class<?> clazz : new Class<?>[] { AbstractNode.class, Element.class }) {
+            MappedType mappedType = mappedTypes.get(clazz);
+            Assert.assertEquals(type(clazz), mappedType.getTypeName());
+            Assert.assertNull(mappedType.getIndex());
+            Assert.assertEquals(Sets.newHashSet(Compute.class, ScalableCompute.class, Network.class), Sets.newHashSet(mappedType.getRequestedTypes()));
+            Assert.assertEquals(Sets.newHashSet(type(Compute.class), type(ScalableCompute.class), type(Network.class)),
+                    Sets.newHashSet(mappedType.getRequestedTypesStrings()));
+            Assert.assertEquals(Sets.newHashSet(mappedType.getRequestedTypesStrings()), Sets.newHashSet(mappedType.getSubTypesStrings()));
+        }
+    }
+
+    @Test
+    public void concreteClassShouldRequestItself() {
+        MappedType mappedType = mappedTypes.get(Compute.class);
+        Assert.assertEquals(type(Compute.class), mappedType.getTypeName());
+        Assert.assertEquals("nodes", mappedType.getIndex());
+        Assert.assertArrayEquals(new Class<?>[] { Compute.class }, mappedType.getRequestedTypes());
+        Assert.assertArrayEquals(new String[] { type(Compute.class) }, mappedType.getRequestedTypesStrings());
+        Assert.assertEquals(Sets.newHashSet(type(Compute.class), type(ScalableCompute.class)), Sets.newHashSet(mappedType.getSubTypesStrings()));
+    }
+
+    @Test
+    public void mappedClassesAndTheirSuperTypesShouldBeResolvedOnce() {
+        for (Class<?> clazz : new Class<?>[] { Compute.class, ScalableCompute.class, AbstractNode.class, Element.class, Object.class }) {
+            Assert.assertSame(mappedTypes.get(clazz), mappedTypes.get(clazz));
+        }
+        // the resolved tables match the resolution by walking the mapped classes
+        MappedType resolved = MappedTypes.resolve(AbstractNode.class, typesToClasses, typesToIndices);
+        Assert.assertEquals(Sets.newHashSet(resolved.getRequestedTypesStrings()),
+                Sets.newHashSet(mappedTypes.get(AbstractNode.class).getRequestedTypesStrings()));
+    }
+
+    @Test
+    public void abstractClassWithoutMappedSubClassShouldRequestNothing() {
+        MappedType mappedType = mappedTypes.get(UnmappedNode.class);
+        Assert.assertEquals(type(UnmappedNode.class), mappedType.getTypeName());
+        Assert.assertNull(mappedType.getIndex());
+        Assert.assertEquals(0, mappedType.getRequestedTypes().length);
+        Assert.assertNull(mappedType.getRequestedTypesStrings());
+        Assert.assertEquals(0, mappedType.getSubTypesStrings().length);
+    }
+}
@@ -0,0 +1,61 @@
+package alien4cloud.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+public class FileUtilTest {
+    private static final Path DIGEST_FOLDER = Paths.get("target/file-util-tests/digest");
+
+    @Before
+    public void before() throws IOException {
+        FileUtil.delete(DIGEST_FOLDER);
+        write("Definitions/types.yml", "tosca_definitions_version: alien_dsl_1_1_0");
+        write("images/icon.png", "icon");
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        Path file = DIGEST_FOLDER.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(Charsets.UTF_8));
+    }
+
+    @Test
+    public void digestShouldChangeWithTheContentOfTheDirectory() throws IOException {
+        String digest = FileUtil.digest(DIGEST_FOLDER);
+        Assert.assertEquals(digest, FileUtil.digest(DIGEST_FOLDER));
+
+        write("images/icon.png", "other icon");
+        String modifiedDigest = FileUtil.digest(DIGEST_FOLDER);
+        Assert.assertNotEquals(digest, modifiedDigest);
+
+        // moving a file changes the digest
+        Files.move(DIGEST_FOLDER.resolve("images/icon.png"), DIGEST_FOLDER.resolve("icon.png"));
+        Assert.assertNotEquals(modifiedDigest, FileUtil.digest(DIGEST_FOLDER));
+    }
+
+    @Test
+    public void digestShouldIgnoreVersionControlMetadata() throws IOException {
+        String digest = FileUtil.digest(DIGEST_FOLDER);
+        write(".git/FETCH_HEAD", "5d2c4c9e branch 'master' of https://github.com/alien4cloud/samples");
+        write(".svn/wc.db", "svn");
+        write("images/.hg/store", "hg");
+        Assert.assertEquals(digest, FileUtil.digest(DIGEST_FOLDER));
+    }
+
+    @Test
+    public void digestOfAFileShouldBeTheDigestOfItsContent() throws IOException {
+        Path file = DIGEST_FOLDER.resolve("Definitions/types.yml");
+        String digest = FileUtil.digest(file);
+        write("Definitions/other.yml", "tosca_definitions_version: alien_dsl_1_1_0");
+        Assert.assertEquals(digest, FileUtil.digest(DIGEST_FOLDER.resolve("Definitions/other.yml")));
+        Assert.assertNotEquals(digest, FileUtil.digest(DIGEST_FOLDER.resolve("images/icon.png")));
+    }
+}
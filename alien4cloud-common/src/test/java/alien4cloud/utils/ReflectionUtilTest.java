@@ -72,4 +72,25 @@ public class ReflectionUtilTest {
         ReflectionUtil.mergeObject(mergeRequest, mergedObject);
     }
 
+    @Test
+    public void mergeObjectShouldIgnoreNullAndIgnoredProperties() {
+        MergedObject mergedObject = new MergedObject();
+        mergedObject.setId("an id");
+        mergedObject.setText("text");
+        mergedObject.setNotUpdated("not updated");
+
+        MergedObject update = new MergedObject();
+        update.setId("another id");
+        update.setNumber(5);
+
+        ReflectionUtil.mergeObject(update, mergedObject, "id");
+        Assert.assertEquals("an id", mergedObject.getId());
+        Assert.assertEquals("text", mergedObject.getText());
+        Assert.assertEquals("not updated", mergedObject.getNotUpdated());
+        Assert.assertEquals(5, mergedObject.getNumber().intValue());
+
+        // merge plans are resolved per ignored properties
+        ReflectionUtil.mergeObject(update, mergedObject);
+        Assert.assertEquals("another id", mergedObject.getId());
+    }
 }
@@ -256,6 +256,40 @@ public class ApplicationEnvironmentService {
         return currentStatus;
     }
 
+    /**
+     * Get the statuses of several environments at once, the active deployments are retrieved with a single request and their statuses are resolved by
+     * {@link DeploymentRuntimeStateService#getDeploymentStatuses(java.util.Collection)}.
+     *
+     * @param environments The environments for which to get the statuses.
+     * @return Map of environment id to the status of the environment.
+     */
+    public Map<String, DeploymentStatus> getStatuses(List<ApplicationEnvironment> environments) {
+        Map<String, DeploymentStatus> statuses = Maps.newHashMap();
+        if (environments.isEmpty()) {
+            return statuses;
+        }
+        String[] environmentIds = new String[environments.size()];
+        for (int i = 0; i < environmentIds.length; i++) {
+            environmentIds[i] = environments.get(i).getId();
+            statuses.put(environmentIds[i], DeploymentStatus.UNDEPLOYED);
+        }
+        GetMultipleDataResult<Deployment> dataResult = alienDAO.search(Deployment.class, null,
+                MapUtil.newHashMap(new String[] { "environmentId", "endDate" }, new String[][] { environmentIds, new String[] { null } }),
+                environmentIds.length);
+        if (dataResult.getData() == null || dataResult.getData().length == 0) {
+            return statuses;
+        }
+        Map<String, Deployment> activeDeployments = Maps.newHashMap();
+        for (Deployment deployment : dataResult.getData()) {
+            activeDeployments.put(deployment.getId(), deployment);
+        }
+        Map<String, DeploymentStatus> deploymentStatuses = deploymentRuntimeStateService.getDeploymentStatuses(activeDeployments.values());
+        for (Map.Entry<String, DeploymentStatus> deploymentStatus : deploymentStatuses.entrySet()) {
+            statuses.put(activeDeployments.get(deploymentStatus.getKey()).getEnvironmentId(), deploymentStatus.getValue());
+        }
+        return statuses;
+    }
+
     /**
      * Get the topology id linked to the environment
      * 
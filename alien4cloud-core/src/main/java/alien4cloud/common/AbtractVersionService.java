@@ -83,7 +83,7 @@ public abstract class AbtractVersionService<V extends AbstractTopologyVersion> {
             topology = providedTopology;
         } else {
             if (topologyToCloneId != null) { // "cloning" the topology
-                topology = alienDAO.findById(Topology.class, topologyToCloneId);
+                topology = topologyServiceCore.getTopology(topologyToCloneId);
             } else {
                 topology = new Topology();
             }
@@ -161,7 +161,7 @@ public abstract class AbtractVersionService<V extends AbstractTopologyVersion> {
     }
 
     private void deleteVersion(V version) {
-        alienDAO.delete(Topology.class, version.getTopologyId());
+        topologyServiceCore.delete(version.getTopologyId());
         alienDAO.delete(getVersionImplemClass(), version.getId());
     }
 
@@ -300,7 +300,7 @@ public abstract class AbtractVersionService<V extends AbstractTopologyVersion> {
         String oldTopologyId = topologyTemplateVersion.getTopologyId();
         topologyTemplateVersion.setTopologyId(topologyId);
         alienDAO.save(topologyTemplateVersion);
-        alienDAO.delete(Topology.class, oldTopologyId);
+        topologyServiceCore.delete(oldTopologyId);
     }
 
 }
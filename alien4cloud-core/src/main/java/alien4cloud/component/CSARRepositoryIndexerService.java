@@ -15,6 +15,7 @@ import javax.annotation.Resource;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.IdsQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.mapping.ElasticSearchClient;
@@ -34,6 +35,7 @@ import alien4cloud.tosca.ArchiveImageLoader;
 import alien4cloud.utils.MapUtil;
 import alien4cloud.utils.VersionUtil;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -95,6 +97,143 @@ public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerServi
         }
     }
 
+    @Override
+    public void indexArchiveElements(String archiveName, String archiveVersion, Collection<? extends IndexedInheritableToscaElement> archiveElements,
+            Collection<CSARDependency> dependencies) {
+        // parents and highest versions are resolved among the elements of the same type
+        Map<Class<? extends IndexedInheritableToscaElement>, Map<String, IndexedInheritableToscaElement>> elementsByType = Maps.newLinkedHashMap();
+        for (IndexedInheritableToscaElement element : archiveElements) {
+            Map<String, IndexedInheritableToscaElement> typeElements = elementsByType.get(element.getClass());
+            if (typeElements == null) {
+                typeElements = Maps.newLinkedHashMap();
+                elementsByType.put(element.getClass(), typeElements);
+            }
+            typeElements.put(element.getElementId(), element);
+        }
+
+        List<IndexedToscaElement> elementsToSave = Lists.newArrayList();
+        Date indexingDate = new Date();
+        for (Map.Entry<Class<? extends IndexedInheritableToscaElement>, Map<String, IndexedInheritableToscaElement>> typeEntry : elementsByType.entrySet()) {
+            Map<String, IndexedInheritableToscaElement> typeElements = typeEntry.getValue();
+            Map<String, IndexedInheritableToscaElement> dependenciesParents = findDependenciesParents(typeEntry.getKey(), typeElements, dependencies);
+            Map<String, IndexedToscaElement> highestVersionElements = findHighestVersionElements(typeEntry.getKey(), archiveName);
+            for (IndexedInheritableToscaElement element : IndexedModelUtils.orderByDerivedFromHierarchy(typeElements)) {
+                element.setLastUpdateDate(indexingDate);
+                element.setCreationDate(element.getCreationDate() == null ? indexingDate : element.getCreationDate());
+                if (element.getDerivedFrom() != null) {
+                    // parents of the archive are ordered before their children so they are already merged with their own parents
+                    String parentId = element.getDerivedFrom().get(0);
+                    IndexedInheritableToscaElement superElement = typeElements.containsKey(parentId) ? typeElements.get(parentId) : dependenciesParents
+                            .get(parentId);
+                    if (superElement == null) {
+                        throw new IndexingServiceException("Indexing service is in an inconsistent state, the super element [" + element.getDerivedFrom()
+                                + "] is not found for element [" + element.getId() + "]");
+                    }
+                    IndexedModelUtils.mergeInheritableIndex(superElement, element);
+                }
+                updateHighestVersion(element, highestVersionElements.get(element.getElementId()), elementsToSave);
+            }
+        }
+
+        // the tosca elements index is refreshed once by the bulk request
+        alienDAO.save(elementsToSave.toArray(new IndexedToscaElement[elementsToSave.size()]));
+    }
+
+    /**
+     * Find the parents of the given elements that are defined in the dependencies, a single request is performed for all the elements.
+     *
+     * @return The parents by element id, if a parent is defined in several dependencies the first dependency wins.
+     */
+    private Map<String, IndexedInheritableToscaElement> findDependenciesParents(Class<? extends IndexedInheritableToscaElement> indexedType,
+            Map<String, IndexedInheritableToscaElement> typeElements, Collection<CSARDependency> dependencies) {
+        Map<String, IndexedInheritableToscaElement> parents = Maps.newHashMap();
+        Set<String> parentIds = Sets.newHashSet();
+        for (IndexedInheritableToscaElement element : typeElements.values()) {
+            if (element.getDerivedFrom() != null && !typeElements.containsKey(element.getDerivedFrom().get(0))) {
+                parentIds.add(element.getDerivedFrom().get(0));
+            }
+        }
+        if (parentIds.isEmpty() || dependencies == null || dependencies.isEmpty()) {
+            return parents;
+        }
+        BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
+        for (CSARDependency dependency : dependencies) {
+            IdsQueryBuilder matchIdsQueryBuilder = QueryBuilders.idsQuery();
+            for (String parentId : parentIds) {
+                matchIdsQueryBuilder.addIds(parentId + ":" + dependency.getVersion());
+            }
+            boolQueryBuilder.should(QueryBuilders.boolQuery().must(matchIdsQueryBuilder).must(QueryBuilders.termQuery("archiveName", dependency.getName())));
+        }
+        List<? extends IndexedInheritableToscaElement> foundParents = alienDAO.customFindAll(indexedType, boolQueryBuilder);
+        if (foundParents == null) {
+            return parents;
+        }
+        for (CSARDependency dependency : dependencies) {
+            for (IndexedInheritableToscaElement foundParent : foundParents) {
+                if (dependency.getName().equals(foundParent.getArchiveName()) && dependency.getVersion().equals(foundParent.getArchiveVersion())
+                        && !parents.containsKey(foundParent.getElementId())) {
+                    parents.put(foundParent.getElementId(), foundParent);
+                }
+            }
+        }
+        return parents;
+    }
+
+    /**
+     * Find the highest versions of the elements of an archive, a single request is performed for all the elements of the given type.
+     *
+     * @return The highest version elements by element id.
+     */
+    private Map<String, IndexedToscaElement> findHighestVersionElements(Class<? extends IndexedInheritableToscaElement> indexedType, String archiveName) {
+        Map<String, IndexedToscaElement> highestVersionElements = Maps.newHashMap();
+        BoolQueryBuilder highestVersionElementsQueryBuilder = QueryBuilders.boolQuery().must(QueryBuilders.termQuery("archiveName", archiveName))
+                .must(QueryBuilders.termQuery("highestVersion", true));
+        List<? extends IndexedToscaElement> elements = alienDAO.customFindAll(indexedType, highestVersionElementsQueryBuilder);
+        if (elements != null) {
+            for (IndexedToscaElement element : elements) {
+                highestVersionElements.put(element.getElementId(), element);
+            }
+        }
+        return highestVersionElements;
+    }
+
+    /**
+     * Same as {@link #saveAndUpdateHighestVersion(IndexedToscaElement)} but the elements to save are added to the given list instead of being saved.
+     */
+    private void updateHighestVersion(IndexedToscaElement element, IndexedToscaElement highestVersionElement, List<IndexedToscaElement> elementsToSave) {
+        if (highestVersionElement == null) {
+            // No element found with other version, I'm the highest version
+            element.setHighestVersion(true);
+        } else {
+            int compareVersionResult = VersionUtil.compare(element.getArchiveVersion(), highestVersionElement.getArchiveVersion());
+            if (compareVersionResult > 0) {
+                // Current version is less recent than mine, I'm the highest version
+                highestVersionElement.setHighestVersion(false);
+                element.setHighestVersion(true);
+                Set<String> currentOlderVersions = highestVersionElement.getOlderVersions();
+                Set<String> newOlderVersions = currentOlderVersions != null ? Sets.newHashSet(currentOlderVersions) : new HashSet<String>();
+                newOlderVersions.add(highestVersionElement.getArchiveVersion());
+                element.setOlderVersions(newOlderVersions);
+                highestVersionElement.setOlderVersions(null);
+                elementsToSave.add(highestVersionElement);
+            } else if (compareVersionResult == 0) {
+                // The same version as the highest --> override
+                element.setHighestVersion(true);
+                element.setOlderVersions(highestVersionElement.getOlderVersions());
+            } else {
+                // Current version is more recent than mine, just save
+                Set<String> currentOlderVersions = highestVersionElement.getOlderVersions();
+                if (currentOlderVersions == null) {
+                    currentOlderVersions = Sets.newHashSet();
+                    highestVersionElement.setOlderVersions(currentOlderVersions);
+                }
+                currentOlderVersions.add(element.getArchiveVersion());
+                elementsToSave.add(highestVersionElement);
+            }
+        }
+        elementsToSave.add(element);
+    }
+
     @Override
     public void indexInheritableElement(String archiveName, String archiveVersion, IndexedInheritableToscaElement element,
             Collection<CSARDependency> dependencies) {
@@ -1,14 +1,17 @@
 package alien4cloud.component;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 import javax.annotation.Resource;
 
 import lombok.NonNull;
 
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.IdsQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.mapping.MappingBuilder;
 import org.springframework.stereotype.Component;
 
 import alien4cloud.dao.IGenericSearchDAO;
@@ -19,8 +22,10 @@ import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.Csar;
 import alien4cloud.model.components.IndexedToscaElement;
 import alien4cloud.utils.CollectionUtils;
+import alien4cloud.utils.TypeMap;
 import alien4cloud.utils.VersionUtil;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -28,6 +33,8 @@ import com.google.common.collect.Sets;
 public class CSARRepositorySearchService implements ICSARRepositorySearchService {
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO searchDAO;
+    @Resource
+    private ToscaElementCache toscaElementCache;
 
     @Override
     public boolean isElementExistInDependencies(@NonNull Class<? extends IndexedToscaElement> elementClass, @NonNull String elementId,
@@ -46,10 +53,20 @@ public class CSARRepositorySearchService implements ICSARRepositorySearchService
     }
 
     @Override
-    public <T extends IndexedToscaElement> T getElementInDependencies(Class<T> elementClass, String elementId, Collection<CSARDependency> dependencies) {
+    public <T extends IndexedToscaElement> T getElementInDependencies(final Class<T> elementClass, final String elementId,
+            final Collection<CSARDependency> dependencies) {
         if (dependencies == null || dependencies.isEmpty()) {
             return null;
         }
+        return toscaElementCache.get(elementClass, elementId, dependencies, new Callable<T>() {
+            @Override
+            public T call() {
+                return findElementInDependencies(elementClass, elementId, dependencies);
+            }
+        });
+    }
+
+    private <T extends IndexedToscaElement> T findElementInDependencies(Class<T> elementClass, String elementId, Collection<CSARDependency> dependencies) {
         // The query match element id of all defined dependencies' version from defined dependencies' archive name
         BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
         for (CSARDependency dependency : dependencies) {
@@ -83,6 +100,80 @@ public class CSARRepositorySearchService implements ICSARRepositorySearchService
         return element;
     }
 
+    @Override
+    public TypeMap getElementsInDependencies(Map<? extends Class<? extends IndexedToscaElement>, ? extends Collection<String>> elementIds,
+            Collection<CSARDependency> dependencies) {
+        TypeMap elements = new TypeMap();
+        if (dependencies == null || dependencies.isEmpty()) {
+            return elements;
+        }
+        // Get the elements that are already resolved from the cache
+        Map<Class<? extends IndexedToscaElement>, Set<String>> missingElementIds = Maps.newHashMap();
+        for (Map.Entry<? extends Class<? extends IndexedToscaElement>, ? extends Collection<String>> classElementIds : elementIds.entrySet()) {
+            for (String elementId : classElementIds.getValue()) {
+                Optional<? extends IndexedToscaElement> cached = toscaElementCache.getIfPresent(classElementIds.getKey(), elementId, dependencies);
+                if (cached == null) {
+                    Set<String> missingIds = missingElementIds.get(classElementIds.getKey());
+                    if (missingIds == null) {
+                        missingIds = Sets.newHashSet();
+                        missingElementIds.put(classElementIds.getKey(), missingIds);
+                    }
+                    missingIds.add(elementId);
+                } else if (cached.isPresent()) {
+                    elements.put(elementId, cached.get());
+                }
+            }
+        }
+        if (missingElementIds.isEmpty()) {
+            return elements;
+        }
+
+        // The query match the ids of all missing elements of a type in every dependency's version from the dependency's archive name
+        BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
+        for (Map.Entry<Class<? extends IndexedToscaElement>, Set<String>> classElementIds : missingElementIds.entrySet()) {
+            String typeName = MappingBuilder.indexTypeFromClass(classElementIds.getKey());
+            for (CSARDependency dependency : dependencies) {
+                IdsQueryBuilder idsQueryBuilder = QueryBuilders.idsQuery(typeName);
+                for (String elementId : classElementIds.getValue()) {
+                    idsQueryBuilder.addIds(elementId + ":" + dependency.getVersion());
+                }
+                QueryBuilder matchArchiveNameQueryBuilder = QueryBuilders.termQuery("archiveName", dependency.getName());
+                boolQueryBuilder.should(QueryBuilders.boolQuery().must(idsQueryBuilder).must(matchArchiveNameQueryBuilder));
+            }
+        }
+        List<IndexedToscaElement> foundElements = searchDAO.customFindAll(IndexedToscaElement.class, boolQueryBuilder);
+        if (foundElements != null) {
+            // keep the element from the most recent archive
+            for (IndexedToscaElement element : foundElements) {
+                IndexedToscaElement current = elements.get(element.getClass(), element.getElementId());
+                if (current == null || VersionUtil.compare(element.getArchiveVersion(), current.getArchiveVersion()) > 0) {
+                    elements.put(element.getElementId(), element);
+                }
+            }
+        }
+        for (Map.Entry<Class<? extends IndexedToscaElement>, Set<String>> classElementIds : missingElementIds.entrySet()) {
+            for (String elementId : classElementIds.getValue()) {
+                toscaElementCache.put(classElementIds.getKey(), elementId, dependencies, elements.get(classElementIds.getKey(), elementId));
+            }
+        }
+        return elements;
+    }
+
+    @Override
+    public TypeMap getRequiredElementsInDependencies(Map<? extends Class<? extends IndexedToscaElement>, ? extends Collection<String>> elementIds,
+            Collection<CSARDependency> dependencies) throws NotFoundException {
+        TypeMap elements = getElementsInDependencies(elementIds, dependencies);
+        for (Map.Entry<? extends Class<? extends IndexedToscaElement>, ? extends Collection<String>> classElementIds : elementIds.entrySet()) {
+            for (String elementId : classElementIds.getValue()) {
+                if (elements.get(classElementIds.getKey(), elementId) == null) {
+                    throw new NotFoundException("Element elementId: <" + elementId + "> of type <" + classElementIds.getKey().getSimpleName()
+                            + "> cannot be found in dependencies " + dependencies);
+                }
+            }
+        }
+        return elements;
+    }
+
     @Override
     public <T extends IndexedToscaElement> T getParentOfElement(Class<T> elementClass, T indexedToscaElement, String parentElementId) {
         Csar csar = searchDAO.findById(Csar.class, indexedToscaElement.getArchiveName() + ":" + indexedToscaElement.getArchiveVersion());
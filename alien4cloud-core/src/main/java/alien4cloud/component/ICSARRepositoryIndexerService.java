@@ -39,6 +39,18 @@ public interface ICSARRepositoryIndexerService {
     void indexInheritableElements(String archiveName, String archiveVersion, Map<String, ? extends IndexedInheritableToscaElement> archiveElements,
             Collection<CSARDependency> dependencies);
 
+    /**
+     * Index all the elements of an archive at once. Parents are resolved from the archive elements or from a single search in the dependencies per type of
+     * element, highest versions are computed in memory and all the elements are saved with a single bulk request.
+     * 
+     * @param archiveName The name of the archive in which the elements lies.
+     * @param archiveVersion The version of the archive in which the elements lies.
+     * @param archiveElements The elements to index.
+     * @param dependencies The archive dependencies (in order to add infos from the parent element to the child...)
+     */
+    void indexArchiveElements(String archiveName, String archiveVersion, Collection<? extends IndexedInheritableToscaElement> archiveElements,
+            Collection<CSARDependency> dependencies);
+
     /**
      * Index a single element into the repository.
      * 
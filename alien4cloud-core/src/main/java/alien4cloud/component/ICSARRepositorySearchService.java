@@ -7,6 +7,7 @@ import alien4cloud.dao.model.FacetedSearchResult;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.utils.TypeMap;
 
 /**
  * Service interface to search elements in CSARs.
@@ -45,6 +46,28 @@ public interface ICSARRepositorySearchService {
     <T extends IndexedToscaElement> T getRequiredElementInDependencies(Class<T> elementClass, String elementId, Collection<CSARDependency> dependencies)
             throws NotFoundException;
 
+    /**
+     * Get multiple elements from defined dependencies using a single request.
+     *
+     * @param elementIds The TOSCA element ids of the elements to get (without archive version) by element class.
+     * @param dependencies A list of CSAR in which the elements may be defined.
+     * @return A type map that contains, for every element found, the element from the most recent version of the dependencies that defines it. Elements that
+     *         are not found are not in the map.
+     */
+    TypeMap getElementsInDependencies(Map<? extends Class<? extends IndexedToscaElement>, ? extends Collection<String>> elementIds,
+            Collection<CSARDependency> dependencies);
+
+    /**
+     * Get multiple elements from defined dependencies using a single request.
+     *
+     * @param elementIds The TOSCA element ids of the elements to get (without archive version) by element class.
+     * @param dependencies A list of CSAR in which the elements may be defined.
+     * @return A type map that contains, for every element, the element from the most recent version of the dependencies that defines it.
+     * @throws NotFoundException in case one of the elements cannot be found.
+     */
+    TypeMap getRequiredElementsInDependencies(Map<? extends Class<? extends IndexedToscaElement>, ? extends Collection<String>> elementIds,
+            Collection<CSARDependency> dependencies) throws NotFoundException;
+
     /**
      * GEt the parent of an element
      *
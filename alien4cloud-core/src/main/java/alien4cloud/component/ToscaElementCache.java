@@ -0,0 +1,194 @@
+package alien4cloud.component;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import lombok.EqualsAndHashCode;
+import lombok.SneakyThrows;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.dao.ElasticSearchDAO;
+import alien4cloud.dao.ElasticSearchMapper;
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.IndexedToscaElement;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Size-bounded cache of the TOSCA elements resolved from a set of dependencies.
+ *
+ * Elements are kept serialized so every reader gets its own instance (as it would from elastic search) and cannot alter the cached state by side effect. As
+ * the result of a resolution depends on the archives that are indexed (and as the highest version flags of indexed elements change when an archive is
+ * indexed or deleted), resolutions are keyed on the version of the TOSCA elements index that the dao increments on every write of the index.
+ */
+@Component
+public class ToscaElementCache {
+    private final ObjectMapper mapper = ElasticSearchMapper.getInstance();
+
+    @Resource(name = "alien-es-dao")
+    private IGenericSearchDAO alienDAO;
+    @Autowired(required = false)
+    private MetricRegistry metricRegistry;
+    /** Maximum number of resolutions kept in the cache. */
+    @Value("${components.cache.max_size:10000}")
+    private long maxSize;
+
+    private Cache<ElementKey, Optional<CachedElement>> cache;
+    /** Latest version of the TOSCA elements index seen by the cache. */
+    private final AtomicLong indexVersion = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+        if (metricRegistry != null) {
+            metricRegistry.register(MetricRegistry.name(ToscaElementCache.class, "hits"), new Gauge<Long>() {
+                @Override
+                public Long getValue() {
+                    return cache.stats().hitCount();
+                }
+            });
+            metricRegistry.register(MetricRegistry.name(ToscaElementCache.class, "misses"), new Gauge<Long>() {
+                @Override
+                public Long getValue() {
+                    return cache.stats().missCount();
+                }
+            });
+            metricRegistry.register(MetricRegistry.name(ToscaElementCache.class, "size"), new Gauge<Long>() {
+                @Override
+                public Long getValue() {
+                    return cache.size();
+                }
+            });
+        }
+    }
+
+    /**
+     * Get an element from the cache or resolve it using the given loader if not cached yet.
+     *
+     * @param elementClass The element class.
+     * @param elementId The TOSCA element id of the element (without archive version).
+     * @param dependencies The dependencies in which the element is resolved.
+     * @param loader The loader to call on cache miss, may return null if the element doesn't exists in the dependencies.
+     * @return A new instance of the resolved element or null if the element is not found.
+     */
+    public <T extends IndexedToscaElement> T get(Class<T> elementClass, String elementId, Collection<CSARDependency> dependencies, final Callable<T> loader) {
+        Optional<CachedElement> cached;
+        try {
+            cached = cache.get(key(elementClass, elementId, dependencies), new Callable<Optional<CachedElement>>() {
+                @Override
+                public Optional<CachedElement> call() throws Exception {
+                    return toCachedElement(loader.call());
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to resolve element <" + elementId + "> in dependencies " + dependencies, e.getCause());
+        }
+        return cached.isPresent() ? toElement(elementClass, cached.get()) : null;
+    }
+
+    /**
+     * Get an element from the cache without resolving it.
+     *
+     * @param elementClass The element class.
+     * @param elementId The TOSCA element id of the element (without archive version).
+     * @param dependencies The dependencies in which the element is resolved.
+     * @return Null if the resolution is not cached, an absent optional if the element is known not to exist in the dependencies and a new instance of the
+     *         element otherwise.
+     */
+    public <T extends IndexedToscaElement> Optional<T> getIfPresent(Class<T> elementClass, String elementId, Collection<CSARDependency> dependencies) {
+        Optional<CachedElement> cached = cache.getIfPresent(key(elementClass, elementId, dependencies));
+        if (cached == null) {
+            return null;
+        }
+        return cached.isPresent() ? Optional.of(toElement(elementClass, cached.get())) : Optional.<T> absent();
+    }
+
+    /**
+     * Record the resolution of an element.
+     *
+     * @param elementClass The element class.
+     * @param elementId The TOSCA element id of the element (without archive version).
+     * @param dependencies The dependencies in which the element is resolved.
+     * @param element The resolved element or null if the element doesn't exists in the dependencies.
+     */
+    @SneakyThrows(IOException.class)
+    public void put(Class<? extends IndexedToscaElement> elementClass, String elementId, Collection<CSARDependency> dependencies, IndexedToscaElement element) {
+        cache.put(key(elementClass, elementId, dependencies), toCachedElement(element));
+    }
+
+    private ElementKey key(Class<?> elementClass, String elementId, Collection<CSARDependency> dependencies) {
+        return new ElementKey(currentIndexVersion(), elementClass, elementId, ImmutableSet.copyOf(dependencies));
+    }
+
+    /**
+     * Get the current version of the TOSCA elements index. The version is incremented once a write completed so a resolution in progress while writing is
+     * never visible with the next version.
+     */
+    private long currentIndexVersion() {
+        long version = alienDAO.getIndexVersion(ElasticSearchDAO.TOSCA_ELEMENT_INDEX);
+        long seenVersion = indexVersion.get();
+        if (version > seenVersion && indexVersion.compareAndSet(seenVersion, version)) {
+            // resolutions of the previous versions are never requested again
+            cache.invalidateAll();
+        }
+        return version;
+    }
+
+    private Optional<CachedElement> toCachedElement(IndexedToscaElement element) throws IOException {
+        if (element == null) {
+            return Optional.absent();
+        }
+        return Optional.of(new CachedElement(element.getClass(), mapper.writeValueAsBytes(element)));
+    }
+
+    @SneakyThrows(IOException.class)
+    private <T extends IndexedToscaElement> T toElement(Class<T> elementClass, CachedElement cachedElement) {
+        return elementClass.cast(mapper.readValue(cachedElement.content, cachedElement.elementClass));
+    }
+
+    @EqualsAndHashCode
+    private static class ElementKey {
+        private final long indexVersion;
+        private final Class<?> elementClass;
+        private final String elementId;
+        private final Set<CSARDependency> dependencies;
+
+        private ElementKey(long indexVersion, Class<?> elementClass, String elementId, Set<CSARDependency> dependencies) {
+            this.indexVersion = indexVersion;
+            this.elementClass = elementClass;
+            this.elementId = elementId;
+            this.dependencies = dependencies;
+        }
+    }
+
+    private static class CachedElement {
+        private final Class<? extends IndexedToscaElement> elementClass;
+        private final byte[] content;
+
+        private CachedElement(Class<? extends IndexedToscaElement> elementClass, byte[] content) {
+            this.elementClass = elementClass;
+            this.content = content;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -97,6 +98,7 @@ public class CsarFileRepository implements ICsarRepositry {
                 Files.copy(tmpPath, csarTargetPath);
                 FileUtil.unzip(csarTargetPath, expandedPath);
             } else {
+                // the csar file of an archive imported from a directory is zipped from the expanded directory only when requested
                 FileUtil.copy(tmpPath, expandedPath);
             }
             DirectoryJSonWalker.directoryJson(expandedPath, csarDirectoryPath.resolve("content.json"));
@@ -109,14 +111,34 @@ public class CsarFileRepository implements ICsarRepositry {
     public Path getCSAR(String name, String version) throws CSARVersionNotFoundException {
         String realName = name.concat("-").concat(version).concat("." + CSAR_EXTENSION);
 
-        Path path = rootPath.resolve(name).resolve(version).resolve(realName);
+        Path csarDirectoryPath = rootPath.resolve(name).resolve(version);
+        Path path = csarDirectoryPath.resolve(realName);
         if (Files.exists(path)) {
             return path;
         }
+        Path expandedPath = csarDirectoryPath.resolve("expanded");
+        if (Files.isDirectory(expandedPath)) {
+            return zipExpandedCSAR(expandedPath, path);
+        }
 
         throw new CSARVersionNotFoundException("CSAR: " + name + ", Version: " + version + " not found in the repository.");
     }
 
+    private synchronized Path zipExpandedCSAR(Path expandedPath, Path csarPath) {
+        if (Files.exists(csarPath)) {
+            return csarPath;
+        }
+        // zip in a temporary file so a concurrent reader never gets a partial csar
+        Path tmpCsarPath = csarPath.resolveSibling(csarPath.getFileName() + ".tmp");
+        try {
+            FileUtil.zip(expandedPath, tmpCsarPath);
+            Files.move(tmpCsarPath, csarPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new CSARStorageFailureException("Error while trying to zip the CSAR <" + csarPath.toString() + ">. " + e.getMessage(), e);
+        }
+        return csarPath;
+    }
+
     private void checkCSARRepository(Path rootPath) {
         if (!Files.isDirectory(rootPath)) {
             try {
@@ -132,7 +154,7 @@ public class CsarFileRepository implements ICsarRepositry {
     }
 
     private void createCSARDirectory(Path csarDirectoryPath, String realName) throws CSARVersionAlreadyExistsException {
-        if (Files.exists(csarDirectoryPath.resolve(realName))) {
+        if (Files.exists(csarDirectoryPath.resolve(realName)) || Files.exists(csarDirectoryPath.resolve("expanded"))) {
             log.info("Overriding CSAR with new one.");
             try {
                 FileUtil.delete(csarDirectoryPath);
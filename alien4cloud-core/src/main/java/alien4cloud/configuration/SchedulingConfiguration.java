@@ -31,4 +31,12 @@ public class SchedulingConfiguration {
         threadPoolTaskScheduler.setThreadNamePrefix("node-type-score-");
         return threadPoolTaskScheduler;
     }
+
+    @Bean(name = "topology-edition-scheduler")
+    public Executor getTopologyEditionScheduler() {
+        ThreadPoolTaskScheduler threadPoolTaskScheduler = new ThreadPoolTaskScheduler();
+        threadPoolTaskScheduler.setPoolSize(1);
+        threadPoolTaskScheduler.setThreadNamePrefix("topology-edition-");
+        return threadPoolTaskScheduler;
+    }
 }
\ No newline at end of file
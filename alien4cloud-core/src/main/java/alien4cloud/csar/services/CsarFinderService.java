@@ -6,7 +6,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.Set;
+import java.util.Map;
 
 import org.springframework.stereotype.Service;
 
@@ -14,7 +14,7 @@ import alien4cloud.exception.GitException;
 import alien4cloud.tosca.ArchiveParser;
 import alien4cloud.utils.FileUtil;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.Maps;
 
 /**
  * This service detects TOSCA cloud service archives in a given folder and return an ordered list of archives path to import.
@@ -23,15 +23,17 @@ import com.google.common.collect.Sets;
 public class CsarFinderService {
 
     /**
-     * Search in the given path for folders that contains CloudServiceArchives and zip them so they.
+     * Search in the given path for folders that contains CloudServiceArchives and compute the digests of their content. Archives are parsed and stored
+     * directly from their folder.
      *
      * @param searchPath The path in which to search for archives.
-     * @return a list of path that contains archives.
+     * @param archiveDigests The map to fill with the digests of the content of the archives by archive path relative to the search path.
+     * @return The paths of the archives by archive path relative to the search path.
      */
-    public Set<Path> prepare(Path searchPath, Path zipPath) {
+    public Map<String, Path> prepare(Path searchPath, Map<String, String> archiveDigests) {
         ToscaFinderWalker toscaFinderWalker = new ToscaFinderWalker();
-        toscaFinderWalker.zipRootPath = zipPath;
         toscaFinderWalker.rootPath = searchPath;
+        toscaFinderWalker.digests = archiveDigests;
         try {
             Files.walkFileTree(searchPath, toscaFinderWalker);
         } catch (IOException e) {
@@ -42,13 +44,13 @@ public class CsarFinderService {
 
     private static class ToscaFinderWalker extends SimpleFileVisitor<Path> {
         private Path rootPath;
-        private Path zipRootPath;
-        private Set<Path> toscaArchives = Sets.newHashSet();
+        private Map<String, String> digests;
+        private Map<String, Path> toscaArchives = Maps.newHashMap();
 
         @Override
         public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
             if (ArchiveParser.TOSCA_META_FOLDER_NAME.equals(dir.getFileName())) {
-                // zip parent folder and add the path.
+                // add the parent folder path.
                 addToscaArchive(dir.getParent());
                 return FileVisitResult.SKIP_SIBLINGS;
             }
@@ -67,14 +69,14 @@ public class CsarFinderService {
         }
 
         private void addToscaArchive(Path path) {
-            Path relativePath = rootPath.relativize(path);
-            Path zipPath = zipRootPath.resolve(relativePath).resolve("archive.zip");
+            // the key of the root archive is not empty
+            String relativePath = "/" + FileUtil.relativizePath(rootPath, path).replace(path.getFileSystem().getSeparator(), "/");
             try {
-                FileUtil.zip(path, zipPath);
-                toscaArchives.add(zipPath);
+                digests.put(relativePath, FileUtil.digest(path));
             } catch (IOException e) {
-                throw new GitException("Failed to zip archives in order to import them.", e);
+                throw new GitException("Failed to read archives in order to import them.", e);
             }
+            toscaArchives.put(relativePath, path);
         }
     }
-}
\ No newline at end of file
+}
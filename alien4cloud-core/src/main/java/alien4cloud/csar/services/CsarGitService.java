@@ -3,7 +3,10 @@ package alien4cloud.csar.services;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
@@ -16,7 +19,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.FileSystemUtils;
 
-import alien4cloud.component.repository.exception.CSARVersionAlreadyExistsException;
 import alien4cloud.dao.IGenericSearchDAO;
 import alien4cloud.exception.GitException;
 import alien4cloud.git.RepositoryManager;
@@ -32,6 +34,8 @@ import alien4cloud.tosca.parser.ParsingResult;
 import alien4cloud.utils.FileUtil;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 @Slf4j
 @Service
@@ -41,18 +45,16 @@ public class CsarGitService {
     @Inject
     private CsarFinderService csarFinderService;
     @Inject
-    private ArchiveUploadService uploadService;
+    private CsarImportScheduler csarImportScheduler;
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO alienDAO;
     // TODO store archives that are not 'temp' in another location.
     private Path tempDirPath;
-    private Path tempZipDirPath;
 
     @Required
     @Value("${directories.alien}/${directories.upload_temp}")
     public void setTempDirPath(String tempDirPath) throws IOException {
         this.tempDirPath = FileUtil.createDirectoryIfNotExists(tempDirPath + "/git");
-        this.tempZipDirPath = FileUtil.createDirectoryIfNotExists(tempDirPath + "/gitzips");
     }
 
     /**
@@ -91,10 +93,8 @@ public class CsarGitService {
             }
         } finally {
             // cleanup
-            Path archiveZipRoot = tempZipDirPath.resolve(csarGitRepository.getId());
             Path archiveGitRoot = tempDirPath.resolve(csarGitRepository.getId());
             try {
-                FileUtil.delete(archiveZipRoot);
                 if (!csarGitRepository.isStoredLocally()) {
                     FileUtil.delete(archiveGitRoot);
                 }
@@ -133,8 +133,8 @@ public class CsarGitService {
             }
             if (updateHash) {
                 csarGitCheckoutLocation.setLastImportedHash(hash);
-                alienDAO.save(csarGitRepository); // update the hash for this location.
             }
+            alienDAO.save(csarGitRepository); // update the hash and the archives digests for this location.
             return results;
         } finally {
             if (git != null) {
@@ -143,134 +143,93 @@ public class CsarGitService {
         }
     }
 
-    private List<ParsingResult<Csar>> processImport(CsarGitRepository csarGitRepository, CsarGitCheckoutLocation csarGitCheckoutLocation) {
-        // find all the archives under the given hierarchy and zip them to create archives
-        Path archiveZipRoot = tempZipDirPath.resolve(csarGitRepository.getId());
+    /**
+     * Import the archives of a location that changed since the last import of the location. As the indexed types of an archive contain elements merged from
+     * the types of its dependencies, the archives that depend on an imported archive are imported again even if they didn't change.
+     */
+    List<ParsingResult<Csar>> processImport(CsarGitRepository csarGitRepository, CsarGitCheckoutLocation csarGitCheckoutLocation) {
+        // find all the archives under the given hierarchy, they are imported from the working tree
         Path archiveGitRoot = tempDirPath.resolve(csarGitRepository.getId());
-        Set<Path> archivePaths = csarFinderService.prepare(archiveGitRoot, archiveZipRoot);
+        Map<String, String> archiveDigests = Maps.newHashMap();
+        Map<String, Path> archivePaths = csarFinderService.prepare(archiveGitRoot, archiveDigests);
+        Map<String, String> previousDigests = csarGitCheckoutLocation.getArchiveDigests() == null ? Maps.<String, String> newHashMap()
+                : csarGitCheckoutLocation.getArchiveDigests();
+        Map<String, Set<String>> archiveDependencies = Maps.newHashMap();
+        if (csarGitCheckoutLocation.getArchiveDependencies() != null) {
+            archiveDependencies.putAll(csarGitCheckoutLocation.getArchiveDependencies());
+        }
+        archiveDependencies.keySet().retainAll(archivePaths.keySet());
 
-        // TODO code review has to be completed to further cleanup below processing.
-        List<ParsingResult<Csar>> parsingResult = new ArrayList<ParsingResult<Csar>>();
-        List<CsarDependenciesBean> csarDependenciesBeanList = null;
-        try {
-            csarDependenciesBeanList = uploadService.preParsing(archivePaths);
-            for (CsarDependenciesBean dep : csarDependenciesBeanList) {
-                if (dep.getDependencies() == null || dep.getDependencies().isEmpty()) {
-                    parsingResult.add(uploadService.upload(dep.getPath()));
-                    return parsingResult;
-                }
+        // archives which content didn't change since the last import are skipped
+        Set<String> archivesToPreParse = Sets.newHashSet();
+        for (Map.Entry<String, String> archiveDigest : archiveDigests.entrySet()) {
+            if (!archiveDigest.getValue().equals(previousDigests.get(archiveDigest.getKey()))) {
+                archivesToPreParse.add(archiveDigest.getKey());
             }
-            this.updateDependenciesList(csarDependenciesBeanList);
-            parsingResult = this.handleImportLogic(csarDependenciesBeanList, parsingResult);
-            return parsingResult;
-        } catch (ParsingException e) {
-            // TODO Actually add a parsing result with error.
-            throw new GitException("Failed to import archive from git as it cannot be parsed", e);
-        } catch (CSARVersionAlreadyExistsException e) {
-            return parsingResult;
         }
-    }
-
-    /**
-     * Update the CsarDependenciesBean list based on the CSARDependency found (i.e : deleted or imported
-     *
-     * @param csarDependenciesBeanList List containing the CsarDependenciesBean
-     */
-    private void updateDependenciesList(List<CsarDependenciesBean> csarDependenciesBeanList) {
-        for (CsarDependenciesBean csarContainer : csarDependenciesBeanList) {
-            Iterator<?> it = csarContainer.getDependencies().iterator();
-            while (it.hasNext()) {
-                CSARDependency dependencie = (CSARDependency) it.next();
-                if (lookupForDependencie(dependencie, csarDependenciesBeanList) == null) {
-                    it.remove();
+        Map<String, CsarDependenciesBean> archivesToImport = Maps.newHashMap();
+        while (!archivesToPreParse.isEmpty()) {
+            Set<String> importedArchiveIds = Sets.newHashSet();
+            for (Map.Entry<String, CsarDependenciesBean> archive : preParse(archivePaths, archivesToPreParse).entrySet()) {
+                archivesToImport.put(archive.getKey(), archive.getValue());
+                importedArchiveIds.add(archive.getValue().getName() + ":" + archive.getValue().getVersion());
+                archiveDependencies.put(archive.getKey(), getDependencyIds(archive.getValue()));
+            }
+            // unchanged archives that depend on an imported archive are imported again, and so are their own dependents
+            archivesToPreParse = Sets.newHashSet();
+            for (Map.Entry<String, Set<String>> dependencies : archiveDependencies.entrySet()) {
+                if (!archivesToImport.containsKey(dependencies.getKey()) && !Collections.disjoint(dependencies.getValue(), importedArchiveIds)) {
+                    archivesToPreParse.add(dependencies.getKey());
                 }
             }
         }
-    }
 
-    /**
-     * Process to a lookup in the CsarDependenciesBean list to check if a CSARDependency is in the list
-     *
-     * @param dependencie
-     * @param csarDependenciesBeanList
-     * @return the csarBean matching the dependency
-     */
-    private CsarDependenciesBean lookupForDependencie(CSARDependency dependencie, List<CsarDependenciesBean> csarDependenciesBeanList) {
-        for (CsarDependenciesBean csarBean : csarDependenciesBeanList) {
-            if ((dependencie.getName() + ":" + dependencie.getVersion()).equals(csarBean.getName() + ":" + csarBean.getVersion())) {
-                return csarBean;
-            }
-        }
-        return null;
-    }
+        // archives are imported concurrently once the archives they depend on are imported
+        List<ParsingResult<Csar>> results = csarImportScheduler.importArchives(Lists.newArrayList(archivesToImport.values()));
 
-    /**
-     * Method to import a repository based on its inter-dependencies
-     *
-     * @param csarDependenciesBeanList List of the CsarGitRepository to import
-     * @param parsingResult Result of the pre-process parsing
-     * @return The result of the final import
-     * @throws CSARVersionAlreadyExistsException
-     * @throws ParsingException
-     */
-    private List<ParsingResult<Csar>> handleImportLogic(List<CsarDependenciesBean> csarDependenciesBeanList, List<ParsingResult<Csar>> parsingResult)
-            throws CSARVersionAlreadyExistsException, ParsingException {
-        ParsingResult<Csar> result = null;
-        for (CsarDependenciesBean csarBean : csarDependenciesBeanList) {
-            if (csarBean.getDependencies().isEmpty()) {
-                result = uploadService.upload(csarBean.getPath());
-                removeExistingDependencies(csarBean, csarDependenciesBeanList);
-                parsingResult.add(result);
-            } else {
-                Iterator<?> it = csarBean.getDependencies().iterator();
-                while (it.hasNext()) {
-                    CSARDependency dep = (CSARDependency) it.next();
-                    CsarDependenciesBean bean = lookupForDependencie(dep, csarDependenciesBeanList);
-                    this.analyseCsarBean(result, bean, parsingResult, csarDependenciesBeanList);
-                }
+        // archives that failed to import are imported again on the next import even if they didn't change
+        Map<String, String> archiveKeysById = Maps.newHashMap();
+        for (Map.Entry<String, CsarDependenciesBean> archive : archivesToImport.entrySet()) {
+            archiveKeysById.put(archive.getValue().getName() + ":" + archive.getValue().getVersion(), archive.getKey());
+        }
+        for (ParsingResult<Csar> result : results) {
+            if (ArchiveUploadService.hasError(result, ParsingErrorLevel.ERROR)) {
+                archiveDigests.remove(archiveKeysById.get(result.getResult().getName() + ":" + result.getResult().getVersion()));
             }
         }
-        return parsingResult;
+        csarGitCheckoutLocation.setArchiveDigests(archiveDigests);
+        csarGitCheckoutLocation.setArchiveDependencies(archiveDependencies);
+        return results;
     }
 
-    /**
-     * Analyse a CsarDependenciesBean to check if it is ready to import
-     *
-     * @param result Result of the pre-parsing process
-     * @param bean Bean containing the CsarGitRepository informations
-     * @param parsingResult Global result of the pre-parsing result
-     * @param csarDependenciesBeanList
-     * @throws CSARVersionAlreadyExistsException
-     * @throws ParsingException
-     */
-    private void analyseCsarBean(ParsingResult<Csar> result, CsarDependenciesBean bean, List<ParsingResult<Csar>> parsingResult,
-            List<CsarDependenciesBean> csarDependenciesBeanList) throws CSARVersionAlreadyExistsException, ParsingException {
-        if (bean != null) {
-            result = uploadService.upload(bean.getPath());
-            parsingResult.add(result);
-            removeExistingDependencies(bean, csarDependenciesBeanList);
+    private Map<String, CsarDependenciesBean> preParse(Map<String, Path> archivePaths, Set<String> archiveKeys) {
+        List<String> orderedArchiveKeys = Lists.newArrayList(archiveKeys);
+        Set<Path> paths = Sets.newLinkedHashSet();
+        for (String archiveKey : orderedArchiveKeys) {
+            paths.add(archivePaths.get(archiveKey));
         }
+        List<CsarDependenciesBean> csarDependenciesBeanList;
+        try {
+            csarDependenciesBeanList = csarImportScheduler.preParse(paths);
+        } catch (ParsingException e) {
+            // TODO Actually add a parsing result with error.
+            throw new GitException("Failed to import archive from git as it cannot be parsed", e);
+        }
+        Map<String, CsarDependenciesBean> archives = Maps.newHashMap();
+        for (int i = 0; i < orderedArchiveKeys.size(); i++) {
+            archives.put(orderedArchiveKeys.get(i), csarDependenciesBeanList.get(i));
+        }
+        return archives;
     }
 
-    /**
-     * Remove all the occurences of the dependencie when uploaded
-     *
-     * @param bean Bean representing the Csar to import with detailed data
-     * @param csarDependenciesBeanList The list containing the other CsarDependenciesBean
-     */
-    private void removeExistingDependencies(CsarDependenciesBean bean, List<CsarDependenciesBean> csarDependenciesBeanList) {
-        Set<?> tmpSet;
-        for (CsarDependenciesBean csarBean : csarDependenciesBeanList) {
-            // To avoid concurrentmodificationexception we clone the set before fetching
-            tmpSet = new HashSet(csarBean.getDependencies());
-            Iterator<?> it = tmpSet.iterator();
-            while (it.hasNext()) {
-                CSARDependency dep = (CSARDependency) it.next();
-                if ((dep.getName() + ":" + dep.getVersion()).equals(bean.getName() + ":" + bean.getVersion())) {
-                    it.remove();
-                }
+    private Set<String> getDependencyIds(CsarDependenciesBean csarDependenciesBean) {
+        Set<String> dependencyIds = Sets.newHashSet();
+        if (csarDependenciesBean.getDependencies() != null) {
+            for (Object dependency : csarDependenciesBean.getDependencies()) {
+                CSARDependency csarDependency = (CSARDependency) dependency;
+                dependencyIds.add(csarDependency.getName() + ":" + csarDependency.getVersion());
             }
-            csarBean.setDependencies(tmpSet);
         }
+        return dependencyIds;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,271 @@
+package alien4cloud.csar.services;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import alien4cloud.component.repository.exception.CSARVersionAlreadyExistsException;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.Csar;
+import alien4cloud.security.model.CsarDependenciesBean;
+import alien4cloud.tosca.ArchiveUploadService;
+import alien4cloud.tosca.parser.ParsingContext;
+import alien4cloud.tosca.parser.ParsingError;
+import alien4cloud.tosca.parser.ParsingErrorLevel;
+import alien4cloud.tosca.parser.ParsingException;
+import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.tosca.parser.impl.ErrorCode;
+import alien4cloud.utils.VersionUtil;
+import alien4cloud.utils.version.InvalidVersionException;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.SetMultimap;
+
+/**
+ * Import a set of archives concurrently. Archives are pre-parsed to build the graph of their dependencies, then an archive is parsed and indexed as soon as
+ * all the archives of the set it depends on are imported so independent archives are imported concurrently on a bounded pool. Archives that share a name are
+ * never imported concurrently.
+ */
+@Slf4j
+@Service
+public class CsarImportScheduler {
+    /** Order archives by ascending version, archives with invalid versions keep their order and fail to import. */
+    private static final Comparator<CsarDependenciesBean> VERSION_COMPARATOR = new Comparator<CsarDependenciesBean>() {
+        @Override
+        public int compare(CsarDependenciesBean left, CsarDependenciesBean right) {
+            try {
+                return VersionUtil.compare(left.getVersion(), right.getVersion());
+            } catch (InvalidVersionException e) {
+                return 0;
+            }
+        }
+    };
+
+    @Inject
+    private ArchiveUploadService uploadService;
+
+    /** Number of threads used to parse and index archives concurrently. */
+    @Value("${archive.import.threadpool_size:4}")
+    private int threadPoolSize;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(threadPoolSize, new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "archive-import-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Pre-parse archives concurrently to get their dependencies.
+     *
+     * @param archivePaths The paths of the archives.
+     * @return The dependencies of the archives, in the order of the given paths.
+     * @throws ParsingException In case an archive cannot be parsed.
+     */
+    public List<CsarDependenciesBean> preParse(Set<Path> archivePaths) throws ParsingException {
+        List<Future<CsarDependenciesBean>> preParsings = Lists.newArrayList();
+        for (final Path archivePath : archivePaths) {
+            preParsings.add(executor.submit(new Callable<CsarDependenciesBean>() {
+                @Override
+                public CsarDependenciesBean call() throws ParsingException {
+                    return uploadService.preParsing(archivePath);
+                }
+            }));
+        }
+        List<CsarDependenciesBean> archives = Lists.newArrayList();
+        try {
+            for (Future<CsarDependenciesBean> preParsing : preParsings) {
+                archives.add(preParsing.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while pre-parsing archives.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ParsingException) {
+                throw (ParsingException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to pre-parse archives.", e.getCause());
+        } finally {
+            for (Future<CsarDependenciesBean> preParsing : preParsings) {
+                preParsing.cancel(true);
+            }
+        }
+        return archives;
+    }
+
+    /**
+     * Import archives honouring their dependencies. Dependencies that are not part of the given archives are expected to be already in the catalog.
+     *
+     * @param archives The pre-parsed archives to import.
+     * @return The results of the imports in the order in which the imports completed, each result contains the import duration of the archive.
+     */
+    public List<ParsingResult<Csar>> importArchives(List<CsarDependenciesBean> archives) {
+        Multimap<String, CsarDependenciesBean> archivesByName = ArrayListMultimap.create();
+        Multimap<String, CsarDependenciesBean> archivesById = ArrayListMultimap.create();
+        for (CsarDependenciesBean archive : archives) {
+            archivesByName.put(archive.getName(), archive);
+            archivesById.put(archive.getName() + ":" + archive.getVersion(), archive);
+        }
+        // archives to import before an archive can be imported
+        SetMultimap<CsarDependenciesBean, CsarDependenciesBean> prerequisites = LinkedHashMultimap.create();
+        // indexing an archive updates the other versions of the archive so archives that share a name (including archives defined more than once) are
+        // imported one after the other by ascending version
+        for (Collection<CsarDependenciesBean> sameNameArchives : archivesByName.asMap().values()) {
+            List<CsarDependenciesBean> sortedArchives = Lists.newArrayList(sameNameArchives);
+            Collections.sort(sortedArchives, VERSION_COMPARATOR);
+            for (int i = 1; i < sortedArchives.size(); i++) {
+                prerequisites.put(sortedArchives.get(i), sortedArchives.get(i - 1));
+            }
+        }
+        for (CsarDependenciesBean archive : archives) {
+            if (archive.getDependencies() != null) {
+                for (Object dependency : archive.getDependencies()) {
+                    CSARDependency csarDependency = (CSARDependency) dependency;
+                    for (CsarDependenciesBean dependencyArchive : archivesById.get(csarDependency.getName() + ":" + csarDependency.getVersion())) {
+                        if (dependencyArchive != archive) {
+                            prerequisites.put(archive, dependencyArchive);
+                        }
+                    }
+                }
+            }
+        }
+        // number of archives to import before an archive can be imported and archives that wait for an archive to be imported
+        Map<CsarDependenciesBean, Integer> pendingDependencies = Maps.newHashMap();
+        Multimap<CsarDependenciesBean, CsarDependenciesBean> dependents = ArrayListMultimap.create();
+        for (CsarDependenciesBean archive : archives) {
+            Set<CsarDependenciesBean> archivePrerequisites = prerequisites.get(archive);
+            for (CsarDependenciesBean prerequisite : archivePrerequisites) {
+                dependents.put(prerequisite, archive);
+            }
+            pendingDependencies.put(archive, archivePrerequisites.size());
+        }
+
+        // the imports check the roles of the current user
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        CompletionService<ParsingResult<Csar>> completionService = new ExecutorCompletionService<ParsingResult<Csar>>(executor);
+        Map<Future<ParsingResult<Csar>>, CsarDependenciesBean> runningImports = Maps.newHashMap();
+        for (CsarDependenciesBean archive : archives) {
+            if (pendingDependencies.get(archive) == 0) {
+                runningImports.put(submitImport(completionService, archive, securityContext), archive);
+            }
+        }
+
+        List<ParsingResult<Csar>> results = Lists.newArrayList();
+        try {
+            while (!runningImports.isEmpty()) {
+                Future<ParsingResult<Csar>> completedImport = completionService.take();
+                CsarDependenciesBean importedArchive = runningImports.remove(completedImport);
+                results.add(completedImport.get());
+                // an archive that failed to import still releases its dependents, their import reports the missing types
+                for (CsarDependenciesBean dependent : dependents.get(importedArchive)) {
+                    int pendingDependenciesCount = pendingDependencies.get(dependent) - 1;
+                    pendingDependencies.put(dependent, pendingDependenciesCount);
+                    if (pendingDependenciesCount == 0) {
+                        runningImports.put(submitImport(completionService, dependent, securityContext), dependent);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing archives.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to import archives.", e.getCause());
+        } finally {
+            for (Future<ParsingResult<Csar>> runningImport : runningImports.keySet()) {
+                runningImport.cancel(true);
+            }
+        }
+
+        // archives with cyclic dependencies are never ready, they are imported one after the other
+        for (CsarDependenciesBean archive : archives) {
+            if (pendingDependencies.get(archive) > 0) {
+                log.warn("Archive <{}:{}> has cyclic dependencies, importing it anyway.", archive.getName(), archive.getVersion());
+                results.add(importArchive(archive));
+            }
+        }
+        return results;
+    }
+
+    private Future<ParsingResult<Csar>> submitImport(CompletionService<ParsingResult<Csar>> completionService, final CsarDependenciesBean archive,
+            SecurityContext securityContext) {
+        return completionService.submit(new DelegatingSecurityContextCallable<ParsingResult<Csar>>(new Callable<ParsingResult<Csar>>() {
+            @Override
+            public ParsingResult<Csar> call() {
+                return importArchive(archive);
+            }
+        }, securityContext));
+    }
+
+    private ParsingResult<Csar> importArchive(CsarDependenciesBean archive) {
+        long startTime = System.currentTimeMillis();
+        ParsingResult<Csar> result;
+        try {
+            result = uploadService.upload(archive.getPath());
+        } catch (ParsingException e) {
+            log.error("Failed to import archive <" + archive.getName() + ":" + archive.getVersion() + ">.", e);
+            result = toErrorResult(archive, e.getParsingErrors());
+        } catch (CSARVersionAlreadyExistsException e) {
+            log.debug("Skipping import of archive <{}:{}>. Archive has already been imported.", archive.getName(), archive.getVersion());
+            result = toErrorResult(archive, Lists.newArrayList(new ParsingError(ParsingErrorLevel.WARNING, ErrorCode.CSAR_ALREADY_EXISTS,
+                    "CSAR already exists", null, "Unable to override an existing CSAR if the version is not a SNAPSHOT version.", null, null)));
+        }
+        result.getContext().setImportDuration(System.currentTimeMillis() - startTime);
+        log.debug("Archive <{}:{}> imported in {} ms.", archive.getName(), archive.getVersion(), result.getContext().getImportDuration());
+        return result;
+    }
+
+    private ParsingResult<Csar> toErrorResult(CsarDependenciesBean archive, List<ParsingError> parsingErrors) {
+        ParsingContext context = new ParsingContext(archive.getPath().getFileName().toString());
+        context.getParsingErrors().addAll(parsingErrors);
+        return new ParsingResult<Csar>(new Csar(archive.getName(), archive.getVersion()), context);
+    }
+}
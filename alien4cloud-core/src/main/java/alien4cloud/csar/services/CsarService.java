@@ -26,6 +26,7 @@ import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.Csar;
 import alien4cloud.model.templates.TopologyTemplate;
 import alien4cloud.model.topology.Topology;
+import alien4cloud.topology.TopologyEditSessionService;
 import alien4cloud.topology.TopologyService;
 
 import com.google.common.collect.Lists;
@@ -51,6 +52,8 @@ public class CsarService implements ICsarDependencyLoader {
     private TopologyService topologyService;
     @Resource
     private ApplicationService applicationService;
+    @Resource
+    private TopologyEditSessionService topologyEditSessionService;
 
     /**
      * Get a cloud service if exists in Dao.
@@ -95,6 +98,8 @@ public class CsarService implements ICsarDependencyLoader {
      * @return an array of <code>Topology</code>s that depend on this name:version.
      */
     public Topology[] getDependantTopologies(String name, String version) {
+        // topologies under edition may have pending dependency changes.
+        topologyEditSessionService.flushAll();
         FilterBuilder filter = FilterBuilders.nestedFilter(
                 "dependencies",
                 FilterBuilders.boolFilter().must(FilterBuilders.termFilter("dependencies.name", name))
@@ -178,7 +183,11 @@ public class CsarService implements ICsarDependencyLoader {
         // here we check that the csar is not a csar created by a topology template (substitution).
         if (!ignoreSubtisutionTopology && csar.getSubstitutionTopologyId() != null) {
             String linkedTopologyId = csar.getSubstitutionTopologyId();
-            Topology topology = csarDAO.findById(Topology.class, linkedTopologyId);
+            // the topology may be under edition and not persisted yet
+            Topology topology = topologyEditSessionService.get(linkedTopologyId);
+            if (topology == null) {
+                topology = csarDAO.findById(Topology.class, linkedTopologyId);
+            }
             if (topology != null) {
                 throw new DeleteReferencedObjectException(
                         "The CSAR with id <"
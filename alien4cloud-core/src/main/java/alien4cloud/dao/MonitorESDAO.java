@@ -28,6 +28,9 @@ public class MonitorESDAO extends ESGenericSearchDAO {
 
     @Value("${paas_monitor.events_lifetime}")
     private String eventMonitoringTtl;
+    /** Interval in which the monitor events index is refreshed (events become visible to searches). */
+    @Value("${paas_monitor.events_refresh_interval:1s}")
+    private String eventsRefreshInterval;
 
     /**
      * Initialize the dao after being loaded by spring (Create the indexes).
@@ -47,7 +50,8 @@ public class MonitorESDAO extends ESGenericSearchDAO {
                 PaaSMessageMonitorEvent.class, PaaSInstancePersistentResourceMonitorEvent.class, PaaSWorkflowStepMonitorEvent.class,
                 PaaSWorkflowMonitorEvent.class };
         initIndices("deployedtopologies", null, DeploymentTopology.class);
-        initIndices("deploymentmonitorevents", eventMonitoringTtl, classes);
+        // monitor events are written at high rate and never read right after being written, let elastic search refresh the index in background.
+        initIndices("deploymentmonitorevents", eventMonitoringTtl, RefreshPolicy.eventual(eventsRefreshInterval), classes);
         initCompleted();
     }
 }
\ No newline at end of file
@@ -37,6 +37,7 @@ import alien4cloud.orchestrators.services.OrchestratorService;
 import alien4cloud.paas.OrchestratorPluginService;
 import alien4cloud.paas.exception.EmptyMetaPropertyException;
 import alien4cloud.paas.exception.OrchestratorDeploymentIdConflictException;
+import alien4cloud.topology.TopologyServiceCore;
 import alien4cloud.topology.TopologyValidationResult;
 
 import com.google.common.collect.Maps;
@@ -69,6 +70,8 @@ public class DeployService {
     private DeploymentTopologyService deploymentTopologyService;
     @Inject
     private DeploymentTopologyValidationService deploymentTopologyValidationService;
+    @Inject
+    private TopologyServiceCore topologyServiceCore;
 
     /**
      * Deploy a topology and return the deployment ID.
@@ -89,6 +92,8 @@ public class DeployService {
         IOrchestratorPlugin orchestratorPlugin = orchestratorPluginService.getOrFail(firstLocation.getOrchestratorId());
 
         String deploymentTopologyId = deploymentTopology.getId();
+        // make sure that pending edits of the deployed topology are persisted.
+        topologyServiceCore.flush(deploymentTopology.getInitialTopologyId());
 
         // Create a deployment object to be kept in ES.
         Deployment deployment = new Deployment();
@@ -27,6 +27,7 @@ import alien4cloud.topology.TopologyServiceCore;
 import alien4cloud.utils.PropertyUtil;
 
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -45,11 +46,16 @@ public class DeploymentNodeSubstitutionService {
      * @param nodeTemplates the node template to check
      * @param dependencies dependencies of those node templates
      * @param locationGroups group of location policy
+     * @param nodeTemplateIds the names of the node templates to match, null to match all the node templates
      * @return a map which contains mapping from node template id to its available substitutions
      */
     private Map<String, List<LocationResourceTemplate>> getAvailableSubstitutions(Map<String, NodeTemplate> nodeTemplates, Set<CSARDependency> dependencies,
-            Map<String, NodeGroup> locationGroups) {
-        Map<String, IndexedNodeType> nodeTypes = topologyServiceCore.getIndexedNodeTypesFromDependencies(nodeTemplates, dependencies, false, false);
+            Map<String, NodeGroup> locationGroups, Set<String> nodeTemplateIds) {
+        Map<String, NodeTemplate> templatesToMatch = nodeTemplates;
+        if (nodeTemplates != null && nodeTemplateIds != null) {
+            templatesToMatch = Maps.filterKeys(nodeTemplates, Predicates.in(nodeTemplateIds));
+        }
+        Map<String, IndexedNodeType> nodeTypes = topologyServiceCore.getIndexedNodeTypesFromDependencies(templatesToMatch, dependencies, false, false);
         Map<String, List<LocationResourceTemplate>> availableSubstitutions = Maps.newHashMap();
         for (final Map.Entry<String, NodeGroup> locationGroupEntry : locationGroups.entrySet()) {
             String groupName = locationGroupEntry.getKey();
@@ -58,9 +64,9 @@ public class DeploymentNodeSubstitutionService {
             if (MapUtils.isNotEmpty(nodeTemplates)) {
                 if (AlienConstants.GROUP_ALL.equals(groupName)) {
                     locationNodeGroup.setMembers(nodeTemplates.keySet());
-                    nodesToMatch = nodeTemplates;
+                    nodesToMatch = templatesToMatch;
                 } else {
-                    nodesToMatch = Maps.filterEntries(nodeTemplates, new Predicate<Map.Entry<String, NodeTemplate>>() {
+                    nodesToMatch = Maps.filterEntries(templatesToMatch, new Predicate<Map.Entry<String, NodeTemplate>>() {
                         @Override
                         public boolean apply(Map.Entry<String, NodeTemplate> input) {
                             return locationNodeGroup.getMembers().contains(input.getKey());
@@ -81,7 +87,8 @@ public class DeploymentNodeSubstitutionService {
      * @return
      */
     public Map<String, List<LocationResourceTemplate>> getAvailableSubstitutions(DeploymentTopology deploymentTopology) {
-        return getAvailableSubstitutions(deploymentTopology.getOriginalNodes(), deploymentTopology.getDependencies(), deploymentTopology.getLocationGroups());
+        return getAvailableSubstitutions(deploymentTopology.getOriginalNodes(), deploymentTopology.getDependencies(), deploymentTopology.getLocationGroups(),
+                null);
     }
 
     /**
@@ -90,13 +97,25 @@ public class DeploymentNodeSubstitutionService {
      * @param deploymentTopology the deployment topology to process substitution
      */
     public void processNodesSubstitution(DeploymentTopology deploymentTopology, Map<String, NodeTemplate> nodesToMergeProperties) {
+        processNodesSubstitution(deploymentTopology, nodesToMergeProperties, null);
+    }
+
+    /**
+     * Process node substitution for some nodes of the deployment topology, the substitutions of the other nodes are kept as they are.
+     *
+     * @param deploymentTopology the deployment topology to process substitution
+     * @param nodesToMergeProperties the previous nodes of the deployment topology from which to keep the properties values
+     * @param nodeTemplateIds the names of the node templates to process, null to process all the node templates
+     */
+    public void processNodesSubstitution(DeploymentTopology deploymentTopology, Map<String, NodeTemplate> nodesToMergeProperties,
+            Set<String> nodeTemplateIds) {
         if (MapUtils.isEmpty(deploymentTopology.getLocationGroups())) {
             // No location group is defined do nothing
             return;
         }
         deploymentTopology.getDependencies().addAll(deploymentTopology.getLocationDependencies());
         Map<String, List<LocationResourceTemplate>> availableSubstitutions = getAvailableSubstitutions(deploymentTopology.getNodeTemplates(),
-                deploymentTopology.getDependencies(), deploymentTopology.getLocationGroups());
+                deploymentTopology.getDependencies(), deploymentTopology.getLocationGroups(), nodeTemplateIds);
         Map<String, Set<String>> availableSubstitutionsIds = Maps.newHashMap();
         for (Map.Entry<String, List<LocationResourceTemplate>> availableSubstitutionEntry : availableSubstitutions.entrySet()) {
             Set<String> ids = Sets.newHashSet();
@@ -107,13 +126,13 @@ public class DeploymentNodeSubstitutionService {
         }
         Map<String, String> substitutedNodes = deploymentTopology.getSubstitutedNodes();
 
-        removeUnsynchronizedSubstitutions(deploymentTopology, substitutedNodes, availableSubstitutions);
+        removeUnsynchronizedSubstitutions(deploymentTopology, substitutedNodes, availableSubstitutions, nodeTemplateIds);
 
         // clean the originalNodes map since some nodes might have been deleted from the initial topology, and thus not appearing in the availableSubstitutions
         Iterator<Entry<String, NodeTemplate>> originalNodesIter = deploymentTopology.getOriginalNodes().entrySet().iterator();
         while (originalNodesIter.hasNext()) {
             Entry<String, NodeTemplate> next = originalNodesIter.next();
-            if (!availableSubstitutions.containsKey(next.getKey())) {
+            if (isProcessed(next.getKey(), nodeTemplateIds) && !availableSubstitutions.containsKey(next.getKey())) {
                 originalNodesIter.remove();
             }
         }
@@ -131,6 +150,10 @@ public class DeploymentNodeSubstitutionService {
 
         deploymentTopology.setSubstitutedNodes(substitutedNodes);
         for (Map.Entry<String, String> substitutedNodeEntry : substitutedNodes.entrySet()) {
+            if (!isProcessed(substitutedNodeEntry.getKey(), nodeTemplateIds)) {
+                // the node is already substituted
+                continue;
+            }
             // Substitute the node template of the topology by those matched
             NodeTemplate locationNode = locationResourceService.getOrFail(substitutedNodeEntry.getValue()).getTemplate();
             NodeTemplate abstractTopologyNode = deploymentTopology.getNodeTemplates().put(substitutedNodeEntry.getKey(), locationNode);
@@ -201,9 +224,10 @@ public class DeploymentNodeSubstitutionService {
      * @param deploymentTopology The deployment topology.
      * @param substitutedNodes The previous configuration for substitution nodes.
      * @param availableSubstitutions The substitutions provided by the location's node matching.
+     * @param nodeTemplateIds The names of the node templates that have been matched, null if all the node templates have been matched.
      */
     private void removeUnsynchronizedSubstitutions(DeploymentTopology deploymentTopology, Map<String, String> substitutedNodes,
-            Map<String, List<LocationResourceTemplate>> availableSubstitutions) {
+            Map<String, List<LocationResourceTemplate>> availableSubstitutions, Set<String> nodeTemplateIds) {
         if (deploymentTopology.getNodeTemplates() == null) {
             substitutedNodes.clear();
             return;
@@ -213,6 +237,9 @@ public class DeploymentNodeSubstitutionService {
         Iterator<Map.Entry<String, String>> mappingEntryIterator = substitutedNodes.entrySet().iterator();
         while (mappingEntryIterator.hasNext()) {
             Map.Entry<String, String> entry = mappingEntryIterator.next();
+            if (!isProcessed(entry.getKey(), nodeTemplateIds)) {
+                continue;
+            }
             if (deploymentTopology.getNodeTemplates().containsKey(entry.getKey())) {
                 // The node is still in the topology but we have to check that the existing substitution value is still a valid option.
                 List<LocationResourceTemplate> options = availableSubstitutions.get(entry.getKey());
@@ -239,4 +266,8 @@ public class DeploymentNodeSubstitutionService {
             }
         }
     }
+
+    private boolean isProcessed(String nodeTemplateId, Set<String> nodeTemplateIds) {
+        return nodeTemplateIds == null || nodeTemplateIds.contains(nodeTemplateId);
+    }
 }
@@ -1,12 +1,33 @@
 package alien4cloud.deployment;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.inject.Inject;
 
+import lombok.extern.slf4j.Slf4j;
+
 import org.elasticsearch.mapping.QueryHelper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import alien4cloud.dao.IGenericSearchDAO;
@@ -28,11 +49,15 @@ import alien4cloud.paas.model.PaaSMessageMonitorEvent;
 import alien4cloud.paas.model.PaaSTopologyDeploymentContext;
 import alien4cloud.utils.MapUtil;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 
 /**
  * Manage runtime operations on deployments.
  */
+@Slf4j
 @Service
 public class DeploymentRuntimeStateService {
     @Resource(name = "alien-es-dao")
@@ -49,6 +74,64 @@ public class DeploymentRuntimeStateService {
     private DeploymentContextService deploymentContextService;
     @Inject
     private DeploymentTopologyService deploymentTopologyService;
+    @Inject
+    private DeploymentStatusRegistry deploymentStatusRegistry;
+    @Inject
+    private InstanceInformationRegistry instanceInformationRegistry;
+
+    /** Number of threads used to get the statuses of deployments from different orchestrators concurrently. */
+    @Value("${deployment.status.threadpool_size:8}")
+    private int statusThreadPoolSize;
+    /** Maximum number of orchestrator requests waiting for a thread, statuses that cannot be queued are UNKNOWN. */
+    @Value("${deployment.status.queue_size:100}")
+    private int statusQueueSize;
+    /** Maximum time in milliseconds to wait for the orchestrators when getting the statuses of several deployments. */
+    @Value("${deployment.status.timeout_ms:10000}")
+    private long statusTimeoutMs;
+    /** Interval in milliseconds between two reconciliations of the statuses registry with the orchestrators. */
+    @Value("${deployment.status.reconciliation_interval_ms:30000}")
+    private long reconciliationIntervalMs;
+
+    private ExecutorService statusExecutor;
+    private ScheduledExecutorService reconciliationExecutor;
+    /** Statuses being requested to the orchestrators by deployment id, a deployment is never requested again while its status is in flight. */
+    private final ConcurrentMap<String, SettableFuture<DeploymentStatus>> inFlightStatuses = Maps.newConcurrentMap();
+
+    @PostConstruct
+    public void init() {
+        statusExecutor = new ThreadPoolExecutor(statusThreadPoolSize, statusThreadPoolSize, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+                statusQueueSize), newThreadFactory("deployment-status-"));
+        reconciliationExecutor = Executors.newSingleThreadScheduledExecutor(newThreadFactory("deployment-status-reconciliation-"));
+        reconciliationExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reconcileDeploymentStatuses();
+                } catch (RuntimeException e) {
+                    log.error("Failed to reconcile the deployments statuses with the orchestrators.", e);
+                }
+            }
+        }, reconciliationIntervalMs, reconciliationIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static ThreadFactory newThreadFactory(final String namePrefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void destroy() {
+        reconciliationExecutor.shutdownNow();
+        statusExecutor.shutdownNow();
+    }
 
     /**
      * Get the deployed (runtime) topology of an application from the environment id
@@ -84,7 +167,8 @@ public class DeploymentRuntimeStateService {
     }
 
     /**
-     * Get the current deployment status for a topology.
+     * Get the current deployment status for a topology. The status is served from the {@link DeploymentStatusRegistry} when registered, the orchestrator is
+     * requested otherwise.
      *
      * @param deployment deployment for which we want the status
      * @param callback that will be called when status is available*
@@ -96,21 +180,37 @@ public class DeploymentRuntimeStateService {
             callback.onSuccess(DeploymentStatus.UNDEPLOYED);
             return;
         }
+        DeploymentStatus status = deploymentStatusRegistry.get(deployment.getId());
+        if (status != null) {
+            callback.onSuccess(status);
+            return;
+        }
+        requestDeploymentStatus(deployment, callback);
+    }
+
+    /**
+     * Get the current deployment status from the orchestrator and update the registry.
+     */
+    private void requestDeploymentStatus(final Deployment deployment, final IPaaSCallback<DeploymentStatus> callback) throws OrchestratorDisabledException {
         IOrchestratorPlugin orchestratorPlugin = orchestratorPluginService.getOrFail(deployment.getOrchestratorId());
 
         PaaSDeploymentContext deploymentContext = new PaaSDeploymentContext(deployment, getRuntimeTopology(deployment.getId()));
+        final long requestStamp = deploymentStatusRegistry.request(deployment.getId());
         IPaaSCallback<DeploymentStatus> esCallback = new IPaaSCallback<DeploymentStatus>() {
             @Override
             public void onSuccess(DeploymentStatus data) {
-                if (data == DeploymentStatus.UNDEPLOYED) {
+                // a status event received while the orchestrator was requested is newer than the orchestrator result
+                DeploymentStatus status = deploymentStatusRegistry.put(deployment.getId(), data, requestStamp);
+                if (status == DeploymentStatus.UNDEPLOYED) {
                     deployment.setEndDate(new Date());
                     alienDao.save(deployment);
                 }
-                callback.onSuccess(data);
+                callback.onSuccess(status);
             }
 
             @Override
             public void onFailure(Throwable throwable) {
+                deploymentStatusRegistry.cancel(deployment.getId());
                 callback.onFailure(throwable);
             }
         };
@@ -118,24 +218,194 @@ public class DeploymentRuntimeStateService {
     }
 
     /**
-     * Get the detailed status for each instance of each node template.
+     * Get the current statuses of several deployments at once. Statuses are served from the {@link DeploymentStatusRegistry} when registered, other statuses are
+     * requested to the orchestrators concurrently (the deployments of an orchestrator are requested one after the other). The status of a deployment is
+     * UNKNOWN if its orchestrator is disabled, fails or doesn't answer before the deadline. The request of a status that times out is cancelled so it is not
+     * sent to the orchestrator if still queued.
+     *
+     * @param deployments The deployments for which to get the statuses.
+     * @return Map of deployment id to the status of the deployment.
+     */
+    public Map<String, DeploymentStatus> getDeploymentStatuses(Collection<Deployment> deployments) {
+        Map<String, DeploymentStatus> statuses = Maps.newHashMap();
+        List<Deployment> unregisteredDeployments = Lists.newArrayList();
+        for (Deployment deployment : deployments) {
+            DeploymentStatus status = deploymentStatusRegistry.get(deployment.getId());
+            if (status == null) {
+                unregisteredDeployments.add(deployment);
+            } else {
+                statuses.put(deployment.getId(), status);
+            }
+        }
+
+        Map<String, SettableFuture<DeploymentStatus>> statusFutures = requestDeploymentStatuses(unregisteredDeployments);
+        long deadline = System.currentTimeMillis() + statusTimeoutMs;
+        for (Map.Entry<String, SettableFuture<DeploymentStatus>> futureEntry : statusFutures.entrySet()) {
+            DeploymentStatus status = DeploymentStatus.UNKNOWN;
+            try {
+                status = futureEntry.getValue().get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while getting the deployments statuses.", e);
+            } catch (ExecutionException e) {
+                log.debug("Getting status for the deployment <" + futureEntry.getKey() + "> failed. Returned status is UNKNOWN.", e.getCause());
+            } catch (CancellationException e) {
+                log.debug("Getting status for the deployment <{}> has been cancelled. Returned status is UNKNOWN.", futureEntry.getKey());
+            } catch (TimeoutException e) {
+                futureEntry.getValue().cancel(false);
+                log.debug("Getting status for the deployment <{}> timed out. Returned status is UNKNOWN.", futureEntry.getKey());
+            }
+            statuses.put(futureEntry.getKey(), status);
+        }
+        return statuses;
+    }
+
+    /**
+     * Request the statuses of deployments to the orchestrators, the requests of different orchestrators are processed concurrently. The future of a deployment
+     * which status is already in flight is shared instead of requesting the orchestrator again.
+     *
+     * @param deployments The deployments for which to request the statuses.
+     * @return Map of deployment id to the future status of the deployment.
+     */
+    private Map<String, SettableFuture<DeploymentStatus>> requestDeploymentStatuses(Collection<Deployment> deployments) {
+        Map<String, SettableFuture<DeploymentStatus>> statusFutures = Maps.newHashMap();
+        Map<String, List<Deployment>> deploymentsByOrchestrator = Maps.newHashMap();
+        for (final Deployment deployment : deployments) {
+            final SettableFuture<DeploymentStatus> statusFuture = SettableFuture.create();
+            SettableFuture<DeploymentStatus> inFlightStatus = inFlightStatuses.putIfAbsent(deployment.getId(), statusFuture);
+            if (inFlightStatus != null) {
+                statusFutures.put(deployment.getId(), inFlightStatus);
+                continue;
+            }
+            statusFuture.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    inFlightStatuses.remove(deployment.getId(), statusFuture);
+                }
+            }, MoreExecutors.sameThreadExecutor());
+            statusFutures.put(deployment.getId(), statusFuture);
+            List<Deployment> orchestratorDeployments = deploymentsByOrchestrator.get(deployment.getOrchestratorId());
+            if (orchestratorDeployments == null) {
+                orchestratorDeployments = Lists.newArrayList();
+                deploymentsByOrchestrator.put(deployment.getOrchestratorId(), orchestratorDeployments);
+            }
+            orchestratorDeployments.add(deployment);
+        }
+
+        for (List<Deployment> orchestratorDeployments : deploymentsByOrchestrator.values()) {
+            final Map<Deployment, SettableFuture<DeploymentStatus>> orchestratorFutures = Maps.newLinkedHashMap();
+            for (Deployment deployment : orchestratorDeployments) {
+                orchestratorFutures.put(deployment, statusFutures.get(deployment.getId()));
+            }
+            try {
+                statusExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (Map.Entry<Deployment, SettableFuture<DeploymentStatus>> futureEntry : orchestratorFutures.entrySet()) {
+                            // requests that timed out while queued are cancelled
+                            if (!futureEntry.getValue().isDone()) {
+                                requestDeploymentStatus(futureEntry.getKey(), futureEntry.getValue());
+                            }
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.warn("Too many deployment statuses requests are pending, statuses of {} deployments are UNKNOWN.", orchestratorFutures.size());
+                for (SettableFuture<DeploymentStatus> statusFuture : orchestratorFutures.values()) {
+                    statusFuture.setException(e);
+                }
+            }
+        }
+        return statusFutures;
+    }
+
+    private void requestDeploymentStatus(Deployment deployment, final SettableFuture<DeploymentStatus> statusFuture) {
+        try {
+            requestDeploymentStatus(deployment, new IPaaSCallback<DeploymentStatus>() {
+                @Override
+                public void onSuccess(DeploymentStatus data) {
+                    statusFuture.set(data);
+                }
+
+                @Override
+                public void onFailure(Throwable throwable) {
+                    statusFuture.setException(throwable);
+                }
+            });
+        } catch (RuntimeException e) {
+            statusFuture.setException(e);
+        }
+    }
+
+    /**
+     * Request the orchestrators for the statuses of the registry that have not been updated for longer than the reconciliation TTL. Deployments that are not
+     * active anymore are removed from the registry.
+     */
+    private void reconcileDeploymentStatuses() {
+        Set<String> deploymentIds = deploymentStatusRegistry.getDeploymentsToReconcile();
+        if (deploymentIds.isEmpty()) {
+            return;
+        }
+        List<Deployment> activeDeployments = Lists.newArrayList();
+        for (Deployment deployment : alienDao.findByIds(Deployment.class, deploymentIds.toArray(new String[deploymentIds.size()]))) {
+            if (deployment != null && deployment.getEndDate() == null) {
+                activeDeployments.add(deployment);
+                deploymentIds.remove(deployment.getId());
+            }
+        }
+        for (String deploymentId : deploymentIds) {
+            deploymentStatusRegistry.remove(deploymentId);
+        }
+        // the registry is updated when the statuses are received, a failed request is retried by the next reconciliation
+        requestDeploymentStatuses(activeDeployments);
+    }
+
+    /**
+     * Get the detailed status for each instance of each node template. The instances are served from the {@link InstanceInformationRegistry} when a snapshot
+     * is available, the orchestrator is requested otherwise and its result is shared by the concurrent callers.
      *
      * @param deployment The deployment for witch to get the instance informations.
      * @param callback callback on witch to send the map of node template's id to map of instance's id to instance information.
      * @throws alien4cloud.paas.exception.OrchestratorDisabledException In case the cloud selected for the topology is disabled.
      */
-    public void getInstancesInformation(final Deployment deployment, IPaaSCallback<Map<String, Map<String, InstanceInformation>>> callback)
+    public void getInstancesInformation(final Deployment deployment, final IPaaSCallback<Map<String, Map<String, InstanceInformation>>> callback)
             throws OrchestratorDisabledException {
         Map<String, Map<String, InstanceInformation>> instancesInformation = Maps.newHashMap();
         if (deployment == null) {
             callback.onSuccess(instancesInformation);
             return;
         }
-        DeploymentTopology runtimeTopology = alienMonitorDao.findById(DeploymentTopology.class, deployment.getId());
-        PaaSTopologyDeploymentContext deploymentContext = deploymentContextService.buildTopologyDeploymentContext(deployment,
-                deploymentTopologyService.getLocations(runtimeTopology), runtimeTopology);
+        instancesInformation = instanceInformationRegistry.get(deployment.getId());
+        if (instancesInformation != null) {
+            callback.onSuccess(instancesInformation);
+            return;
+        }
         IOrchestratorPlugin orchestratorPlugin = orchestratorPluginService.getOrFail(deployment.getOrchestratorId());
-        orchestratorPlugin.getInstancesInformation(deploymentContext, callback);
+        if (!instanceInformationRegistry.request(deployment.getId(), callback)) {
+            // the callback is completed by the request to the orchestrator that is in progress
+            return;
+        }
+        final PaaSTopologyDeploymentContext deploymentContext;
+        try {
+            DeploymentTopology runtimeTopology = alienMonitorDao.findById(DeploymentTopology.class, deployment.getId());
+            deploymentContext = deploymentContextService.buildTopologyDeploymentContext(deployment, deploymentTopologyService.getLocations(runtimeTopology),
+                    runtimeTopology);
+            // the events received until the orchestrator responds are applied on the orchestrator data
+            orchestratorPlugin.getInstancesInformation(deploymentContext, new IPaaSCallback<Map<String, Map<String, InstanceInformation>>>() {
+                @Override
+                public void onSuccess(Map<String, Map<String, InstanceInformation>> data) {
+                    instanceInformationRegistry.put(deployment.getId(), deploymentContext, data);
+                }
+
+                @Override
+                public void onFailure(Throwable throwable) {
+                    instanceInformationRegistry.fail(deployment.getId(), throwable);
+                }
+            });
+        } catch (RuntimeException e) {
+            // the callers waiting for the request must not wait forever
+            instanceInformationRegistry.fail(deployment.getId(), e);
+        }
     }
 
     /**
@@ -0,0 +1,208 @@
+package alien4cloud.deployment;
+
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Resource;
+
+import lombok.AllArgsConstructor;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.deployment.Deployment;
+import alien4cloud.paas.IPaasEventListener;
+import alien4cloud.paas.IPaasEventService;
+import alien4cloud.paas.model.AbstractMonitorEvent;
+import alien4cloud.paas.model.DeploymentStatus;
+import alien4cloud.paas.model.PaaSDeploymentStatusMonitorEvent;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * In-memory registry of the statuses of the active deployments. The registry is fed by the status monitor events of the orchestrators and by the statuses
+ * retrieved from the orchestrators so status reads don't reach the orchestrators. Statuses that have not been updated for longer than the reconciliation TTL
+ * are reconciled with the orchestrators by {@link DeploymentRuntimeStateService}, they are still served until then.
+ */
+@Component
+public class DeploymentStatusRegistry implements IPaasEventListener<AbstractMonitorEvent>, InitializingBean {
+    @Resource
+    private IPaasEventService paasEventService;
+    @Resource(name = "alien-es-dao")
+    private IGenericSearchDAO alienDao;
+
+    /** Time in milliseconds after which a status that has not been updated is reconciled with the orchestrator. */
+    @Value("${deployment.status.reconciliation_ttl_ms:60000}")
+    private long reconciliationTtlMs;
+
+    private final Map<String, RegisteredStatus> statuses = Maps.newConcurrentMap();
+    /** Sequence of the updates of the registry by the monitor events, guarded by the registry lock. */
+    private long updates;
+    /** Requests of the statuses to the orchestrators that are in progress, guarded by the registry lock. */
+    private final Map<String, PendingRequests> pendingRequests = Maps.newHashMap();
+    /** Environment ids of the active deployments, the environment of a deployment never changes. */
+    private final Map<String, String> environmentIds = Maps.newConcurrentMap();
+
+    /**
+     * Get the registered status of a deployment.
+     *
+     * @param deploymentId The id of the deployment.
+     * @return The status of the deployment or null if it is not registered.
+     */
+    public DeploymentStatus get(String deploymentId) {
+        RegisteredStatus registeredStatus = statuses.get(deploymentId);
+        return registeredStatus == null ? null : registeredStatus.status;
+    }
+
+    /**
+     * Register the status of a deployment as received from a monitor event. Undeployed deployments are removed from the registry.
+     *
+     * @param deploymentId The id of the deployment.
+     * @param status The current status of the deployment.
+     */
+    public synchronized void put(String deploymentId, DeploymentStatus status) {
+        updates++;
+        PendingRequests pending = pendingRequests.get(deploymentId);
+        if (pending != null) {
+            pending.lastUpdate = updates;
+            pending.lastStatus = status;
+        }
+        register(deploymentId, status);
+    }
+
+    /**
+     * Register a request of the status of a deployment to the orchestrator. The request is completed by {@link #put(String, DeploymentStatus, long)} when it
+     * succeeds, by {@link #cancel(String)} otherwise.
+     *
+     * @param deploymentId The id of the deployment.
+     * @return The stamp of the request, to give to {@link #put(String, DeploymentStatus, long)}.
+     */
+    public synchronized long request(String deploymentId) {
+        PendingRequests pending = pendingRequests.get(deploymentId);
+        if (pending == null) {
+            pending = new PendingRequests();
+            pendingRequests.put(deploymentId, pending);
+        }
+        pending.requests++;
+        return updates;
+    }
+
+    /**
+     * Complete a request of the status of a deployment to the orchestrator. The status is registered unless a monitor event updated the status of the
+     * deployment since the request, the status of the event is kept then.
+     *
+     * @param deploymentId The id of the deployment.
+     * @param status The status of the deployment as returned by the orchestrator.
+     * @param stamp The stamp of the request as returned by {@link #request(String)}.
+     * @return The current status of the deployment.
+     */
+    public synchronized DeploymentStatus put(String deploymentId, DeploymentStatus status, long stamp) {
+        PendingRequests pending = pendingRequests.get(deploymentId);
+        cancel(deploymentId);
+        if (pending != null && pending.lastUpdate > stamp) {
+            // the orchestrator result may be older than the event
+            return pending.lastStatus;
+        }
+        register(deploymentId, status);
+        return status;
+    }
+
+    /**
+     * Complete a failed request of the status of a deployment to the orchestrator.
+     *
+     * @param deploymentId The id of the deployment.
+     */
+    public synchronized void cancel(String deploymentId) {
+        PendingRequests pending = pendingRequests.get(deploymentId);
+        if (pending != null && --pending.requests <= 0) {
+            pendingRequests.remove(deploymentId);
+        }
+    }
+
+    private void register(String deploymentId, DeploymentStatus status) {
+        if (DeploymentStatus.UNDEPLOYED.equals(status)) {
+            remove(deploymentId);
+        } else {
+            statuses.put(deploymentId, new RegisteredStatus(status, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Remove a deployment from the registry.
+     *
+     * @param deploymentId The id of the deployment.
+     */
+    public void remove(String deploymentId) {
+        statuses.remove(deploymentId);
+        environmentIds.remove(deploymentId);
+    }
+
+    /**
+     * @return The ids of the deployments which statuses have not been updated for longer than the reconciliation TTL.
+     */
+    public Set<String> getDeploymentsToReconcile() {
+        Set<String> deploymentIds = Sets.newHashSet();
+        long expirationDate = System.currentTimeMillis() - reconciliationTtlMs;
+        for (Map.Entry<String, RegisteredStatus> statusEntry : statuses.entrySet()) {
+            if (statusEntry.getValue().timestamp < expirationDate) {
+                deploymentIds.add(statusEntry.getKey());
+            }
+        }
+        return deploymentIds;
+    }
+
+    /**
+     * Get the id of the environment of a deployment, the deployment is loaded only the first time.
+     *
+     * @param deploymentId The id of the deployment.
+     * @return The id of the environment of the deployment or null if the deployment doesn't exist or is not an application deployment.
+     */
+    public String getEnvironmentId(String deploymentId) {
+        String environmentId = environmentIds.get(deploymentId);
+        if (environmentId == null) {
+            Deployment deployment = alienDao.findById(Deployment.class, deploymentId);
+            if (deployment == null || deployment.getEnvironmentId() == null) {
+                return null;
+            }
+            environmentId = deployment.getEnvironmentId();
+            if (deployment.getEndDate() == null) {
+                environmentIds.put(deploymentId, environmentId);
+            }
+        }
+        return environmentId;
+    }
+
+    @Override
+    public void eventHappened(AbstractMonitorEvent event) {
+        put(event.getDeploymentId(), ((PaaSDeploymentStatusMonitorEvent) event).getDeploymentStatus());
+    }
+
+    @Override
+    public boolean canHandle(AbstractMonitorEvent event) {
+        return event instanceof PaaSDeploymentStatusMonitorEvent && event.getDeploymentId() != null;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        paasEventService.addListener(this);
+    }
+
+    @AllArgsConstructor
+    private static class RegisteredStatus {
+        private final DeploymentStatus status;
+        private final long timestamp;
+    }
+
+    /**
+     * Requests of the status of a deployment to the orchestrator that are in progress and the last status received from the monitor events meanwhile.
+     */
+    private static class PendingRequests {
+        private int requests;
+        /** Number of the last update of the registry by a monitor event of the deployment, 0 if none has been received. */
+        private long lastUpdate;
+        private DeploymentStatus lastStatus;
+    }
+}
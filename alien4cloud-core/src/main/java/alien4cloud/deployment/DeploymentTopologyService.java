@@ -40,6 +40,7 @@ import alien4cloud.orchestrators.locations.services.LocationResourceService;
 import alien4cloud.orchestrators.locations.services.LocationService;
 import alien4cloud.security.AuthorizationUtil;
 import alien4cloud.security.model.DeployerRole;
+import alien4cloud.topology.TopologyChanges;
 import alien4cloud.topology.TopologyServiceCore;
 import alien4cloud.tosca.properties.constraints.exception.ConstraintValueDoNotMatchPropertyTypeException;
 import alien4cloud.tosca.properties.constraints.exception.ConstraintViolationException;
@@ -166,17 +167,21 @@ public class DeploymentTopologyService {
                 // Generate the deployment topology if none exist or if locations are not valid anymore
                 deploymentTopology = generateDeploymentTopology(id, environment, topology, new DeploymentTopology());
             } else if (checkIfTopologyOrLocationHasChanged(deploymentTopology, locations.values(), topology)) {
-                // Re-generate the deployment topology if the initial topology has been changed
-                generateDeploymentTopology(id, environment, topology, deploymentTopology);
+                // Re-generate the deployment topology if the initial topology has been changed, only the changed nodes are processed when possible
+                if (!updateChangedNodeTemplates(deploymentTopology, locations.values(), topology, environment)) {
+                    generateDeploymentTopology(id, environment, topology, deploymentTopology);
+                }
             }
         }
         return deploymentTopology;
     }
 
     private boolean checkIfTopologyOrLocationHasChanged(DeploymentTopology deploymentTopology, Collection<Location> locations, Topology topology) {
-        if (deploymentTopology.getLastDeploymentTopologyUpdateDate().before(topology.getLastUpdateDate())) {
-            return true;
-        }
+        return deploymentTopology.getLastDeploymentTopologyUpdateDate().before(topology.getLastUpdateDate())
+                || checkIfLocationHasChanged(deploymentTopology, locations);
+    }
+
+    private boolean checkIfLocationHasChanged(DeploymentTopology deploymentTopology, Collection<Location> locations) {
         for (Location location : locations) {
             if (deploymentTopology.getLastDeploymentTopologyUpdateDate().before(location.getLastUpdateDate())) {
                 return true;
@@ -220,6 +225,42 @@ public class DeploymentTopologyService {
         save(deploymentTopology);
     }
 
+    /**
+     * Update the deployment topology for the node templates that have been edited in the initial topology since the deployment topology has been generated.
+     * This is possible only if the edits have been tracked, changed only node templates (no node has been added or removed) and the locations didn't change.
+     *
+     * @param deploymentTopology The deployment topology to update.
+     * @param locations The locations of the deployment topology.
+     * @param topology The initial topology.
+     * @param environment The environment of the deployment topology.
+     * @return True if the deployment topology has been updated and saved, false if it has to be regenerated.
+     */
+    private boolean updateChangedNodeTemplates(DeploymentTopology deploymentTopology, Collection<Location> locations, Topology topology,
+            ApplicationEnvironment environment) {
+        if (checkIfLocationHasChanged(deploymentTopology, locations)) {
+            return false;
+        }
+        TopologyChanges changes = topologyServiceCore.getChanges(topology.getId(), deploymentTopology.getLastDeploymentTopologyUpdateDate(),
+                topology.getLastUpdateDate());
+        if (changes == null || !changes.isNodeTemplatesOnly() || topology.getNodeTemplates() == null || deploymentTopology.getNodeTemplates() == null
+                || !topology.getNodeTemplates().keySet().equals(deploymentTopology.getNodeTemplates().keySet())) {
+            // nodes have been added or removed, or the deployment topology contains the nodes of embedded topologies
+            return false;
+        }
+        log.debug("Update node templates {} of deployment topology <{}>", changes.getNodeTemplates(), deploymentTopology.getId());
+        deploymentTopology.setLastDeploymentTopologyUpdateDate(topology.getLastUpdateDate());
+        Map<String, NodeTemplate> previousNodeTemplates = Maps.newHashMap();
+        for (String nodeTemplateId : changes.getNodeTemplates()) {
+            NodeTemplate nodeTemplate = topology.getNodeTemplates().get(nodeTemplateId);
+            previousNodeTemplates.put(nodeTemplateId, deploymentTopology.getNodeTemplates().put(nodeTemplateId, nodeTemplate));
+        }
+        inputsPreProcessorService.processGetInput(deploymentTopology, environment, topology, changes.getNodeTemplates());
+        deploymentInputService.processInputArtifacts(deploymentTopology);
+        deploymentNodeSubstitutionService.processNodesSubstitution(deploymentTopology, previousNodeTemplates, changes.getNodeTemplates());
+        save(deploymentTopology);
+        return true;
+    }
+
     /**
      * Update the deployment topology's input and save it. This should always be called when the deployment setup has changed
      *
@@ -2,6 +2,7 @@ package alien4cloud.deployment;
 
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.annotation.Resource;
 
@@ -65,28 +66,48 @@ public class InputsPreProcessorService {
         Map<String, String> inputs = getInputs(deploymentTopology, environment);
         if (deploymentTopology.getNodeTemplates() != null) {
             for (Entry<String, NodeTemplate> entry : deploymentTopology.getNodeTemplates().entrySet()) {
-                NodeTemplate nodeTemplate = entry.getValue();
-                NodeTemplate initialNodeTemplate = topology.getNodeTemplates().get(entry.getKey());
-                mergeGetInputProperties(initialNodeTemplate.getProperties(), nodeTemplate.getProperties());
-                processGetInput(inputs, nodeTemplate.getProperties());
+                processGetInput(inputs, entry.getValue(), topology.getNodeTemplates().get(entry.getKey()));
+            }
+        }
+    }
 
-                // process relationships
-                if (nodeTemplate.getRelationships() != null) {
-                    for (Entry<String, RelationshipTemplate> relEntry : nodeTemplate.getRelationships().entrySet()) {
-                        RelationshipTemplate relationshipTemplate = relEntry.getValue();
-                        Map<String, AbstractPropertyValue> initialProperties = getInitialRelationshipProperties(relEntry.getKey(), initialNodeTemplate);
-                        mergeGetInputProperties(initialProperties, relationshipTemplate.getProperties());
-                        processGetInput(inputs, relationshipTemplate.getProperties());
-                    }
-                }
-                if (nodeTemplate.getCapabilities() != null) {
-                    for (Entry<String, Capability> capaEntry : nodeTemplate.getCapabilities().entrySet()) {
-                        Capability capability = capaEntry.getValue();
-                        Map<String, AbstractPropertyValue> capaInitialProps = getInitialCapabilityProperties(capaEntry.getKey(), initialNodeTemplate);
-                        mergeGetInputProperties(capaInitialProps, capability.getProperties());
-                        processGetInput(inputs, capability.getProperties());
-                    }
-                }
+    /**
+     * Process the get inputs functions of some node templates of a topology.
+     *
+     * @param deploymentTopology The deployment setup that contains the input values.
+     * @param environment The environment instance linked to the deployment setup.
+     * @param topology The initial topology.
+     * @param nodeTemplateIds The names of the node templates to process.
+     */
+    public void processGetInput(DeploymentTopology deploymentTopology, ApplicationEnvironment environment, Topology topology, Set<String> nodeTemplateIds) {
+        Map<String, String> inputs = getInputs(deploymentTopology, environment);
+        for (String nodeTemplateId : nodeTemplateIds) {
+            NodeTemplate nodeTemplate = deploymentTopology.getNodeTemplates().get(nodeTemplateId);
+            if (nodeTemplate != null) {
+                processGetInput(inputs, nodeTemplate, topology.getNodeTemplates().get(nodeTemplateId));
+            }
+        }
+    }
+
+    private void processGetInput(Map<String, String> inputs, NodeTemplate nodeTemplate, NodeTemplate initialNodeTemplate) {
+        mergeGetInputProperties(initialNodeTemplate.getProperties(), nodeTemplate.getProperties());
+        processGetInput(inputs, nodeTemplate.getProperties());
+
+        // process relationships
+        if (nodeTemplate.getRelationships() != null) {
+            for (Entry<String, RelationshipTemplate> relEntry : nodeTemplate.getRelationships().entrySet()) {
+                RelationshipTemplate relationshipTemplate = relEntry.getValue();
+                Map<String, AbstractPropertyValue> initialProperties = getInitialRelationshipProperties(relEntry.getKey(), initialNodeTemplate);
+                mergeGetInputProperties(initialProperties, relationshipTemplate.getProperties());
+                processGetInput(inputs, relationshipTemplate.getProperties());
+            }
+        }
+        if (nodeTemplate.getCapabilities() != null) {
+            for (Entry<String, Capability> capaEntry : nodeTemplate.getCapabilities().entrySet()) {
+                Capability capability = capaEntry.getValue();
+                Map<String, AbstractPropertyValue> capaInitialProps = getInitialCapabilityProperties(capaEntry.getKey(), initialNodeTemplate);
+                mergeGetInputProperties(capaInitialProps, capability.getProperties());
+                processGetInput(inputs, capability.getProperties());
             }
         }
     }
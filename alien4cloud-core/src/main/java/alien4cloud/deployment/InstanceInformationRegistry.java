@@ -0,0 +1,320 @@
+package alien4cloud.deployment;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Resource;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.model.topology.Topology;
+import alien4cloud.paas.IPaaSCallback;
+import alien4cloud.paas.IPaasEventListener;
+import alien4cloud.paas.IPaasEventService;
+import alien4cloud.paas.function.FunctionEvaluator;
+import alien4cloud.paas.model.AbstractMonitorEvent;
+import alien4cloud.paas.model.DeploymentStatus;
+import alien4cloud.paas.model.InstanceInformation;
+import alien4cloud.paas.model.PaaSDeploymentStatusMonitorEvent;
+import alien4cloud.paas.model.PaaSInstancePersistentResourceMonitorEvent;
+import alien4cloud.paas.model.PaaSInstanceStateMonitorEvent;
+import alien4cloud.paas.model.PaaSTopology;
+import alien4cloud.paas.model.PaaSTopologyDeploymentContext;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * In-memory snapshots of the instances of the deployments. A snapshot is initialized from the instances information of the orchestrator and then updated by
+ * the instances monitor events so reads don't require to build the deployment context and to request the orchestrator. Snapshots older than the
+ * reconciliation TTL are not served so they are reloaded from the orchestrator by {@link DeploymentRuntimeStateService}.
+ * <p>
+ * The attributes of the snapshots are post-processed by the {@link FunctionEvaluator} as the orchestrators do for the instances information they return, so
+ * the attributes updated by the events are served with the same values as the ones read from the orchestrator.
+ */
+@Component
+public class InstanceInformationRegistry implements IPaasEventListener<AbstractMonitorEvent>, InitializingBean {
+    @Resource
+    private IPaasEventService paasEventService;
+
+    /** Time in milliseconds after which the instances of a deployment are reloaded from the orchestrator. */
+    @Value("${deployment.instances.reconciliation_ttl_ms:60000}")
+    private long reconciliationTtlMs;
+
+    private final Map<String, Snapshot> snapshots = Maps.newConcurrentMap();
+    /** Requests of the instances of a deployment to the orchestrator that are in progress, guarded by the registry lock. */
+    private final Map<String, PendingRequest> pendingRequests = Maps.newHashMap();
+
+    /**
+     * Get the snapshot of the instances of a deployment.
+     *
+     * @param deploymentId The id of the deployment.
+     * @return A copy of the map of node template's id to map of instance's id to instance information or null if there is no snapshot or if it has to be
+     *         reconciled with the orchestrator.
+     */
+    public Map<String, Map<String, InstanceInformation>> get(String deploymentId) {
+        Snapshot snapshot = snapshots.get(deploymentId);
+        if (snapshot == null || System.currentTimeMillis() - snapshot.date > reconciliationTtlMs) {
+            return null;
+        }
+        synchronized (snapshot) {
+            return snapshot.copy();
+        }
+    }
+
+    /**
+     * Register a caller of the instances of a deployment to the orchestrator. Only the first caller requests the orchestrator, the callers registered until
+     * the request completes share its result. The events received until the request completes are kept so they can be applied on the orchestrator result.
+     * The request is completed by {@link #put(String, PaaSTopologyDeploymentContext, Map)} when it succeeds, by {@link #fail(String, Throwable)} otherwise.
+     *
+     * @param deploymentId The id of the deployment.
+     * @param callback The callback to complete with the instances of the deployment.
+     * @return True if the caller has to request the orchestrator, false if a request of the instances of the deployment is already in progress.
+     */
+    public synchronized boolean request(String deploymentId, IPaaSCallback<Map<String, Map<String, InstanceInformation>>> callback) {
+        PendingRequest pending = pendingRequests.get(deploymentId);
+        if (pending != null) {
+            pending.callbacks.add(callback);
+            return false;
+        }
+        pending = new PendingRequest(System.currentTimeMillis());
+        pending.callbacks.add(callback);
+        pendingRequests.put(deploymentId, pending);
+        return true;
+    }
+
+    /**
+     * Complete a request of the instances of a deployment to the orchestrator and replace the snapshot of its instances. The events received since the
+     * request are applied on the given instances and the callbacks of the request are completed with the updated instances.
+     *
+     * @param deploymentId The id of the deployment.
+     * @param deploymentContext The deployment context given to the orchestrator, used to post-process the attributes of the instances.
+     * @param instances The instances information as returned by the orchestrator.
+     */
+    public void put(String deploymentId, PaaSTopologyDeploymentContext deploymentContext, Map<String, Map<String, InstanceInformation>> instances) {
+        PendingRequest pending;
+        Snapshot snapshot;
+        synchronized (this) {
+            pending = pendingRequests.remove(deploymentId);
+            if (pending == null) {
+                // the request has already been completed
+                return;
+            }
+            // the snapshot is dated from the request so it never looks more recent than the orchestrator data it contains
+            snapshot = new Snapshot(pending.date, deploymentContext.getDeploymentTopology(), deploymentContext.getPaaSTopology());
+            if (instances != null) {
+                for (Map.Entry<String, Map<String, InstanceInformation>> nodeInstances : instances.entrySet()) {
+                    snapshot.instances.put(nodeInstances.getKey(), Maps.newHashMap(nodeInstances.getValue()));
+                }
+            }
+            // the events received around the request date may already be in the orchestrator result, applying them again doesn't change the instances
+            for (PendingEvent pendingEvent : pending.events) {
+                if (pendingEvent.date >= pending.date) {
+                    snapshot.update(pendingEvent.event);
+                }
+            }
+            // a snapshot of a deployment undeployed meanwhile is not published
+            if (!pending.undeployed) {
+                snapshots.put(deploymentId, snapshot);
+            }
+        }
+        for (IPaaSCallback<Map<String, Map<String, InstanceInformation>>> callback : pending.callbacks) {
+            Map<String, Map<String, InstanceInformation>> copy;
+            synchronized (snapshot) {
+                copy = snapshot.copy();
+            }
+            callback.onSuccess(copy);
+        }
+    }
+
+    /**
+     * Complete a failed request of the instances of a deployment to the orchestrator, the callbacks of the request are failed.
+     *
+     * @param deploymentId The id of the deployment.
+     * @param throwable The failure of the request.
+     */
+    public void fail(String deploymentId, Throwable throwable) {
+        PendingRequest pending;
+        synchronized (this) {
+            pending = pendingRequests.remove(deploymentId);
+        }
+        if (pending != null) {
+            for (IPaaSCallback<Map<String, Map<String, InstanceInformation>>> callback : pending.callbacks) {
+                callback.onFailure(throwable);
+            }
+        }
+    }
+
+    @Override
+    public void eventHappened(AbstractMonitorEvent event) {
+        Snapshot snapshot;
+        synchronized (this) {
+            PendingRequest pending = pendingRequests.get(event.getDeploymentId());
+            if (event instanceof PaaSDeploymentStatusMonitorEvent) {
+                if (DeploymentStatus.UNDEPLOYED.equals(((PaaSDeploymentStatusMonitorEvent) event).getDeploymentStatus())) {
+                    snapshots.remove(event.getDeploymentId());
+                    if (pending != null) {
+                        pending.undeployed = true;
+                    }
+                }
+                return;
+            }
+            if (pending != null) {
+                pending.events.add(new PendingEvent(System.currentTimeMillis(), event));
+            }
+            // events of deployments without snapshot nor pending request are ignored, the instances are loaded from the orchestrator on the first read
+            snapshot = snapshots.get(event.getDeploymentId());
+        }
+        if (snapshot != null) {
+            synchronized (snapshot) {
+                snapshot.update(event);
+            }
+        }
+    }
+
+    @Override
+    public boolean canHandle(AbstractMonitorEvent event) {
+        return event.getDeploymentId() != null
+                && (event instanceof PaaSInstanceStateMonitorEvent || event instanceof PaaSInstancePersistentResourceMonitorEvent
+                        || event instanceof PaaSDeploymentStatusMonitorEvent);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        paasEventService.addListener(this);
+    }
+
+    /**
+     * Instances of a deployment. Instances information are replaced and never updated so they can be shared with the readers of the snapshot.
+     */
+    private static class Snapshot {
+        private final long date;
+        private final Topology topology;
+        private final PaaSTopology paaSTopology;
+        private final Map<String, Map<String, InstanceInformation>> instances = Maps.newHashMap();
+        /** True if attributes have been set since the last post-processing of the attributes. */
+        private boolean attributesUpdated = true;
+
+        private Snapshot(long date, Topology topology, PaaSTopology paaSTopology) {
+            this.date = date;
+            this.topology = topology;
+            this.paaSTopology = paaSTopology;
+        }
+
+        private Map<String, Map<String, InstanceInformation>> copy() {
+            postProcessAttributes();
+            Map<String, Map<String, InstanceInformation>> copy = Maps.newHashMap();
+            for (Map.Entry<String, Map<String, InstanceInformation>> nodeInstances : instances.entrySet()) {
+                copy.put(nodeInstances.getKey(), Maps.newHashMap(nodeInstances.getValue()));
+            }
+            return copy;
+        }
+
+        /**
+         * Evaluate the functions of the attributes set since the last read. Attributes may depend on the attributes of other instances so all the instances
+         * are post-processed, the evaluation of attributes already post-processed doesn't change them.
+         */
+        private void postProcessAttributes() {
+            if (!attributesUpdated) {
+                return;
+            }
+            // the post-processing updates the attributes in place, the instances that may be shared with readers are replaced
+            for (Map<String, InstanceInformation> nodeInstances : instances.values()) {
+                for (Map.Entry<String, InstanceInformation> instanceEntry : nodeInstances.entrySet()) {
+                    InstanceInformation instance = instanceEntry.getValue();
+                    if (instance.getAttributes() != null) {
+                        instanceEntry.setValue(new InstanceInformation(instance.getState(), instance.getInstanceStatus(),
+                                Maps.newHashMap(instance.getAttributes()), instance.getRuntimeProperties(), instance.getOperationsOutputs()));
+                    }
+                }
+            }
+            FunctionEvaluator.postProcessInstanceInformation(instances, topology, paaSTopology);
+            attributesUpdated = false;
+        }
+
+        private void update(AbstractMonitorEvent event) {
+            if (event instanceof PaaSInstanceStateMonitorEvent) {
+                update((PaaSInstanceStateMonitorEvent) event);
+            } else {
+                update((PaaSInstancePersistentResourceMonitorEvent) event);
+            }
+        }
+
+        private void update(PaaSInstanceStateMonitorEvent event) {
+            Map<String, InstanceInformation> nodeInstances = instances.get(event.getNodeTemplateId());
+            if (event.getInstanceState() == null) {
+                // an event without state denotes a deleted instance
+                if (nodeInstances != null) {
+                    nodeInstances.remove(event.getInstanceId());
+                    if (nodeInstances.isEmpty()) {
+                        instances.remove(event.getNodeTemplateId());
+                    }
+                }
+                // attributes of other instances may depend on the deleted instance
+                attributesUpdated = true;
+                return;
+            }
+            if (nodeInstances == null) {
+                nodeInstances = Maps.newHashMap();
+                instances.put(event.getNodeTemplateId(), nodeInstances);
+            }
+            InstanceInformation previous = nodeInstances.get(event.getInstanceId());
+            InstanceInformation instance = new InstanceInformation(event.getInstanceState(), event.getInstanceStatus(), event.getAttributes(),
+                    event.getRuntimeProperties(), null);
+            if (previous != null) {
+                if (instance.getAttributes() == null) {
+                    instance.setAttributes(previous.getAttributes());
+                }
+                if (instance.getRuntimeProperties() == null) {
+                    instance.setRuntimeProperties(previous.getRuntimeProperties());
+                }
+                instance.setOperationsOutputs(previous.getOperationsOutputs());
+            }
+            nodeInstances.put(event.getInstanceId(), instance);
+            attributesUpdated |= event.getAttributes() != null;
+        }
+
+        private void update(PaaSInstancePersistentResourceMonitorEvent event) {
+            Map<String, InstanceInformation> nodeInstances = instances.get(event.getNodeTemplateId());
+            InstanceInformation previous = nodeInstances == null ? null : nodeInstances.get(event.getInstanceId());
+            if (previous == null) {
+                return;
+            }
+            // the persistent resource is exposed as an attribute of the instance
+            Map<String, String> attributes = previous.getAttributes() == null ? Maps.<String, String> newHashMap() : Maps.newHashMap(previous.getAttributes());
+            attributes.put(event.getPropertyName(), event.getPropertyValue());
+            nodeInstances.put(event.getInstanceId(), new InstanceInformation(previous.getState(), previous.getInstanceStatus(), attributes,
+                    previous.getRuntimeProperties(), previous.getOperationsOutputs()));
+            attributesUpdated = true;
+        }
+    }
+
+    /**
+     * Request of the instances of a deployment to the orchestrator that is in progress, with the callers waiting for its result and the events received
+     * meanwhile.
+     */
+    private static class PendingRequest {
+        /** Date of the request. */
+        private final long date;
+        private boolean undeployed;
+        private final List<IPaaSCallback<Map<String, Map<String, InstanceInformation>>>> callbacks = Lists.newArrayList();
+        private final List<PendingEvent> events = Lists.newArrayList();
+
+        private PendingRequest(long date) {
+            this.date = date;
+        }
+    }
+
+    private static class PendingEvent {
+        /** Date at which the event has been received. */
+        private final long date;
+        private final AbstractMonitorEvent event;
+
+        private PendingEvent(long date, AbstractMonitorEvent event) {
+            this.date = date;
+            this.event = event;
+        }
+    }
+}
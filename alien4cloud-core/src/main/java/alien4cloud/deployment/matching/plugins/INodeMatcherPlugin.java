@@ -10,7 +10,8 @@ import alien4cloud.model.orchestrators.locations.LocationResources;
 import alien4cloud.model.topology.NodeTemplate;
 
 /**
- * This plugin is used to match topology nodes against resources provided by locations.
+ * This plugin is used to match topology nodes against resources provided by locations. The nodes of a topology may be matched concurrently, the location
+ * resources and matching configurations are shared by all the matchings and must not be modified.
  */
 public interface INodeMatcherPlugin {
     List<LocationResourceTemplate> matchNode(NodeTemplate nodeTemplate, IndexedNodeType nodeType, LocationResources locationResources,
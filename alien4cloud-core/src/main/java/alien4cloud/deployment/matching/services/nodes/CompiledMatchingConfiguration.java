@@ -0,0 +1,65 @@
+package alien4cloud.deployment.matching.services.nodes;
+
+import java.util.Map;
+
+import alien4cloud.deployment.matching.services.nodes.MatchingFilter.ReferenceValue;
+import alien4cloud.model.deployment.matching.MatchingConfiguration;
+import alien4cloud.model.deployment.matching.MatchingFilterDefinition;
+import alien4cloud.model.topology.Capability;
+import alien4cloud.model.topology.NodeTemplate;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Immutable form of a {@link MatchingConfiguration} that can be used by concurrent matchings.
+ */
+public final class CompiledMatchingConfiguration {
+    private final MatchingFilter properties;
+    private final Map<String, MatchingFilter> capabilities;
+
+    private CompiledMatchingConfiguration(MatchingFilter properties, Map<String, MatchingFilter> capabilities) {
+        this.properties = properties;
+        this.capabilities = capabilities;
+    }
+
+    /**
+     * Compile a matching configuration.
+     *
+     * @param matchingConfiguration The matching configuration, it must not be modified once compiled.
+     * @return The compiled matching configuration.
+     */
+    public static CompiledMatchingConfiguration compile(MatchingConfiguration matchingConfiguration) {
+        ImmutableMap.Builder<String, MatchingFilter> capabilities = ImmutableMap.builder();
+        if (matchingConfiguration.getCapabilities() != null) {
+            for (Map.Entry<String, MatchingFilterDefinition> capabilityEntry : matchingConfiguration.getCapabilities().entrySet()) {
+                capabilities.put(capabilityEntry.getKey(), MatchingFilter.compile(capabilityEntry.getValue()));
+            }
+        }
+        return new CompiledMatchingConfiguration(MatchingFilter.compile(matchingConfiguration), capabilities.build());
+    }
+
+    /**
+     * Check that the properties of a node template and of its capabilities match the filters defined for a candidate.
+     *
+     * @param nodeTemplate The node template to match.
+     * @param candidate The parsed values of the candidate location resource.
+     * @return True if the node template matches the candidate.
+     */
+    public boolean matches(NodeTemplate nodeTemplate, MatchingCandidate candidate) {
+        // check that the node root properties matches the filters defined on the MatchingConfigurations.
+        if (!properties.matches(nodeTemplate.getProperties(), candidate.getProperties())) {
+            return false;
+        }
+
+        // check that the properties defined on the capabilities matches the filters configured for the capabilities
+        for (Map.Entry<String, MatchingFilter> capabilityFilterEntry : capabilities.entrySet()) {
+            Map<String, ReferenceValue> candidateCapability = candidate.getCapabilities().get(capabilityFilterEntry.getKey());
+            Capability templateCapability = nodeTemplate.getCapabilities() == null ? null : nodeTemplate.getCapabilities().get(capabilityFilterEntry.getKey());
+            if (candidateCapability != null && templateCapability != null
+                    && !capabilityFilterEntry.getValue().matches(templateCapability.getProperties(), candidateCapability)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
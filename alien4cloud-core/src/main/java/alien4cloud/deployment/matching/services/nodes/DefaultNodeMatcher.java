@@ -5,35 +5,39 @@ import java.util.Map;
 
 import javax.inject.Inject;
 
-import lombok.extern.slf4j.Slf4j;
-
 import org.springframework.stereotype.Component;
 
 import alien4cloud.deployment.matching.plugins.INodeMatcherPlugin;
 import alien4cloud.model.components.*;
-import alien4cloud.model.components.constraints.IMatchPropertyConstraint;
 import alien4cloud.model.deployment.matching.MatchingConfiguration;
-import alien4cloud.model.deployment.matching.MatchingFilterDefinition;
 import alien4cloud.model.orchestrators.locations.LocationResourceTemplate;
 import alien4cloud.model.orchestrators.locations.LocationResources;
-import alien4cloud.model.topology.Capability;
 import alien4cloud.model.topology.NodeTemplate;
 import alien4cloud.topology.validation.NodeFilterValidationService;
-import alien4cloud.tosca.normative.IPropertyType;
-import alien4cloud.tosca.normative.ToscaType;
-import alien4cloud.tosca.properties.constraints.exception.ConstraintValueDoNotMatchPropertyTypeException;
-import alien4cloud.tosca.properties.constraints.exception.ConstraintViolationException;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
 
 /**
- * Default implementation of INodeMatcherPlugin to be used when no matching plugin has been defined.
+ * Default implementation of INodeMatcherPlugin to be used when no matching plugin has been defined. The matcher is thread-safe.
  */
-@Slf4j
 @Component
 public class DefaultNodeMatcher implements INodeMatcherPlugin {
     @Inject
     private NodeFilterValidationService nodeFilterValidationService;
+    /** Matching configurations are compiled once per instance, the instances are shared by all the matchings of a location. */
+    private final LoadingCache<MatchingConfiguration, CompiledMatchingConfiguration> compiledConfigurations = CacheBuilder.newBuilder().weakKeys()
+            .build(new CacheLoader<MatchingConfiguration, CompiledMatchingConfiguration>() {
+                @Override
+                public CompiledMatchingConfiguration load(MatchingConfiguration matchingConfiguration) {
+                    return CompiledMatchingConfiguration.compile(matchingConfiguration);
+                }
+            });
+    /** Candidates are parsed once per instance, the location resources are shared by all the matchings of a location until it is updated. */
+    private final Cache<LocationResourceTemplate, MatchingCandidate> parsedCandidates = CacheBuilder.newBuilder().weakKeys().build();
     // TODO initialize default matching configuration based on parsing a yaml file within a4c for nodes like Compute etc.
 
     /**
@@ -125,68 +129,13 @@ public class DefaultNodeMatcher implements INodeMatcherPlugin {
         }
 
         // create a node filter based on all properties configured on the candidate node
-        return isTemplatePropertiesMatchCandidateFilters(nodeTemplate, matchingConfiguration, candidate, candidateType, capabilityTypes);
-    }
-
-    private boolean isTemplatePropertiesMatchCandidateFilters(NodeTemplate nodeTemplate, MatchingConfiguration matchingConfiguration,
-            LocationResourceTemplate candidate, IndexedNodeType candidateType, Map<String, IndexedCapabilityType> capabilityTypes) {
-        // check that the node root properties matches the filters defined on the MatchingConfigurations.
-        if (!isTemplatePropertiesMatchCandidateFilter(nodeTemplate.getProperties(), matchingConfiguration.getProperties(),
-                candidate.getTemplate().getProperties(), candidateType.getProperties())) {
-            return false;
-        }
-
-        // check that the properties defined on the capabilities matches the filters configured for the capabilities
-        for (Map.Entry<String, MatchingFilterDefinition> capabilityMatchingFilterEntry : matchingConfiguration.getCapabilities().entrySet()) {
-            FilterDefinition filterDefinition = new FilterDefinition();
-
-            Capability candidateCapability = candidate.getTemplate().getCapabilities().get(capabilityMatchingFilterEntry.getKey());
-            IndexedCapabilityType capabilityType = capabilityTypes.get(candidateCapability.getType());
-            Capability templateCapability = nodeTemplate.getCapabilities().get(capabilityMatchingFilterEntry.getKey());
-
-            if (!isTemplatePropertiesMatchCandidateFilter(templateCapability.getProperties(), capabilityMatchingFilterEntry.getValue().getProperties(),
-                    candidateCapability.getProperties(), capabilityType.getProperties())) {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
-    /**
-     * Add filters from the matching configuration to the node filter that will be applied for matching only if a value is specified on the configuration
-     * template.
-     * 
-     * @param nodeTemplateValues The properties values from the node template to match.
-     * @param sourceFilters The filtering map (based on constraints) from matching configuration.
-     * @param propertyValues The values defined on the Location Template.
-     * @param propertyDefinitions The properties definitions associated with the node.
-     */
-    private boolean isTemplatePropertiesMatchCandidateFilter(Map<String, AbstractPropertyValue> nodeTemplateValues,
-            Map<String, List<IMatchPropertyConstraint>> sourceFilters, Map<String, AbstractPropertyValue> propertyValues,
-            Map<String, PropertyDefinition> propertyDefinitions) {
-        for (Map.Entry<String, List<IMatchPropertyConstraint>> filterEntry : sourceFilters.entrySet()) {
-            AbstractPropertyValue candidatePropertyValue = propertyValues.get(filterEntry.getKey());
-            AbstractPropertyValue templatePropertyValue = nodeTemplateValues.get(filterEntry.getKey());
-            if (candidatePropertyValue != null && candidatePropertyValue instanceof ScalarPropertyValue && templatePropertyValue != null
-                    && templatePropertyValue instanceof ScalarPropertyValue) {
-                try {
-                    IPropertyType<?> toscaType = ToscaType.fromYamlTypeName(propertyDefinitions.get(filterEntry.getKey()).getType());
-                    // set the constraint value and add it to the node filter
-                    for (IMatchPropertyConstraint constraint : filterEntry.getValue()) {
-                        constraint.setConstraintValue(toscaType, ((ScalarPropertyValue) candidatePropertyValue).getValue());
-                        try {
-                            constraint.validate(toscaType, ((ScalarPropertyValue) templatePropertyValue).getValue());
-                        } catch (ConstraintViolationException e) {
-                            return false;
-                        }
-                    }
-                } catch (ConstraintValueDoNotMatchPropertyTypeException e) {
-                    log.debug("The value of property for a constraint is not valid.", e);
-                }
-            }
+        MatchingCandidate matchingCandidate = parsedCandidates.getIfPresent(candidate);
+        if (matchingCandidate == null) {
+            // concurrent matchings may parse the candidate twice, the results are the same
+            matchingCandidate = MatchingCandidate.parse(candidate, candidateType, capabilityTypes);
+            parsedCandidates.put(candidate, matchingCandidate);
         }
-        return true;
+        return compiledConfigurations.getUnchecked(matchingConfiguration).matches(nodeTemplate, matchingCandidate);
     }
 
     /**
@@ -0,0 +1,104 @@
+package alien4cloud.deployment.matching.services.nodes;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import lombok.Getter;
+
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.deployment.matching.MatchingConfiguration;
+import alien4cloud.model.orchestrators.locations.Location;
+import alien4cloud.model.orchestrators.locations.LocationResourceTemplate;
+import alien4cloud.model.orchestrators.locations.LocationResources;
+import alien4cloud.orchestrators.plugin.IOrchestratorPlugin;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Resources and matching configurations of a location with the on-demand resources bucketed by their type and all the parent types of their type, so a node
+ * is matched only against the resources that may substitute it.
+ * <p>
+ * The index is valid as long as the location is not updated (any change on the resources of a location updates its last update date) and the orchestrator
+ * plugin is not reloaded. Resources of the index are shared by all the matching requests and must not be modified.
+ */
+class LocationMatchingIndex {
+    private final Date lastUpdateDate;
+    private final IOrchestratorPlugin orchestratorPlugin;
+    @Getter
+    private final Map<String, MatchingConfiguration> matchingConfigurations;
+    /** Resources of the location restricted to the on-demand resources that derives from a given type. */
+    private final Map<String, LocationResources> resourcesByType = Maps.newHashMap();
+
+    LocationMatchingIndex(Location location, IOrchestratorPlugin orchestratorPlugin, LocationResources locationResources,
+            Map<String, MatchingConfiguration> matchingConfigurations) {
+        this.lastUpdateDate = location.getLastUpdateDate();
+        this.orchestratorPlugin = orchestratorPlugin;
+        this.matchingConfigurations = matchingConfigurations;
+        // all the types managed by the location may be matched even if no resource is configured for them
+        Map<String, List<LocationResourceTemplate>> candidatesByType = Maps.newHashMap();
+        for (IndexedNodeType nodeType : locationResources.getNodeTypes().values()) {
+            getCandidates(candidatesByType, nodeType.getElementId());
+            if (nodeType.getDerivedFrom() != null) {
+                for (String parentType : nodeType.getDerivedFrom()) {
+                    getCandidates(candidatesByType, parentType);
+                }
+            }
+        }
+        for (LocationResourceTemplate candidate : locationResources.getNodeTemplates()) {
+            IndexedNodeType candidateType = locationResources.getNodeTypes().get(candidate.getTemplate().getType());
+            getCandidates(candidatesByType, candidateType.getElementId()).add(candidate);
+            if (candidateType.getDerivedFrom() != null) {
+                for (String parentType : candidateType.getDerivedFrom()) {
+                    List<LocationResourceTemplate> candidates = getCandidates(candidatesByType, parentType);
+                    // a type may be declared multiple times in the hierarchy
+                    if (candidates.isEmpty() || candidates.get(candidates.size() - 1) != candidate) {
+                        candidates.add(candidate);
+                    }
+                }
+            }
+        }
+        for (Map.Entry<String, List<LocationResourceTemplate>> candidatesEntry : candidatesByType.entrySet()) {
+            LocationResources typeResources = new LocationResources();
+            typeResources.setConfigurationTypes(locationResources.getConfigurationTypes());
+            typeResources.setNodeTypes(locationResources.getNodeTypes());
+            typeResources.setCapabilityTypes(locationResources.getCapabilityTypes());
+            typeResources.setConfigurationTemplates(locationResources.getConfigurationTemplates());
+            typeResources.setNodeTemplates(candidatesEntry.getValue());
+            resourcesByType.put(candidatesEntry.getKey(), typeResources);
+        }
+    }
+
+    private static List<LocationResourceTemplate> getCandidates(Map<String, List<LocationResourceTemplate>> candidatesByType, String type) {
+        List<LocationResourceTemplate> candidates = candidatesByType.get(type);
+        if (candidates == null) {
+            candidates = Lists.newArrayList();
+            candidatesByType.put(type, candidates);
+        }
+        return candidates;
+    }
+
+    /**
+     * Check if the index is still valid for the given location.
+     *
+     * @param location The current state of the location.
+     * @param orchestratorPlugin The current instance of the orchestrator plugin of the location.
+     * @return True if the location and the orchestrator plugin didn't change since the index has been created.
+     */
+    boolean isValidFor(Location location, IOrchestratorPlugin orchestratorPlugin) {
+        return this.orchestratorPlugin == orchestratorPlugin && Objects.equals(lastUpdateDate, location.getLastUpdateDate());
+    }
+
+    /**
+     * Get the resources of the location that may substitute a node of the given type.
+     *
+     * @param type The type of the node to match.
+     * @return The resources of the location with only the on-demand resources which type is or derives from the given type, null if the type is not managed
+     *         by the location.
+     */
+    LocationResources getResources(String type) {
+        return resourcesByType.get(type);
+    }
+}
@@ -0,0 +1,50 @@
+package alien4cloud.deployment.matching.services.nodes;
+
+import java.util.Map;
+
+import lombok.Getter;
+
+import alien4cloud.deployment.matching.services.nodes.MatchingFilter.ReferenceValue;
+import alien4cloud.model.components.IndexedCapabilityType;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.orchestrators.locations.LocationResourceTemplate;
+import alien4cloud.model.topology.Capability;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Values of a candidate location resource and of its capabilities parsed once to be used as reference by the filters of all the matchings against the
+ * candidate.
+ */
+@Getter
+public final class MatchingCandidate {
+    private final Map<String, ReferenceValue> properties;
+    /** Reference values by capability name. */
+    private final Map<String, Map<String, ReferenceValue>> capabilities;
+
+    private MatchingCandidate(Map<String, ReferenceValue> properties, Map<String, Map<String, ReferenceValue>> capabilities) {
+        this.properties = properties;
+        this.capabilities = capabilities;
+    }
+
+    /**
+     * Parse the values of a candidate.
+     *
+     * @param candidate The candidate location resource, it must not be modified once parsed.
+     * @param candidateType The type of the candidate node.
+     * @param capabilityTypes Map of capability types that may be used by the candidateType.
+     * @return The parsed values of the candidate.
+     */
+    public static MatchingCandidate parse(LocationResourceTemplate candidate, IndexedNodeType candidateType,
+            Map<String, IndexedCapabilityType> capabilityTypes) {
+        ImmutableMap.Builder<String, Map<String, ReferenceValue>> capabilities = ImmutableMap.builder();
+        if (candidate.getTemplate().getCapabilities() != null) {
+            for (Map.Entry<String, Capability> capabilityEntry : candidate.getTemplate().getCapabilities().entrySet()) {
+                IndexedCapabilityType capabilityType = capabilityTypes == null ? null : capabilityTypes.get(capabilityEntry.getValue().getType());
+                capabilities.put(capabilityEntry.getKey(),
+                        MatchingFilter.parse(capabilityEntry.getValue().getProperties(), capabilityType == null ? null : capabilityType.getProperties()));
+            }
+        }
+        return new MatchingCandidate(MatchingFilter.parse(candidate.getTemplate().getProperties(), candidateType.getProperties()), capabilities.build());
+    }
+}
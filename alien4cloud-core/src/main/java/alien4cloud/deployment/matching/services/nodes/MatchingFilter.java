@@ -0,0 +1,280 @@
+package alien4cloud.deployment.matching.services.nodes;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+
+import alien4cloud.model.components.AbstractPropertyValue;
+import alien4cloud.model.components.PropertyDefinition;
+import alien4cloud.model.components.ScalarPropertyValue;
+import alien4cloud.model.components.constraints.EqualConstraint;
+import alien4cloud.model.components.constraints.GreaterOrEqualConstraint;
+import alien4cloud.model.components.constraints.GreaterThanConstraint;
+import alien4cloud.model.components.constraints.IMatchPropertyConstraint;
+import alien4cloud.model.components.constraints.LessOrEqualConstraint;
+import alien4cloud.model.components.constraints.LessThanConstraint;
+import alien4cloud.model.deployment.matching.MatchingFilterDefinition;
+import alien4cloud.tosca.normative.IComparablePropertyType;
+import alien4cloud.tosca.normative.IPropertyType;
+import alien4cloud.tosca.normative.InvalidPropertyValueException;
+import alien4cloud.tosca.normative.ToscaType;
+import alien4cloud.tosca.properties.constraints.exception.ConstraintValueDoNotMatchPropertyTypeException;
+import alien4cloud.tosca.properties.constraints.exception.ConstraintViolationException;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Immutable form of a {@link MatchingFilterDefinition}: the constraints of a property use the value of the candidate as reference and are checked against the
+ * value of the node template to match.
+ * <p>
+ * The normative match constraints are compiled to predicates that are evaluated without exception and without updating the constraints so a filter can be
+ * used by concurrent matchings. Other match constraints are evaluated as they are, one evaluation at a time. The values of the candidates are parsed once
+ * with {@link #parse(Map, Map)} and shared by the evaluations.
+ */
+@Slf4j
+public final class MatchingFilter {
+    private final Map<String, MatchPredicate[]> predicatesByProperty;
+
+    private MatchingFilter(Map<String, MatchPredicate[]> predicatesByProperty) {
+        this.predicatesByProperty = predicatesByProperty;
+    }
+
+    /**
+     * Compile a matching filter definition.
+     *
+     * @param filterDefinition The filter definition, it must not be modified once compiled.
+     * @return The compiled filter.
+     */
+    public static MatchingFilter compile(MatchingFilterDefinition filterDefinition) {
+        ImmutableMap.Builder<String, MatchPredicate[]> predicatesByProperty = ImmutableMap.builder();
+        if (filterDefinition.getProperties() != null) {
+            for (Map.Entry<String, List<IMatchPropertyConstraint>> filterEntry : filterDefinition.getProperties().entrySet()) {
+                MatchPredicate[] predicates = new MatchPredicate[filterEntry.getValue().size()];
+                for (int i = 0; i < predicates.length; i++) {
+                    predicates[i] = compile(filterEntry.getValue().get(i));
+                }
+                predicatesByProperty.put(filterEntry.getKey(), predicates);
+            }
+        }
+        return new MatchingFilter(predicatesByProperty.build());
+    }
+
+    private static MatchPredicate compile(IMatchPropertyConstraint constraint) {
+        // sub classes of the normative constraints may change the validation so only the exact classes are compiled
+        Class<?> constraintClass = constraint.getClass();
+        if (constraintClass == EqualConstraint.class) {
+            return MatchOperator.EQUAL;
+        } else if (constraintClass == GreaterOrEqualConstraint.class) {
+            return MatchOperator.GREATER_OR_EQUAL;
+        } else if (constraintClass == GreaterThanConstraint.class) {
+            return MatchOperator.GREATER_THAN;
+        } else if (constraintClass == LessOrEqualConstraint.class) {
+            return MatchOperator.LESS_OR_EQUAL;
+        } else if (constraintClass == LessThanConstraint.class) {
+            return MatchOperator.LESS_THAN;
+        }
+        return new ConstraintPredicate(constraint);
+    }
+
+    /**
+     * Parse the scalar values of a candidate with the types of their definitions. The parsed values can be used as reference by all the filters so the
+     * values of a candidate are parsed once whatever the number of node templates matched against it.
+     *
+     * @param candidateValues The properties values of the candidate.
+     * @param propertyDefinitions The properties definitions of the candidate type.
+     * @return Map of property name to reference value. Properties which value is not a scalar, which type cannot be used for matching or which value is not
+     *         valid have no reference value as the filters don't apply to them.
+     */
+    public static Map<String, ReferenceValue> parse(Map<String, AbstractPropertyValue> candidateValues, Map<String, PropertyDefinition> propertyDefinitions) {
+        if (candidateValues == null || propertyDefinitions == null) {
+            return ImmutableMap.of();
+        }
+        ImmutableMap.Builder<String, ReferenceValue> references = ImmutableMap.builder();
+        for (Map.Entry<String, AbstractPropertyValue> valueEntry : candidateValues.entrySet()) {
+            if (!(valueEntry.getValue() instanceof ScalarPropertyValue)) {
+                continue;
+            }
+            PropertyDefinition propertyDefinition = propertyDefinitions.get(valueEntry.getKey());
+            IPropertyType<?> toscaType = propertyDefinition == null ? null : ToscaType.fromYamlTypeName(propertyDefinition.getType());
+            if (toscaType == null) {
+                log.debug("Property of type <{}> cannot be used for matching.", propertyDefinition == null ? null : propertyDefinition.getType());
+                continue;
+            }
+            String referenceText = ((ScalarPropertyValue) valueEntry.getValue()).getValue();
+            try {
+                references.put(valueEntry.getKey(), new ReferenceValue(toscaType, toscaType.parse(referenceText), referenceText));
+            } catch (InvalidPropertyValueException e) {
+                log.debug("The value of property for a constraint is not valid.", e);
+            }
+        }
+        return references.build();
+    }
+
+    /**
+     * Check that the values of a node template match the values of a candidate. Filters apply only when both the node template and the candidate define a
+     * scalar value for the property.
+     *
+     * @param templateValues The properties values of the node template to match.
+     * @param candidateValues The properties values of the candidate.
+     * @param propertyDefinitions The properties definitions of the candidate type.
+     * @return True if the values of the node template match the filter for all the properties.
+     */
+    public boolean matches(Map<String, AbstractPropertyValue> templateValues, Map<String, AbstractPropertyValue> candidateValues,
+            Map<String, PropertyDefinition> propertyDefinitions) {
+        return matches(templateValues, parse(candidateValues, propertyDefinitions));
+    }
+
+    /**
+     * Check that the values of a node template match the parsed values of a candidate.
+     *
+     * @param templateValues The properties values of the node template to match.
+     * @param references The values of the candidate as returned by {@link #parse(Map, Map)}.
+     * @return True if the values of the node template match the filter for all the properties.
+     */
+    public boolean matches(Map<String, AbstractPropertyValue> templateValues, Map<String, ReferenceValue> references) {
+        if (templateValues == null) {
+            return true;
+        }
+        for (Map.Entry<String, MatchPredicate[]> predicatesEntry : predicatesByProperty.entrySet()) {
+            ReferenceValue reference = references.get(predicatesEntry.getKey());
+            AbstractPropertyValue templatePropertyValue = templateValues.get(predicatesEntry.getKey());
+            if (reference != null && templatePropertyValue instanceof ScalarPropertyValue
+                    && !matches(predicatesEntry.getValue(), reference, ((ScalarPropertyValue) templatePropertyValue).getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(MatchPredicate[] predicates, ReferenceValue reference, String valueText) {
+        Object value;
+        try {
+            value = reference.toscaType.parse(valueText);
+        } catch (InvalidPropertyValueException e) {
+            return false;
+        }
+        for (MatchPredicate predicate : predicates) {
+            if (!predicate.matches(reference.toscaType, reference.value, value, reference.text, valueText)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Value of a candidate property parsed with the type of its definition, used as reference by the filters.
+     */
+    public static final class ReferenceValue {
+        private final IPropertyType<?> toscaType;
+        private final Object value;
+        private final String text;
+
+        private ReferenceValue(IPropertyType<?> toscaType, Object value, String text) {
+            this.toscaType = toscaType;
+            this.value = value;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Compiled match constraint.
+     */
+    private interface MatchPredicate {
+        /**
+         * Check a value against a reference, both values are parsed with the given type.
+         *
+         * @return True if the value matches the reference or if the predicate doesn't apply to the type.
+         */
+        boolean matches(IPropertyType<?> toscaType, Object reference, Object value, String referenceText, String valueText);
+    }
+
+    /**
+     * Predicates of the normative match constraints.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private enum MatchOperator implements MatchPredicate {
+        EQUAL {
+            @Override
+            public boolean matches(IPropertyType<?> toscaType, Object reference, Object value, String referenceText, String valueText) {
+                return reference == null ? value == null : reference.equals(value);
+            }
+
+            @Override
+            boolean matches(int comparison) {
+                return comparison == 0;
+            }
+        },
+        GREATER_OR_EQUAL {
+            @Override
+            boolean matches(int comparison) {
+                return comparison <= 0;
+            }
+        },
+        GREATER_THAN {
+            @Override
+            boolean matches(int comparison) {
+                return comparison < 0;
+            }
+        },
+        LESS_OR_EQUAL {
+            @Override
+            boolean matches(int comparison) {
+                return comparison >= 0;
+            }
+        },
+        LESS_THAN {
+            @Override
+            boolean matches(int comparison) {
+                return comparison > 0;
+            }
+        };
+
+        @Override
+        public boolean matches(IPropertyType<?> toscaType, Object reference, Object value, String referenceText, String valueText) {
+            if (!(toscaType instanceof IComparablePropertyType)) {
+                // comparison constraints are ignored on types that are not comparable
+                return true;
+            }
+            if (reference == null || value == null || !reference.getClass().isAssignableFrom(value.getClass())) {
+                return false;
+            }
+            return matches(((Comparable) reference).compareTo(value));
+        }
+
+        /**
+         * @param comparison The comparison of the reference to the value.
+         * @return True if the comparison matches the operator.
+         */
+        abstract boolean matches(int comparison);
+    }
+
+    /**
+     * Evaluation of a match constraint that is not compiled. The constraint holds the reference so evaluations are serialized.
+     */
+    private static final class ConstraintPredicate implements MatchPredicate {
+        private final IMatchPropertyConstraint constraint;
+
+        private ConstraintPredicate(IMatchPropertyConstraint constraint) {
+            this.constraint = constraint;
+        }
+
+        @Override
+        public boolean matches(IPropertyType<?> toscaType, Object reference, Object value, String referenceText, String valueText) {
+            synchronized (constraint) {
+                try {
+                    constraint.setConstraintValue(toscaType, referenceText);
+                } catch (ConstraintValueDoNotMatchPropertyTypeException e) {
+                    log.debug("The value of property for a constraint is not valid.", e);
+                    return true;
+                }
+                try {
+                    constraint.validate(toscaType, valueText);
+                    return true;
+                } catch (ConstraintViolationException e) {
+                    return false;
+                }
+            }
+        }
+    }
+}
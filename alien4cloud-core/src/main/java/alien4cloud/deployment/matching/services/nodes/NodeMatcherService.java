@@ -2,26 +2,30 @@ package alien4cloud.deployment.matching.services.nodes;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
-import alien4cloud.model.deployment.matching.MatchingConfiguration;
-import alien4cloud.model.orchestrators.locations.Location;
-import alien4cloud.orchestrators.locations.services.LocationMatchingConfigurationService;
-import alien4cloud.orchestrators.locations.services.LocationService;
 import org.springframework.stereotype.Service;
 
 import alien4cloud.deployment.matching.plugins.INodeMatcherPlugin;
 import alien4cloud.exception.InvalidArgumentException;
 import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.deployment.matching.MatchingConfiguration;
+import alien4cloud.model.orchestrators.locations.Location;
 import alien4cloud.model.orchestrators.locations.LocationResourceTemplate;
 import alien4cloud.model.orchestrators.locations.LocationResources;
 import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.orchestrators.locations.services.LocationMatchingConfigurationService;
 import alien4cloud.orchestrators.locations.services.LocationResourceService;
+import alien4cloud.orchestrators.locations.services.LocationService;
+import alien4cloud.orchestrators.plugin.IOrchestratorPlugin;
+import alien4cloud.paas.OrchestratorPluginService;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 
 /**
  * Node matcher service will filter location resources for all substitutable nodes of the topology. It will return only location resources that can substitute a
@@ -29,6 +33,9 @@ import com.google.common.collect.Sets;
  */
 @Service
 public class NodeMatcherService {
+    /** Minimum number of nodes to match them in parallel. */
+    private static final int PARALLEL_MATCHING_THRESHOLD = 8;
+
 
     @Inject
     private DefaultNodeMatcher defaultNodeMatcher;
@@ -38,6 +45,18 @@ public class NodeMatcherService {
     private LocationResourceService locationResourceService;
     @Inject
     private LocationMatchingConfigurationService locationMatchingConfigurationService;
+    @Inject
+    private OrchestratorPluginService orchestratorPluginService;
+
+    /** Matching indexes by location id. */
+    private final Map<String, LocationMatchingIndex> matchingIndexes = Maps.newConcurrentMap();
+    /** Pool used to match the nodes of large topologies, the node matcher plugin must be thread-safe. */
+    private final ForkJoinPool matchingPool = new ForkJoinPool();
+
+    @PreDestroy
+    public void destroy() {
+        matchingPool.shutdown();
+    }
 
     private INodeMatcherPlugin getNodeMatcherPlugin() {
         // TODO manage plugins
@@ -46,27 +65,83 @@ public class NodeMatcherService {
 
     public Map<String, List<LocationResourceTemplate>> match(Map<String, IndexedNodeType> nodesTypes, Map<String, NodeTemplate> nodesToMatch,
             String locationId) {
-        Map<String, List<LocationResourceTemplate>> matchingResult = Maps.newHashMap();
-        Location location = locationService.getOrFail(locationId);
-        LocationResources locationResources = locationResourceService.getLocationResources(location);
-        Map<String, MatchingConfiguration> matchingConfigurations = locationMatchingConfigurationService.getMatchingConfiguration(location);
-        Set<String> typesManagedByLocation = Sets.newHashSet();
-        for (IndexedNodeType nodeType : locationResources.getNodeTypes().values()) {
-            typesManagedByLocation.add(nodeType.getElementId());
-            typesManagedByLocation.addAll(nodeType.getDerivedFrom());
-        }
+        LocationMatchingIndex matchingIndex = getMatchingIndex(locationService.getOrFail(locationId));
         INodeMatcherPlugin nodeMatcherPlugin = getNodeMatcherPlugin();
+        final List<NodeMatching> nodeMatchings = Lists.newArrayList();
         for (Map.Entry<String, NodeTemplate> nodeTemplateEntry : nodesToMatch.entrySet()) {
-            String nodeTemplateId = nodeTemplateEntry.getKey();
             NodeTemplate nodeTemplate = nodeTemplateEntry.getValue();
-            if (typesManagedByLocation.contains(nodeTemplate.getType())) {
+            // only the resources that may substitute the node are given to the matcher
+            LocationResources locationResources = matchingIndex.getResources(nodeTemplate.getType());
+            if (locationResources != null) {
                 IndexedNodeType nodeTemplateType = nodesTypes.get(nodeTemplate.getType());
                 if (nodeTemplateType == null) {
                     throw new InvalidArgumentException("The given node types map must contain the type of the node template");
                 }
-                matchingResult.put(nodeTemplateId, nodeMatcherPlugin.matchNode(nodeTemplate, nodeTemplateType, locationResources, matchingConfigurations));
+                nodeMatchings.add(new NodeMatching(nodeMatcherPlugin, nodeTemplateEntry.getKey(), nodeTemplate, nodeTemplateType, locationResources,
+                        matchingIndex.getMatchingConfigurations()));
             }
         }
+        if (nodeMatchings.size() < PARALLEL_MATCHING_THRESHOLD) {
+            for (NodeMatching nodeMatching : nodeMatchings) {
+                nodeMatching.invoke();
+            }
+        } else {
+            matchingPool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(nodeMatchings);
+                }
+            });
+        }
+        Map<String, List<LocationResourceTemplate>> matchingResult = Maps.newHashMap();
+        for (NodeMatching nodeMatching : nodeMatchings) {
+            matchingResult.put(nodeMatching.nodeTemplateId, nodeMatching.result);
+        }
         return matchingResult;
     }
+
+    /**
+     * Get the matching index of a location, the index is created again if the location or its orchestrator plugin changed.
+     *
+     * @param location The location.
+     * @return The matching index of the location.
+     */
+    private LocationMatchingIndex getMatchingIndex(Location location) {
+        IOrchestratorPlugin orchestratorPlugin = orchestratorPluginService.getOrFail(location.getOrchestratorId());
+        LocationMatchingIndex matchingIndex = matchingIndexes.get(location.getId());
+        if (matchingIndex == null || !matchingIndex.isValidFor(location, orchestratorPlugin)) {
+            matchingIndex = new LocationMatchingIndex(location, orchestratorPlugin, locationResourceService.getLocationResources(location),
+                    locationMatchingConfigurationService.getMatchingConfiguration(location));
+            matchingIndexes.put(location.getId(), matchingIndex);
+        }
+        return matchingIndex;
+    }
+
+    /**
+     * Matching of a single node.
+     */
+    private static final class NodeMatching extends RecursiveAction {
+        private final INodeMatcherPlugin nodeMatcherPlugin;
+        private final String nodeTemplateId;
+        private final NodeTemplate nodeTemplate;
+        private final IndexedNodeType nodeTemplateType;
+        private final LocationResources locationResources;
+        private final Map<String, MatchingConfiguration> matchingConfigurations;
+        private List<LocationResourceTemplate> result;
+
+        private NodeMatching(INodeMatcherPlugin nodeMatcherPlugin, String nodeTemplateId, NodeTemplate nodeTemplate, IndexedNodeType nodeTemplateType,
+                LocationResources locationResources, Map<String, MatchingConfiguration> matchingConfigurations) {
+            this.nodeMatcherPlugin = nodeMatcherPlugin;
+            this.nodeTemplateId = nodeTemplateId;
+            this.nodeTemplate = nodeTemplate;
+            this.nodeTemplateType = nodeTemplateType;
+            this.locationResources = locationResources;
+            this.matchingConfigurations = matchingConfigurations;
+        }
+
+        @Override
+        protected void compute() {
+            result = nodeMatcherPlugin.matchNode(nodeTemplate, nodeTemplateType, locationResources, matchingConfigurations);
+        }
+    }
 }
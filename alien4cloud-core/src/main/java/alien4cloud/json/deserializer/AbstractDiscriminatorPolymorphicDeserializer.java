@@ -3,25 +3,26 @@ package alien4cloud.json.deserializer;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Iterator;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.google.common.collect.Maps;
 
 /**
  * Manages polymorphism deserialization for Jackson through discriminator field (based on field exists).
+ * <p>
+ * Only the fields preceding the discriminator are buffered, the implementation deserializer then reads them back followed by the rest of the object.
  */
 public class AbstractDiscriminatorPolymorphicDeserializer<T> extends StdDeserializer<T> {
     private Map<String, Map<String, Class<? extends T>>> registry = Maps.newHashMap();
     private Class<? extends T> valueStringClass = null;
+    private Map<Class<?>, JsonDeserializer<Object>> deserializers = Maps.newConcurrentMap();
 
     public AbstractDiscriminatorPolymorphicDeserializer(Class<T> clazz) {
         super(clazz);
@@ -51,7 +52,6 @@ public class AbstractDiscriminatorPolymorphicDeserializer<T> extends StdDeserial
 
     @Override
     public T deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
-        ObjectMapper mapper = (ObjectMapper) jp.getCodec();
         if (this.valueStringClass != null && JsonToken.VALUE_STRING.equals(jp.getCurrentToken())) {
             String parameter = jp.getValueAsString();
             // parse from string value
@@ -63,28 +63,30 @@ public class AbstractDiscriminatorPolymorphicDeserializer<T> extends StdDeserial
                         + parameter + ">", jp.getCurrentLocation(), e);
             }
         }
-        ObjectNode root = mapper.readTree(jp);
-        Class<? extends T> parameterClass = null;
-        Iterator<Map.Entry<String, JsonNode>> elementsIterator = root.fields();
-        while (elementsIterator.hasNext()) {
-            Map.Entry<String, JsonNode> element = elementsIterator.next();
-            String name = element.getKey();
-            String nodeType = element.getValue().getNodeType().toString();
-            if (registry.containsKey(name)) {
-                Map<String, Class<? extends T>> registryForDiscriminator = registry.get(name);
-                if (registryForDiscriminator.containsKey("ALL")) {
-                    parameterClass = registryForDiscriminator.values().iterator().next();
-                    break;
-                }
-                if (registryForDiscriminator.containsKey(nodeType)) {
-                    parameterClass = registryForDiscriminator.get(nodeType);
-                    break;
-                }
+        TokenBuffer buffer = TokenBufferUtil.startObject(jp, ctxt);
+        // buffer the fields until the discriminator is found
+        for (JsonToken token = jp.getCurrentToken(); JsonToken.FIELD_NAME.equals(token); token = jp.nextToken()) {
+            String name = jp.getCurrentName();
+            Map<String, Class<? extends T>> registryForDiscriminator = registry.get(name);
+            if (registryForDiscriminator == null) {
+                buffer.copyCurrentStructure(jp);
+                continue;
             }
+            buffer.copyCurrentEvent(jp);
+            jp.nextToken();
+            Class<? extends T> parameterClass;
+            if (registryForDiscriminator.containsKey("ALL")) {
+                parameterClass = registryForDiscriminator.values().iterator().next();
+            } else {
+                parameterClass = registryForDiscriminator.get(TokenBufferUtil.getNodeType(jp).toString());
+            }
+            if (parameterClass != null) {
+                return TokenBufferUtil.deserialize(buffer, jp, ctxt, deserializers, parameterClass);
+            }
+            buffer.copyCurrentStructure(jp);
         }
-        if (parameterClass == null) {
-            throw new JsonParseException("Failed to find implementation for node " + root + " from registry " + registry, jp.getCurrentLocation());
-        }
-        return mapper.treeToValue(root, parameterClass);
+        buffer.copyCurrentEvent(jp);
+        throw new JsonParseException("Failed to find implementation for node " + TokenBufferUtil.readTree(buffer) + " from registry " + registry,
+                jp.getCurrentLocation());
     }
 }
\ No newline at end of file
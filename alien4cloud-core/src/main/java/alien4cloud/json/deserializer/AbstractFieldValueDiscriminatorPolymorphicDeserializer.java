@@ -1,24 +1,25 @@
 package alien4cloud.json.deserializer;
 
 import java.io.IOException;
-import java.util.Iterator;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.google.common.collect.Maps;
 
 /**
  * Manages polymorphism deserialization for Jackson through discriminator property (based on property value).
+ * <p>
+ * Only the fields preceding the discriminator are buffered, the implementation deserializer then reads them back followed by the rest of the object.
  */
 public class AbstractFieldValueDiscriminatorPolymorphicDeserializer<T> extends StdDeserializer<T> {
     private Map<String, Class<? extends T>> registry = Maps.newHashMap();
+    private Map<Class<?>, JsonDeserializer<Object>> deserializers = Maps.newConcurrentMap();
 
     private String propertyDiscriminatorName;
 
@@ -33,32 +34,48 @@ public class AbstractFieldValueDiscriminatorPolymorphicDeserializer<T> extends S
 
     @Override
     public T deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
-        ObjectMapper mapper = (ObjectMapper) jp.getCodec();
-        ObjectNode root = mapper.readTree(jp);
-        return deserializeAfterRead(jp, ctxt, mapper, root);
-    }
-
-    protected T deserializeAfterRead(JsonParser jp, DeserializationContext ctxt, ObjectMapper mapper, ObjectNode root) throws JsonProcessingException {
-        Class<? extends T> parameterClass = null;
-        Iterator<Map.Entry<String, JsonNode>> elementsIterator = root.fields();
-        while (elementsIterator.hasNext()) {
-            Map.Entry<String, JsonNode> element = elementsIterator.next();
-            String name = element.getKey();
-            if (propertyDiscriminatorName.equals(name)) {
-                String value = element.getValue().asText();
-                if (registry.containsKey(value)) {
-                    parameterClass = registry.get(value);
-                    break;
+        TokenBuffer buffer = TokenBufferUtil.startObject(jp, ctxt);
+        // buffer the fields until the discriminator is found
+        for (JsonToken token = jp.getCurrentToken(); JsonToken.FIELD_NAME.equals(token); token = jp.nextToken()) {
+            if (!propertyDiscriminatorName.equals(jp.getCurrentName())) {
+                buffer.copyCurrentStructure(jp);
+                continue;
+            }
+            buffer.copyCurrentEvent(jp);
+            if (jp.nextToken().isScalarValue()) {
+                Class<? extends T> parameterClass = registry.get(jp.getText());
+                if (parameterClass != null) {
+                    return TokenBufferUtil.deserialize(buffer, jp, ctxt, deserializers, parameterClass);
                 }
             }
+            buffer.copyCurrentStructure(jp);
         }
-        if (parameterClass == null) {
-            return null;
-        }
-        return mapper.treeToValue(root, parameterClass);
+        buffer.copyCurrentEvent(jp);
+        return deserializeUnknown(jp, ctxt, buffer);
+    }
+
+    /**
+     * Deserialize an object for which no implementation has been found in the registry.
+     *
+     * @param jp The parser, positioned on the END_OBJECT token of the object.
+     * @param ctxt The deserialization context.
+     * @param buffer The buffer that contains the whole object.
+     * @return The deserialized object, null by default.
+     */
+    protected T deserializeUnknown(JsonParser jp, DeserializationContext ctxt, TokenBuffer buffer) throws IOException {
+        return null;
+    }
+
+    /**
+     * Deserialize a buffered object as an instance of the given class.
+     */
+    @SuppressWarnings("unchecked")
+    protected <V> V deserializeBuffered(DeserializationContext ctxt, TokenBuffer buffer, Class<V> clazz) throws IOException {
+        return (V) TokenBufferUtil.findDeserializer(ctxt, deserializers, clazz).deserialize(TokenBufferUtil.read(buffer), ctxt);
     }
 
-    protected void failedToFindImplementation(JsonParser jp, ObjectNode root) throws JsonParseException {
-        throw new JsonParseException("Failed to find implementation for node " + root + " from registry " + registry, jp.getCurrentLocation());
+    protected void failedToFindImplementation(JsonParser jp, TokenBuffer buffer) throws IOException {
+        throw new JsonParseException("Failed to find implementation for node " + TokenBufferUtil.readTree(buffer) + " from registry " + registry,
+                jp.getCurrentLocation());
     }
-}
\ No newline at end of file
+}
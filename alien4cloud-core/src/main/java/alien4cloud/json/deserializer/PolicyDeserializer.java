@@ -4,10 +4,8 @@ import java.io.IOException;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 import alien4cloud.model.topology.AbstractPolicy;
 import alien4cloud.model.topology.GenericPolicy;
@@ -25,13 +23,10 @@ public class PolicyDeserializer extends AbstractFieldValueDiscriminatorPolymorph
     }
 
     @Override
-    protected AbstractPolicy deserializeAfterRead(JsonParser jp, DeserializationContext ctxt, ObjectMapper mapper, ObjectNode root) throws JsonProcessingException {
-        AbstractPolicy result = super.deserializeAfterRead(jp, ctxt, mapper, root);
-        if (result!=null) return result;
-
+    protected AbstractPolicy deserializeUnknown(JsonParser jp, DeserializationContext ctxt, TokenBuffer buffer) throws IOException {
         // treat anything else as generic policy
         // all data is stored in the field data so extract that
-        Map data = mapper.treeToValue(root, Map.class);
+        Map data = deserializeBuffered(ctxt, buffer, Map.class);
         if (data.containsKey("data")) data = (Map) data.get("data");
         return new GenericPolicy( data );
     }
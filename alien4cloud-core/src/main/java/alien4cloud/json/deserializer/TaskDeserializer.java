@@ -1,6 +1,6 @@
 package alien4cloud.json.deserializer;
 
-import java.util.Map;
+import java.io.IOException;
 
 import alien4cloud.topology.task.AbstractTask;
 import alien4cloud.topology.task.LocationPolicyTask;
@@ -14,10 +14,8 @@ import alien4cloud.topology.task.TopologyTask;
 import alien4cloud.topology.task.WorkflowTask;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 /**
  * Custom deserializer to handle multiple {@link AbstractTask} types.
@@ -36,20 +34,12 @@ public class TaskDeserializer extends AbstractFieldValueDiscriminatorPolymorphic
     }
 
     @Override
-    protected AbstractTask deserializeAfterRead(JsonParser jp, DeserializationContext ctxt, ObjectMapper mapper, ObjectNode root)
-            throws JsonProcessingException {
-        AbstractTask result = super.deserializeAfterRead(jp, ctxt, mapper, root);
-
-        if (result == null) {
-            Map data = mapper.treeToValue(root, Map.class);
-            if (data.containsKey("nodeTemplateName")) {
-                result = mapper.treeToValue(root, TopologyTask.class);
-            } else {
-                failedToFindImplementation(jp, root);
-            }
+    protected AbstractTask deserializeUnknown(JsonParser jp, DeserializationContext ctxt, TokenBuffer buffer) throws IOException {
+        if (TokenBufferUtil.hasField(buffer, "nodeTemplateName")) {
+            return deserializeBuffered(ctxt, buffer, TopologyTask.class);
         }
-
-        return result;
+        failedToFindImplementation(jp, buffer);
+        return null;
     }
 
     private void addToRegistry(Class<? extends AbstractTask> clazz, TaskCode... taskCodes) {
@@ -0,0 +1,154 @@
+package alien4cloud.json.deserializer;
+
+import java.io.IOException;
+import java.util.Map;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Utility to resolve the implementation of a polymorphic object while streaming: the tokens of the object are buffered only until the discriminator is found
+ * and then replayed in front of the remaining tokens of the parser, so the object is never read as a tree and converted again.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TokenBufferUtil {
+
+    /**
+     * Start buffering the object the parser is positioned on.
+     *
+     * @param jp The parser, positioned on the START_OBJECT token or on the first FIELD_NAME of the object.
+     * @param ctxt The deserialization context.
+     * @return A buffer that contains the START_OBJECT token, the parser is then positioned on the first FIELD_NAME (or END_OBJECT) of the object.
+     */
+    public static TokenBuffer startObject(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        JsonToken token = jp.getCurrentToken();
+        if (JsonToken.START_OBJECT.equals(token)) {
+            token = jp.nextToken();
+        }
+        if (!JsonToken.FIELD_NAME.equals(token) && !JsonToken.END_OBJECT.equals(token)) {
+            throw ctxt.mappingException("Expected an object but found token " + token);
+        }
+        TokenBuffer buffer = new TokenBuffer(jp.getCodec());
+        buffer.writeStartObject();
+        return buffer;
+    }
+
+    /**
+     * Create a parser that replays the buffered tokens, then the current token of the parser and finally the remaining tokens of the parser.
+     *
+     * @param buffer The buffered tokens.
+     * @param jp The parser.
+     * @return A parser positioned on the first buffered token.
+     */
+    public static JsonParser replay(TokenBuffer buffer, JsonParser jp) throws IOException {
+        // the sequence moves to the next token of the parser once the buffer is consumed, so the current token must be replayed from the buffer
+        buffer.copyCurrentEvent(jp);
+        JsonParser replay = JsonParserSequence.createFlattened(buffer.asParser(), jp);
+        replay.nextToken();
+        return replay;
+    }
+
+    /**
+     * Create a parser over a fully buffered object.
+     *
+     * @param buffer The buffer that contains a whole object.
+     * @return A parser positioned on the START_OBJECT token of the buffered object.
+     */
+    public static JsonParser read(TokenBuffer buffer) throws IOException {
+        JsonParser parser = buffer.asParser();
+        parser.nextToken();
+        return parser;
+    }
+
+    /**
+     * Check if a fully buffered object has a field with the given name at its root.
+     *
+     * @param buffer The buffer that contains a whole object.
+     * @param fieldName The name of the field.
+     * @return True if the object has the field, false if not.
+     */
+    public static boolean hasField(TokenBuffer buffer, String fieldName) throws IOException {
+        JsonParser parser = read(buffer);
+        while (JsonToken.FIELD_NAME.equals(parser.nextToken())) {
+            if (fieldName.equals(parser.getCurrentName())) {
+                return true;
+            }
+            parser.nextToken();
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * Read a fully buffered object as a tree (to be used for error messages only).
+     */
+    public static JsonNode readTree(TokenBuffer buffer) throws IOException {
+        return read(buffer).readValueAsTree();
+    }
+
+    /**
+     * Get the type of the node that would be created for the value the parser is positioned on.
+     *
+     * @param jp The parser, positioned on the first token of a value.
+     * @return The type of json node of the value.
+     */
+    public static JsonNodeType getNodeType(JsonParser jp) {
+        switch (jp.getCurrentToken()) {
+        case START_OBJECT:
+            return JsonNodeType.OBJECT;
+        case START_ARRAY:
+            return JsonNodeType.ARRAY;
+        case VALUE_STRING:
+            return JsonNodeType.STRING;
+        case VALUE_NUMBER_INT:
+        case VALUE_NUMBER_FLOAT:
+            return JsonNodeType.NUMBER;
+        case VALUE_TRUE:
+        case VALUE_FALSE:
+            return JsonNodeType.BOOLEAN;
+        case VALUE_NULL:
+            return JsonNodeType.NULL;
+        case VALUE_EMBEDDED_OBJECT:
+            return JsonNodeType.POJO;
+        default:
+            return JsonNodeType.MISSING;
+        }
+    }
+
+    /**
+     * Get the deserializer for a given implementation class, lookups are cached in the given map.
+     *
+     * @param ctxt The deserialization context.
+     * @param deserializers The cache of deserializers for the deserializer instance (which, as jackson own cache, is bound to a single mapper).
+     * @param clazz The implementation class.
+     * @return The deserializer to use for the class.
+     */
+    public static JsonDeserializer<Object> findDeserializer(DeserializationContext ctxt, Map<Class<?>, JsonDeserializer<Object>> deserializers, Class<?> clazz)
+            throws JsonMappingException {
+        JsonDeserializer<Object> deserializer = deserializers.get(clazz);
+        if (deserializer == null) {
+            deserializer = ctxt.findRootValueDeserializer(ctxt.constructType(clazz));
+            deserializers.put(clazz, deserializer);
+        }
+        return deserializer;
+    }
+
+    /**
+     * Deserialize the buffered tokens followed by the remaining tokens of the parser as an instance of the given class.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T deserialize(TokenBuffer buffer, JsonParser jp, DeserializationContext ctxt, Map<Class<?>, JsonDeserializer<Object>> deserializers,
+            Class<? extends T> clazz) throws IOException {
+        return (T) findDeserializer(ctxt, deserializers, clazz).deserialize(replay(buffer, jp), ctxt);
+    }
+}
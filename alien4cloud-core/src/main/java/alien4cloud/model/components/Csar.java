@@ -55,6 +55,14 @@ public class Csar implements IDeploymentSource {
     @StringField(indexType = IndexType.not_analyzed)
     private String substitutionTopologyId;
 
+    /**
+     * Digest of the content of the archive and of the hashes of its dependencies when it has been parsed, changes whenever the archive or one of its
+     * dependencies changes.
+     */
+    @StringField(indexType = IndexType.no, includeInAll = false)
+    @FetchContext(contexts = { SUMMARY }, include = { true })
+    private String hash;
+
 	/** Default constructor */
 	public Csar() {
 	}
@@ -345,8 +345,9 @@ public class LocationResourceService {
 
     public void saveResource(Location location, LocationResourceTemplate resourceTemplate) {
         location.setLastUpdateDate(new Date());
-        alienDAO.save(location);
+        // save the template first so the location is not seen as updated before its resources
         alienDAO.save(resourceTemplate);
+        alienDAO.save(location);
     }
 
     public void saveResource(LocationResourceTemplate resourceTemplate) {
@@ -0,0 +1,23 @@
+package alien4cloud.paas;
+
+import alien4cloud.paas.model.AbstractMonitorEvent;
+
+/**
+ * Receives the monitor events pushed by a {@link IPaaSEventStreamProvider}.
+ */
+public interface IPaaSEventSink {
+
+    /**
+     * Deliver events to alien4cloud. This method may block when alien4cloud is not able to follow the events rate.
+     *
+     * @param events The events, ordered by date.
+     */
+    void onEvents(AbstractMonitorEvent[] events);
+
+    /**
+     * Notify that the stream is broken. The subscription is then considered as cancelled and alien4cloud falls back to polling until it subscribes again.
+     *
+     * @param throwable The cause of the failure.
+     */
+    void onError(Throwable throwable);
+}
@@ -0,0 +1,20 @@
+package alien4cloud.paas;
+
+import java.util.Date;
+
+/**
+ * Optional interface that a {@link IPaaSProvider} can implement to push its monitor events to alien4cloud rather than being polled through
+ * {@link IPaaSProvider#getEventsSince(Date, int, IPaaSCallback)}. When implemented alien4cloud subscribes to the events stream and stops polling the provider
+ * as long as the subscription is active.
+ */
+public interface IPaaSEventStreamProvider {
+
+    /**
+     * Subscribe to the monitor events of the provider.
+     *
+     * @param since The cursor from which to resume the stream: events that occurred after this date must be delivered (ordered by date) before the new events.
+     * @param sink The sink to which the provider must push the events.
+     * @return The subscription that alien4cloud uses to stop the stream.
+     */
+    IPaaSEventSubscription subscribeEvents(Date since, IPaaSEventSink sink);
+}
@@ -0,0 +1,12 @@
+package alien4cloud.paas;
+
+/**
+ * Subscription to the events stream of a {@link IPaaSEventStreamProvider}.
+ */
+public interface IPaaSEventSubscription {
+
+    /**
+     * Stop pushing events to the subscription sink.
+     */
+    void cancel();
+}
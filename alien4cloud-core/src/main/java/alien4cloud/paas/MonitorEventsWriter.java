@@ -0,0 +1,226 @@
+package alien4cloud.paas;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.paas.model.AbstractMonitorEvent;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.Lists;
+
+/**
+ * Persists the monitor events polled from all the orchestrators. Events are queued in a bounded queue and written by bulk requests (coalescing events of all
+ * orchestrators) either when a bulk is full or when the flush interval expires.
+ *
+ * The pollers should check {@link #getRemainingCapacity()} before polling so the queue acts as a back-pressure signal when elastic search is not able to
+ * follow the events rate. A bulk that fails to be persisted is retried with a backoff, the queue fills up meanwhile so the pollers stop polling.
+ */
+@Slf4j
+@Component
+public class MonitorEventsWriter {
+    /** Maximum delay in milliseconds before the retry of a bulk that failed to be persisted. */
+    private static final long MAX_RETRY_DELAY_MS = 30000;
+
+    @Resource(name = "alien-monitor-es-dao")
+    private IGenericSearchDAO alienMonitorDao;
+    @Autowired(required = false)
+    private MetricRegistry metricRegistry;
+
+    /** Maximum number of events waiting to be persisted. */
+    @Value("${paas_monitor.ingestion.queue_size:10000}")
+    private int queueSize;
+    /** Maximum number of events persisted in a single bulk request. */
+    @Value("${paas_monitor.ingestion.bulk_size:500}")
+    private int bulkSize;
+    /** Maximum time in milliseconds an event waits for a bulk to be filled before being persisted. */
+    @Value("${paas_monitor.ingestion.flush_interval_ms:200}")
+    private long flushIntervalMs;
+
+    private BlockingQueue<QueuedEvent> queue;
+    /** Events taken from the queue and not persisted yet, accessed by the writer thread only while it is running. */
+    private List<QueuedEvent> bulk;
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    private Histogram ingestionLag;
+    private Meter persistedEvents;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueSize);
+        if (metricRegistry != null) {
+            metricRegistry.register(MetricRegistry.name(MonitorEventsWriter.class, "queue-depth"), new Gauge<Integer>() {
+                @Override
+                public Integer getValue() {
+                    return queue.size();
+                }
+            });
+            ingestionLag = metricRegistry.histogram(MetricRegistry.name(MonitorEventsWriter.class, "ingestion-lag-ms"));
+            persistedEvents = metricRegistry.meter(MetricRegistry.name(MonitorEventsWriter.class, "persisted-events"));
+        }
+        bulk = Lists.newArrayListWithCapacity(bulkSize);
+        running = true;
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "monitor-events-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(flushIntervalMs * 10, TimeUnit.MILLISECONDS)) {
+            // the writer is still persisting a bulk, interrupt it
+            executor.shutdownNow();
+            if (!executor.awaitTermination(flushIntervalMs * 10, TimeUnit.MILLISECONDS)) {
+                // the remaining events must not be persisted concurrently with the writer
+                log.warn("Monitor events writer did not stop, {} queued monitor events are not persisted.", queue.size());
+                return;
+            }
+        }
+        // persist the events of the bulk in progress and the remaining events once the writer has stopped
+        List<QueuedEvent> remaining = Lists.newArrayList(bulk);
+        queue.drainTo(remaining);
+        persist(remaining);
+    }
+
+    /**
+     * Queue events to be persisted. This method blocks if the queue is full.
+     *
+     * @param events The events to persist.
+     */
+    public void write(AbstractMonitorEvent[] events) {
+        long now = System.currentTimeMillis();
+        try {
+            for (AbstractMonitorEvent event : events) {
+                queue.put(new QueuedEvent(event, now));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while queuing monitor events, some events may not be persisted.");
+        }
+    }
+
+    /**
+     * @return The number of events that can be queued without blocking.
+     */
+    public int getRemainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    /**
+     * @return The maximum number of events that can be queued.
+     */
+    public int getCapacity() {
+        return queueSize;
+    }
+
+    private void writeLoop() {
+        long retryDelayMs = 0;
+        while (running) {
+            try {
+                if (retryDelayMs > 0) {
+                    // the bulk is kept until it is persisted, events of the next bulks wait in the queue
+                    Thread.sleep(retryDelayMs);
+                } else if (!fillBulk()) {
+                    continue;
+                }
+                persist(bulk);
+                bulk.clear();
+                retryDelayMs = 0;
+            } catch (InterruptedException e) {
+                // the bulk in progress is persisted by stop
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                retryDelayMs = retryDelayMs == 0 ? flushIntervalMs : Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+                log.error("Failed to persist " + bulk.size() + " monitor events, retry in " + retryDelayMs + " ms.", e);
+            }
+        }
+    }
+
+    /**
+     * Take the events of the next bulk from the queue, waiting at most the flush interval for the bulk to be filled once an event has been received.
+     *
+     * @return False if no event has been received during the flush interval.
+     */
+    private boolean fillBulk() throws InterruptedException {
+        QueuedEvent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        bulk.add(first);
+        long deadline = System.currentTimeMillis() + flushIntervalMs;
+        while (bulk.size() < bulkSize) {
+            queue.drainTo(bulk, bulkSize - bulk.size());
+            long wait = deadline - System.currentTimeMillis();
+            if (bulk.size() >= bulkSize || wait <= 0) {
+                break;
+            }
+            QueuedEvent next = queue.poll(wait, TimeUnit.MILLISECONDS);
+            if (next == null) {
+                break;
+            }
+            bulk.add(next);
+        }
+        return true;
+    }
+
+    private void persist(List<QueuedEvent> queuedEvents) {
+        if (queuedEvents.isEmpty()) {
+            return;
+        }
+        AbstractMonitorEvent[] events = new AbstractMonitorEvent[queuedEvents.size()];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = queuedEvents.get(i).event;
+        }
+        alienMonitorDao.save(events);
+        if (metricRegistry != null) {
+            long now = System.currentTimeMillis();
+            for (QueuedEvent queuedEvent : queuedEvents) {
+                ingestionLag.update(now - queuedEvent.queuedAt);
+            }
+            persistedEvents.mark(events.length);
+        }
+    }
+
+    private static class QueuedEvent {
+        private final AbstractMonitorEvent event;
+        private final long queuedAt;
+
+        private QueuedEvent(AbstractMonitorEvent event, long queuedAt) {
+            this.event = event;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -34,6 +34,8 @@ public class OrchestratorPluginService implements IPaasEventService {
     private IGenericSearchDAO alienMonitorDao;
     @Resource(name = "paas-monitor-scheduler")
     private TaskScheduler scheduler;
+    @Resource
+    private MonitorEventsWriter monitorEventsWriter;
     /** Interval in milliseconds on which to retrieve monitoring events from a PaaS provider. */
     @Value("${paas_monitor.monitor_interval_ms}")
     private long monitorIntervalMs = 1000 * 30;
@@ -64,9 +66,11 @@ public class OrchestratorPluginService implements IPaasEventService {
             throw new AlreadyExistException("Cloud [" + orchestratorId + "] has already been registered");
         }
         // create the polling monitor responsible to monitor this instance.
-        PaaSProviderPollingMonitor monitor = new PaaSProviderPollingMonitor(alienDao, alienMonitorDao, instance, listeners, orchestratorId);
+        PaaSProviderPollingMonitor monitor = new PaaSProviderPollingMonitor(alienDao, alienMonitorDao, monitorEventsWriter, instance, listeners,
+                orchestratorId);
+        // the monitor is also scheduled for streaming providers, it subscribes to the events stream and falls back to polling if the stream breaks.
         ScheduledFuture<?> monitorFuture = scheduler.scheduleAtFixedRate(monitor, monitorIntervalMs);
-        Registration registration = new Registration(instance, monitorFuture);
+        Registration registration = new Registration(instance, monitor, monitorFuture);
         monitorRegistrations.put(orchestratorId, registration);
     }
 
@@ -80,6 +84,7 @@ public class OrchestratorPluginService implements IPaasEventService {
         Registration registration = monitorRegistrations.remove(orchestratorId);
         if (registration != null) {
             registration.registration.cancel(false);
+            registration.monitor.stop();
             return registration.instance;
         } else {
             return null;
@@ -117,6 +122,7 @@ public class OrchestratorPluginService implements IPaasEventService {
     @AllArgsConstructor
     private class Registration {
         private IOrchestratorPlugin instance;
+        private PaaSProviderPollingMonitor monitor;
         private ScheduledFuture<?> registration;
     }
 }
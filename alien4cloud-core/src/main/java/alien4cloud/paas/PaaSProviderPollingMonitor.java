@@ -23,16 +23,23 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 /**
- * Monitor service to watch a deployed topologies for a given PaaS provider.
+ * Monitor service to watch a deployed topologies for a given PaaS provider. Events are pushed by providers that implement
+ * {@link IPaaSEventStreamProvider} and polled from other providers.
  */
 @SuppressWarnings("unchecked")
 @Slf4j
 public class PaaSProviderPollingMonitor implements Runnable {
     @Resource(name = "deploymentService")
     private DeploymentService deploymentService;
-    private static final int MAX_POLLED_EVENTS = 100;
+    /** Number of events requested by a poll when the provider is not producing many events. */
+    private static final int MIN_POLLED_EVENTS = 100;
+    /** Maximum number of events requested by a poll when the provider produces a storm of events. */
+    private static final int MAX_POLLED_EVENTS = 1000;
     private final IGenericSearchDAO dao;
     private final IGenericSearchDAO monitorDAO;
+    private final MonitorEventsWriter eventsWriter;
+    /** Number of events to request on next poll, adapted to the events rate and to the events writer back-pressure. */
+    private int maxPolledEvents = MIN_POLLED_EVENTS;
     private final IPaaSProvider paaSProvider;
     private Date lastPollingDate;
     @SuppressWarnings("rawtypes")
@@ -41,6 +48,14 @@ public class PaaSProviderPollingMonitor implements Runnable {
     private String cloudId;
     private boolean hasDeployments = false;
     private boolean getEventsInProgress = false;
+    /** Subscription to the provider events stream when the provider supports streaming. */
+    private IPaaSEventSubscription subscription;
+    /** Lock of the queuing of the events, distinct from the monitor lock so that a full writer queue doesn't block the polls and the stop. */
+    private final Object queueLock = new Object();
+    /** Number of the events batches dispatched to the listeners, guarded by the monitor lock. */
+    private long dispatchedBatches;
+    /** Number of the events batches queued in the events writer, guarded by the queue lock. */
+    private long queuedBatches;
 
     /**
      * Create a new instance of the {@link PaaSProviderPollingMonitor} to monitor the given paas provider.
@@ -48,11 +63,12 @@ public class PaaSProviderPollingMonitor implements Runnable {
      * @param paaSProvider The paas provider to monitor.
      */
     @SuppressWarnings("rawtypes")
-    public PaaSProviderPollingMonitor(IGenericSearchDAO dao, IGenericSearchDAO monitorDAO, IPaaSProvider paaSProvider, List<IPaasEventListener> listeners,
-            String cloudId) {
+    public PaaSProviderPollingMonitor(IGenericSearchDAO dao, IGenericSearchDAO monitorDAO, MonitorEventsWriter eventsWriter, IPaaSProvider paaSProvider,
+            List<IPaasEventListener> listeners, String cloudId) {
         this.cloudId = cloudId;
         this.dao = dao;
         this.monitorDAO = monitorDAO;
+        this.eventsWriter = eventsWriter;
         this.paaSProvider = paaSProvider;
         this.listeners = listeners;
         Set<Class<?>> eventClasses = Sets.newHashSet();
@@ -81,40 +97,89 @@ public class PaaSProviderPollingMonitor implements Runnable {
         paaSEventsCallback = new PaaSEventsCallback();
     }
 
-    private class PaaSEventsCallback implements IPaaSCallback<AbstractMonitorEvent[]> {
-
-        @Override
-        public void onSuccess(AbstractMonitorEvent[] auditEvents) {
-            synchronized (PaaSProviderPollingMonitor.this) {
-                if (log.isTraceEnabled()) {
-                    log.trace("Polled from date {}", lastPollingDate);
+    /**
+     * Enrich the given events with the cloud id, dispatch them to the listeners and queue them for persistence.
+     *
+     * @param auditEvents The events retrieved from the provider.
+     */
+    @SuppressWarnings("rawtypes")
+    private void handleEvents(AbstractMonitorEvent[] auditEvents) {
+        if (log.isDebugEnabled() && auditEvents != null && auditEvents.length > 0) {
+            log.debug("Saving events for cloud {}", cloudId);
+            for (AbstractMonitorEvent event : auditEvents) {
+                log.debug(event.toString());
+            }
+        }
+        if (auditEvents != null && auditEvents.length > 0) {
+            long batch;
+            synchronized (this) {
+                for (AbstractMonitorEvent event : auditEvents) {
+                    // Enrich event with cloud id before saving them
+                    event.setCloudId(cloudId);
                 }
-                if (log.isDebugEnabled() && auditEvents != null && auditEvents.length > 0) {
-                    log.debug("Saving events for cloud {}", cloudId);
+                for (IPaasEventListener listener : listeners) {
                     for (AbstractMonitorEvent event : auditEvents) {
-                        log.debug(event.toString());
+                        if (listener.canHandle(event)) {
+                            listener.eventHappened(event);
+                        }
+                        if (event.getDate() > 0) {
+                            Date eventDate = new Date(event.getDate());
+                            lastPollingDate = eventDate.after(lastPollingDate) ? eventDate : lastPollingDate;
+                        } else {
+                            event.setDate(System.currentTimeMillis());
+                        }
                     }
                 }
-                if (auditEvents != null && auditEvents.length > 0) {
-                    for (AbstractMonitorEvent event : auditEvents) {
-                        // Enrich event with cloud id before saving them
-                        event.setCloudId(cloudId);
-                    }
-                    for (IPaasEventListener listener : listeners) {
-                        for (AbstractMonitorEvent event : auditEvents) {
-                            if (listener.canHandle(event)) {
-                                listener.eventHappened(event);
-                            }
-                            if (event.getDate() > 0) {
-                                Date eventDate = new Date(event.getDate());
-                                lastPollingDate = eventDate.after(lastPollingDate) ? eventDate : lastPollingDate;
-                            } else {
-                                event.setDate(System.currentTimeMillis());
-                            }
-                        }
+                batch = dispatchedBatches++;
+            }
+            queue(batch, auditEvents);
+        }
+    }
+
+    /**
+     * Queue the events of a batch in the events writer once the batches dispatched before it have been queued, so that the events are persisted in the
+     * order they have been dispatched to the listeners.
+     *
+     * @param batch The number of the batch in the dispatch order.
+     * @param events The events of the batch.
+     */
+    private void queue(long batch, AbstractMonitorEvent[] events) {
+        boolean interrupted = false;
+        synchronized (queueLock) {
+            try {
+                while (queuedBatches != batch) {
+                    try {
+                        queueLock.wait();
+                    } catch (InterruptedException e) {
+                        // the next batches are waiting for this one, it must be queued anyway
+                        interrupted = true;
                     }
-                    monitorDAO.save(auditEvents);
                 }
+                // queuing blocks while the writer queue is full, the monitor lock is not held meanwhile so the polls and the stop are not blocked
+                eventsWriter.write(events);
+            } finally {
+                queuedBatches++;
+                queueLock.notifyAll();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class PaaSEventsCallback implements IPaaSCallback<AbstractMonitorEvent[]> {
+
+        @Override
+        public void onSuccess(AbstractMonitorEvent[] auditEvents) {
+            if (log.isTraceEnabled()) {
+                log.trace("Polled from date {}", lastPollingDate);
+            }
+            handleEvents(auditEvents);
+            // the poll is in progress until the events are queued so the next poll doesn't queue its events before these ones
+            synchronized (PaaSProviderPollingMonitor.this) {
+                // a full batch means that the provider has more events to give: poll more on next tick.
+                int polledEvents = auditEvents == null ? 0 : auditEvents.length;
+                maxPolledEvents = polledEvents >= maxPolledEvents ? Math.min(maxPolledEvents * 2, MAX_POLLED_EVENTS) : MIN_POLLED_EVENTS;
                 getEventsInProgress = false;
             }
         }
@@ -131,22 +196,86 @@ public class PaaSProviderPollingMonitor implements Runnable {
         }
     }
 
+    /**
+     * Sink that receives the events of providers that implement {@link IPaaSEventStreamProvider}.
+     */
+    private class PaaSEventsSink implements IPaaSEventSink {
+        /** Subscription of this sink, guarded by the monitor lock. */
+        private IPaaSEventSubscription sinkSubscription;
+
+        @Override
+        public void onEvents(AbstractMonitorEvent[] events) {
+            handleEvents(events);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            synchronized (PaaSProviderPollingMonitor.this) {
+                if (sinkSubscription == null || sinkSubscription != subscription) {
+                    // the subscription of this sink has been cancelled or replaced, the current stream is not broken
+                    log.debug("Events stream of cloud {} is broken but it has been cancelled or replaced.", cloudId, throwable);
+                    return;
+                }
+                // fall back to polling until the stream can be subscribed again.
+                subscription = null;
+                log.error("Events stream of cloud " + cloudId + " is broken, fall back to polling.", throwable);
+            }
+        }
+    }
+
     @Override
-    @SuppressWarnings("rawtypes")
     public synchronized void run() {
+        if (paaSProvider instanceof IPaaSEventStreamProvider) {
+            if (subscription == null) {
+                subscribe();
+            }
+            if (subscription != null) {
+                // events are pushed by the provider, nothing to poll.
+                return;
+            }
+        }
         if (getEventsInProgress) {
             // Get events since is running
             return;
         }
         getEventsInProgress = true;
         if (hasDeployments) {
-            paaSProvider.getEventsSince(lastPollingDate, MAX_POLLED_EVENTS, paaSEventsCallback);
+            // back-pressure: don't poll more events than the writer can queue.
+            int maxEvents = Math.min(maxPolledEvents, eventsWriter.getRemainingCapacity());
+            if (maxEvents <= 0) {
+                log.warn("Monitor events queue is full, skip polling of cloud {}", cloudId);
+                getEventsInProgress = false;
+                return;
+            }
+            paaSProvider.getEventsSince(lastPollingDate, maxEvents, paaSEventsCallback);
         } else {
             getEventsInProgress = false;
             hasDeployments = getActiveDeployment() != null;
         }
     }
 
+    private void subscribe() {
+        try {
+            // the sink can't report an error before it is bound to its subscription as it requires the monitor lock
+            PaaSEventsSink sink = new PaaSEventsSink();
+            sink.sinkSubscription = ((IPaaSEventStreamProvider) paaSProvider).subscribeEvents(lastPollingDate, sink);
+            subscription = sink.sinkSubscription;
+            log.info("Subscribed to events stream of cloud {} from date {}", cloudId, lastPollingDate);
+        } catch (RuntimeException e) {
+            log.error("Failed to subscribe to events stream of cloud " + cloudId + ", fall back to polling.", e);
+        }
+    }
+
+    /**
+     * Stop monitoring the provider (cancel the events stream subscription if any).
+     */
+    public synchronized void stop() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+    }
+
     private Deployment getActiveDeployment() {
         Deployment deployment = null;
 
@@ -27,6 +27,7 @@ import alien4cloud.model.components.IndexedArtifactToscaElement;
 import alien4cloud.model.components.IndexedInheritableToscaElement;
 import alien4cloud.model.components.IndexedNodeType;
 import alien4cloud.model.components.IndexedRelationshipType;
+import alien4cloud.model.components.IndexedToscaElement;
 import alien4cloud.model.components.Interface;
 import alien4cloud.model.components.Operation;
 import alien4cloud.model.components.OperationOutput;
@@ -88,6 +89,7 @@ public class TopologyTreeBuilderService {
 
         // Fill in PaaSNodeTemplate by fetching node types and CSAR path from the repositories.
         if (topology.getNodeTemplates() != null) {
+            fetchTypes(cache, topology);
             for (Entry<String, NodeTemplate> templateEntry : topology.getNodeTemplates().entrySet()) {
                 NodeTemplate template = templateEntry.getValue();
 
@@ -275,6 +277,68 @@ public class TopologyTreeBuilderService {
         return relationships;
     }
 
+    /**
+     * Fetch the node and relationship types of the topology (and their parent types) that are not yet in the type map using a single request for the types
+     * and a single request for the parent types.
+     */
+    private void fetchTypes(TypeMap typeMap, Topology topology) {
+        Set<String> nodeTypes = Sets.newHashSet();
+        Set<String> relationshipTypes = Sets.newHashSet();
+        for (NodeTemplate template : topology.getNodeTemplates().values()) {
+            nodeTypes.add(template.getType());
+            if (template.getRelationships() != null) {
+                for (RelationshipTemplate relationshipTemplate : template.getRelationships().values()) {
+                    relationshipTypes.add(relationshipTemplate.getType());
+                }
+            }
+        }
+        List<IndexedInheritableToscaElement> fetchedTypes = fetchMissingTypes(typeMap, topology.getDependencies(), nodeTypes, relationshipTypes);
+        nodeTypes.clear();
+        relationshipTypes.clear();
+        for (IndexedInheritableToscaElement fetchedType : fetchedTypes) {
+            if (fetchedType.getDerivedFrom() != null) {
+                (fetchedType instanceof IndexedNodeType ? nodeTypes : relationshipTypes).addAll(fetchedType.getDerivedFrom());
+            }
+        }
+        fetchMissingTypes(typeMap, topology.getDependencies(), nodeTypes, relationshipTypes);
+    }
+
+    private List<IndexedInheritableToscaElement> fetchMissingTypes(TypeMap typeMap, Set<CSARDependency> dependencies, Set<String> nodeTypes,
+            Set<String> relationshipTypes) {
+        Map<Class<? extends IndexedToscaElement>, Set<String>> missingTypes = Maps.newHashMap();
+        addMissingTypes(missingTypes, typeMap, IndexedNodeType.class, nodeTypes);
+        addMissingTypes(missingTypes, typeMap, IndexedRelationshipType.class, relationshipTypes);
+        List<IndexedInheritableToscaElement> fetchedTypes = Lists.newArrayList();
+        if (missingTypes.isEmpty()) {
+            return fetchedTypes;
+        }
+        // types that are not found are not put in the type map so getToscaType reports them.
+        TypeMap fetchedTypeMap = csarSearchService.getElementsInDependencies(missingTypes, dependencies);
+        for (Map.Entry<Class<? extends IndexedToscaElement>, Set<String>> classTypes : missingTypes.entrySet()) {
+            for (String type : classTypes.getValue()) {
+                IndexedInheritableToscaElement fetchedType = (IndexedInheritableToscaElement) fetchedTypeMap.get(classTypes.getKey(), type);
+                if (fetchedType != null) {
+                    typeMap.put(type, fetchedType);
+                    fetchedTypes.add(fetchedType);
+                }
+            }
+        }
+        return fetchedTypes;
+    }
+
+    private void addMissingTypes(Map<Class<? extends IndexedToscaElement>, Set<String>> missingTypes, TypeMap typeMap,
+            Class<? extends IndexedToscaElement> clazz, Set<String> types) {
+        Set<String> missing = Sets.newHashSet();
+        for (String type : types) {
+            if (typeMap.get(clazz, type) == null) {
+                missing.add(type);
+            }
+        }
+        if (!missing.isEmpty()) {
+            missingTypes.put(clazz, missing);
+        }
+    }
+
     private <V extends IndexedInheritableToscaElement> V getToscaType(String type, TypeMap typeMap, Set<CSARDependency> dependencies, Class<V> clazz) {
         V indexedToscaElement = typeMap.get(clazz, type);
         if (indexedToscaElement == null) {
@@ -2,6 +2,7 @@ package alien4cloud.paas.wf;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 
@@ -105,11 +106,13 @@ public class WorkflowsBuilderService {
 
     public void addNode(TopologyContext topologyContext, String nodeName, NodeTemplate nodeTemplate) {
         boolean forceOperation = WorkflowUtils.isComputeOrNetwork(nodeName, topologyContext);
+        // only the steps of the added node and of the nodes hosted on it (when the node replaces another one) are impacted
+        Set<String> hostedNodes = WorkflowUtils.getHostedNodes(nodeName, topologyContext);
         for (Workflow wf : topologyContext.getTopology().getWorkflows().values()) {
             AbstractWorkflowBuilder builder = getWorkflowBuilder(wf);
             builder.addNode(wf, nodeName, topologyContext, forceOperation);
-            WorkflowUtils.fillHostId(wf, topologyContext);
-            workflowValidator.validate(topologyContext, wf);
+            WorkflowUtils.fillHostId(wf, topologyContext, hostedNodes);
+            workflowValidator.validateAddedNode(topologyContext, wf, nodeName);
         }
         debugWorkflow(topologyContext.getTopology());
     }
@@ -118,9 +121,16 @@ public class WorkflowsBuilderService {
         TopologyContext topologyContext = buildTopologyContext(topology);
         for (Workflow wf : topology.getWorkflows().values()) {
             AbstractWorkflowBuilder builder = getWorkflowBuilder(wf);
+            String hostId = WorkflowUtils.getHostId(wf, nodeName);
             builder.removeNode(wf, nodeName);
-            WorkflowUtils.fillHostId(wf, topologyContext);
-            workflowValidator.validate(topologyContext, wf);
+            if (hostId != null) {
+                // the nodes that were hosted on the removed node share its host, their host may have changed
+                WorkflowUtils.fillHostId(wf, topologyContext, WorkflowUtils.getNodesOnHost(wf, hostId));
+            }
+            // removing the steps of a node keeps the links between their preceding and following steps: a valid workflow remains valid
+            if (wf.getErrors() == null || !wf.getErrors().isEmpty()) {
+                workflowValidator.validate(topologyContext, wf);
+            }
         }
         debugWorkflow(topology);
     }
@@ -128,10 +138,13 @@ public class WorkflowsBuilderService {
     public void addRelationship(TopologyContext topologyContext, String nodeTemplateName, String relationshipName) {
         NodeTemplate nodeTemplate = topologyContext.getTopology().getNodeTemplates().get(nodeTemplateName);
         RelationshipTemplate relationshipTemplate = nodeTemplate.getRelationships().get(relationshipName);
+        // only the host of the source node and of the nodes hosted on it may change
+        Set<String> hostedNodes = WorkflowUtils.getHostedNodes(nodeTemplateName, topologyContext);
         for (Workflow wf : topologyContext.getTopology().getWorkflows().values()) {
             AbstractWorkflowBuilder builder = getWorkflowBuilder(wf);
             builder.addRelationship(wf, nodeTemplateName, nodeTemplate, relationshipTemplate, topologyContext);
-            WorkflowUtils.fillHostId(wf, topologyContext);
+            WorkflowUtils.fillHostId(wf, topologyContext, hostedNodes);
+            // the links added between the steps of existing nodes may create a cycle or break a state sequence anywhere on their paths
             workflowValidator.validate(topologyContext, wf);
         }
         debugWorkflow(topologyContext.getTopology());
@@ -276,6 +289,7 @@ public class WorkflowsBuilderService {
         AbstractWorkflowBuilder builder = getWorkflowBuilder(wf);
         wf = builder.reinit(wf, topologyContext);
         WorkflowUtils.fillHostId(wf, topologyContext);
+        // all the steps are new, the whole workflow is validated
         workflowValidator.validate(topologyContext, wf);
         return wf;
     }
@@ -0,0 +1,300 @@
+package alien4cloud.paas.wf.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.elasticsearch.common.collect.Lists;
+import org.elasticsearch.common.collect.Maps;
+
+import alien4cloud.paas.wf.AbstractStep;
+import alien4cloud.paas.wf.Workflow;
+import alien4cloud.paas.wf.exception.InconsistentWorkflowException;
+
+/**
+ * Indexed view of the steps graph of a workflow, used to analyze the workflow in linear time rather than by enumerating all its paths.
+ * <p>
+ * Strongly connected components are computed using Tarjan's algorithm: a component of more than one step (or a step that follows itself) is a cycle. When the
+ * workflow has no cycle, the components order gives a topological order of the steps.
+ * <p>
+ * The graph is a snapshot: it must be rebuilt if the workflow is modified.
+ */
+public class WorkflowGraph {
+    private final AbstractStep[] steps;
+    private final Map<String, Integer> indexes;
+    private final int[][] successors;
+
+    /** Strongly connected components in reverse topological order. */
+    private final List<int[]> components = Lists.newArrayList();
+    /** Component index of each step. */
+    private final int[] componentOf;
+    private boolean hasCycle;
+
+    public WorkflowGraph(Workflow workflow) {
+        Map<String, AbstractStep> workflowSteps = workflow.getSteps() == null ? Collections.<String, AbstractStep> emptyMap() : workflow.getSteps();
+        int size = workflowSteps.size();
+        steps = new AbstractStep[size];
+        indexes = Maps.newHashMap();
+        int i = 0;
+        for (Map.Entry<String, AbstractStep> stepEntry : workflowSteps.entrySet()) {
+            steps[i] = stepEntry.getValue();
+            indexes.put(stepEntry.getKey(), i);
+            i++;
+        }
+        successors = new int[size][];
+        for (i = 0; i < size; i++) {
+            Set<String> followingSteps = steps[i].getFollowingSteps();
+            if (followingSteps == null) {
+                successors[i] = new int[0];
+                continue;
+            }
+            successors[i] = new int[followingSteps.size()];
+            int j = 0;
+            for (String followingStep : followingSteps) {
+                successors[i][j++] = getIndex(followingStep);
+            }
+        }
+        componentOf = new int[size];
+        computeStronglyConnectedComponents();
+    }
+
+    private int getIndex(String stepId) {
+        Integer index = indexes.get(stepId);
+        if (index == null) {
+            throw new InconsistentWorkflowException(String.format("The workflow doesn't contains the expected step <%s> !", stepId));
+        }
+        return index;
+    }
+
+    /**
+     * Tarjan's strongly connected components algorithm (iterative implementation so large workflows cannot overflow the stack).
+     */
+    private void computeStronglyConnectedComponents() {
+        int size = steps.length;
+        int[] index = new int[size];
+        Arrays.fill(index, -1);
+        int[] lowLink = new int[size];
+        boolean[] onStack = new boolean[size];
+        int[] stack = new int[size];
+        int stackSize = 0;
+        int[] callStack = new int[size];
+        int[] successorCursor = new int[size];
+        int counter = 0;
+        for (int root = 0; root < size; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            index[root] = lowLink[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            int callStackSize = 0;
+            callStack[callStackSize++] = root;
+            while (callStackSize > 0) {
+                int current = callStack[callStackSize - 1];
+                if (successorCursor[current] < successors[current].length) {
+                    int successor = successors[current][successorCursor[current]++];
+                    if (index[successor] == -1) {
+                        index[successor] = lowLink[successor] = counter++;
+                        stack[stackSize++] = successor;
+                        onStack[successor] = true;
+                        callStack[callStackSize++] = successor;
+                    } else if (onStack[successor]) {
+                        lowLink[current] = Math.min(lowLink[current], index[successor]);
+                    }
+                    continue;
+                }
+                callStackSize--;
+                if (callStackSize > 0) {
+                    int parent = callStack[callStackSize - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[current]);
+                }
+                if (lowLink[current] == index[current]) {
+                    // current is the root of a component, pop it from the stack
+                    int start = stackSize;
+                    do {
+                        start--;
+                        onStack[stack[start]] = false;
+                        componentOf[stack[start]] = components.size();
+                    } while (stack[start] != current);
+                    int[] component = Arrays.copyOfRange(stack, start, stackSize);
+                    stackSize = start;
+                    components.add(component);
+                    if (component.length > 1 || isSelfLinked(current)) {
+                        hasCycle = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isSelfLinked(int step) {
+        for (int successor : successors[step]) {
+            if (successor == step) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return True if the workflow contains at least one cycle.
+     */
+    public boolean hasCycle() {
+        return hasCycle;
+    }
+
+    /**
+     * Get a cycle for every strongly connected component of the workflow that contains cycles.
+     *
+     * @return A list of cycles, each cycle being the succession of steps that starts and ends by the same step (for example [A, B, C, A]).
+     */
+    public List<List<AbstractStep>> getCycles() {
+        List<List<AbstractStep>> cycles = Lists.newArrayList();
+        if (!hasCycle) {
+            return cycles;
+        }
+        int[] parents = new int[steps.length];
+        Arrays.fill(parents, -1);
+        // iterate in topological order so cycles are reported in the order they appear in the workflow
+        for (int c = components.size() - 1; c >= 0; c--) {
+            int[] component = components.get(c);
+            if (component.length > 1 || isSelfLinked(component[0])) {
+                cycles.add(getCycle(c, component, parents));
+            }
+        }
+        return cycles;
+    }
+
+    /**
+     * Find the shortest cycle from the first step (in the workflow order) of a strongly connected component using a breadth first search in the component.
+     */
+    private List<AbstractStep> getCycle(int componentIndex, int[] component, int[] parents) {
+        int origin = component[0];
+        for (int step : component) {
+            origin = Math.min(origin, step);
+        }
+        List<Integer> queue = Lists.newArrayList(origin);
+        parents[origin] = origin;
+        int last = -1;
+        for (int q = 0; q < queue.size() && last == -1; q++) {
+            int current = queue.get(q);
+            for (int successor : successors[current]) {
+                if (successor == origin) {
+                    last = current;
+                    break;
+                }
+                if (componentOf[successor] == componentIndex && parents[successor] == -1) {
+                    parents[successor] = current;
+                    queue.add(successor);
+                }
+            }
+        }
+        List<AbstractStep> cycle = Lists.newArrayList();
+        cycle.add(steps[origin]);
+        for (int current = last; current != origin; current = parents[current]) {
+            cycle.add(1, steps[current]);
+        }
+        cycle.add(steps[origin]);
+        // reset the visited steps for next components
+        for (int visited : queue) {
+            parents[visited] = -1;
+        }
+        return cycle;
+    }
+
+    /**
+     * @return The steps of the workflow ordered so that every step comes after all its preceding steps.
+     * @throws IllegalStateException if the workflow contains cycles.
+     */
+    public List<AbstractStep> getTopologicalOrder() {
+        assertAcyclic();
+        List<AbstractStep> order = new ArrayList<AbstractStep>(steps.length);
+        for (int c = components.size() - 1; c >= 0; c--) {
+            order.add(steps[components.get(c)[0]]);
+        }
+        return order;
+    }
+
+    /**
+     * For groups of steps, check that all the steps of a group are on a same path of the workflow and give them in the order of this path.
+     * <p>
+     * This is done in O((V + E) * S / 64) where S is the total number of steps in the groups, by computing the steps of the groups that are reachable from
+     * every step of the workflow.
+     *
+     * @param groups The groups of steps by key.
+     * @return A map that contains for every group key, the steps of the group in the order they appear on a path of the workflow, or null if there is no path
+     *         containing all the steps of the group.
+     * @throws IllegalStateException if the workflow contains cycles.
+     */
+    public <K> Map<K, List<AbstractStep>> getSequences(Map<K, ? extends Collection<? extends AbstractStep>> groups) {
+        assertAcyclic();
+        // position of every step in the topological order (components are in reverse topological order)
+        final int[] position = new int[steps.length];
+        for (int c = 0; c < components.size(); c++) {
+            position[components.get(c)[0]] = components.size() - 1 - c;
+        }
+        // the steps of the groups are the targets of the reachability computation
+        int[] targetIds = new int[steps.length];
+        Arrays.fill(targetIds, -1);
+        int targetCount = 0;
+        for (Collection<? extends AbstractStep> group : groups.values()) {
+            for (AbstractStep step : group) {
+                int index = getIndex(step.getName());
+                if (targetIds[index] == -1) {
+                    targetIds[index] = targetCount++;
+                }
+            }
+        }
+        // reachable targets of every step, computed in reverse topological order
+        BitSet[] reachable = new BitSet[steps.length];
+        for (int[] component : components) {
+            int step = component[0];
+            BitSet stepReachable = new BitSet(targetCount);
+            for (int successor : successors[step]) {
+                stepReachable.or(reachable[successor]);
+                if (targetIds[successor] != -1) {
+                    stepReachable.set(targetIds[successor]);
+                }
+            }
+            reachable[step] = stepReachable;
+        }
+
+        Map<K, List<AbstractStep>> sequences = new LinkedHashMap<K, List<AbstractStep>>();
+        for (Map.Entry<K, ? extends Collection<? extends AbstractStep>> group : groups.entrySet()) {
+            List<Integer> sequence = Lists.newArrayList();
+            for (AbstractStep step : group.getValue()) {
+                sequence.add(getIndex(step.getName()));
+            }
+            Collections.sort(sequence, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer left, Integer right) {
+                    return Integer.compare(position[left], position[right]);
+                }
+            });
+            List<AbstractStep> sequenceSteps = Lists.newArrayList();
+            for (int i = 0; i < sequence.size(); i++) {
+                if (i > 0 && !reachable[sequence.get(i - 1)].get(targetIds[sequence.get(i)])) {
+                    // the steps are in parallel
+                    sequenceSteps = null;
+                    break;
+                }
+                sequenceSteps.add(steps[sequence.get(i)]);
+            }
+            sequences.put(group.getKey(), sequenceSteps);
+        }
+        return sequences;
+    }
+
+    private void assertAcyclic() {
+        if (hasCycle) {
+            throw new IllegalStateException("The workflow contains cycles.");
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package alien4cloud.paas.wf.util;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
+import java.util.Set;
 
 import alien4cloud.model.components.IndexedInheritableToscaElement;
 import alien4cloud.model.components.IndexedNodeType;
@@ -19,6 +22,9 @@ import alien4cloud.paas.wf.WorkflowsBuilderService.TopologyContext;
 import alien4cloud.tosca.normative.NormativeComputeConstants;
 import alien4cloud.tosca.normative.NormativeRelationshipConstants;
 
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
 public class WorkflowUtils {
 
     private static final String NETWORK_TYPE = "tosca.nodes.Network";
@@ -68,6 +74,86 @@ public class WorkflowUtils {
         }
     }
 
+    /**
+     * Compute the hostId property of the steps of the given nodes only (for example for a node that has just been added to the workflow or the nodes that
+     * were hosted on a removed node) then the hosts of the workflow.
+     */
+    public static void fillHostId(Workflow wf, TopologyContext topologyContext, Set<String> nodeIds) {
+        Map<String, String> hostIds = Maps.newHashMap();
+        wf.getHosts().clear();
+        for (AbstractStep step : wf.getSteps().values()) {
+            if (step instanceof NodeActivityStep) {
+                NodeActivityStep dstep = (NodeActivityStep) step;
+                if (nodeIds.contains(dstep.getNodeId())) {
+                    if (!hostIds.containsKey(dstep.getNodeId())) {
+                        hostIds.put(dstep.getNodeId(), WorkflowUtils.getRootHostNode(dstep.getNodeId(), topologyContext));
+                    }
+                    dstep.setHostId(hostIds.get(dstep.getNodeId()));
+                }
+                if (dstep.getHostId() != null) {
+                    wf.getHosts().add(dstep.getHostId());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the hostId of the steps of the given node in the workflow, null if the node is not hosted or has no steps.
+     */
+    public static String getHostId(Workflow wf, String nodeId) {
+        for (AbstractStep step : wf.getSteps().values()) {
+            if (step instanceof NodeActivityStep && nodeId.equals(((NodeActivityStep) step).getNodeId())) {
+                return ((NodeActivityStep) step).getHostId();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the ids of the nodes which steps are hosted on the given host in the workflow.
+     */
+    public static Set<String> getNodesOnHost(Workflow wf, String hostId) {
+        Set<String> nodeIds = Sets.newHashSet();
+        for (AbstractStep step : wf.getSteps().values()) {
+            if (step instanceof NodeActivityStep && hostId.equals(((NodeActivityStep) step).getHostId())) {
+                nodeIds.add(((NodeActivityStep) step).getNodeId());
+            }
+        }
+        return nodeIds;
+    }
+
+    /**
+     * @return the given node and the nodes of the topology that are hosted on it, directly or not.
+     */
+    public static Set<String> getHostedNodes(String nodeId, TopologyContext topologyContext) {
+        Set<String> hostedNodes = Sets.newHashSet(nodeId);
+        Deque<String> hosts = new ArrayDeque<String>();
+        hosts.add(nodeId);
+        while (!hosts.isEmpty()) {
+            String hostId = hosts.poll();
+            for (Map.Entry<String, NodeTemplate> nodeTemplateEntry : topologyContext.getTopology().getNodeTemplates().entrySet()) {
+                // only the nodes that have a relationship to the host may be hosted on it, don't resolve the relationship types of the other ones
+                if (!hostedNodes.contains(nodeTemplateEntry.getKey()) && hasRelationshipTo(nodeTemplateEntry.getValue(), hostId)
+                        && hostId.equals(getParentId(null, nodeTemplateEntry.getKey(), topologyContext))) {
+                    hostedNodes.add(nodeTemplateEntry.getKey());
+                    hosts.add(nodeTemplateEntry.getKey());
+                }
+            }
+        }
+        return hostedNodes;
+    }
+
+    private static boolean hasRelationshipTo(NodeTemplate nodeTemplate, String target) {
+        if (nodeTemplate.getRelationships() != null) {
+            for (RelationshipTemplate relationshipTemplate : nodeTemplate.getRelationships().values()) {
+                if (target.equals(relationshipTemplate.getTarget())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * @return the parentId of the node : the id of the node it's hostedOn (if exists).
      */
@@ -286,6 +372,12 @@ public class WorkflowUtils {
     }
 
     public static AbstractStep getDelegateWorkflowStepByNode(Workflow wf, String nodeName) {
+        // steps are named after their activity unless renamed, try the default name first to avoid browsing all the steps
+        AbstractStep namedStep = wf.getSteps().get(nodeName + "_" + wf.getName());
+        if (namedStep instanceof NodeActivityStep && nodeName.equals(((NodeActivityStep) namedStep).getNodeId())
+                && ((NodeActivityStep) namedStep).getActivity() instanceof DelegateWorkflowActivity) {
+            return namedStep;
+        }
         for (AbstractStep step : wf.getSteps().values()) {
             if (step instanceof NodeActivityStep) {
                 NodeActivityStep defaultStep = (NodeActivityStep) step;
@@ -298,6 +390,12 @@ public class WorkflowUtils {
     }
 
     public static NodeActivityStep getStateStepByNode(Workflow wf, String nodeName, String stateName) {
+        // steps are named after their activity unless renamed, try the default name first to avoid browsing all the steps
+        AbstractStep namedStep = wf.getSteps().get(nodeName + "_" + stateName);
+        if (namedStep instanceof NodeActivityStep && ((NodeActivityStep) namedStep).getActivity() != null
+                && nodeName.equals(((NodeActivityStep) namedStep).getActivity().getNodeId()) && isStateStep((NodeActivityStep) namedStep, stateName)) {
+            return (NodeActivityStep) namedStep;
+        }
         for (AbstractStep step : wf.getSteps().values()) {
             if (step instanceof NodeActivityStep) {
                 NodeActivityStep defaultStep = (NodeActivityStep) step;
@@ -5,15 +5,15 @@ import java.util.List;
 
 import org.elasticsearch.common.collect.Lists;
 
-import alien4cloud.paas.wf.Path;
+import alien4cloud.paas.wf.AbstractStep;
 import alien4cloud.paas.wf.Workflow;
 import alien4cloud.paas.wf.WorkflowsBuilderService.TopologyContext;
-import alien4cloud.paas.wf.util.WorkflowGraphUtils;
+import alien4cloud.paas.wf.util.WorkflowGraph;
 
 /**
  * A cycle in the workflow is not permit.
  * <p>
- * 
+ * A {@link WorkflowHasCycleError} is reported for every strongly connected component of the workflow graph that contains a cycle.
  */
 public class CycleDetection implements Rule {
 
@@ -23,33 +23,18 @@ public class CycleDetection implements Rule {
             return null;
         }
         List<AbstractWorkflowError> result = Lists.newArrayList();
-        // get all the paths
-        List<Path> paths = WorkflowGraphUtils.getWorkflowGraphPaths(workflow);
-        for (Path path : paths) {
-            // isolate cycles
-            if (path.isCycle()) {
-                result.add(new WorkflowHasCycleError(extractCycle(path.getStepNames())));
-            }
+        for (List<AbstractStep> cycle : new WorkflowGraph(workflow).getCycles()) {
+            result.add(new WorkflowHasCycleError(getStepNames(cycle)));
         }
         return result;
     }
 
-    private List<String> extractCycle(List<String> path) {
-        List<String> cycle = new ArrayList<String>();
-        // this is in fact the step that generate the cycle
-        // it's present 2 times in the path
-        String incriminedStep = path.get(path.size() - 1);
-        boolean detected = false;
-        for (String step : path) {
-            // iterate unil we find the first occurence of incriminedStep
-            if (!detected && step.equals(incriminedStep)) {
-                detected = true;
-            }
-            if (detected) {
-                cycle.add(step);
-            }
+    private List<String> getStepNames(List<AbstractStep> steps) {
+        List<String> stepNames = new ArrayList<String>(steps.size());
+        for (AbstractStep step : steps) {
+            stepNames.add(step.getName());
         }
-        return cycle;
+        return stepNames;
     }
 
 }
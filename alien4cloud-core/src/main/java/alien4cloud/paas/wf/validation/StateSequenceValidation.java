@@ -5,23 +5,20 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 
 import lombok.extern.slf4j.Slf4j;
 
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.collect.Maps;
-import org.elasticsearch.common.collect.Sets;
 
 import alien4cloud.paas.plan.ToscaNodeLifecycleConstants;
 import alien4cloud.paas.wf.AbstractStep;
 import alien4cloud.paas.wf.NodeActivityStep;
-import alien4cloud.paas.wf.Path;
 import alien4cloud.paas.wf.SetStateActivity;
 import alien4cloud.paas.wf.Workflow;
 import alien4cloud.paas.wf.WorkflowsBuilderService.TopologyContext;
 import alien4cloud.paas.wf.exception.WorkflowException;
-import alien4cloud.paas.wf.util.WorkflowGraphUtils;
+import alien4cloud.paas.wf.util.WorkflowGraph;
 
 /**
  * This rule will check that for a given node, the 'set state' operations are done in the
@@ -41,12 +38,12 @@ import alien4cloud.paas.wf.util.WorkflowGraphUtils;
  * <p>
  * To achieve such check, for each node we:
  * <ul>
- * <li>list the state step states and the paths they are found on (a step can be on several paths).
- * <li>get the intersection of all these path : this way we should have at least 1 path containing all steps.
- * <li>check the order on these paths.
+ * <li>list the set state steps of the node.
+ * <li>order them along a path of the workflow using the {@link WorkflowGraph}: if no path contains all of them, they are in parallel.
+ * <li>check the order of the states on this path.
  * </ul>
  * <p>
- * Maybe a more efficient algo can be found (1 pass ?) ... Feel free to have fun !
+ * The sequence is not checked when the workflow contains cycles (which are reported by the {@link CycleDetection}).
  */
 @Slf4j
 public class StateSequenceValidation implements Rule {
@@ -83,26 +80,26 @@ public class StateSequenceValidation implements Rule {
             return null;
         }
         List<AbstractWorkflowError> errors = Lists.newArrayList();
-        List<Path> paths = WorkflowGraphUtils.getWorkflowGraphPaths(workflow);
-        Map<String, Map<NodeActivityStep, Set<Path>>> pathsPerNodePerStepMap = getPathsPerNodePerStepMap(paths);
-        Map<String, Set<Path>> pathsPerNodeMap = getPathsPerNodeIntersectionMap(pathsPerNodePerStepMap);
-        // now we have to ensure that for the remaining paths, the order is correct between steps
-        for (Entry<String, Set<Path>> pathSetEntry : pathsPerNodeMap.entrySet()) {
-            String nodeId = pathSetEntry.getKey();
-            if (pathSetEntry.getValue().isEmpty()) {
-                // the intersection is empty : this means that step are in parallel
+        WorkflowGraph graph = new WorkflowGraph(workflow);
+        if (graph.hasCycle()) {
+            return errors;
+        }
+        Map<String, List<AbstractStep>> sequencesPerNode = graph.getSequences(getStateStepsPerNode(workflow));
+        for (Entry<String, List<AbstractStep>> sequenceEntry : sequencesPerNode.entrySet()) {
+            String nodeId = sequenceEntry.getKey();
+            if (sequenceEntry.getValue() == null) {
+                // there is no path containing all the steps : this means that step are in parallel
                 // TODO: which one ?
                 errors.add(new ParallelSetStatesError(nodeId));
-            }
-            for (Path path : pathSetEntry.getValue()) {
-                ensureOrderIsCorrect(nodeId, path, stateSequence, errors);
+            } else {
+                ensureOrderIsCorrect(nodeId, sequenceEntry.getValue(), stateSequence, errors);
             }
         }
         return errors;
     }
 
-    private void ensureOrderIsCorrect(String nodeId, Path path, Map<String, Integer> stateSequence, List<AbstractWorkflowError> errors) {
-        Iterator<AbstractStep> steps = path.iterator();
+    private void ensureOrderIsCorrect(String nodeId, List<AbstractStep> sequence, Map<String, Integer> stateSequence, List<AbstractWorkflowError> errors) {
+        Iterator<AbstractStep> steps = sequence.iterator();
         NodeActivityStep lastDetectedStep = null;
         while (steps.hasNext()) {
             AbstractStep step = steps.next();
@@ -134,60 +131,22 @@ public class StateSequenceValidation implements Rule {
     }
 
     /**
-     * Per node, just keep the intersection between all the {@link Path} sets.
+     * @return a map using nodeId as key and the list of the 'set state' steps of the node as value.
      */
-    private Map<String, Set<Path>> getPathsPerNodeIntersectionMap(Map<String, Map<NodeActivityStep, Set<Path>>> pathsPerNodePerStepMap) {
-        Map<String, Set<Path>> pathsPerNodeIntersectionMap = Maps.newHashMap();
-        for (Entry<String, Map<NodeActivityStep, Set<Path>>> entry : pathsPerNodePerStepMap.entrySet()) {
-            String nodeId = entry.getKey();
-            Map<NodeActivityStep, Set<Path>> pathsPerStep = entry.getValue();
-            Iterator<Set<Path>> paths = pathsPerStep.values().iterator();
-            if (pathsPerStep.size() == 1) {
-                pathsPerNodeIntersectionMap.put(nodeId, paths.next());
-                paths.remove();
-            } else {
-                Set<Path> lastPaths = paths.next();
-                paths.remove();
-                while (paths.hasNext()) {
-                    Set<Path> intersection = Sets.intersection(lastPaths, paths.next());
-                    paths.remove();
-                    lastPaths = intersection;
-                }
-                pathsPerNodeIntersectionMap.put(nodeId, lastPaths);
-            }
-        }
-        return pathsPerNodeIntersectionMap;
-    }
-
-    /**
-     * For each node / step, constitute a set containing all the paths in which this node has steps of type 'set state'.
-     * 
-     * @return a map using nodeId as key and the list of concerned {@link Path}s as value.
-     */
-    private Map<String, Map<NodeActivityStep, Set<Path>>> getPathsPerNodePerStepMap(List<Path> paths) {
-        Map<String, Map<NodeActivityStep, Set<Path>>> pathsPerNodePerStepMap = Maps.newHashMap();
-        for (Path path : paths) {
-            Iterator<AbstractStep> steps = path.iterator();
-            while (steps.hasNext()) {
-                AbstractStep step = steps.next();
-                if (step instanceof NodeActivityStep && ((NodeActivityStep) step).getActivity() instanceof SetStateActivity) {
-                    NodeActivityStep nodeActivityStep = (NodeActivityStep) step;
-                    String node = nodeActivityStep.getNodeId();
-                    Map<NodeActivityStep, Set<Path>> pathsPerStepMap = pathsPerNodePerStepMap.get(node);
-                    if (pathsPerStepMap == null) {
-                        pathsPerStepMap = Maps.newHashMap();
-                        pathsPerNodePerStepMap.put(node, pathsPerStepMap);
-                    }
-                    Set<Path> pathsPerStep = pathsPerStepMap.get(nodeActivityStep);
-                    if (pathsPerStep == null) {
-                        pathsPerStep = Sets.newHashSet();
-                        pathsPerStepMap.put(nodeActivityStep, pathsPerStep);
-                    }
-                    pathsPerStep.add(path);
+    private Map<String, List<NodeActivityStep>> getStateStepsPerNode(Workflow workflow) {
+        Map<String, List<NodeActivityStep>> stateStepsPerNode = Maps.newLinkedHashMap();
+        for (AbstractStep step : workflow.getSteps().values()) {
+            if (step instanceof NodeActivityStep && ((NodeActivityStep) step).getActivity() instanceof SetStateActivity) {
+                NodeActivityStep nodeActivityStep = (NodeActivityStep) step;
+                List<NodeActivityStep> stateSteps = stateStepsPerNode.get(nodeActivityStep.getNodeId());
+                if (stateSteps == null) {
+                    stateSteps = Lists.newArrayList();
+                    stateStepsPerNode.put(nodeActivityStep.getNodeId(), stateSteps);
                 }
+                stateSteps.add(nodeActivityStep);
             }
         }
-        return pathsPerNodePerStepMap;
+        return stateStepsPerNode;
     }
 
     private Map<String, Integer> getStateSequence(Workflow workflow) {
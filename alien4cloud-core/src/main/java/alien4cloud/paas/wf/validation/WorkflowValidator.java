@@ -2,9 +2,13 @@ package alien4cloud.paas.wf.validation;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
+import org.elasticsearch.common.collect.Sets;
 import org.springframework.stereotype.Component;
 
+import alien4cloud.paas.wf.AbstractStep;
+import alien4cloud.paas.wf.NodeActivityStep;
 import alien4cloud.paas.wf.Workflow;
 import alien4cloud.paas.wf.WorkflowsBuilderService.TopologyContext;
 
@@ -34,4 +38,65 @@ public class WorkflowValidator {
         return errorCount;
     }
 
+    /**
+     * Validate a workflow after the steps of a node have been added to it, the other steps being unchanged.
+     * <p>
+     * If the workflow was valid before the change and the steps of the node are only linked from other steps or only linked to other steps, the node's steps
+     * cannot be part of a cycle nor change the order of the other nodes' steps: only the sub-workflow of the node's steps is validated. The whole workflow is
+     * validated in any other case (or if the sub-workflow is not valid, to get the errors on the whole workflow).
+     *
+     * @return The number of errors of the workflow.
+     */
+    public int validateAddedNode(TopologyContext topologyContext, Workflow workflow, String nodeId) {
+        if (workflow.getErrors() == null || !workflow.getErrors().isEmpty()) {
+            return validate(topologyContext, workflow);
+        }
+        Workflow nodeWorkflow = new Workflow();
+        nodeWorkflow.setName(workflow.getName());
+        nodeWorkflow.setStandard(workflow.isStandard());
+        Set<String> nodeStepIds = Sets.newHashSet();
+        for (AbstractStep step : workflow.getSteps().values()) {
+            if (step instanceof NodeActivityStep && nodeId.equals(((NodeActivityStep) step).getNodeId())) {
+                nodeStepIds.add(step.getName());
+            }
+        }
+        boolean linkedFromOtherSteps = false;
+        boolean linkedToOtherSteps = false;
+        for (String nodeStepId : nodeStepIds) {
+            NodeActivityStep step = (NodeActivityStep) workflow.getSteps().get(nodeStepId);
+            NodeActivityStep nodeStep = new NodeActivityStep();
+            nodeStep.setName(step.getName());
+            nodeStep.setNodeId(step.getNodeId());
+            nodeStep.setHostId(step.getHostId());
+            nodeStep.setActivity(step.getActivity());
+            if (step.getPrecedingSteps() != null) {
+                for (String precedingStep : step.getPrecedingSteps()) {
+                    if (nodeStepIds.contains(precedingStep)) {
+                        nodeStep.addPreceding(precedingStep);
+                    } else {
+                        linkedFromOtherSteps = true;
+                    }
+                }
+            }
+            if (step.getFollowingSteps() != null) {
+                for (String followingStep : step.getFollowingSteps()) {
+                    if (nodeStepIds.contains(followingStep)) {
+                        nodeStep.addFollowing(followingStep);
+                    } else {
+                        linkedToOtherSteps = true;
+                    }
+                }
+            }
+            nodeWorkflow.addStep(nodeStep);
+        }
+        if (linkedFromOtherSteps && linkedToOtherSteps) {
+            return validate(topologyContext, workflow);
+        }
+        int errorCount = validate(topologyContext, nodeWorkflow);
+        if (errorCount > 0) {
+            return validate(topologyContext, workflow);
+        }
+        return 0;
+    }
+
 }
@@ -0,0 +1,75 @@
+package alien4cloud.topology;
+
+import java.util.Set;
+
+import lombok.Getter;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Elements of a topology that changed between two versions of the topology, as declared by the edits of the topology.
+ */
+@Getter
+public class TopologyChanges {
+    /** Names of the node templates that have been added, removed or updated. */
+    private final Set<String> nodeTemplates = Sets.newHashSet();
+    /** True if the inputs or the input artifacts of the topology changed. */
+    private boolean inputs;
+    /** True if any other element of the topology (dependencies, groups, workflows etc.) changed. */
+    private boolean others;
+
+    /**
+     * Changes of node templates only.
+     *
+     * @param nodeTemplates The names of the node templates that have been added, removed or updated.
+     * @return The changes of the given node templates.
+     */
+    public static TopologyChanges nodeTemplates(String... nodeTemplates) {
+        TopologyChanges changes = new TopologyChanges();
+        for (String nodeTemplate : nodeTemplates) {
+            changes.nodeTemplates.add(nodeTemplate);
+        }
+        return changes;
+    }
+
+    /**
+     * Changes of the inputs or of the input artifacts of the topology.
+     *
+     * @return The changes of the inputs.
+     */
+    public static TopologyChanges inputs() {
+        TopologyChanges changes = new TopologyChanges();
+        changes.inputs = true;
+        return changes;
+    }
+
+    /**
+     * Changes that are not known, any element of the topology may have changed.
+     *
+     * @return The unknown changes.
+     */
+    public static TopologyChanges unknown() {
+        TopologyChanges changes = new TopologyChanges();
+        changes.inputs = true;
+        changes.others = true;
+        return changes;
+    }
+
+    /**
+     * Add changes that occurred after the changes of this instance.
+     *
+     * @param changes The changes to add.
+     */
+    public void add(TopologyChanges changes) {
+        nodeTemplates.addAll(changes.nodeTemplates);
+        inputs |= changes.inputs;
+        others |= changes.others;
+    }
+
+    /**
+     * @return True if only node templates changed.
+     */
+    public boolean isNodeTemplatesOnly() {
+        return !inputs && !others;
+    }
+}
@@ -0,0 +1,427 @@
+package alien4cloud.topology;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import lombok.AllArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import alien4cloud.dao.ElasticSearchMapper;
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.exception.VersionConflictException;
+import alien4cloud.model.topology.Topology;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * Keeps an in-memory working copy of the topologies that are currently edited so that each edit operation doesn't cost a full elastic search get + index +
+ * refresh.
+ *
+ * Edits are recorded in the session and persisted asynchronously once no edit occurred for <code>topology.edition.flush_delay_ms</code> milliseconds. Working
+ * copies are kept serialized so every reader gets its own instance (as it would from elastic search) and cannot alter the session state by side effect.
+ * Optimistic versioning is based on the topology last update date: an edit made on a copy that is older than the current working copy is rejected.
+ *
+ * Edits that cannot be persisted are retried with a backoff, the failure is reported to the next reader or editor of the topology.
+ *
+ * The changes declared by every edit are tracked so that the elements derived from a topology can be updated for the changed elements only.
+ */
+@Slf4j
+@Service
+public class TopologyEditSessionService {
+    /** Maximum number of edits for which the changes are kept per topology. */
+    private static final int MAX_TRACKED_CHANGES = 100;
+    /** Bounds of the delay before the retry of a failed flush. */
+    private static final long MIN_FLUSH_RETRY_DELAY_MS = 1000;
+    private static final long MAX_FLUSH_RETRY_DELAY_MS = 60000;
+
+    private final ObjectMapper mapper = ElasticSearchMapper.getInstance();
+
+    @Resource(name = "alien-es-dao")
+    private IGenericSearchDAO alienDAO;
+    @Resource(name = "topology-edition-scheduler")
+    private TaskScheduler scheduler;
+    /** Delay in milliseconds after the last edit of a topology before the working copy is persisted. */
+    @Value("${topology.edition.flush_delay_ms:2000}")
+    private long flushDelayMs;
+
+    private final Map<String, EditSession> sessions = Maps.newHashMap();
+    /** Changes of the edits by topology id, each change log is guarded by its own lock. */
+    private final ConcurrentMap<String, List<TrackedChanges>> changeLogs = Maps.newConcurrentMap();
+    /** Serialize the edits of a topology. */
+    private final Striped<Lock> editLocks = Striped.lock(64);
+    /** Serialize the persistence of a topology so a working copy is never saved after a more recent one, or after the session has been discarded. */
+    private final Striped<Lock> flushLocks = Striped.lock(64);
+
+    /**
+     * Get a copy of the working copy of a topology.
+     *
+     * @param topologyId The id of the topology.
+     * @return A new instance of the topology as currently edited or null if the topology is not under edition.
+     * @throws RuntimeException the failure of the persistence if the last flush of the working copy failed and the working copy can still not be
+     *             persisted.
+     */
+    @SneakyThrows(IOException.class)
+    public Topology get(String topologyId) {
+        retryFailedFlush(topologyId);
+        byte[] content;
+        synchronized (sessions) {
+            EditSession session = sessions.get(topologyId);
+            if (session == null) {
+                return null;
+            }
+            content = session.content;
+        }
+        return mapper.readValue(content, Topology.class);
+    }
+
+    /**
+     * Record an edit of a topology in its working copy and schedule the persistence of the working copy. The changes of the edit are unknown so the elements
+     * derived from the topology are computed again.
+     *
+     * @param topology The edited topology.
+     * @throws VersionConflictException if the topology has been updated by another edit since the given instance has been loaded.
+     */
+    public void update(Topology topology) {
+        update(topology, TopologyChanges.unknown());
+    }
+
+    /**
+     * Record an edit of a topology in its working copy and schedule the persistence of the working copy.
+     *
+     * @param topology The edited topology.
+     * @param changes The elements of the topology changed by the edit.
+     * @throws VersionConflictException if the topology has been updated by another edit since the given instance has been loaded.
+     * @throws RuntimeException the failure of the persistence if the last flush of the working copy failed and the working copy can still not be
+     *             persisted.
+     */
+    @SneakyThrows(IOException.class)
+    public void update(Topology topology, TopologyChanges changes) {
+        // edits of a topology are serialized by the topology lock, the sessions lock is only held to access the sessions so the loading of the topology
+        // doesn't block the edition of other topologies.
+        Lock editLock = editLocks.get(topology.getId());
+        editLock.lock();
+        try {
+            retryFailedFlush(topology.getId());
+            EditSession session;
+            Date previousDate = null;
+            synchronized (sessions) {
+                session = sessions.get(topology.getId());
+                if (session != null) {
+                    previousDate = session.lastUpdateDate;
+                }
+            }
+            if (session == null) {
+                // the previous version is the persisted topology when the session starts
+                Topology persisted = alienDAO.findById(Topology.class, topology.getId());
+                if (persisted != null) {
+                    previousDate = persisted.getLastUpdateDate();
+                }
+            }
+            checkVersion(topology, previousDate);
+            topology.setLastUpdateDate(new Date());
+            if (previousDate != null) {
+                track(topology.getId(), new TrackedChanges(previousDate, topology.getLastUpdateDate(), changes));
+            }
+            byte[] content = mapper.writeValueAsBytes(topology);
+            synchronized (sessions) {
+                if (session == null || session != sessions.get(topology.getId())) {
+                    // new session or the session has been closed (flushed or discarded) meanwhile
+                    session = new EditSession();
+                    sessions.put(topology.getId(), session);
+                }
+                session.content = content;
+                session.lastUpdateDate = topology.getLastUpdateDate();
+                if (session.flushFuture == null) {
+                    scheduleFlush(topology.getId(), session, System.currentTimeMillis() + flushDelayMs);
+                }
+            }
+        } finally {
+            editLock.unlock();
+        }
+    }
+
+    /**
+     * Persist right away a working copy for which the last flush failed, so the caller is notified of the failure instead of editing or reading edits that
+     * may be lost.
+     */
+    private void retryFailedFlush(String topologyId) {
+        synchronized (sessions) {
+            EditSession session = sessions.get(topologyId);
+            if (session == null || session.flushFailure == null) {
+                return;
+            }
+        }
+        flush(topologyId);
+    }
+
+    private void scheduleFlush(final String topologyId, EditSession session, long date) {
+        session.flushFuture = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                flushWhenIdle(topologyId);
+            }
+        }, new Date(date));
+    }
+
+    private void track(String topologyId, TrackedChanges changes) {
+        List<TrackedChanges> changeLog = changeLogs.get(topologyId);
+        if (changeLog == null) {
+            List<TrackedChanges> newChangeLog = Lists.newLinkedList();
+            changeLog = changeLogs.putIfAbsent(topologyId, newChangeLog);
+            if (changeLog == null) {
+                changeLog = newChangeLog;
+            }
+        }
+        synchronized (changeLog) {
+            changeLog.add(changes);
+            if (changeLog.size() > MAX_TRACKED_CHANGES) {
+                changeLog.remove(0);
+            }
+        }
+    }
+
+    /**
+     * Get the changes of a topology between two versions of the topology. Changes are tracked in memory for the edits recorded through
+     * {@link #update(Topology)}, changes made by other means (or before a restart) are unknown.
+     *
+     * @param topologyId The id of the topology.
+     * @param from The last update date of the first version.
+     * @param to The last update date of the second version.
+     * @return The changes between the two versions or null if the changes are unknown.
+     */
+    public TopologyChanges getChanges(String topologyId, Date from, Date to) {
+        if (from == null || to == null) {
+            return null;
+        }
+        TopologyChanges topologyChanges = new TopologyChanges();
+        if (from.equals(to)) {
+            return topologyChanges;
+        }
+        List<TrackedChanges> changeLog = changeLogs.get(topologyId);
+        if (changeLog == null) {
+            return null;
+        }
+        synchronized (changeLog) {
+            Date current = null;
+            for (TrackedChanges changes : changeLog) {
+                if (current == null && !changes.from.equals(from)) {
+                    continue;
+                }
+                if (current != null && !changes.from.equals(current)) {
+                    // the topology has been saved in between
+                    return null;
+                }
+                topologyChanges.add(changes.changes);
+                current = changes.to;
+                if (current.equals(to)) {
+                    return topologyChanges;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Persist a topology right away and close its edit session, the pending edits of the session are replaced by the given topology.
+     *
+     * @param topology The topology to save.
+     * @throws VersionConflictException if the topology has been updated by another edit since the given instance has been loaded.
+     */
+    public void save(Topology topology) {
+        // the save must not be reverted by the flush of an older working copy
+        Lock editLock = editLocks.get(topology.getId());
+        Lock flushLock = flushLocks.get(topology.getId());
+        editLock.lock();
+        flushLock.lock();
+        try {
+            if (topology.getLastUpdateDate() != null) {
+                Date currentDate = null;
+                synchronized (sessions) {
+                    EditSession session = sessions.get(topology.getId());
+                    if (session != null) {
+                        currentDate = session.lastUpdateDate;
+                    }
+                }
+                if (currentDate == null) {
+                    Topology persisted = alienDAO.findById(Topology.class, topology.getId());
+                    currentDate = persisted == null ? null : persisted.getLastUpdateDate();
+                }
+                checkVersion(topology, currentDate);
+            }
+            topology.setLastUpdateDate(new Date());
+            alienDAO.save(topology);
+            close(topology.getId());
+        } finally {
+            flushLock.unlock();
+            editLock.unlock();
+        }
+    }
+
+    /**
+     * Check that a topology is not older than the current version of the topology, the working copy if under edition or the persisted topology otherwise.
+     *
+     * @param topology The topology to check.
+     * @param currentDate The last update date of the current version of the topology, null if there is none.
+     * @throws VersionConflictException if the topology has been updated by another edit since the given instance has been loaded.
+     */
+    private void checkVersion(Topology topology, Date currentDate) {
+        if (currentDate != null && topology.getLastUpdateDate() != null && topology.getLastUpdateDate().before(currentDate)) {
+            throw new VersionConflictException("Topology [" + topology.getId() + "] has been updated by another user since it has been loaded.", null);
+        }
+    }
+
+    /**
+     * Persist the working copy of the given topology (if under edition) and close the edit session.
+     *
+     * @param topologyId The id of the topology to flush.
+     */
+    @SneakyThrows(IOException.class)
+    public void flush(String topologyId) {
+        Lock flushLock = flushLocks.get(topologyId);
+        flushLock.lock();
+        try {
+            EditSession session;
+            byte[] content;
+            synchronized (sessions) {
+                session = sessions.get(topologyId);
+                if (session == null) {
+                    return;
+                }
+                content = session.content;
+            }
+            // the topology is saved outside of the sessions lock so other topologies can be edited meanwhile, the session is kept if the save fails so edits
+            // are not lost.
+            try {
+                alienDAO.save(mapper.readValue(content, Topology.class));
+            } catch (RuntimeException e) {
+                synchronized (sessions) {
+                    session.flushFailure = e;
+                }
+                throw e;
+            }
+            synchronized (sessions) {
+                session.flushFailure = null;
+                session.flushFailures = 0;
+                // the session is kept if the topology has been edited during the save, the new edits are persisted by the next flush.
+                if (session == sessions.get(topologyId) && content == session.content) {
+                    sessions.remove(topologyId);
+                    if (session.flushFuture != null) {
+                        session.flushFuture.cancel(false);
+                    }
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Drop the working copy of a topology without persisting it (for example when the topology is deleted).
+     *
+     * @param topologyId The id of the topology for which to discard the edit session.
+     */
+    public void discard(String topologyId) {
+        // wait for the edit and the save of the working copy if in progress, they must not happen after the topology is replaced or deleted
+        Lock editLock = editLocks.get(topologyId);
+        Lock flushLock = flushLocks.get(topologyId);
+        editLock.lock();
+        flushLock.lock();
+        try {
+            close(topologyId);
+        } finally {
+            flushLock.unlock();
+            editLock.unlock();
+        }
+    }
+
+    private void close(String topologyId) {
+        synchronized (sessions) {
+            // the topology is replaced or deleted, next edits won't follow the tracked ones
+            changeLogs.remove(topologyId);
+            EditSession session = sessions.remove(topologyId);
+            if (session != null && session.flushFuture != null) {
+                session.flushFuture.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Persist all pending edits.
+     */
+    @PreDestroy
+    public void flushAll() {
+        String[] topologyIds;
+        synchronized (sessions) {
+            topologyIds = sessions.keySet().toArray(new String[sessions.size()]);
+        }
+        for (String topologyId : topologyIds) {
+            flush(topologyId);
+        }
+    }
+
+    private void flushWhenIdle(String topologyId) {
+        synchronized (sessions) {
+            EditSession session = sessions.get(topologyId);
+            if (session == null) {
+                return;
+            }
+            long idleMs = System.currentTimeMillis() - session.lastUpdateDate.getTime();
+            if (idleMs < flushDelayMs) {
+                // the topology has been edited since the flush has been scheduled, postpone.
+                scheduleFlush(topologyId, session, session.lastUpdateDate.getTime() + flushDelayMs);
+                return;
+            }
+            session.flushFuture = null;
+        }
+        try {
+            flush(topologyId);
+        } catch (RuntimeException e) {
+            log.error("Failed to persist the working copy of topology <" + topologyId + ">, the flush will be retried", e);
+            synchronized (sessions) {
+                EditSession session = sessions.get(topologyId);
+                if (session != null && session.flushFuture == null) {
+                    // retry with an exponential backoff so the edits are not lost while elastic search is unavailable
+                    session.flushFailures++;
+                    long retryDelayMs = Math.min(Math.max(flushDelayMs, MIN_FLUSH_RETRY_DELAY_MS) << Math.min(session.flushFailures - 1, 10),
+                            MAX_FLUSH_RETRY_DELAY_MS);
+                    scheduleFlush(topologyId, session, System.currentTimeMillis() + retryDelayMs);
+                }
+            }
+        }
+    }
+
+    /** Changes of a topology from a version to the next one. */
+    @AllArgsConstructor
+    private static class TrackedChanges {
+        private final Date from;
+        private final Date to;
+        private final TopologyChanges changes;
+    }
+
+    /** Working copy of a topology under edition. */
+    private static class EditSession {
+        private byte[] content;
+        private Date lastUpdateDate;
+        private ScheduledFuture<?> flushFuture;
+        /** Failure of the last flush of the working copy, null if the last flush succeeded. */
+        private RuntimeException flushFailure;
+        /** Number of consecutive failed flushes. */
+        private int flushFailures;
+    }
+}
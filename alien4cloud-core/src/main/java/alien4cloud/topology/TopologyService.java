@@ -3,6 +3,7 @@ package alien4cloud.topology;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -54,6 +55,7 @@ import alien4cloud.topology.task.TaskCode;
 import alien4cloud.tosca.container.ToscaTypeLoader;
 import alien4cloud.tosca.serializer.VelocityUtil;
 import alien4cloud.utils.MapUtil;
+import alien4cloud.utils.TypeMap;
 import alien4cloud.utils.VersionUtil;
 
 import com.google.common.collect.Maps;
@@ -117,15 +119,21 @@ public class TopologyService {
      */
     public Map<String, IndexedCapabilityType> getIndexedCapabilityTypes(Collection<IndexedNodeType> nodeTypes, Collection<CSARDependency> dependencies) {
         Map<String, IndexedCapabilityType> capabilityTypes = Maps.newHashMap();
+        Set<String> types = Sets.newHashSet();
         for (IndexedNodeType nodeType : nodeTypes) {
             if (nodeType.getCapabilities() != null) {
                 for (CapabilityDefinition capabilityDefinition : nodeType.getCapabilities()) {
-                    IndexedCapabilityType capabilityType = csarRepoSearchService.getRequiredElementInDependencies(IndexedCapabilityType.class,
-                            capabilityDefinition.getType(), dependencies);
-                    capabilityTypes.put(capabilityDefinition.getType(), capabilityType);
+                    types.add(capabilityDefinition.getType());
                 }
             }
         }
+        if (types.isEmpty()) {
+            return capabilityTypes;
+        }
+        TypeMap typeMap = csarRepoSearchService.getRequiredElementsInDependencies(Collections.singletonMap(IndexedCapabilityType.class, types), dependencies);
+        for (String type : types) {
+            capabilityTypes.put(type, typeMap.get(IndexedCapabilityType.class, type));
+        }
         return capabilityTypes;
     }
 
@@ -308,8 +316,31 @@ public class TopologyService {
      * @return The {@link TopologyDTO} that contains the given topology
      */
     public TopologyDTO buildTopologyDTO(Topology topology) {
-        Map<String, IndexedNodeType> nodeTypes = topologyServiceCore.getIndexedNodeTypesFromTopology(topology, false, false);
-        Map<String, IndexedRelationshipType> relationshipTypes = topologyServiceCore.getIndexedRelationshipTypesFromTopology(topology);
+        // node types and relationship types are fetched using a single request
+        Set<String> nodeTypeIds = Sets.newHashSet();
+        Set<String> relationshipTypeIds = Sets.newHashSet();
+        if (topology.getNodeTemplates() != null) {
+            for (NodeTemplate nodeTemplate : topology.getNodeTemplates().values()) {
+                nodeTypeIds.add(nodeTemplate.getType());
+                if (nodeTemplate.getRelationships() != null) {
+                    for (RelationshipTemplate relationshipTemplate : nodeTemplate.getRelationships().values()) {
+                        relationshipTypeIds.add(relationshipTemplate.getType());
+                    }
+                }
+            }
+        }
+        Map<Class<? extends IndexedToscaElement>, Set<String>> typeIds = Maps.newHashMap();
+        typeIds.put(IndexedNodeType.class, nodeTypeIds);
+        typeIds.put(IndexedRelationshipType.class, relationshipTypeIds);
+        TypeMap typeMap = csarRepoSearchService.getRequiredElementsInDependencies(typeIds, topology.getDependencies());
+        Map<String, IndexedNodeType> nodeTypes = Maps.newHashMap();
+        for (String nodeTypeId : nodeTypeIds) {
+            nodeTypes.put(nodeTypeId, typeMap.get(IndexedNodeType.class, nodeTypeId));
+        }
+        Map<String, IndexedRelationshipType> relationshipTypes = Maps.newHashMap();
+        for (String relationshipTypeId : relationshipTypeIds) {
+            relationshipTypes.put(relationshipTypeId, typeMap.get(IndexedRelationshipType.class, relationshipTypeId));
+        }
         Map<String, IndexedCapabilityType> capabilityTypes = getIndexedCapabilityTypes(nodeTypes.values(), topology.getDependencies());
         String yaml = getYaml(topology);
         Map<String, Map<String, Set<String>>> outputCapabilityProperties = topology.getOutputCapabilityProperties();
@@ -1,6 +1,7 @@
 package alien4cloud.topology;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +47,7 @@ import alien4cloud.model.topology.SubstitutionTarget;
 import alien4cloud.model.topology.Topology;
 import alien4cloud.utils.MapUtil;
 import alien4cloud.utils.PropertyUtil;
+import alien4cloud.utils.TypeMap;
 
 import com.google.common.collect.Maps;
 
@@ -67,6 +69,9 @@ public class TopologyServiceCore {
     @Resource
     private ICSARRepositoryIndexerService indexerService;
 
+    @Resource
+    private TopologyEditSessionService topologyEditSessionService;
+
     /**
      * The default tosca element finder will search into repo.
      */
@@ -78,6 +83,10 @@ public class TopologyServiceCore {
     };
 
     public Topology getTopology(String topologyId) {
+        Topology topology = topologyEditSessionService.get(topologyId);
+        if (topology != null) {
+            return topology;
+        }
         return alienDAO.findById(Topology.class, topologyId);
     }
 
@@ -156,14 +165,16 @@ public class TopologyServiceCore {
         if (nodeTemplates == null) {
             return nodeTypes;
         }
+        Set<String> types = Sets.newHashSet();
+        for (NodeTemplate template : nodeTemplates.values()) {
+            types.add(template.getType());
+        }
+        TypeMap typeMap = csarRepoSearchService.getRequiredElementsInDependencies(Collections.singletonMap(IndexedNodeType.class, types), dependencies);
         for (Map.Entry<String, NodeTemplate> template : nodeTemplates.entrySet()) {
-            if (!nodeTypes.containsKey(template.getValue().getType())) {
-                IndexedNodeType nodeType = csarRepoSearchService.getRequiredElementInDependencies(IndexedNodeType.class, template.getValue().getType(),
-                        dependencies);
-                if (!abstractOnly || nodeType.isAbstract()) {
-                    String key = useTemplateNameAsKey ? template.getKey() : template.getValue().getType();
-                    nodeTypes.put(key, nodeType);
-                }
+            IndexedNodeType nodeType = typeMap.get(IndexedNodeType.class, template.getValue().getType());
+            if (!abstractOnly || nodeType.isAbstract()) {
+                String key = useTemplateNameAsKey ? template.getKey() : template.getValue().getType();
+                nodeTypes.put(key, nodeType);
             }
         }
         return nodeTypes;
@@ -180,19 +191,22 @@ public class TopologyServiceCore {
         if (topology.getNodeTemplates() == null) {
             return relationshipTypes;
         }
-        for (Map.Entry<String, NodeTemplate> templateEntry : topology.getNodeTemplates().entrySet()) {
-            NodeTemplate template = templateEntry.getValue();
+        Set<String> types = Sets.newHashSet();
+        for (NodeTemplate template : topology.getNodeTemplates().values()) {
             if (template.getRelationships() != null) {
-                for (Map.Entry<String, RelationshipTemplate> relationshipEntry : template.getRelationships().entrySet()) {
-                    RelationshipTemplate relationship = relationshipEntry.getValue();
-                    if (!relationshipTypes.containsKey(relationship.getType())) {
-                        IndexedRelationshipType relationshipType = csarRepoSearchService.getRequiredElementInDependencies(IndexedRelationshipType.class,
-                                relationship.getType(), topology.getDependencies());
-                        relationshipTypes.put(relationship.getType(), relationshipType);
-                    }
+                for (RelationshipTemplate relationship : template.getRelationships().values()) {
+                    types.add(relationship.getType());
                 }
             }
         }
+        if (types.isEmpty()) {
+            return relationshipTypes;
+        }
+        TypeMap typeMap = csarRepoSearchService.getRequiredElementsInDependencies(Collections.singletonMap(IndexedRelationshipType.class, types),
+                topology.getDependencies());
+        for (String type : types) {
+            relationshipTypes.put(type, typeMap.get(IndexedRelationshipType.class, type));
+        }
         return relationshipTypes;
     }
 
@@ -207,19 +221,22 @@ public class TopologyServiceCore {
         if (topology.getNodeTemplates() == null) {
             return capabilityTypes;
         }
-        for (Map.Entry<String, NodeTemplate> templateEntry : topology.getNodeTemplates().entrySet()) {
-            NodeTemplate template = templateEntry.getValue();
+        Set<String> types = Sets.newHashSet();
+        for (NodeTemplate template : topology.getNodeTemplates().values()) {
             if (template.getCapabilities() != null) {
-                for (Map.Entry<String, Capability> capabilityEntry : template.getCapabilities().entrySet()) {
-                    Capability capability = capabilityEntry.getValue();
-                    if (!capabilityTypes.containsKey(capability.getType())) {
-                        IndexedCapabilityType capabilityType = csarRepoSearchService.getRequiredElementInDependencies(IndexedCapabilityType.class,
-                                capability.getType(), topology.getDependencies());
-                        capabilityTypes.put(capability.getType(), capabilityType);
-                    }
+                for (Capability capability : template.getCapabilities().values()) {
+                    types.add(capability.getType());
                 }
             }
         }
+        if (types.isEmpty()) {
+            return capabilityTypes;
+        }
+        TypeMap typeMap = csarRepoSearchService.getRequiredElementsInDependencies(Collections.singletonMap(IndexedCapabilityType.class, types),
+                topology.getDependencies());
+        for (String type : types) {
+            capabilityTypes.put(type, typeMap.get(IndexedCapabilityType.class, type));
+        }
         return capabilityTypes;
     }
 
@@ -420,9 +437,64 @@ public class TopologyServiceCore {
         return topologyId;
     }
 
+    /**
+     * Save a topology right away, pending edits of the topology are replaced.
+     *
+     * @param topology The topology to save.
+     */
     public void save(Topology topology) {
-        topology.setLastUpdateDate(new Date());
-        this.alienDAO.save(topology);
+        topologyEditSessionService.save(topology);
+    }
+
+    /**
+     * Record an edit of a topology. The topology is kept in its edit session and persisted asynchronously, use {@link #flush(String)} when the topology must
+     * be persisted right away.
+     *
+     * @param topology The edited topology.
+     */
+    public void update(Topology topology) {
+        topologyEditSessionService.update(topology);
+    }
+
+    /**
+     * Record an edit of a topology that changed the given elements only, see {@link #update(Topology)}.
+     *
+     * @param topology The edited topology.
+     * @param changes The elements of the topology changed by the edit.
+     */
+    public void update(Topology topology, TopologyChanges changes) {
+        topologyEditSessionService.update(topology, changes);
+    }
+
+    /**
+     * Persist the pending edits of a topology if any.
+     *
+     * @param topologyId The id of the topology to persist.
+     */
+    public void flush(String topologyId) {
+        topologyEditSessionService.flush(topologyId);
+    }
+
+    /**
+     * Get the changes of a topology between two of its versions.
+     *
+     * @param topologyId The id of the topology.
+     * @param from The last update date of the first version.
+     * @param to The last update date of the second version.
+     * @return The changes between the two versions or null if they have not been tracked.
+     */
+    public TopologyChanges getChanges(String topologyId, Date from, Date to) {
+        return topologyEditSessionService.getChanges(topologyId, from, to);
+    }
+
+    /**
+     * Delete a topology, pending edits are discarded.
+     *
+     * @param topologyId The id of the topology to delete.
+     */
+    public void delete(String topologyId) {
+        topologyEditSessionService.discard(topologyId);
+        alienDAO.delete(Topology.class, topologyId);
     }
 
     public void updateSubstitutionType(final Topology topology) {
@@ -3,17 +3,45 @@ package alien4cloud.topology;
 import alien4cloud.application.ApplicationService;
 import alien4cloud.common.MetaPropertiesService;
 import alien4cloud.common.TagService;
+import alien4cloud.component.ICSARRepositorySearchService;
+import alien4cloud.model.components.IndexedCapabilityType;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.IndexedRelationshipType;
+import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.model.topology.Capability;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.RelationshipTemplate;
 import alien4cloud.model.topology.Topology;
 import alien4cloud.paas.wf.WorkflowsBuilderService;
 import alien4cloud.topology.task.*;
 import alien4cloud.topology.validation.*;
 import alien4cloud.utils.services.ConstraintPropertyService;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @Slf4j
@@ -39,6 +67,39 @@ public class TopologyValidationService {
     private NodeFilterValidationService nodeFilterValidationService;
     @Resource
     private WorkflowsBuilderService workflowBuilderService;
+    @Resource
+    private ICSARRepositorySearchService csarRepoSearchService;
+    @Autowired(required = false)
+    private MetricRegistry metricRegistry;
+
+    /** Number of threads used to run the validations of a topology concurrently, 0 to run the validations sequentially in the caller thread. */
+    @Value("${topology.validation.threadpool_size:4}")
+    private int threadPoolSize;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        if (threadPoolSize <= 0) {
+            executor = MoreExecutors.sameThreadExecutor();
+            return;
+        }
+        executor = Executors.newFixedThreadPool(threadPoolSize, new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "topology-validation-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
 
     /**
      * Validate if a topology is valid for deployment configuration or not,
@@ -47,18 +108,33 @@ public class TopologyValidationService {
      * @param topology topology to be validated
      * @return the validation result
      */
-    public TopologyValidationResult validateTopology(Topology topology) {
+    public TopologyValidationResult validateTopology(final Topology topology) {
         TopologyValidationResult dto = new TopologyValidationResult();
         if (topology.getNodeTemplates() == null || topology.getNodeTemplates().size() < 1) {
             dto.setValid(false);
             return dto;
         }
 
-        // validate the workflows
-        dto.addTasks(workflowBuilderService.validateWorkflows(topology));
+        // resolve all the types of the topology at once, the validations then get them from the elements cache
+        prefetchTypes(topology);
 
+        // validations are independent (only the workflow validation updates the topology, its workflows errors) so they run concurrently, tasks are
+        // merged in the validations order.
+        List<Future<List<? extends AbstractTask>>> validations = Lists.newArrayList();
+        // validate the workflows
+        validations.add(submit("workflows", new Callable<List<? extends AbstractTask>>() {
+            @Override
+            public List<? extends AbstractTask> call() {
+                return workflowBuilderService.validateWorkflows(topology);
+            }
+        }));
         // validate abstract relationships
-        dto.addTasks(topologyAbstractRelationshipValidationService.validateAbstractRelationships(topology));
+        validations.add(submit("abstract-relationships", new Callable<List<? extends AbstractTask>>() {
+            @Override
+            public List<? extends AbstractTask> call() {
+                return topologyAbstractRelationshipValidationService.validateAbstractRelationships(topology);
+            }
+        }));
 
         // validate abstract node types and find suggestions
         // in this step, this is a warning, since they can be replaced by nodes comming from the location
@@ -66,13 +142,32 @@ public class TopologyValidationService {
         // dto.addToWarningList(topologyAbstractNodeValidationService.findReplacementForAbstracts(topology));
 
         // validate requirements lowerBounds
-        dto.addTasks(topologyRequirementBoundsValidationServices.validateRequirementsLowerBounds(topology));
-
+        validations.add(submit("requirements-lower-bounds", new Callable<List<? extends AbstractTask>>() {
+            @Override
+            public List<? extends AbstractTask> call() {
+                return topologyRequirementBoundsValidationServices.validateRequirementsLowerBounds(topology);
+            }
+        }));
         // validate the node filters for all relationships
-        dto.addTasks(nodeFilterValidationService.validateRequirementFilters(topology));
-
+        validations.add(submit("node-filters", new Callable<List<? extends AbstractTask>>() {
+            @Override
+            public List<? extends AbstractTask> call() {
+                return nodeFilterValidationService.validateRequirementFilters(topology);
+            }
+        }));
         // validate required properties (properties of NodeTemplate, Relationship and Capability)
-        List<PropertiesTask> validateProperties = topologyPropertiesValidationService.validateStaticProperties(topology);
+        Future<List<? extends AbstractTask>> propertiesValidation = submit("properties", new Callable<List<? extends AbstractTask>>() {
+            @Override
+            public List<? extends AbstractTask> call() {
+                return topologyPropertiesValidationService.validateStaticProperties(topology);
+            }
+        });
+
+        for (Future<List<? extends AbstractTask>> validation : validations) {
+            dto.addTasks(getTasks(validation));
+        }
+        @SuppressWarnings("unchecked")
+        List<PropertiesTask> validateProperties = (List<PropertiesTask>) getTasks(propertiesValidation);
 
         // List<PropertiesTask> validateProperties = null;
         if (hasOnlyPropertiesWarnings(validateProperties)) {
@@ -86,6 +181,66 @@ public class TopologyValidationService {
         return dto;
     }
 
+    private Future<List<? extends AbstractTask>> submit(String validationName, final Callable<List<? extends AbstractTask>> validation) {
+        final Timer timer = metricRegistry == null ? null : metricRegistry.timer(MetricRegistry.name(TopologyValidationService.class, validationName));
+        return executor.submit(new Callable<List<? extends AbstractTask>>() {
+            @Override
+            public List<? extends AbstractTask> call() throws Exception {
+                if (timer == null) {
+                    return validation.call();
+                }
+                Timer.Context context = timer.time();
+                try {
+                    return validation.call();
+                } finally {
+                    context.stop();
+                }
+            }
+        });
+    }
+
+    private List<? extends AbstractTask> getTasks(Future<List<? extends AbstractTask>> validation) {
+        try {
+            return validation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating topology.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to validate topology.", e.getCause());
+        }
+    }
+
+    /**
+     * Resolve the node, relationship and capability types of a topology in a single request so they are cached for the validations.
+     */
+    private void prefetchTypes(Topology topology) {
+        Set<String> nodeTypes = Sets.newHashSet();
+        Set<String> relationshipTypes = Sets.newHashSet();
+        Set<String> capabilityTypes = Sets.newHashSet();
+        for (NodeTemplate nodeTemplate : topology.getNodeTemplates().values()) {
+            nodeTypes.add(nodeTemplate.getType());
+            if (nodeTemplate.getRelationships() != null) {
+                for (RelationshipTemplate relationshipTemplate : nodeTemplate.getRelationships().values()) {
+                    relationshipTypes.add(relationshipTemplate.getType());
+                }
+            }
+            if (nodeTemplate.getCapabilities() != null) {
+                for (Capability capability : nodeTemplate.getCapabilities().values()) {
+                    capabilityTypes.add(capability.getType());
+                }
+            }
+        }
+        Map<Class<? extends IndexedToscaElement>, Collection<String>> types = Maps.newHashMap();
+        types.put(IndexedNodeType.class, nodeTypes);
+        types.put(IndexedRelationshipType.class, relationshipTypes);
+        types.put(IndexedCapabilityType.class, capabilityTypes);
+        // missing types are not reported here but by the validations
+        csarRepoSearchService.getElementsInDependencies(types, topology.getDependencies());
+    }
+
     public static boolean hasOnlyPropertiesWarnings(List<PropertiesTask> properties) {
         if (properties == null) {
             return true;
@@ -63,8 +63,20 @@ public class ArchiveImageLoader {
         Path iconPath = null;
 
         try {
-            csarFS = FileSystems.newFileSystem(archiveFile, null);
-            iconPath = csarFS.getPath(iconTag.getValue());
+            Path archiveRootPath;
+            if (Files.isDirectory(archiveFile)) {
+                // archives imported from a directory are not zipped
+                archiveRootPath = archiveFile.normalize();
+            } else {
+                csarFS = FileSystems.newFileSystem(archiveFile, null);
+                archiveRootPath = csarFS.getPath(csarFS.getSeparator());
+            }
+            iconPath = archiveRootPath.resolve(iconTag.getValue().replaceFirst("^/+", "")).normalize();
+            if (!iconPath.startsWith(archiveRootPath)) {
+                parsingErrors.add(new ParsingError(ParsingErrorLevel.WARNING, ErrorCode.MISSING_FILE, "Icon loading", null, "Icon path <" + iconTag.getValue()
+                        + "> is outside of the archive", null, iconTag.getValue()));
+                return;
+            }
             if (!Files.isDirectory(iconPath)) {
                 String iconId = UUID.randomUUID().toString();
                 // Saving the image
@@ -21,12 +21,15 @@ import alien4cloud.tosca.parser.ParsingErrorLevel;
 import alien4cloud.tosca.parser.ToscaParsingUtil;
 import alien4cloud.tosca.parser.impl.ErrorCode;
 import alien4cloud.utils.VersionUtil;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Component
 public class ArchiveIndexer {
@@ -178,16 +181,33 @@ public class ArchiveIndexer {
     }
 
     private void performIndexing(String archiveName, String archiveVersion, ArchiveRoot root) {
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getArtifactTypes(), root.getArchive().getDependencies());
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getCapabilityTypes(), root.getArchive().getDependencies());
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getNodeTypes(), root.getArchive().getDependencies());
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getRelationshipTypes(), root.getArchive().getDependencies());
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getDataTypes(), root.getArchive().getDependencies());
+        // elements of the local imports are indexed with the root elements so parents are resolved across them
+        List<IndexedInheritableToscaElement> archiveElements = Lists.newArrayList();
+        Set<CSARDependency> dependencies = Sets.newLinkedHashSet();
+        collectElements(root, archiveElements, dependencies);
+        indexerService.indexArchiveElements(archiveName, archiveVersion, archiveElements, dependencies);
+    }
+
+    private void collectElements(ArchiveRoot root, List<IndexedInheritableToscaElement> archiveElements, Set<CSARDependency> dependencies) {
+        if (root.getArchive().getDependencies() != null) {
+            dependencies.addAll(root.getArchive().getDependencies());
+        }
+        addElements(root.getArtifactTypes(), archiveElements);
+        addElements(root.getCapabilityTypes(), archiveElements);
+        addElements(root.getNodeTypes(), archiveElements);
+        addElements(root.getRelationshipTypes(), archiveElements);
+        addElements(root.getDataTypes(), archiveElements);
 
         if (root.getLocalImports() != null) {
             for (ArchiveRoot child : root.getLocalImports()) {
-                performIndexing(archiveName, archiveVersion, child);
+                collectElements(child, archiveElements, dependencies);
             }
         }
     }
+
+    private void addElements(Map<String, ? extends IndexedInheritableToscaElement> elements, List<IndexedInheritableToscaElement> archiveElements) {
+        if (elements != null) {
+            archiveElements.addAll(elements.values());
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,272 @@
+package alien4cloud.tosca;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.csar.services.CsarService;
+import alien4cloud.dao.ElasticSearchMapper;
+import alien4cloud.dao.model.FetchContext;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.Csar;
+import alien4cloud.tosca.model.ArchiveRoot;
+import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.tosca.parser.ToscaParser;
+import alien4cloud.utils.FileUtil;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Size-bounded cache of the archives parsing results keyed by the digest of the archive content and the version of the parser mappings.
+ *
+ * As the parsing resolves the types of the archive dependencies, a result is also bound to the hashes of the dependencies it has been parsed against and is
+ * not served anymore once a dependency has been imported, changed or deleted. Results are kept serialized so every reader gets its own instance and results
+ * evicted from memory are spilled in the work directory so they can be reused without parsing the archive again. Spilled results are bound to the version of
+ * the mappings and the spill directory is bounded in size, the oldest results being removed first.
+ */
+@Slf4j
+@Component
+public class ArchiveParseCache {
+    private static final String SPILL_DIRECTORY = "parsing-cache";
+    private static final String TMP_EXTENSION = ".tmp";
+    private static final TypeReference<ParsingResult<ArchiveRoot>> PARSING_RESULT_TYPE = new TypeReference<ParsingResult<ArchiveRoot>>() {
+    };
+
+    private final ObjectMapper mapper = ElasticSearchMapper.getInstance().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Resource
+    private ToscaParser toscaParser;
+    @Resource
+    private CsarService csarService;
+
+    /** Maximum number of parsing results kept in memory. */
+    @Value("${archive.parse_cache.max_size:32}")
+    private long maxSize;
+    /** Maximum size in megabytes of the parsing results spilled on disk. */
+    @Value("${archive.parse_cache.spill_max_size_mb:256}")
+    private long spillMaxSizeMb;
+    private Path spillRootPath;
+    private Path spillPath;
+
+    private Cache<String, CachedResult> cache;
+
+    @Required
+    @Value("${directories.alien}/${directories.upload_temp}")
+    public void setSpillRootPath(String workPath) throws IOException {
+        this.spillRootPath = FileUtil.createDirectoryIfNotExists(workPath + "/" + SPILL_DIRECTORY);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        // results spilled with other mappings cannot be served anymore
+        spillPath = spillRootPath.resolve(toscaParser.getMappingVersion());
+        try (DirectoryStream<Path> spillDirectories = Files.newDirectoryStream(spillRootPath)) {
+            for (Path spillDirectory : spillDirectories) {
+                if (!spillDirectory.equals(spillPath)) {
+                    FileUtil.delete(spillDirectory);
+                }
+            }
+        }
+        Files.createDirectories(spillPath);
+        trimSpillDirectory();
+        cache = CacheBuilder.newBuilder().maximumSize(maxSize).removalListener(new RemovalListener<String, CachedResult>() {
+            @Override
+            public void onRemoval(RemovalNotification<String, CachedResult> notification) {
+                if (RemovalCause.SIZE.equals(notification.getCause())) {
+                    spill(notification.getKey(), notification.getValue());
+                }
+            }
+        }).build();
+    }
+
+    /**
+     * Get the parsing result of an archive if it has already been parsed with the current mappings and against the current state of its dependencies.
+     *
+     * @param archiveDigest The digest of the content of the archive.
+     * @return A new instance of the parsing result or null if the archive has to be parsed.
+     */
+    public ParsingResult<ArchiveRoot> get(String archiveDigest) {
+        CachedResult cached = cache.getIfPresent(archiveDigest);
+        if (cached == null) {
+            cached = unspill(archiveDigest);
+            if (cached == null) {
+                return null;
+            }
+            cache.put(archiveDigest, cached);
+        }
+        ParsingResult<ArchiveRoot> parsingResult;
+        try {
+            parsingResult = mapper.readValue(cached.content, PARSING_RESULT_TYPE);
+        } catch (IOException e) {
+            log.warn("Failed to read cached parsing result of archive <" + archiveDigest + ">, archive will be parsed again.", e);
+            cache.invalidate(archiveDigest);
+            return null;
+        }
+        if (!cached.dependenciesHash.equals(getDependenciesHash(parsingResult.getResult().getArchive().getDependencies()))) {
+            // a dependency changed since the archive has been parsed, the result is replaced once parsed again
+            return null;
+        }
+        return parsingResult;
+    }
+
+    /**
+     * Cache the parsing result of an archive and set the hash of the parsed archive.
+     *
+     * @param archiveDigest The digest of the content of the archive.
+     * @param parsingResult The parsing result of the archive, a copy of the result is cached.
+     */
+    public void put(String archiveDigest, ParsingResult<ArchiveRoot> parsingResult) {
+        Csar archive = parsingResult.getResult().getArchive();
+        String dependenciesHash = getDependenciesHash(archive.getDependencies());
+        archive.setHash(Hashing.sha1().newHasher().putString(archiveDigest, Charsets.UTF_8).putString(dependenciesHash, Charsets.UTF_8).hash().toString());
+        try {
+            cache.put(archiveDigest, new CachedResult(dependenciesHash, mapper.writeValueAsBytes(parsingResult)));
+        } catch (IOException e) {
+            log.warn("Failed to cache parsing result of archive <" + archiveDigest + ">.", e);
+        }
+    }
+
+    private String getDependenciesHash(Set<CSARDependency> dependencies) {
+        if (dependencies == null || dependencies.isEmpty()) {
+            return "";
+        }
+        List<String> dependencyIds = Lists.newArrayList();
+        for (CSARDependency dependency : dependencies) {
+            dependencyIds.add(dependency.getName() + ":" + dependency.getVersion());
+        }
+        Collections.sort(dependencyIds);
+        Map<String, Csar> csars = csarService.findByIds(FetchContext.SUMMARY, dependencyIds.toArray(new String[dependencyIds.size()]));
+        List<String> dependencyHashes = Lists.newArrayList();
+        for (String dependencyId : dependencyIds) {
+            Csar csar = csars.get(dependencyId);
+            dependencyHashes.add(dependencyId + "=" + (csar == null ? "-" : csar.getHash()));
+        }
+        return Joiner.on(',').join(dependencyHashes);
+    }
+
+    private void spill(String archiveDigest, CachedResult cached) {
+        Path spillFile = spillPath.resolve(archiveDigest);
+        Path tmpSpillFile = spillPath.resolve(archiveDigest + TMP_EXTENSION);
+        try {
+            try (OutputStream output = Files.newOutputStream(tmpSpillFile)) {
+                DataOutputStream dataOutput = new DataOutputStream(output);
+                dataOutput.writeUTF(cached.dependenciesHash);
+                dataOutput.write(cached.content);
+                dataOutput.flush();
+            }
+            Files.move(tmpSpillFile, spillFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            trimSpillDirectory();
+        } catch (IOException e) {
+            log.warn("Failed to spill parsing result of archive <" + archiveDigest + "> in the work directory.", e);
+        }
+    }
+
+    /**
+     * Remove the oldest spilled results until the spill directory fits its maximum size, leftovers of interrupted spills are removed too.
+     */
+    private synchronized void trimSpillDirectory() throws IOException {
+        List<Path> spillFiles = Lists.newArrayList();
+        final Map<Path, Long> lastModifiedTimes = Maps.newHashMap();
+        long spillSize = 0;
+        try (DirectoryStream<Path> spillDirectory = Files.newDirectoryStream(spillPath)) {
+            for (Path spillFile : spillDirectory) {
+                if (spillFile.getFileName().toString().endsWith(TMP_EXTENSION)) {
+                    if (Files.getLastModifiedTime(spillFile).toMillis() < System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)) {
+                        Files.deleteIfExists(spillFile);
+                    }
+                    continue;
+                }
+                spillFiles.add(spillFile);
+                lastModifiedTimes.put(spillFile, Files.getLastModifiedTime(spillFile).toMillis());
+                spillSize += Files.size(spillFile);
+            }
+        } catch (NoSuchFileException e) {
+            // a spilled result has been concurrently loaded back in memory
+            return;
+        }
+        Collections.sort(spillFiles, new Comparator<Path>() {
+            @Override
+            public int compare(Path left, Path right) {
+                return lastModifiedTimes.get(left).compareTo(lastModifiedTimes.get(right));
+            }
+        });
+        long spillMaxSize = spillMaxSizeMb * 1024 * 1024;
+        for (int i = 0; i < spillFiles.size() && spillSize > spillMaxSize; i++) {
+            try {
+                long spillFileSize = Files.size(spillFiles.get(i));
+                Files.delete(spillFiles.get(i));
+                spillSize -= spillFileSize;
+            } catch (NoSuchFileException e) {
+                // concurrently loaded back in memory
+            }
+        }
+    }
+
+    private CachedResult unspill(String archiveDigest) {
+        Path spillFile = spillPath.resolve(archiveDigest);
+        if (!Files.exists(spillFile)) {
+            return null;
+        }
+        try {
+            CachedResult cached;
+            try (InputStream input = Files.newInputStream(spillFile)) {
+                DataInputStream dataInput = new DataInputStream(input);
+                cached = new CachedResult(dataInput.readUTF(), ByteStreams.toByteArray(dataInput));
+            }
+            // the result is back in memory, it is spilled again when evicted
+            Files.delete(spillFile);
+            return cached;
+        } catch (NoSuchFileException e) {
+            // concurrently loaded back in memory
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to read spilled parsing result of archive <" + archiveDigest + ">.", e);
+            return null;
+        }
+    }
+
+    private static class CachedResult {
+        private final String dependenciesHash;
+        private final byte[] content;
+
+        private CachedResult(String dependenciesHash, byte[] content) {
+            this.dependenciesHash = dependenciesHash;
+            this.content = content;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import alien4cloud.tosca.parser.mapping.CsarMetaMapping;
 import alien4cloud.tosca.parser.mapping.ToscaMetaMapping;
 import alien4cloud.utils.FileUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
@@ -18,7 +19,6 @@ import javax.validation.Validator;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.EnumSet;
-import java.util.List;
 
 @Slf4j
 @Component
@@ -40,15 +40,43 @@ public class ArchiveParser {
     private Validator validator;
     @Inject
     private ArchivePostProcessor postProcessor;
+    /** Optional so the parser can be used without cache (tests, benchmarks). */
+    @Autowired(required = false)
+    private ArchiveParseCache parseCache;
 
     /**
-     * Parse an archive file from a zip.
+     * Parse an archive file from a zip or from a directory.
      *
-     * @param archiveFile The archive file currently zipped.
+     * @param archiveFile The archive file currently zipped or the directory which contains the archive.
      * @return A parsing result that contains the Archive Root and eventual errors and/or warnings.
      * @throws ParsingException
      */
     public ParsingResult<ArchiveRoot> parse(Path archiveFile) throws ParsingException {
+        if (parseCache == null) {
+            return doParse(archiveFile);
+        }
+        String archiveDigest;
+        try {
+            archiveDigest = FileUtil.digest(archiveFile);
+        } catch (IOException e) {
+            log.error("Unable to read uploaded archive [" + archiveFile + "]", e);
+            throw new ParsingException("Archive",
+                    new ParsingError(ErrorCode.FAILED_TO_READ_FILE, "Problem happened while accessing file", null, null, null, archiveFile.toString()));
+        }
+        // an archive pre-parsed to get its dependencies is not parsed again when imported
+        ParsingResult<ArchiveRoot> parsingResult = parseCache.get(archiveDigest);
+        if (parsingResult == null) {
+            parsingResult = doParse(archiveFile);
+            parseCache.put(archiveDigest, parsingResult);
+        }
+        return parsingResult;
+    }
+
+    private ParsingResult<ArchiveRoot> doParse(Path archiveFile) throws ParsingException {
+        if (Files.isDirectory(archiveFile)) {
+            // archives checked out from a repository are parsed in place rather than zipped then read from the zip
+            return parseDir(archiveFile);
+        }
         FileSystem csarFS;
         try {
             csarFS = FileSystems.newFileSystem(archiveFile, null);
@@ -61,17 +89,9 @@ public class ArchiveParser {
             throw new ParsingException("Archive", new ParsingError(ErrorCode.ERRONEOUS_ARCHIVE_FILE, "File is not in good format, only zip file is supported ",
                     null, e.getMessage(), null, null));
         }
-
-        if (Files.exists(csarFS.getPath(TOSCA_META_FILE_LOCATION))) {
-            return postProcess(parseFromToscaMeta(csarFS));
-        } else if (Files.exists(csarFS.getPath(ALIEN_META_FILE_LOCATION))) {
-            return postProcess(parseFromAlienMeta(csarFS));
-        }
-        return postProcess(parseFromRootDefinitions(csarFS));
+        return parseRoot(csarFS.getPath(csarFS.getSeparator()));
     }
 
-    // TODO Find a proper way to refactor avoid code duplication with parsing methods from file system
-
     /**
      * Parse an archive from a directory, it's very convenient for internal use and test
      *
@@ -80,11 +100,28 @@ public class ArchiveParser {
      * @throws ParsingException
      */
     public ParsingResult<ArchiveRoot> parseDir(Path archiveDir) throws ParsingException {
-        Path toscaMetaFile = archiveDir.resolve(TOSCA_META_FILE_LOCATION);
-        if (Files.exists(toscaMetaFile)) {
-            return postProcess(parseFromToscaMeta(archiveDir));
+        return parseRoot(archiveDir);
+    }
+
+    /**
+     * Parse an archive from its root path, the root of a zip file system or a directory.
+     */
+    private ParsingResult<ArchiveRoot> parseRoot(Path csarPath) throws ParsingException {
+        if (Files.exists(getToscaMetaPath(csarPath))) {
+            return postProcess(parseFromToscaMeta(csarPath));
+        } else if (Files.exists(getAlienMetaPath(csarPath))) {
+            return postProcess(parseFromAlienMeta(csarPath));
         }
-        return postProcess(parseFromRootDefinitions(archiveDir));
+        return postProcess(parseFromRootDefinitions(csarPath));
+    }
+
+    private Path getToscaMetaPath(Path csarPath) {
+        return csarPath.resolve(TOSCA_META_FOLDER_NAME).resolve("TOSCA.meta");
+    }
+
+    @Deprecated
+    private Path getAlienMetaPath(Path csarPath) {
+        return csarPath.resolve(TOSCA_META_FOLDER_NAME).resolve("ALIEN-META.yaml");
     }
 
     private ParsingResult<ArchiveRoot> postProcess(ParsingResult<ArchiveRoot> parsingResult) {
@@ -93,10 +130,10 @@ public class ArchiveParser {
     }
 
     @Deprecated
-    private ParsingResult<ArchiveRoot> parseFromAlienMeta(FileSystem csarFS) throws ParsingException {
+    private ParsingResult<ArchiveRoot> parseFromAlienMeta(Path csarPath) throws ParsingException {
         // add deprecated warning.
         YamlSimpleParser<ToscaMeta> parser = new YamlSimpleParser<ToscaMeta>(new ValidatedNodeParser<ToscaMeta>(validator, csarMetaMapping.getParser()));
-        ParsingResult<ToscaMeta> parsingResult = parser.parseFile(csarFS.getPath(ALIEN_META_FILE_LOCATION));
+        ParsingResult<ToscaMeta> parsingResult = parser.parseFile(getAlienMetaPath(csarPath));
         if (parsingResult.getResult().getEntryDefinitions() == null && parsingResult.getResult().getDefinitions().size() == 1) {
             parsingResult.getResult().setEntryDefinitions(parsingResult.getResult().getDefinitions().get(0));
         } else if (parsingResult.getResult().getDefinitions().size() > 1) {
@@ -108,24 +145,17 @@ public class ArchiveParser {
         Csar csar = new Csar();
         csar.setDependencies(parsingResult.getResult().getDependencies());
         archiveRoot.setArchive(csar);
-        ParsingResult<ArchiveRoot> archiveResult = parseFromToscaMeta(csarFS, parsingResult.getResult(), ALIEN_META_FILE_LOCATION, archiveRoot);
+        ParsingResult<ArchiveRoot> archiveResult = parseFromToscaMeta(csarPath, parsingResult.getResult(), ALIEN_META_FILE_LOCATION, archiveRoot);
         return mergeWithToscaMeta(archiveResult, parsingResult);
     }
 
     private ParsingResult<ArchiveRoot> parseFromToscaMeta(Path csarPath) throws ParsingException {
         YamlSimpleParser<ToscaMeta> parser = new YamlSimpleParser<ToscaMeta>(toscaMetaMapping.getParser());
-        ParsingResult<ToscaMeta> parsingResult = parser.parseFile(csarPath.resolve(TOSCA_META_FILE_LOCATION));
+        ParsingResult<ToscaMeta> parsingResult = parser.parseFile(getToscaMetaPath(csarPath));
         ParsingResult<ArchiveRoot> archiveResult = parseFromToscaMeta(csarPath, parsingResult.getResult(), TOSCA_META_FILE_LOCATION, null);
         return mergeWithToscaMeta(archiveResult, parsingResult);
     }
 
-    private ParsingResult<ArchiveRoot> parseFromToscaMeta(FileSystem csarFS) throws ParsingException {
-        YamlSimpleParser<ToscaMeta> parser = new YamlSimpleParser<ToscaMeta>(toscaMetaMapping.getParser());
-        ParsingResult<ToscaMeta> parsingResult = parser.parseFile(csarFS.getPath(TOSCA_META_FILE_LOCATION));
-        ParsingResult<ArchiveRoot> archiveResult = parseFromToscaMeta(csarFS, parsingResult.getResult(), TOSCA_META_FILE_LOCATION, null);
-        return mergeWithToscaMeta(archiveResult, parsingResult);
-    }
-
     private ParsingResult<ArchiveRoot> mergeWithToscaMeta(ParsingResult<ArchiveRoot> archiveResult, ParsingResult<ToscaMeta> toscaResult) {
         archiveResult.getResult().getArchive().setName(toscaResult.getResult().getName());
         archiveResult.getResult().getArchive().setVersion(toscaResult.getResult().getVersion());
@@ -138,16 +168,12 @@ public class ArchiveParser {
     private ParsingResult<ArchiveRoot> parseFromToscaMeta(Path csarPath, ToscaMeta toscaMeta, String metaFileName, ArchiveRoot instance)
             throws ParsingException {
         if (toscaMeta.getEntryDefinitions() != null) {
-            return toscaParser.parseFile(csarPath.resolve(toscaMeta.getEntryDefinitions()), instance);
-        }
-        throw new ParsingException(metaFileName,
-                new ParsingError(ErrorCode.ENTRY_DEFINITION_NOT_FOUND, "No entry definitions found in the meta file.", null, null, null, null));
-    }
-
-    private ParsingResult<ArchiveRoot> parseFromToscaMeta(FileSystem csarFS, ToscaMeta toscaMeta, String metaFileName, ArchiveRoot instance)
-            throws ParsingException {
-        if (toscaMeta.getEntryDefinitions() != null) {
-            return toscaParser.parseFile(csarFS.getPath(toscaMeta.getEntryDefinitions()), instance);
+            Path entryDefinitionsPath = csarPath.resolve(toscaMeta.getEntryDefinitions().replaceFirst("^/+", "")).normalize();
+            if (!entryDefinitionsPath.startsWith(csarPath.normalize())) {
+                throw new ParsingException(metaFileName, new ParsingError(ErrorCode.ENTRY_DEFINITION_NOT_FOUND,
+                        "Entry definitions must be located inside the archive.", null, null, null, toscaMeta.getEntryDefinitions()));
+            }
+            return toscaParser.parseFile(entryDefinitionsPath, instance);
         }
         throw new ParsingException(metaFileName,
                 new ParsingError(ErrorCode.ENTRY_DEFINITION_NOT_FOUND, "No entry definitions found in the meta file.", null, null, null, null));
@@ -156,31 +182,17 @@ public class ArchiveParser {
     private ParsingResult<ArchiveRoot> parseFromRootDefinitions(Path csarPath) throws ParsingException {
         // load definitions from the archive root
         try {
-            List<Path> yamls = FileUtil.listFiles(csarPath, ".+\\.ya?ml");
-            if (yamls.size() == 1) {
-                return toscaParser.parseFile(yamls.get(0));
-            }
-            throw new ParsingException("Archive", new ParsingError(ErrorCode.SINGLE_DEFINITION_SUPPORTED,
-                    "Alien only supports archives with a single root definition.", null, null, null, String.valueOf(yamls.size())));
-        } catch (IOException e) {
-            throw new ParsingException("Archive", new ParsingError(ErrorCode.FAILED_TO_READ_FILE, "Failed to list root definitions", null, null, null, null));
-        }
-    }
-
-    private ParsingResult<ArchiveRoot> parseFromRootDefinitions(FileSystem csarFS) throws ParsingException {
-        // load definitions from the archive root
-        try {
-            DefinitionVisitor visitor = new DefinitionVisitor(csarFS);
-            Files.walkFileTree(csarFS.getPath(csarFS.getSeparator()), EnumSet.noneOf(FileVisitOption.class), 1, visitor);
+            DefinitionVisitor visitor = new DefinitionVisitor(csarPath.getFileSystem());
+            Files.walkFileTree(csarPath, EnumSet.noneOf(FileVisitOption.class), 1, visitor);
             if (visitor.getDefinitionFiles().size() == 1) {
                 return toscaParser.parseFile(visitor.getDefinitionFiles().get(0));
             }
             throw new ParsingException("Archive", new ParsingError(ErrorCode.SINGLE_DEFINITION_SUPPORTED,
                     "Alien only supports archives with a single root definition.", null, null, null,
-                    "Matching file count in root of " + csarFS + ": " + visitor.getDefinitionFiles().size()));
+                    "Matching file count in root of " + csarPath + ": " + visitor.getDefinitionFiles().size()));
         } catch (IOException e) {
             throw new ParsingException("Archive", new ParsingError(ErrorCode.FAILED_TO_READ_FILE, "Failed to list root definitions", null, null, null,
-                    "Error reading " + csarFS + ": " + e));
+                    "Error reading " + csarPath + ": " + e));
         }
     }
-}
\ No newline at end of file
+}
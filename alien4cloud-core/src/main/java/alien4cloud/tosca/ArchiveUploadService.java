@@ -87,21 +87,32 @@ public class ArchiveUploadService {
     public List<CsarDependenciesBean> preParsing(Set<Path> paths) throws ParsingException {
         List<CsarDependenciesBean> listCsarDependenciesBean = new ArrayList<CsarDependenciesBean>();
         for (Path path : paths) {
-            CsarDependenciesBean csarDepContainer = new CsarDependenciesBean();
-            ParsingResult<ArchiveRoot> parsingResult = parser.parse(path);
-            csarDepContainer.setName(parsingResult.getResult().getArchive().getName());
-            csarDepContainer.setVersion(parsingResult.getResult().getArchive().getVersion());
-            csarDepContainer.setPath(path);
-            if (parsingResult.getResult().getArchive().getDependencies() != null) {
-                if (!parsingResult.getResult().getArchive().getDependencies().isEmpty() || parsingResult.getResult().getArchive().getDependencies() != null) {
-                    csarDepContainer.setDependencies(parsingResult.getResult().getArchive().getDependencies());
-                }
-            }
-            listCsarDependenciesBean.add(csarDepContainer);
+            listCsarDependenciesBean.add(preParsing(path));
         }
         return listCsarDependenciesBean;
     }
 
+    /**
+     * Parse an archive to get its name, version and dependencies.
+     *
+     * @param path The archive path.
+     * @return The dependencies of the archive.
+     * @throws ParsingException
+     */
+    public CsarDependenciesBean preParsing(Path path) throws ParsingException {
+        CsarDependenciesBean csarDepContainer = new CsarDependenciesBean();
+        ParsingResult<ArchiveRoot> parsingResult = parser.parse(path);
+        csarDepContainer.setName(parsingResult.getResult().getArchive().getName());
+        csarDepContainer.setVersion(parsingResult.getResult().getArchive().getVersion());
+        csarDepContainer.setPath(path);
+        if (parsingResult.getResult().getArchive().getDependencies() != null) {
+            if (!parsingResult.getResult().getArchive().getDependencies().isEmpty() || parsingResult.getResult().getArchive().getDependencies() != null) {
+                csarDepContainer.setDependencies(parsingResult.getResult().getArchive().getDependencies());
+            }
+        }
+        return csarDepContainer;
+    }
+
     /**
      * Create a simple result without all the parsed data but just the {@link Csar} object as well as the eventual errors.
      * 
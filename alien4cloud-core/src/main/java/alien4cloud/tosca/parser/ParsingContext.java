@@ -12,6 +12,8 @@ import com.google.common.collect.Lists;
 public class ParsingContext {
     private String fileName;
     private List<ParsingError> parsingErrors = Lists.newArrayList();
+    /** Time in milliseconds spent to parse and index the archive when imported along with other archives. */
+    private Long importDuration;
 
     // TODO manage sub archives
     /** If parsing triggers parsing of other related yaml files. */
@@ -1,11 +1,16 @@
 package alien4cloud.tosca.parser;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
+import lombok.Getter;
+
+import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 import org.yaml.snakeyaml.error.Mark;
 import org.yaml.snakeyaml.nodes.MappingNode;
@@ -17,7 +22,11 @@ import alien4cloud.tosca.model.ArchiveRoot;
 import alien4cloud.tosca.parser.impl.ErrorCode;
 import alien4cloud.tosca.parser.mapping.generator.MappingGenerator;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
 
 /**
  * Main entry point for TOSCA template parsing.
@@ -25,18 +34,44 @@ import com.google.common.collect.Maps;
 @Component
 public class ToscaParser extends YamlParser<ArchiveRoot> {
     private static final String DEFINITION_TYPE = "definition";
+    private static final String WD03_MAPPING = "classpath:tosca-simple-profile-wd03-mapping.yml";
+    private static final String ALIEN_DSL_110_MAPPING = "classpath:alien-dsl-1.1.0-mapping.yml";
     private Map<String, Map<String, INodeParser>> parserRegistriesByVersion = Maps.newHashMap();
 
     @Resource
     private MappingGenerator mappingGenerator;
+    @Resource
+    private ApplicationContext applicationContext;
+
+    /** Version of the mappings used to parse definitions, it changes whenever a mapping or the parser implementation changes. */
+    @Getter
+    private String mappingVersion;
 
     @PostConstruct
     public void initialize() throws ParsingException {
+        Hasher mappingHasher = Hashing.sha1().newHasher();
         // initialize type registry for working draft 3.
-        Map<String, INodeParser> registry = mappingGenerator.process("classpath:tosca-simple-profile-wd03-mapping.yml");
+        Map<String, INodeParser> registry = mappingGenerator.process(WD03_MAPPING);
         parserRegistriesByVersion.put("tosca_simple_yaml_1_0_0_wd03", registry);
-        registry = mappingGenerator.process("classpath:alien-dsl-1.1.0-mapping.yml");
+        putMapping(mappingHasher, WD03_MAPPING);
+        registry = mappingGenerator.process(ALIEN_DSL_110_MAPPING);
         parserRegistriesByVersion.put("alien_dsl_1_1_0", registry);
+        putMapping(mappingHasher, ALIEN_DSL_110_MAPPING);
+        String implementationVersion = ToscaParser.class.getPackage().getImplementationVersion();
+        if (implementationVersion != null) {
+            mappingHasher.putString(implementationVersion, Charsets.UTF_8);
+        }
+        mappingVersion = mappingHasher.hash().toString();
+    }
+
+    private void putMapping(Hasher mappingHasher, String resourceLocation) throws ParsingException {
+        org.springframework.core.io.Resource resource = applicationContext.getResource(resourceLocation);
+        try (InputStream input = resource.getInputStream()) {
+            mappingHasher.putBytes(ByteStreams.toByteArray(input));
+        } catch (IOException e) {
+            throw new ParsingException(resource.getFilename(), new ParsingError(ErrorCode.MISSING_FILE, "Unable to load file.", null, e.getMessage(), null,
+                    resourceLocation));
+        }
     }
 
     @Override
@@ -0,0 +1,160 @@
+package alien4cloud.component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.exception.IndexingServiceException;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.model.components.PropertyDefinition;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Test the bulk indexing of the elements of an archive: resolution of the parents in the archive and in its dependencies and update of the highest versions.
+ */
+public class CSARRepositoryIndexerServiceTest {
+    private static final String ARCHIVE_NAME = "java-types";
+    private static final CSARDependency NORMATIVE_TYPES = new CSARDependency("tosca-normative-types", "1.0");
+
+    private IGenericSearchDAO alienDAO;
+    private CSARRepositoryIndexerService indexerService;
+    /** Elements returned by the highest version request. */
+    private List<IndexedNodeType> highestVersionElements = Lists.newArrayList();
+    /** Elements returned by the request of the parents defined in the dependencies. */
+    private List<IndexedNodeType> dependenciesElements = Lists.newArrayList();
+
+    @Before
+    public void before() {
+        alienDAO = Mockito.mock(IGenericSearchDAO.class);
+        Mockito.when(alienDAO.customFindAll(Mockito.eq(IndexedNodeType.class), Mockito.any(QueryBuilder.class))).thenAnswer(
+                new Answer<List<IndexedNodeType>>() {
+                    @Override
+                    public List<IndexedNodeType> answer(InvocationOnMock invocation) {
+                        return invocation.getArguments()[1].toString().contains("highestVersion") ? highestVersionElements : dependenciesElements;
+                    }
+                });
+        indexerService = new CSARRepositoryIndexerService();
+        ReflectionTestUtils.setField(indexerService, "alienDAO", alienDAO);
+    }
+
+    private IndexedNodeType nodeType(String elementId, String archiveName, String archiveVersion, String... derivedFrom) {
+        IndexedNodeType nodeType = new IndexedNodeType();
+        nodeType.setElementId(elementId);
+        nodeType.setArchiveName(archiveName);
+        nodeType.setArchiveVersion(archiveVersion);
+        if (derivedFrom.length > 0) {
+            nodeType.setDerivedFrom(Lists.newArrayList(derivedFrom));
+        }
+        return nodeType;
+    }
+
+    private IndexedNodeType highestVersion(String archiveVersion, String... olderVersions) {
+        IndexedNodeType nodeType = nodeType("alien.nodes.JVM", ARCHIVE_NAME, archiveVersion);
+        nodeType.setHighestVersion(true);
+        if (olderVersions.length > 0) {
+            nodeType.setOlderVersions(Sets.newHashSet(olderVersions));
+        }
+        highestVersionElements.add(nodeType);
+        return nodeType;
+    }
+
+    private List<IndexedToscaElement> index(String archiveVersion, IndexedNodeType... elements) {
+        indexerService.indexArchiveElements(ARCHIVE_NAME, archiveVersion, Arrays.asList(elements), Lists.newArrayList(NORMATIVE_TYPES));
+        ArgumentCaptor<IndexedToscaElement[]> savedElements = ArgumentCaptor.forClass(IndexedToscaElement[].class);
+        Mockito.verify(alienDAO).save(savedElements.capture());
+        return Arrays.asList(savedElements.getValue());
+    }
+
+    @Test
+    public void parentsFromTheArchiveShouldBeMergedBeforeTheirChildren() {
+        IndexedNodeType root = nodeType("alien.nodes.Java", ARCHIVE_NAME, "1.0");
+        Map<String, PropertyDefinition> properties = Maps.newHashMap();
+        properties.put("java_home", new PropertyDefinition());
+        root.setProperties(properties);
+        IndexedNodeType jvm = nodeType("alien.nodes.JVM", ARCHIVE_NAME, "1.0", "alien.nodes.Java");
+        IndexedNodeType tomcat = nodeType("alien.nodes.Tomcat", ARCHIVE_NAME, "1.0", "alien.nodes.JVM");
+
+        // children are given before their parents
+        List<IndexedToscaElement> savedElements = index("1.0", tomcat, jvm, root);
+        Assert.assertEquals(Lists.newArrayList(root, jvm, tomcat), savedElements);
+        Assert.assertEquals(Lists.newArrayList("alien.nodes.JVM", "alien.nodes.Java"), tomcat.getDerivedFrom());
+        Assert.assertTrue(tomcat.getProperties().containsKey("java_home"));
+        Assert.assertTrue(tomcat.isHighestVersion());
+        // no parent has to be found in the dependencies
+        Mockito.verify(alienDAO, Mockito.times(1)).customFindAll(Mockito.eq(IndexedNodeType.class), Mockito.any(QueryBuilder.class));
+    }
+
+    @Test
+    public void parentsFromTheDependenciesShouldBeMerged() {
+        // the element of an archive that is not a dependency is ignored
+        dependenciesElements.add(nodeType("tosca.nodes.SoftwareComponent", "other-types", "1.0", "tosca.nodes.Root"));
+        IndexedNodeType softwareComponent = nodeType("tosca.nodes.SoftwareComponent", NORMATIVE_TYPES.getName(), NORMATIVE_TYPES.getVersion(),
+                "tosca.nodes.Root");
+        Map<String, PropertyDefinition> properties = Maps.newHashMap();
+        properties.put("component_version", new PropertyDefinition());
+        softwareComponent.setProperties(properties);
+        dependenciesElements.add(softwareComponent);
+        IndexedNodeType jvm = nodeType("alien.nodes.JVM", ARCHIVE_NAME, "1.0", "tosca.nodes.SoftwareComponent");
+
+        index("1.0", jvm);
+        Assert.assertEquals(Lists.newArrayList("tosca.nodes.SoftwareComponent", "tosca.nodes.Root"), jvm.getDerivedFrom());
+        Assert.assertTrue(jvm.getProperties().containsKey("component_version"));
+    }
+
+    @Test(expected = IndexingServiceException.class)
+    public void missingParentsShouldFailTheIndexing() {
+        indexerService.indexArchiveElements(ARCHIVE_NAME, "1.0", Lists.newArrayList(nodeType("alien.nodes.JVM", ARCHIVE_NAME, "1.0", "alien.nodes.Missing")),
+                Lists.newArrayList(NORMATIVE_TYPES));
+    }
+
+    @Test
+    public void higherVersionShouldBecomeTheHighestVersion() {
+        IndexedNodeType previousHighestVersion = highestVersion("1.0", "0.9");
+        IndexedNodeType jvm = nodeType("alien.nodes.JVM", ARCHIVE_NAME, "2.0");
+
+        Assert.assertEquals(Lists.newArrayList(previousHighestVersion, jvm), index("2.0", jvm));
+        Assert.assertTrue(jvm.isHighestVersion());
+        Assert.assertEquals(Sets.newHashSet("0.9", "1.0"), jvm.getOlderVersions());
+        Assert.assertFalse(previousHighestVersion.isHighestVersion());
+        Assert.assertNull(previousHighestVersion.getOlderVersions());
+    }
+
+    @Test
+    public void lowerVersionShouldBeAnOlderVersionOfTheHighestVersion() {
+        IndexedNodeType highestVersion = highestVersion("2.0");
+        IndexedNodeType jvm = nodeType("alien.nodes.JVM", ARCHIVE_NAME, "1.0");
+
+        Assert.assertEquals(Lists.newArrayList(highestVersion, jvm), index("1.0", jvm));
+        Assert.assertFalse(jvm.isHighestVersion());
+        Assert.assertTrue(highestVersion.isHighestVersion());
+        Assert.assertEquals(Sets.newHashSet("1.0"), highestVersion.getOlderVersions());
+    }
+
+    @Test
+    public void sameVersionShouldOverrideTheHighestVersion() {
+        highestVersion("1.0", "0.9");
+        IndexedNodeType jvm = nodeType("alien.nodes.JVM", ARCHIVE_NAME, "1.0");
+
+        List<IndexedToscaElement> savedElements = index("1.0", jvm);
+        Assert.assertEquals(1, savedElements.size());
+        Assert.assertSame(jvm, savedElements.get(0));
+        Assert.assertTrue(jvm.isHighestVersion());
+        Assert.assertEquals(Sets.newHashSet("0.9"), jvm.getOlderVersions());
+    }
+}
@@ -0,0 +1,74 @@
+package alien4cloud.component;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.ElasticSearchDAO;
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.IndexedNodeType;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Check that the cached resolutions are served until the TOSCA elements index is written.
+ */
+public class ToscaElementCacheTest {
+    private ToscaElementCache toscaElementCache;
+    private IGenericSearchDAO alienDAO;
+    private Collection<CSARDependency> dependencies = Lists.newArrayList(new CSARDependency("tosca-normative-types", "1.0.0"));
+    /** Number of resolutions performed by the loader. */
+    private AtomicInteger loads = new AtomicInteger();
+
+    @Before
+    public void before() {
+        alienDAO = Mockito.mock(IGenericSearchDAO.class);
+        toscaElementCache = new ToscaElementCache();
+        ReflectionTestUtils.setField(toscaElementCache, "alienDAO", alienDAO);
+        ReflectionTestUtils.setField(toscaElementCache, "maxSize", 100L);
+        toscaElementCache.init();
+    }
+
+    private IndexedNodeType get() {
+        return toscaElementCache.get(IndexedNodeType.class, "tosca.nodes.Compute", dependencies, new Callable<IndexedNodeType>() {
+            @Override
+            public IndexedNodeType call() {
+                IndexedNodeType nodeType = new IndexedNodeType();
+                nodeType.setElementId("tosca.nodes.Compute");
+                nodeType.setAlienScore(loads.incrementAndGet());
+                return nodeType;
+            }
+        });
+    }
+
+    private void indexVersion(long version) {
+        Mockito.when(alienDAO.getIndexVersion(ElasticSearchDAO.TOSCA_ELEMENT_INDEX)).thenReturn(version);
+    }
+
+    @Test
+    public void resolutionsShouldBeCachedUntilTheIndexIsWritten() {
+        indexVersion(1);
+        IndexedNodeType resolved = get();
+        Assert.assertEquals(1, resolved.getAlienScore());
+        // every reader gets its own instance
+        Assert.assertNotSame(resolved, get());
+        Assert.assertEquals(1, get().getAlienScore());
+        Assert.assertEquals(1, loads.get());
+
+        indexVersion(2);
+        Assert.assertEquals(2, get().getAlienScore());
+        Assert.assertEquals(2, get().getAlienScore());
+        Assert.assertNotNull(toscaElementCache.getIfPresent(IndexedNodeType.class, "tosca.nodes.Compute", dependencies));
+        Assert.assertEquals(2, loads.get());
+
+        indexVersion(3);
+        Assert.assertNull(toscaElementCache.getIfPresent(IndexedNodeType.class, "tosca.nodes.Compute", dependencies));
+    }
+}
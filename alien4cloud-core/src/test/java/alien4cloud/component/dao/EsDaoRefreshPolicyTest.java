@@ -0,0 +1,129 @@
+package alien4cloud.component.dao;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Resource;
+
+import org.elasticsearch.mapping.ElasticSearchClient;
+import org.elasticsearch.mapping.MappingBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.ESGenericSearchDAO;
+import alien4cloud.dao.ESIndexMapper;
+import alien4cloud.dao.ElasticSearchMapper;
+import alien4cloud.dao.RefreshPolicy;
+import alien4cloud.exception.IndexingServiceException;
+import alien4cloud.model.application.Application;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Check when the writes of the types mapped with the different refresh policies become visible to searches.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:application-context-test.xml")
+public class EsDaoRefreshPolicyTest {
+    private static final String INDEX_PREFIX = "refresh-policy-test-";
+
+    @Resource
+    private ElasticSearchClient esClient;
+    @Resource
+    private MappingBuilder mappingBuilder;
+
+    private final List<String> indices = Lists.newArrayList();
+
+    @After
+    public void after() {
+        if (!indices.isEmpty()) {
+            esClient.getClient().admin().indices().prepareDelete(indices.toArray(new String[indices.size()])).execute().actionGet();
+        }
+    }
+
+    /** Create a dao that maps the applications to a dedicated index with the given refresh policy. */
+    private ESGenericSearchDAO dao(String indexSuffix, RefreshPolicy refreshPolicy) throws ReflectiveOperationException {
+        ESGenericSearchDAO dao = new ESGenericSearchDAO();
+        // the client is injected both in the search dao and in the index mapper
+        ReflectionTestUtils.setField(dao, "esClient", esClient);
+        Field mapperClient = ESIndexMapper.class.getDeclaredField("esClient");
+        mapperClient.setAccessible(true);
+        mapperClient.set(dao, esClient);
+        ReflectionTestUtils.setField(dao, "mappingBuilder", mappingBuilder);
+        dao.setJsonMapper(ElasticSearchMapper.getInstance());
+        indices.add(INDEX_PREFIX + indexSuffix);
+        dao.initIndices(INDEX_PREFIX + indexSuffix, null, refreshPolicy, Application.class);
+        dao.initCompleted();
+        return dao;
+    }
+
+    private Application application(String id) {
+        Application application = new Application();
+        application.setId(id);
+        application.setName(id);
+        return application;
+    }
+
+    @Test
+    public void immediateWritesShouldBeVisibleWhenTheyReturn() throws ReflectiveOperationException {
+        ESGenericSearchDAO dao = dao("immediate", RefreshPolicy.IMMEDIATE);
+        dao.save(application("first"));
+        Assert.assertEquals(1, dao.count(Application.class, null));
+        dao.save(new Application[] { application("second"), application("third") });
+        Assert.assertEquals(3, dao.count(Application.class, null));
+        dao.delete(Application.class, "first");
+        Assert.assertEquals(2, dao.count(Application.class, null));
+    }
+
+    @Test
+    public void waitForWritesShouldBeVisibleWhenTheyReturn() throws ReflectiveOperationException {
+        ESGenericSearchDAO dao = dao("wait-for", RefreshPolicy.WAIT_FOR);
+        dao.save(application("first"));
+        Assert.assertEquals(1, dao.count(Application.class, null));
+        dao.save(new Application[] { application("second"), application("third") });
+        Assert.assertEquals(3, dao.count(Application.class, null));
+        dao.delete(Application.class, "first");
+        Assert.assertEquals(2, dao.count(Application.class, null));
+    }
+
+    @Test
+    public void eventualWritesShouldBeVisibleOnceTheIndexIsRefreshed() throws ReflectiveOperationException {
+        // background refresh is disabled so the writes become visible on explicit refresh only
+        ESGenericSearchDAO dao = dao("eventual", RefreshPolicy.eventual("-1"));
+        dao.save(application("first"));
+        dao.save(new Application[] { application("second") });
+        Assert.assertEquals(0, dao.count(Application.class, null));
+        // gets are real time
+        Assert.assertNotNull(dao.findById(Application.class, "first"));
+
+        dao.waitForRefresh(INDEX_PREFIX + "eventual");
+        Assert.assertEquals(2, dao.count(Application.class, null));
+    }
+
+    @Test
+    public void interruptedWaitForRefreshShouldFail() throws ReflectiveOperationException {
+        ESGenericSearchDAO dao = dao("interrupted", RefreshPolicy.WAIT_FOR);
+        String indexName = INDEX_PREFIX + "interrupted";
+        dao.waitForRefresh(indexName);
+        // make the caller wait as if another caller was running the refresh
+        Object indexRefresh = ((Map<?, ?>) ReflectionTestUtils.getField(dao, "indicesToRefreshes")).get(indexName);
+        ReflectionTestUtils.setField(indexRefresh, "running", true);
+
+        Thread.currentThread().interrupt();
+        try {
+            dao.waitForRefresh(indexName);
+            Assert.fail("An interrupted wait for refresh should fail");
+        } catch (IndexingServiceException e) {
+            // the interrupt flag is restored (and cleared for the next tests)
+            Assert.assertTrue(Thread.interrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
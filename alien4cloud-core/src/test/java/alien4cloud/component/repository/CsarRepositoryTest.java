@@ -57,6 +57,14 @@ public class CsarRepositoryTest {
         testGetCSARSuccessul();
     }
 
+    @Test
+    public void getCSARStoredFromDirectoryTest() throws CSARVersionNotFoundException, CSARVersionAlreadyExistsException {
+        cleanup();
+        storeTestCSAR(testFileName, "1.0", "src/test/resources/tosca/visitor");
+        testGetCSARSuccessul();
+        assertTrue(fileExists(repo.getCSAR(testFileName, "1.0"), false));
+    }
+
     @Test(expected = CSARStorageFailureException.class)
     public void testBadTmpPathToStore() throws CSARVersionAlreadyExistsException {
         cleanup();
@@ -0,0 +1,163 @@
+package alien4cloud.csar.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.Csar;
+import alien4cloud.security.model.CsarDependenciesBean;
+import alien4cloud.security.model.CsarGitCheckoutLocation;
+import alien4cloud.security.model.CsarGitRepository;
+import alien4cloud.tosca.parser.ParsingContext;
+import alien4cloud.tosca.parser.ParsingError;
+import alien4cloud.tosca.parser.ParsingErrorLevel;
+import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.tosca.parser.impl.ErrorCode;
+import alien4cloud.utils.FileUtil;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Test the selection of the archives of a git location to import: unchanged archives are skipped unless they failed to import or depend on an imported
+ * archive.
+ */
+public class CsarGitServiceTest {
+    private static final Path TEMP_DIRECTORY = Paths.get("target/csar-git-service-tests");
+
+    private CsarImportScheduler csarImportScheduler;
+    private CsarGitService csarGitService;
+    private CsarGitRepository csarGitRepository;
+    private CsarGitCheckoutLocation csarGitCheckoutLocation;
+    private Path repositoryPath;
+    private Set<String> failingArchives = Sets.newHashSet();
+    private List<String> importedArchives;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void before() throws Exception {
+        FileUtil.delete(TEMP_DIRECTORY);
+        csarImportScheduler = Mockito.mock(CsarImportScheduler.class);
+        csarGitService = new CsarGitService();
+        csarGitService.setTempDirPath(TEMP_DIRECTORY.toString());
+        ReflectionTestUtils.setField(csarGitService, "csarFinderService", new CsarFinderService());
+        ReflectionTestUtils.setField(csarGitService, "csarImportScheduler", csarImportScheduler);
+
+        csarGitRepository = new CsarGitRepository();
+        csarGitRepository.setId("repository");
+        csarGitCheckoutLocation = new CsarGitCheckoutLocation();
+        repositoryPath = TEMP_DIRECTORY.resolve("git").resolve("repository");
+        writeArchive("base-types", "base types");
+        writeArchive("java-types", "java types");
+        writeArchive("application", "application");
+
+        Mockito.when(csarImportScheduler.preParse(Mockito.anySet())).thenAnswer(new Answer<List<CsarDependenciesBean>>() {
+            @Override
+            public List<CsarDependenciesBean> answer(InvocationOnMock invocation) {
+                List<CsarDependenciesBean> archives = Lists.newArrayList();
+                for (Path path : (Set<Path>) invocation.getArguments()[0]) {
+                    archives.add(preParse(path));
+                }
+                return archives;
+            }
+        });
+        Mockito.when(csarImportScheduler.importArchives(Mockito.anyList())).thenAnswer(new Answer<List<ParsingResult<Csar>>>() {
+            @Override
+            public List<ParsingResult<Csar>> answer(InvocationOnMock invocation) {
+                List<ParsingResult<Csar>> results = Lists.newArrayList();
+                for (CsarDependenciesBean archive : (List<CsarDependenciesBean>) invocation.getArguments()[0]) {
+                    importedArchives.add(archive.getName());
+                    ParsingContext context = new ParsingContext(archive.getName());
+                    if (failingArchives.contains(archive.getName())) {
+                        context.getParsingErrors().add(new ParsingError(ErrorCode.SYNTAX_ERROR, "Invalid archive", null, null, null, null));
+                    }
+                    results.add(new ParsingResult<Csar>(new Csar(archive.getName(), "1.0"), context));
+                }
+                return results;
+            }
+        });
+    }
+
+    private void writeArchive(String name, String content) throws IOException {
+        Files.createDirectories(repositoryPath.resolve(name));
+        Files.write(repositoryPath.resolve(name).resolve("types.yml"), content.getBytes(Charsets.UTF_8));
+    }
+
+    /** java-types depends on base-types and the application depends on java-types. */
+    private CsarDependenciesBean preParse(Path path) {
+        CsarDependenciesBean archive = new CsarDependenciesBean();
+        archive.setPath(path);
+        archive.setName(path.getFileName().toString());
+        archive.setVersion("1.0");
+        if ("java-types".equals(archive.getName())) {
+            archive.setDependencies(Sets.newHashSet(new CSARDependency("base-types", "1.0")));
+        } else if ("application".equals(archive.getName())) {
+            archive.setDependencies(Sets.newHashSet(new CSARDependency("java-types", "1.0"), new CSARDependency("tosca-normative-types", "1.0")));
+        }
+        return archive;
+    }
+
+    private Set<String> processImport() {
+        importedArchives = Lists.newArrayList();
+        csarGitService.processImport(csarGitRepository, csarGitCheckoutLocation);
+        return Sets.newHashSet(importedArchives);
+    }
+
+    @Test
+    public void unchangedArchivesShouldBeSkipped() throws IOException {
+        Assert.assertEquals(Sets.newHashSet("base-types", "java-types", "application"), processImport());
+        Assert.assertEquals(3, csarGitCheckoutLocation.getArchiveDigests().size());
+        Assert.assertEquals(Sets.newHashSet("base-types:1.0"), csarGitCheckoutLocation.getArchiveDependencies().get("/java-types"));
+
+        Assert.assertEquals(Sets.<String> newHashSet(), processImport());
+
+        writeArchive("application", "updated application");
+        Assert.assertEquals(Sets.newHashSet("application"), processImport());
+    }
+
+    @Test
+    public void archivesThatDependOnAChangedArchiveShouldBeImportedAgain() throws IOException {
+        processImport();
+
+        writeArchive("base-types", "updated base types");
+        Assert.assertEquals(Sets.newHashSet("base-types", "java-types", "application"), processImport());
+
+        writeArchive("java-types", "updated java types");
+        Assert.assertEquals(Sets.newHashSet("java-types", "application"), processImport());
+    }
+
+    @Test
+    public void archivesThatFailedToImportShouldBeImportedAgain() {
+        failingArchives.add("application");
+        processImport();
+        Assert.assertFalse(csarGitCheckoutLocation.getArchiveDigests().containsKey("/application"));
+
+        failingArchives.clear();
+        Assert.assertEquals(Sets.newHashSet("application"), processImport());
+        Assert.assertTrue(csarGitCheckoutLocation.getArchiveDigests().containsKey("/application"));
+        Assert.assertEquals(Sets.<String> newHashSet(), processImport());
+    }
+
+    @Test
+    public void removedArchivesShouldBeForgotten() throws IOException {
+        processImport();
+
+        FileUtil.delete(repositoryPath.resolve("application"));
+        Assert.assertEquals(Sets.<String> newHashSet(), processImport());
+        Assert.assertFalse(csarGitCheckoutLocation.getArchiveDigests().containsKey("/application"));
+        Assert.assertFalse(csarGitCheckoutLocation.getArchiveDependencies().containsKey("/application"));
+    }
+}
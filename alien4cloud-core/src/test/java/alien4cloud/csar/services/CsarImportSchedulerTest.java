@@ -0,0 +1,194 @@
+package alien4cloud.csar.services;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.Csar;
+import alien4cloud.security.model.CsarDependenciesBean;
+import alien4cloud.tosca.ArchiveUploadService;
+import alien4cloud.tosca.parser.ParsingContext;
+import alien4cloud.tosca.parser.ParsingError;
+import alien4cloud.tosca.parser.ParsingErrorLevel;
+import alien4cloud.tosca.parser.ParsingException;
+import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.tosca.parser.impl.ErrorCode;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class CsarImportSchedulerTest {
+    private ArchiveUploadService uploadService;
+    private CsarImportScheduler csarImportScheduler;
+    /** Started and completed imports, in order. */
+    private List<String> importEvents;
+    private AtomicInteger runningImports;
+    private AtomicInteger maxRunningImports;
+
+    @Before
+    public void before() {
+        uploadService = Mockito.mock(ArchiveUploadService.class);
+        csarImportScheduler = new CsarImportScheduler();
+        ReflectionTestUtils.setField(csarImportScheduler, "uploadService", uploadService);
+        ReflectionTestUtils.setField(csarImportScheduler, "threadPoolSize", 4);
+        csarImportScheduler.init();
+        importEvents = Collections.synchronizedList(Lists.<String> newArrayList());
+        runningImports = new AtomicInteger();
+        maxRunningImports = new AtomicInteger();
+    }
+
+    @After
+    public void after() {
+        csarImportScheduler.destroy();
+    }
+
+    private CsarDependenciesBean archive(String name, String version, CSARDependency... dependencies) {
+        CsarDependenciesBean archive = new CsarDependenciesBean();
+        archive.setPath(Paths.get(name + "-" + version + ".csar"));
+        archive.setName(name);
+        archive.setVersion(version);
+        archive.setDependencies(Sets.newHashSet(dependencies));
+        return archive;
+    }
+
+    /** Record the import of an archive, the import waits for the latch if any then fails if required. */
+    private void mockUpload(final CsarDependenciesBean archive, final CountDownLatch latch, final boolean fail) throws Exception {
+        Mockito.when(uploadService.upload(archive.getPath())).thenAnswer(new Answer<ParsingResult<Csar>>() {
+            @Override
+            public ParsingResult<Csar> answer(InvocationOnMock invocation) throws Exception {
+                String archiveId = archive.getName() + ":" + archive.getVersion();
+                int running = runningImports.incrementAndGet();
+                synchronized (maxRunningImports) {
+                    maxRunningImports.set(Math.max(maxRunningImports.get(), running));
+                }
+                importEvents.add("start " + archiveId);
+                try {
+                    if (latch != null) {
+                        latch.countDown();
+                        Assert.assertTrue("Independent archives should be imported concurrently", latch.await(5, TimeUnit.SECONDS));
+                    } else {
+                        // leave some time to concurrent imports, if any, to start
+                        Thread.sleep(50);
+                    }
+                    if (fail) {
+                        throw new ParsingException(archive.getPath().getFileName().toString(), new ParsingError(ParsingErrorLevel.ERROR,
+                                ErrorCode.SYNTAX_ERROR, "Invalid archive", null, null, null, null));
+                    }
+                    return new ParsingResult<Csar>(new Csar(archive.getName(), archive.getVersion()), new ParsingContext(archiveId));
+                } finally {
+                    importEvents.add("end " + archiveId);
+                    runningImports.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    private void assertImportedBefore(String firstArchiveId, String secondArchiveId) {
+        Assert.assertTrue(importEvents.indexOf("end " + firstArchiveId) >= 0);
+        Assert.assertTrue(importEvents.indexOf("end " + firstArchiveId) < importEvents.indexOf("start " + secondArchiveId));
+    }
+
+    @Test
+    public void independentArchivesShouldBeImportedConcurrentlyAndDependentsOnceReady() throws Exception {
+        CountDownLatch readyArchivesLatch = new CountDownLatch(2);
+        CsarDependenciesBean baseTypes = archive("base-types", "1.0");
+        CsarDependenciesBean otherTypes = archive("other-types", "1.0");
+        CsarDependenciesBean javaTypes = archive("java-types", "1.0", new CSARDependency("base-types", "1.0"), new CSARDependency("missing", "1.0"));
+        CsarDependenciesBean application = archive("application", "1.0", new CSARDependency("java-types", "1.0"), new CSARDependency("other-types", "1.0"));
+        mockUpload(baseTypes, readyArchivesLatch, false);
+        mockUpload(otherTypes, readyArchivesLatch, false);
+        mockUpload(javaTypes, null, false);
+        mockUpload(application, null, false);
+
+        List<ParsingResult<Csar>> results = csarImportScheduler.importArchives(Lists.newArrayList(application, javaTypes, otherTypes, baseTypes));
+
+        Assert.assertEquals(4, results.size());
+        assertImportedBefore("base-types:1.0", "java-types:1.0");
+        assertImportedBefore("java-types:1.0", "application:1.0");
+        assertImportedBefore("other-types:1.0", "application:1.0");
+        for (ParsingResult<Csar> result : results) {
+            Assert.assertNotNull(result.getContext().getImportDuration());
+        }
+    }
+
+    @Test
+    public void failedImportShouldReleaseItsDependents() throws Exception {
+        CsarDependenciesBean baseTypes = archive("base-types", "1.0");
+        CsarDependenciesBean javaTypes = archive("java-types", "1.0", new CSARDependency("base-types", "1.0"));
+        mockUpload(baseTypes, null, true);
+        mockUpload(javaTypes, null, false);
+
+        List<ParsingResult<Csar>> results = csarImportScheduler.importArchives(Lists.newArrayList(javaTypes, baseTypes));
+
+        Assert.assertEquals(2, results.size());
+        assertImportedBefore("base-types:1.0", "java-types:1.0");
+        Assert.assertEquals("base-types", results.get(0).getResult().getName());
+        Assert.assertTrue(ArchiveUploadService.hasError(results.get(0), ParsingErrorLevel.ERROR));
+        Assert.assertFalse(ArchiveUploadService.hasError(results.get(1), ParsingErrorLevel.ERROR));
+    }
+
+    @Test
+    public void archivesWithCyclicDependenciesShouldBeImportedOneAfterTheOther() throws Exception {
+        CsarDependenciesBean first = archive("first", "1.0", new CSARDependency("second", "1.0"));
+        CsarDependenciesBean second = archive("second", "1.0", new CSARDependency("first", "1.0"));
+        CsarDependenciesBean independent = archive("independent", "1.0");
+        mockUpload(first, null, false);
+        mockUpload(second, null, false);
+        mockUpload(independent, null, false);
+
+        List<ParsingResult<Csar>> results = csarImportScheduler.importArchives(Lists.newArrayList(first, second, independent));
+
+        Assert.assertEquals(3, results.size());
+        Assert.assertEquals("independent", results.get(0).getResult().getName());
+        assertImportedBefore("first:1.0", "second:1.0");
+    }
+
+    @Test
+    public void archivesSharingANameShouldNotBeImportedConcurrently() throws Exception {
+        CsarDependenciesBean version2 = archive("base-types", "2.0");
+        CsarDependenciesBean version1 = archive("base-types", "1.0");
+        CsarDependenciesBean duplicate = archive("base-types", "1.0");
+        duplicate.setPath(Paths.get("duplicate", "base-types-1.0.csar"));
+        mockUpload(version2, null, false);
+        mockUpload(version1, null, false);
+        mockUpload(duplicate, null, false);
+
+        List<ParsingResult<Csar>> results = csarImportScheduler.importArchives(Lists.newArrayList(version2, version1, duplicate));
+
+        Assert.assertEquals(3, results.size());
+        Assert.assertEquals(1, maxRunningImports.get());
+        Assert.assertEquals("1.0", results.get(0).getResult().getVersion());
+        Assert.assertEquals("1.0", results.get(1).getResult().getVersion());
+        Assert.assertEquals("2.0", results.get(2).getResult().getVersion());
+        Mockito.verify(uploadService).upload(version1.getPath());
+        Mockito.verify(uploadService).upload(duplicate.getPath());
+    }
+
+    @Test
+    public void preParseShouldKeepTheOrderOfThePaths() throws Exception {
+        Path firstPath = Paths.get("first.csar");
+        Path secondPath = Paths.get("second.csar");
+        CsarDependenciesBean first = archive("first", "1.0");
+        CsarDependenciesBean second = archive("second", "1.0");
+        Mockito.when(uploadService.preParsing(firstPath)).thenReturn(first);
+        Mockito.when(uploadService.preParsing(secondPath)).thenReturn(second);
+
+        List<CsarDependenciesBean> archives = csarImportScheduler.preParse(Sets.newLinkedHashSet(Lists.newArrayList(firstPath, secondPath)));
+
+        Assert.assertEquals(Lists.newArrayList(first, second), archives);
+    }
+}
@@ -0,0 +1,157 @@
+package alien4cloud.deployment;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.deployment.Deployment;
+import alien4cloud.orchestrators.plugin.IOrchestratorPlugin;
+import alien4cloud.paas.IPaaSCallback;
+import alien4cloud.paas.OrchestratorPluginService;
+import alien4cloud.paas.model.DeploymentStatus;
+import alien4cloud.paas.model.PaaSDeploymentContext;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Test the requests of deployments statuses to the orchestrators: a single thread with a queue of two requests serves the statuses requests.
+ */
+public class DeploymentRuntimeStateServiceTest {
+    private DeploymentRuntimeStateService deploymentRuntimeStateService;
+    private List<String> requestedDeployments = Collections.synchronizedList(Lists.<String> newArrayList());
+    /** Deployments which status requests wait for the release latch. */
+    private Set<String> blockedDeployments = Sets.newConcurrentHashSet();
+    private CountDownLatch requested = new CountDownLatch(1);
+    private CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void before() {
+        IGenericSearchDAO alienDao = Mockito.mock(IGenericSearchDAO.class);
+        IOrchestratorPlugin orchestratorPlugin = Mockito.mock(IOrchestratorPlugin.class);
+        OrchestratorPluginService orchestratorPluginService = Mockito.mock(OrchestratorPluginService.class);
+        Mockito.when(orchestratorPluginService.getOrFail("orchestrator")).thenReturn(orchestratorPlugin);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws InterruptedException {
+                String deploymentId = ((PaaSDeploymentContext) invocation.getArguments()[0]).getDeploymentId();
+                requestedDeployments.add(deploymentId);
+                if (blockedDeployments.contains(deploymentId)) {
+                    requested.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                ((IPaaSCallback<DeploymentStatus>) invocation.getArguments()[1]).onSuccess(DeploymentStatus.DEPLOYED);
+                return null;
+            }
+        }).when(orchestratorPlugin).getStatus(Mockito.any(PaaSDeploymentContext.class), Mockito.any(IPaaSCallback.class));
+
+        DeploymentStatusRegistry registry = new DeploymentStatusRegistry();
+        ReflectionTestUtils.setField(registry, "alienDao", alienDao);
+        ReflectionTestUtils.setField(registry, "reconciliationTtlMs", 60000L);
+
+        deploymentRuntimeStateService = new DeploymentRuntimeStateService();
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "alienDao", alienDao);
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "alienMonitorDao", Mockito.mock(IGenericSearchDAO.class));
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "orchestratorPluginService", orchestratorPluginService);
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "deploymentStatusRegistry", registry);
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "statusThreadPoolSize", 1);
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "statusQueueSize", 2);
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "statusTimeoutMs", 200L);
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "reconciliationIntervalMs", 60000L);
+        deploymentRuntimeStateService.init();
+    }
+
+    @After
+    public void after() {
+        release.countDown();
+        deploymentRuntimeStateService.destroy();
+    }
+
+    private DeploymentStatus getDeploymentStatus(String deploymentId) {
+        Deployment deployment = new Deployment();
+        deployment.setId(deploymentId);
+        deployment.setOrchestratorId("orchestrator");
+        return deploymentRuntimeStateService.getDeploymentStatuses(Lists.newArrayList(deployment)).get(deploymentId);
+    }
+
+    /** Release the blocked requests and wait for the queued requests to be processed. */
+    private void releaseAndDrain() throws InterruptedException {
+        release.countDown();
+        ExecutorService statusExecutor = (ExecutorService) ReflectionTestUtils.getField(deploymentRuntimeStateService, "statusExecutor");
+        statusExecutor.shutdown();
+        Assert.assertTrue(statusExecutor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void concurrentRequestsOfADeploymentStatusShouldShareTheOrchestratorRequest() throws Exception {
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "statusTimeoutMs", 5000L);
+        blockedDeployments.add("deployment");
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Callable<DeploymentStatus> getStatus = new Callable<DeploymentStatus>() {
+                @Override
+                public DeploymentStatus call() {
+                    return getDeploymentStatus("deployment");
+                }
+            };
+            Future<DeploymentStatus> firstStatus = callers.submit(getStatus);
+            Assert.assertTrue(requested.await(5, TimeUnit.SECONDS));
+            Future<DeploymentStatus> secondStatus = callers.submit(getStatus);
+            // leave some time to the second caller to wait for the status in flight
+            Thread.sleep(100);
+            release.countDown();
+
+            Assert.assertEquals(DeploymentStatus.DEPLOYED, firstStatus.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(DeploymentStatus.DEPLOYED, secondStatus.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(Lists.newArrayList("deployment"), requestedDeployments);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void requestsThatTimedOutShouldBeCancelled() throws InterruptedException {
+        blockedDeployments.add("blocked");
+        Assert.assertEquals(DeploymentStatus.UNKNOWN, getDeploymentStatus("blocked"));
+        // the single thread is blocked so this request is queued until it times out
+        Assert.assertEquals(DeploymentStatus.UNKNOWN, getDeploymentStatus("queued"));
+        Assert.assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(deploymentRuntimeStateService, "inFlightStatuses")).isEmpty());
+
+        releaseAndDrain();
+        Assert.assertEquals(Lists.newArrayList("blocked"), requestedDeployments);
+    }
+
+    @Test
+    public void requestsThatCannotBeQueuedShouldBeUnknownWithoutWaiting() throws InterruptedException {
+        blockedDeployments.add("blocked");
+        Assert.assertEquals(DeploymentStatus.UNKNOWN, getDeploymentStatus("blocked"));
+        Assert.assertEquals(DeploymentStatus.UNKNOWN, getDeploymentStatus("first-queued"));
+        Assert.assertEquals(DeploymentStatus.UNKNOWN, getDeploymentStatus("second-queued"));
+
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "statusTimeoutMs", 5000L);
+        long start = System.currentTimeMillis();
+        Assert.assertEquals(DeploymentStatus.UNKNOWN, getDeploymentStatus("rejected"));
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+
+        releaseAndDrain();
+        Assert.assertEquals(Lists.newArrayList("blocked"), requestedDeployments);
+    }
+}
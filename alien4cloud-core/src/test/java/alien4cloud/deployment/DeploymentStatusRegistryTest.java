@@ -0,0 +1,168 @@
+package alien4cloud.deployment;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.deployment.Deployment;
+import alien4cloud.orchestrators.plugin.IOrchestratorPlugin;
+import alien4cloud.paas.IPaaSCallback;
+import alien4cloud.paas.OrchestratorPluginService;
+import alien4cloud.paas.model.DeploymentStatus;
+import alien4cloud.paas.model.PaaSDeploymentContext;
+import alien4cloud.paas.model.PaaSDeploymentStatusMonitorEvent;
+
+import com.google.common.collect.Lists;
+
+public class DeploymentStatusRegistryTest {
+    private IGenericSearchDAO alienDao;
+    private IOrchestratorPlugin orchestratorPlugin;
+    private DeploymentStatusRegistry registry;
+    private DeploymentRuntimeStateService deploymentRuntimeStateService;
+
+    @Before
+    public void before() {
+        alienDao = Mockito.mock(IGenericSearchDAO.class);
+        orchestratorPlugin = Mockito.mock(IOrchestratorPlugin.class);
+        OrchestratorPluginService orchestratorPluginService = Mockito.mock(OrchestratorPluginService.class);
+        Mockito.when(orchestratorPluginService.getOrFail("orchestrator")).thenReturn(orchestratorPlugin);
+
+        registry = new DeploymentStatusRegistry();
+        ReflectionTestUtils.setField(registry, "alienDao", alienDao);
+        ReflectionTestUtils.setField(registry, "reconciliationTtlMs", 50L);
+
+        deploymentRuntimeStateService = new DeploymentRuntimeStateService();
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "alienDao", alienDao);
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "alienMonitorDao", Mockito.mock(IGenericSearchDAO.class));
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "orchestratorPluginService", orchestratorPluginService);
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "deploymentStatusRegistry", registry);
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "statusThreadPoolSize", 2);
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "statusQueueSize", 10);
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "statusTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "reconciliationIntervalMs", 20L);
+    }
+
+    @Test
+    public void statusShouldBeRegisteredUntilUndeployed() {
+        registry.put("deployment", DeploymentStatus.DEPLOYMENT_IN_PROGRESS);
+        Assert.assertEquals(DeploymentStatus.DEPLOYMENT_IN_PROGRESS, registry.get("deployment"));
+
+        PaaSDeploymentStatusMonitorEvent event = new PaaSDeploymentStatusMonitorEvent();
+        event.setDeploymentId("deployment");
+        event.setDeploymentStatus(DeploymentStatus.DEPLOYED);
+        Assert.assertTrue(registry.canHandle(event));
+        registry.eventHappened(event);
+        Assert.assertEquals(DeploymentStatus.DEPLOYED, registry.get("deployment"));
+
+        registry.put("deployment", DeploymentStatus.UNDEPLOYED);
+        Assert.assertNull(registry.get("deployment"));
+    }
+
+    @Test
+    public void statusEventReceivedWhileTheOrchestratorIsRequestedShouldBeKept() {
+        final List<IPaaSCallback<DeploymentStatus>> orchestratorRequests = Lists.newArrayList();
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Void answer(InvocationOnMock invocation) {
+                orchestratorRequests.add((IPaaSCallback<DeploymentStatus>) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(orchestratorPlugin).getStatus(Mockito.any(PaaSDeploymentContext.class), Mockito.any(IPaaSCallback.class));
+        Deployment deployment = new Deployment();
+        deployment.setId("deployment");
+        deployment.setOrchestratorId("orchestrator");
+        final List<DeploymentStatus> results = Lists.newArrayList();
+        IPaaSCallback<DeploymentStatus> callback = new IPaaSCallback<DeploymentStatus>() {
+            @Override
+            public void onSuccess(DeploymentStatus data) {
+                results.add(data);
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                Assert.fail();
+            }
+        };
+
+        deploymentRuntimeStateService.getDeploymentStatus(deployment, callback);
+        PaaSDeploymentStatusMonitorEvent event = new PaaSDeploymentStatusMonitorEvent();
+        event.setDeploymentId("deployment");
+        event.setDeploymentStatus(DeploymentStatus.DEPLOYED);
+        registry.eventHappened(event);
+        // the orchestrator result is older than the event
+        orchestratorRequests.remove(0).onSuccess(DeploymentStatus.DEPLOYMENT_IN_PROGRESS);
+        Assert.assertEquals(DeploymentStatus.DEPLOYED, results.get(0));
+        Assert.assertEquals(DeploymentStatus.DEPLOYED, registry.get("deployment"));
+
+        // without event the orchestrator result is registered
+        registry.remove("deployment");
+        deploymentRuntimeStateService.getDeploymentStatus(deployment, callback);
+        orchestratorRequests.remove(0).onSuccess(DeploymentStatus.FAILURE);
+        Assert.assertEquals(DeploymentStatus.FAILURE, results.get(1));
+        Assert.assertEquals(DeploymentStatus.FAILURE, registry.get("deployment"));
+    }
+
+    @Test
+    public void statusShouldBeReconciledOnceExpired() throws InterruptedException {
+        registry.put("deployment", DeploymentStatus.DEPLOYED);
+        Assert.assertTrue(registry.getDeploymentsToReconcile().isEmpty());
+        Thread.sleep(100);
+        Assert.assertTrue(registry.getDeploymentsToReconcile().contains("deployment"));
+        // an update of the status postpones the reconciliation
+        registry.put("deployment", DeploymentStatus.DEPLOYED);
+        Assert.assertTrue(registry.getDeploymentsToReconcile().isEmpty());
+    }
+
+    @Test
+    public void reconciliationShouldRefreshActiveDeploymentsAndRemoveEndedOnes() throws InterruptedException {
+        Deployment activeDeployment = new Deployment();
+        activeDeployment.setId("active");
+        activeDeployment.setOrchestratorId("orchestrator");
+        Deployment endedDeployment = new Deployment();
+        endedDeployment.setId("ended");
+        endedDeployment.setOrchestratorId("orchestrator");
+        endedDeployment.setEndDate(new Date());
+        Mockito.when(alienDao.findByIds(Mockito.eq(Deployment.class), Mockito.<String> anyVararg())).thenReturn(
+                Lists.newArrayList(activeDeployment, endedDeployment));
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Void answer(InvocationOnMock invocation) {
+                ((IPaaSCallback<DeploymentStatus>) invocation.getArguments()[1]).onSuccess(DeploymentStatus.FAILURE);
+                return null;
+            }
+        }).when(orchestratorPlugin).getStatus(Mockito.any(PaaSDeploymentContext.class), Mockito.any(IPaaSCallback.class));
+
+        registry.put("active", DeploymentStatus.DEPLOYED);
+        registry.put("ended", DeploymentStatus.DEPLOYED);
+        Thread.sleep(100);
+        deploymentRuntimeStateService.init();
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!DeploymentStatus.FAILURE.equals(registry.get("active")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(DeploymentStatus.FAILURE, registry.get("active"));
+            Assert.assertNull(registry.get("ended"));
+            // the ended deployment is not requested to the orchestrator anymore
+            Mockito.verify(orchestratorPlugin, Mockito.never()).getStatus(Mockito.argThat(new ArgumentMatcher<PaaSDeploymentContext>() {
+                @Override
+                public boolean matches(Object argument) {
+                    return "ended".equals(((PaaSDeploymentContext) argument).getDeploymentId());
+                }
+            }), Mockito.any(IPaaSCallback.class));
+        } finally {
+            deploymentRuntimeStateService.destroy();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package alien4cloud.deployment;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.application.ApplicationEnvironmentService;
+import alien4cloud.application.ApplicationVersionService;
+import alien4cloud.application.TopologyCompositionService;
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.application.ApplicationEnvironment;
+import alien4cloud.model.application.ApplicationVersion;
+import alien4cloud.model.components.AbstractPropertyValue;
+import alien4cloud.model.components.ScalarPropertyValue;
+import alien4cloud.model.deployment.DeploymentTopology;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.Topology;
+import alien4cloud.topology.TopologyChanges;
+import alien4cloud.topology.TopologyEditSessionService;
+import alien4cloud.topology.TopologyServiceCore;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Check that the deployment topology is updated for the changed node templates only when the edits of the initial topology are tracked, and regenerated
+ * otherwise.
+ */
+public class DeploymentTopologyServiceTest {
+    private static final Date PERSISTED_DATE = new Date(1000);
+
+    private IGenericSearchDAO alienDAO;
+    private TopologyCompositionService topologyCompositionService;
+    private DeploymentNodeSubstitutionService deploymentNodeSubstitutionService;
+    private TopologyEditSessionService topologyEditSessionService;
+    private DeploymentTopologyService deploymentTopologyService;
+    private DeploymentTopology deploymentTopology;
+
+    @Before
+    public void before() {
+        alienDAO = Mockito.mock(IGenericSearchDAO.class);
+        Mockito.when(alienDAO.findById(Topology.class, "topology")).thenReturn(topology("compute", "network"));
+
+        TaskScheduler scheduler = Mockito.mock(TaskScheduler.class);
+        Mockito.doReturn(Mockito.mock(ScheduledFuture.class)).when(scheduler).schedule(Mockito.any(Runnable.class), Mockito.any(Date.class));
+        topologyEditSessionService = new TopologyEditSessionService();
+        ReflectionTestUtils.setField(topologyEditSessionService, "alienDAO", alienDAO);
+        ReflectionTestUtils.setField(topologyEditSessionService, "scheduler", scheduler);
+
+        // the initial topology is served from the edit session as the topology service does
+        TopologyServiceCore topologyServiceCore = Mockito.mock(TopologyServiceCore.class);
+        Mockito.when(topologyServiceCore.getOrFail("topology")).thenAnswer(new Answer<Topology>() {
+            @Override
+            public Topology answer(InvocationOnMock invocation) {
+                return topologyEditSessionService.get("topology");
+            }
+        });
+        Mockito.when(topologyServiceCore.getChanges(Mockito.eq("topology"), Mockito.any(Date.class), Mockito.any(Date.class))).thenAnswer(
+                new Answer<TopologyChanges>() {
+                    @Override
+                    public TopologyChanges answer(InvocationOnMock invocation) {
+                        Object[] args = invocation.getArguments();
+                        return topologyEditSessionService.getChanges((String) args[0], (Date) args[1], (Date) args[2]);
+                    }
+                });
+
+        ApplicationVersion version = new ApplicationVersion();
+        version.setId("version");
+        version.setTopologyId("topology");
+        ApplicationVersionService applicationVersionService = Mockito.mock(ApplicationVersionService.class);
+        Mockito.when(applicationVersionService.getByTopologyId("topology")).thenReturn(version);
+        ApplicationEnvironment environment = new ApplicationEnvironment();
+        environment.setId("environment");
+        environment.setCurrentVersionId("version");
+        ApplicationEnvironmentService applicationEnvironmentService = Mockito.mock(ApplicationEnvironmentService.class);
+        Mockito.when(applicationEnvironmentService.getByVersionId("version")).thenReturn(new ApplicationEnvironment[] { environment });
+
+        deploymentTopology = new DeploymentTopology();
+        deploymentTopology.setId(DeploymentTopology.generateId("version", "environment"));
+        deploymentTopology.setVersionId("version");
+        deploymentTopology.setEnvironmentId("environment");
+        deploymentTopology.setInitialTopologyId("topology");
+        deploymentTopology.setLastDeploymentTopologyUpdateDate(PERSISTED_DATE);
+        deploymentTopology.setNodeTemplates(topology("compute", "network").getNodeTemplates());
+        Mockito.when(alienDAO.findById(DeploymentTopology.class, deploymentTopology.getId())).thenReturn(deploymentTopology);
+
+        topologyCompositionService = Mockito.mock(TopologyCompositionService.class);
+        deploymentNodeSubstitutionService = Mockito.mock(DeploymentNodeSubstitutionService.class);
+        deploymentTopologyService = new DeploymentTopologyService();
+        ReflectionTestUtils.setField(deploymentTopologyService, "alienDAO", alienDAO);
+        ReflectionTestUtils.setField(deploymentTopologyService, "applicationVersionService", applicationVersionService);
+        ReflectionTestUtils.setField(deploymentTopologyService, "applicationEnvironmentService", applicationEnvironmentService);
+        ReflectionTestUtils.setField(deploymentTopologyService, "topologyServiceCore", topologyServiceCore);
+        ReflectionTestUtils.setField(deploymentTopologyService, "topologyCompositionService", topologyCompositionService);
+        ReflectionTestUtils.setField(deploymentTopologyService, "deploymentNodeSubstitutionService", deploymentNodeSubstitutionService);
+        ReflectionTestUtils.setField(deploymentTopologyService, "inputsPreProcessorService", Mockito.mock(InputsPreProcessorService.class));
+        ReflectionTestUtils.setField(deploymentTopologyService, "deploymentInputService", Mockito.mock(DeploymentInputService.class));
+    }
+
+    private Topology topology(String... nodeNames) {
+        Topology topology = new Topology();
+        topology.setId("topology");
+        topology.setLastUpdateDate(PERSISTED_DATE);
+        topology.setNodeTemplates(Maps.<String, NodeTemplate> newHashMap());
+        for (String nodeName : nodeNames) {
+            NodeTemplate nodeTemplate = new NodeTemplate();
+            nodeTemplate.setName(nodeName);
+            nodeTemplate.setType("tosca.nodes.Compute");
+            nodeTemplate.setProperties(Maps.<String, AbstractPropertyValue> newHashMap());
+            topology.getNodeTemplates().put(nodeName, nodeTemplate);
+        }
+        return topology;
+    }
+
+    /** Edit the compute node of the initial topology, as the topology editor does. */
+    private Topology editCompute(Topology topology) {
+        topology.getNodeTemplates().get("compute").getProperties().put("mem_size", new ScalarPropertyValue("4 GB"));
+        topologyEditSessionService.update(topology, TopologyChanges.nodeTemplates("compute"));
+        return topologyEditSessionService.get("topology");
+    }
+
+    private DeploymentTopology getDeploymentTopology() {
+        DeploymentTopology[] deploymentTopologies = deploymentTopologyService.getByTopologyId("topology");
+        Assert.assertEquals(1, deploymentTopologies.length);
+        return deploymentTopologies[0];
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void trackedChangesOfNodeTemplatesShouldUpdateTheChangedNodesOnly() {
+        NodeTemplate network = deploymentTopology.getNodeTemplates().get("network");
+        NodeTemplate previousCompute = deploymentTopology.getNodeTemplates().get("compute");
+        Topology topology = editCompute(topology("compute", "network"));
+
+        DeploymentTopology updated = getDeploymentTopology();
+        Assert.assertEquals(topology.getLastUpdateDate(), updated.getLastDeploymentTopologyUpdateDate());
+        Assert.assertEquals("4 GB", ((ScalarPropertyValue) updated.getNodeTemplates().get("compute").getProperties().get("mem_size")).getValue());
+        Assert.assertSame(network, updated.getNodeTemplates().get("network"));
+        ArgumentCaptor<Map> previousNodeTemplates = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(deploymentNodeSubstitutionService).processNodesSubstitution(Mockito.same(updated), previousNodeTemplates.capture(),
+                Mockito.eq(Sets.newHashSet("compute")));
+        Assert.assertSame(previousCompute, previousNodeTemplates.getValue().get("compute"));
+        Assert.assertEquals(1, previousNodeTemplates.getValue().size());
+        Mockito.verify(topologyCompositionService, Mockito.never()).processTopologyComposition(Mockito.any(Topology.class));
+        Mockito.verify(alienDAO).save(updated);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void addedNodesShouldRegenerateTheDeploymentTopology() {
+        Topology topology = topology("compute", "network");
+        topology.getNodeTemplates().putAll(topology("volume").getNodeTemplates());
+        topologyEditSessionService.update(topology, TopologyChanges.nodeTemplates("volume"));
+
+        DeploymentTopology regenerated = getDeploymentTopology();
+        Assert.assertEquals(Sets.newHashSet("compute", "network", "volume"), regenerated.getNodeTemplates().keySet());
+        Mockito.verify(topologyCompositionService).processTopologyComposition(regenerated);
+        Mockito.verify(deploymentNodeSubstitutionService).processNodesSubstitution(Mockito.same(regenerated), Mockito.any(Map.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void undeclaredChangesShouldRegenerateTheDeploymentTopology() {
+        Topology topology = topology("compute", "network");
+        topology.getNodeTemplates().get("compute").getProperties().put("mem_size", new ScalarPropertyValue("4 GB"));
+        topologyEditSessionService.update(topology);
+
+        DeploymentTopology regenerated = getDeploymentTopology();
+        Mockito.verify(topologyCompositionService).processTopologyComposition(regenerated);
+        Mockito.verify(deploymentNodeSubstitutionService).processNodesSubstitution(Mockito.same(regenerated), Mockito.any(Map.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void unknownChangesShouldRegenerateTheDeploymentTopology() {
+        // the deployment topology has been generated from a version of the topology that has not been edited through the edit session
+        deploymentTopology.setLastDeploymentTopologyUpdateDate(new Date(PERSISTED_DATE.getTime() - 1));
+        editCompute(topology("compute", "network"));
+
+        DeploymentTopology regenerated = getDeploymentTopology();
+        Mockito.verify(topologyCompositionService).processTopologyComposition(regenerated);
+        Mockito.verify(deploymentNodeSubstitutionService).processNodesSubstitution(Mockito.same(regenerated), Mockito.any(Map.class));
+        Mockito.verify(deploymentNodeSubstitutionService, Mockito.never()).processNodesSubstitution(Mockito.any(DeploymentTopology.class),
+                Mockito.any(Map.class), Mockito.anySet());
+    }
+}
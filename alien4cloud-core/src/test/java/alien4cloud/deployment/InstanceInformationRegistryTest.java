@@ -0,0 +1,283 @@
+package alien4cloud.deployment;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.components.AttributeDefinition;
+import alien4cloud.model.components.ConcatPropertyValue;
+import alien4cloud.model.components.FunctionPropertyValue;
+import alien4cloud.model.components.IValue;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.ScalarPropertyValue;
+import alien4cloud.model.deployment.Deployment;
+import alien4cloud.model.deployment.DeploymentTopology;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.orchestrators.plugin.IOrchestratorPlugin;
+import alien4cloud.paas.IPaaSCallback;
+import alien4cloud.paas.OrchestratorPluginService;
+import alien4cloud.paas.model.DeploymentStatus;
+import alien4cloud.paas.model.InstanceInformation;
+import alien4cloud.paas.model.InstanceStatus;
+import alien4cloud.paas.model.PaaSDeploymentStatusMonitorEvent;
+import alien4cloud.paas.model.PaaSInstanceStateMonitorEvent;
+import alien4cloud.paas.model.PaaSNodeTemplate;
+import alien4cloud.paas.model.PaaSTopology;
+import alien4cloud.paas.model.PaaSTopologyDeploymentContext;
+import alien4cloud.tosca.normative.ToscaFunctionConstants;
+import alien4cloud.utils.MapUtil;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Test the instances snapshots: update by the monitor events, reload from the orchestrator once expired, events received while the orchestrator is
+ * requested, requests shared by concurrent reads and post-processing of the attributes.
+ */
+@SuppressWarnings("unchecked")
+public class InstanceInformationRegistryTest {
+    private InstanceInformationRegistry registry;
+    private DeploymentRuntimeStateService deploymentRuntimeStateService;
+    private Deployment deployment;
+    /** Callbacks of the requests to the orchestrator that are in progress. */
+    private List<IPaaSCallback<Map<String, Map<String, InstanceInformation>>>> orchestratorRequests = Lists.newArrayList();
+    private Map<String, Map<String, InstanceInformation>> result;
+    private Throwable failure;
+
+    @Before
+    public void before() {
+        registry = new InstanceInformationRegistry();
+        ReflectionTestUtils.setField(registry, "reconciliationTtlMs", 50L);
+
+        IOrchestratorPlugin orchestratorPlugin = Mockito.mock(IOrchestratorPlugin.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                orchestratorRequests.add((IPaaSCallback<Map<String, Map<String, InstanceInformation>>>) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(orchestratorPlugin).getInstancesInformation(Mockito.any(PaaSTopologyDeploymentContext.class), Mockito.any(IPaaSCallback.class));
+        OrchestratorPluginService orchestratorPluginService = Mockito.mock(OrchestratorPluginService.class);
+        Mockito.when(orchestratorPluginService.getOrFail("orchestrator")).thenReturn(orchestratorPlugin);
+
+        deploymentRuntimeStateService = new DeploymentRuntimeStateService();
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "alienMonitorDao", Mockito.mock(IGenericSearchDAO.class));
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "orchestratorPluginService", orchestratorPluginService);
+        DeploymentContextService deploymentContextService = Mockito.mock(DeploymentContextService.class);
+        Mockito.when(deploymentContextService.buildTopologyDeploymentContext(Mockito.any(Deployment.class), Mockito.anyMap(),
+                Mockito.any(DeploymentTopology.class))).thenReturn(deploymentContext());
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "deploymentContextService", deploymentContextService);
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "deploymentTopologyService", Mockito.mock(DeploymentTopologyService.class));
+        ReflectionTestUtils.setField(deploymentRuntimeStateService, "instanceInformationRegistry", registry);
+
+        deployment = new Deployment();
+        deployment.setId("deployment");
+        deployment.setOrchestratorId("orchestrator");
+    }
+
+    /** Context of a deployment with a compute node which url attribute is built from its ip address attribute. */
+    private PaaSTopologyDeploymentContext deploymentContext() {
+        ConcatPropertyValue url = new ConcatPropertyValue();
+        url.setParameters(Lists.<IValue> newArrayList(new ScalarPropertyValue("http://"),
+                new FunctionPropertyValue(ToscaFunctionConstants.GET_ATTRIBUTE, Lists.newArrayList(ToscaFunctionConstants.SELF, "ip_address"))));
+        IndexedNodeType computeType = new IndexedNodeType();
+        computeType.setAttributes(MapUtil.newHashMap(new String[] { "ip_address", "url" }, new IValue[] { new AttributeDefinition(), url }));
+        PaaSNodeTemplate compute = new PaaSNodeTemplate("compute", new NodeTemplate());
+        compute.setIndexedToscaElement(computeType);
+        PaaSTopology paaSTopology = new PaaSTopology();
+        paaSTopology.setAllNodes(MapUtil.newHashMap(new String[] { "compute" }, new PaaSNodeTemplate[] { compute }));
+        PaaSTopologyDeploymentContext deploymentContext = new PaaSTopologyDeploymentContext();
+        deploymentContext.setDeploymentTopology(new DeploymentTopology());
+        deploymentContext.setPaaSTopology(paaSTopology);
+        return deploymentContext;
+    }
+
+    /** Request the instances of the deployment, the result or the failure is set once the callback is called. */
+    private void getInstancesInformation() {
+        result = null;
+        failure = null;
+        deploymentRuntimeStateService.getInstancesInformation(deployment, new IPaaSCallback<Map<String, Map<String, InstanceInformation>>>() {
+            @Override
+            public void onSuccess(Map<String, Map<String, InstanceInformation>> data) {
+                result = data;
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                failure = throwable;
+            }
+        });
+    }
+
+    /** Complete the oldest request to the orchestrator with the given instances of the compute node. */
+    private void orchestratorResponse(Map<String, InstanceInformation> computeInstances) {
+        Map<String, Map<String, InstanceInformation>> instances = Maps.newHashMap();
+        instances.put("compute", computeInstances);
+        orchestratorRequests.remove(0).onSuccess(instances);
+    }
+
+    private Map<String, InstanceInformation> computeInstances(String... instanceStates) {
+        Map<String, InstanceInformation> instances = Maps.newHashMap();
+        for (int i = 0; i < instanceStates.length; i++) {
+            instances.put(String.valueOf(i), new InstanceInformation(instanceStates[i], InstanceStatus.PROCESSING, null, null, null));
+        }
+        return instances;
+    }
+
+    private void instanceEvent(String instanceId, String instanceState) {
+        instanceEvent(instanceId, instanceState, null);
+    }
+
+    private void instanceEvent(String instanceId, String instanceState, Map<String, String> attributes) {
+        PaaSInstanceStateMonitorEvent event = new PaaSInstanceStateMonitorEvent();
+        event.setDeploymentId(deployment.getId());
+        event.setNodeTemplateId("compute");
+        event.setInstanceId(instanceId);
+        event.setInstanceState(instanceState);
+        event.setInstanceStatus(InstanceStatus.SUCCESS);
+        event.setAttributes(attributes);
+        Assert.assertTrue(registry.canHandle(event));
+        registry.eventHappened(event);
+    }
+
+    private String state(String instanceId) {
+        return result.get("compute").get(instanceId).getState();
+    }
+
+    @Test
+    public void snapshotShouldBeUpdatedByEventsAndReloadedOnceExpired() throws InterruptedException {
+        getInstancesInformation();
+        orchestratorResponse(computeInstances("starting"));
+        Assert.assertEquals("starting", state("0"));
+
+        // the events are served without requesting the orchestrator
+        instanceEvent("0", "started");
+        instanceEvent("1", "starting");
+        getInstancesInformation();
+        Assert.assertTrue(orchestratorRequests.isEmpty());
+        Assert.assertEquals("started", state("0"));
+        Assert.assertEquals("starting", state("1"));
+        Assert.assertEquals(InstanceStatus.SUCCESS, result.get("compute").get("0").getInstanceStatus());
+
+        // the expired snapshot is reloaded from the orchestrator
+        Thread.sleep(100);
+        getInstancesInformation();
+        Assert.assertNull(result);
+        Assert.assertEquals(1, orchestratorRequests.size());
+        orchestratorResponse(computeInstances("started", "started"));
+        Assert.assertEquals("started", state("1"));
+
+        // the reloaded snapshot is updated by the events
+        instanceEvent("1", "stopping");
+        getInstancesInformation();
+        Assert.assertTrue(orchestratorRequests.isEmpty());
+        Assert.assertEquals("stopping", state("1"));
+    }
+
+    @Test
+    public void eventsReceivedWhileTheOrchestratorIsRequestedShouldBeApplied() {
+        getInstancesInformation();
+        instanceEvent("0", "started");
+        instanceEvent("1", "starting");
+        // the orchestrator result doesn't contain the latest events
+        orchestratorResponse(computeInstances("starting"));
+        Assert.assertEquals("started", state("0"));
+        Assert.assertEquals("starting", state("1"));
+
+        getInstancesInformation();
+        Assert.assertTrue(orchestratorRequests.isEmpty());
+        Assert.assertEquals("started", state("0"));
+        Assert.assertEquals("starting", state("1"));
+    }
+
+    @Test
+    public void eventsReceivedWithoutSnapshotNorRequestShouldBeIgnored() {
+        instanceEvent("0", "started");
+        getInstancesInformation();
+        orchestratorResponse(computeInstances("starting"));
+        Assert.assertEquals("starting", state("0"));
+    }
+
+    @Test
+    public void undeploymentWhileTheOrchestratorIsRequestedShouldDropTheSnapshot() {
+        getInstancesInformation();
+        PaaSDeploymentStatusMonitorEvent event = new PaaSDeploymentStatusMonitorEvent();
+        event.setDeploymentId(deployment.getId());
+        event.setDeploymentStatus(DeploymentStatus.UNDEPLOYED);
+        registry.eventHappened(event);
+        orchestratorResponse(computeInstances("started"));
+        Assert.assertNull(registry.get(deployment.getId()));
+    }
+
+    @Test
+    public void failedRequestsShouldNotKeepTheEvents() {
+        getInstancesInformation();
+        orchestratorRequests.remove(0).onFailure(new RuntimeException());
+        Assert.assertNotNull(failure);
+        instanceEvent("0", "started");
+        Assert.assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(registry, "pendingRequests")).isEmpty());
+    }
+
+    /** Request the instances of the deployment, the results and the failures are added once the callback is called. */
+    private void getInstancesInformation(final List<Map<String, Map<String, InstanceInformation>>> results, final List<Throwable> failures) {
+        deploymentRuntimeStateService.getInstancesInformation(deployment, new IPaaSCallback<Map<String, Map<String, InstanceInformation>>>() {
+            @Override
+            public void onSuccess(Map<String, Map<String, InstanceInformation>> data) {
+                results.add(data);
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                failures.add(throwable);
+            }
+        });
+    }
+
+    @Test
+    public void concurrentReadsShouldShareTheOrchestratorRequest() {
+        List<Map<String, Map<String, InstanceInformation>>> results = Lists.newArrayList();
+        List<Throwable> failures = Lists.newArrayList();
+        getInstancesInformation(results, failures);
+        getInstancesInformation(results, failures);
+        Assert.assertEquals(1, orchestratorRequests.size());
+        // the failure of the request is given to all the callers
+        orchestratorRequests.remove(0).onFailure(new RuntimeException());
+        Assert.assertEquals(2, failures.size());
+        Assert.assertTrue(results.isEmpty());
+
+        getInstancesInformation(results, failures);
+        getInstancesInformation(results, failures);
+        Assert.assertEquals(1, orchestratorRequests.size());
+        orchestratorResponse(computeInstances("started"));
+        Assert.assertEquals(2, results.size());
+        for (Map<String, Map<String, InstanceInformation>> instances : results) {
+            Assert.assertEquals("started", instances.get("compute").get("0").getState());
+        }
+        // each caller gets its own copy of the instances
+        Assert.assertNotSame(results.get(0), results.get(1));
+    }
+
+    @Test
+    public void attributesOfTheEventsShouldBePostProcessed() {
+        getInstancesInformation();
+        orchestratorResponse(computeInstances("starting"));
+        instanceEvent("0", "started", MapUtil.newHashMap(new String[] { "ip_address", "url" }, new String[] { "10.0.0.1", "" }));
+        getInstancesInformation();
+        Assert.assertEquals("http://10.0.0.1", result.get("compute").get("0").getAttributes().get("url"));
+
+        instanceEvent("0", "started", MapUtil.newHashMap(new String[] { "ip_address", "url" }, new String[] { "10.0.0.2", "" }));
+        Map<String, Map<String, InstanceInformation>> previousResult = result;
+        getInstancesInformation();
+        Assert.assertEquals("http://10.0.0.2", result.get("compute").get("0").getAttributes().get("url"));
+        // the instances already served are not updated
+        Assert.assertEquals("http://10.0.0.1", previousResult.get("compute").get("0").getAttributes().get("url"));
+    }
+}
@@ -0,0 +1,116 @@
+package alien4cloud.deployment.matching.services.nodes;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import alien4cloud.model.components.IndexedCapabilityType;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.deployment.matching.MatchingConfiguration;
+import alien4cloud.model.orchestrators.locations.Location;
+import alien4cloud.model.orchestrators.locations.LocationResourceTemplate;
+import alien4cloud.model.orchestrators.locations.LocationResources;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.orchestrators.plugin.IOrchestratorPlugin;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Check the bucketing of the location resources by the types of their type hierarchy and the validity of the index.
+ */
+public class LocationMatchingIndexTest {
+    private static final String ROOT = "tosca.nodes.Root";
+    private static final String COMPUTE = "tosca.nodes.Compute";
+    private static final String CUSTOM_COMPUTE = "custom.nodes.Compute";
+    private static final String NETWORK = "tosca.nodes.Network";
+
+    private LocationResources locationResources;
+    private Location location;
+    private IOrchestratorPlugin orchestratorPlugin;
+
+    @Before
+    public void before() {
+        locationResources = new LocationResources();
+        locationResources.setNodeTypes(Maps.<String, IndexedNodeType> newHashMap());
+        locationResources.setCapabilityTypes(Maps.<String, IndexedCapabilityType> newHashMap());
+        locationResources.setNodeTemplates(Lists.<LocationResourceTemplate> newArrayList());
+        addNodeType(COMPUTE, ROOT);
+        // a type may be declared multiple times in the hierarchy
+        addNodeType(CUSTOM_COMPUTE, COMPUTE, ROOT, ROOT);
+        addNodeType(NETWORK, ROOT);
+
+        location = new Location();
+        location.setId("location");
+        location.setLastUpdateDate(new Date(1000));
+        orchestratorPlugin = Mockito.mock(IOrchestratorPlugin.class);
+    }
+
+    private void addNodeType(String elementId, String... derivedFrom) {
+        IndexedNodeType nodeType = new IndexedNodeType();
+        nodeType.setElementId(elementId);
+        nodeType.setDerivedFrom(Lists.newArrayList(derivedFrom));
+        locationResources.getNodeTypes().put(elementId, nodeType);
+    }
+
+    private LocationResourceTemplate addResource(String type) {
+        NodeTemplate nodeTemplate = new NodeTemplate();
+        nodeTemplate.setType(type);
+        LocationResourceTemplate resource = new LocationResourceTemplate();
+        resource.setTemplate(nodeTemplate);
+        locationResources.getNodeTemplates().add(resource);
+        return resource;
+    }
+
+    private LocationMatchingIndex index() {
+        return new LocationMatchingIndex(location, orchestratorPlugin, locationResources, Maps.<String, MatchingConfiguration> newHashMap());
+    }
+
+    private List<LocationResourceTemplate> candidates(LocationMatchingIndex index, String type) {
+        return index.getResources(type).getNodeTemplates();
+    }
+
+    @Test
+    public void resourcesShouldBeBucketedByTheTypesOfTheirHierarchy() {
+        LocationResourceTemplate customCompute = addResource(CUSTOM_COMPUTE);
+        LocationResourceTemplate compute = addResource(COMPUTE);
+        LocationResourceTemplate network = addResource(NETWORK);
+        LocationMatchingIndex index = index();
+
+        Assert.assertEquals(Lists.newArrayList(customCompute), candidates(index, CUSTOM_COMPUTE));
+        Assert.assertEquals(Lists.newArrayList(customCompute, compute), candidates(index, COMPUTE));
+        Assert.assertEquals(Lists.newArrayList(network), candidates(index, NETWORK));
+        // each resource is a candidate once for a type declared multiple times in its hierarchy
+        Assert.assertEquals(Lists.newArrayList(customCompute, compute, network), candidates(index, ROOT));
+        // the buckets share the types of the location
+        Assert.assertSame(locationResources.getNodeTypes(), index.getResources(COMPUTE).getNodeTypes());
+    }
+
+    @Test
+    public void typesOfTheLocationWithoutResourcesShouldHaveEmptyBuckets() {
+        addResource(COMPUTE);
+        LocationMatchingIndex index = index();
+
+        Assert.assertTrue(candidates(index, CUSTOM_COMPUTE).isEmpty());
+        Assert.assertTrue(candidates(index, NETWORK).isEmpty());
+        // types that are not managed by the location cannot be matched
+        Assert.assertNull(index.getResources("tosca.nodes.BlockStorage"));
+    }
+
+    @Test
+    public void indexShouldBeValidUntilTheLocationOrThePluginChanges() {
+        LocationMatchingIndex index = index();
+        Assert.assertTrue(index.isValidFor(location, orchestratorPlugin));
+
+        Location updatedLocation = new Location();
+        updatedLocation.setId(location.getId());
+        updatedLocation.setLastUpdateDate(new Date(2000));
+        Assert.assertFalse(index.isValidFor(updatedLocation, orchestratorPlugin));
+        // a reloaded plugin may expose other resources
+        Assert.assertFalse(index.isValidFor(location, Mockito.mock(IOrchestratorPlugin.class)));
+    }
+}
@@ -0,0 +1,116 @@
+package alien4cloud.deployment.matching.services.nodes;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import alien4cloud.model.components.AbstractPropertyValue;
+import alien4cloud.model.components.PropertyDefinition;
+import alien4cloud.model.components.ScalarPropertyValue;
+import alien4cloud.model.components.constraints.EqualConstraint;
+import alien4cloud.model.components.constraints.GreaterOrEqualConstraint;
+import alien4cloud.model.components.constraints.IMatchPropertyConstraint;
+import alien4cloud.model.components.constraints.LessThanConstraint;
+import alien4cloud.model.deployment.matching.MatchingFilterDefinition;
+import alien4cloud.tosca.normative.ToscaType;
+import alien4cloud.tosca.properties.constraints.exception.ConstraintValueDoNotMatchPropertyTypeException;
+import alien4cloud.tosca.properties.constraints.exception.ConstraintViolationException;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Check that compiled matching filters give the same results as the validation of the match constraints.
+ */
+public class MatchingFilterTest {
+    private static final String PROPERTY = "num_cpus";
+
+    @Test
+    public void compiledConstraintsShouldMatchConstraintsValidation() throws ConstraintValueDoNotMatchPropertyTypeException {
+        String[] values = { "1", "2", "4" };
+        List<IMatchPropertyConstraint> constraints = Lists.<IMatchPropertyConstraint> newArrayList(new EqualConstraint(), new GreaterOrEqualConstraint(),
+                new LessThanConstraint());
+        for (IMatchPropertyConstraint constraint : constraints) {
+            MatchingFilter filter = compile(constraint);
+            for (String candidateValue : values) {
+                for (String templateValue : values) {
+                    Assert.assertEquals(constraint.getClass().getSimpleName() + " " + candidateValue + " " + templateValue,
+                            validate(constraint, candidateValue, templateValue), matches(filter, "integer", candidateValue, templateValue));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void invalidValues() {
+        MatchingFilter filter = compile(new GreaterOrEqualConstraint());
+        // the filter is ignored when the candidate value is not valid
+        Assert.assertTrue(matches(filter, "integer", "a", "1"));
+        Assert.assertFalse(matches(filter, "integer", "1", "a"));
+        // comparisons are ignored on types that are not comparable
+        Assert.assertTrue(matches(compile(new GreaterOrEqualConstraint()), "boolean", "true", "false"));
+        Assert.assertFalse(matches(compile(new EqualConstraint()), "boolean", "true", "false"));
+    }
+
+    @Test
+    public void filterAppliesOnlyOnScalarValues() {
+        MatchingFilter filter = compile(new EqualConstraint());
+        Map<String, AbstractPropertyValue> candidateValues = Maps.newHashMap();
+        candidateValues.put(PROPERTY, new ScalarPropertyValue("1"));
+        Assert.assertTrue(filter.matches(Maps.<String, AbstractPropertyValue> newHashMap(), candidateValues, definitions("integer")));
+    }
+
+    @Test
+    public void parsedCandidateValuesShouldBeSharedByTheFilters() {
+        Map<String, AbstractPropertyValue> candidateValues = Maps.newHashMap();
+        candidateValues.put(PROPERTY, new ScalarPropertyValue("2"));
+        candidateValues.put("invalid", new ScalarPropertyValue("a"));
+        Map<String, PropertyDefinition> definitions = definitions("integer");
+        definitions.put("invalid", definitions.get(PROPERTY));
+        Map<String, MatchingFilter.ReferenceValue> references = MatchingFilter.parse(candidateValues, definitions);
+        // invalid values and values without definition are not references
+        Assert.assertEquals(Sets.newHashSet(PROPERTY), references.keySet());
+
+        Map<String, AbstractPropertyValue> templateValues = Maps.newHashMap();
+        templateValues.put(PROPERTY, new ScalarPropertyValue("4"));
+        Assert.assertFalse(compile(new EqualConstraint()).matches(templateValues, references));
+        Assert.assertTrue(compile(new GreaterOrEqualConstraint()).matches(templateValues, references));
+        Assert.assertFalse(compile(new LessThanConstraint()).matches(templateValues, MatchingFilter.parse(templateValues, definitions)));
+    }
+
+    private static boolean validate(IMatchPropertyConstraint constraint, String candidateValue, String templateValue)
+            throws ConstraintValueDoNotMatchPropertyTypeException {
+        constraint.setConstraintValue(ToscaType.fromYamlTypeName("integer"), candidateValue);
+        try {
+            constraint.validate(ToscaType.fromYamlTypeName("integer"), templateValue);
+            return true;
+        } catch (ConstraintViolationException e) {
+            return false;
+        }
+    }
+
+    private static MatchingFilter compile(IMatchPropertyConstraint constraint) {
+        MatchingFilterDefinition filterDefinition = new MatchingFilterDefinition();
+        filterDefinition.getProperties().put(PROPERTY, Lists.newArrayList(constraint));
+        return MatchingFilter.compile(filterDefinition);
+    }
+
+    private static boolean matches(MatchingFilter filter, String type, String candidateValue, String templateValue) {
+        Map<String, AbstractPropertyValue> candidateValues = Maps.newHashMap();
+        candidateValues.put(PROPERTY, new ScalarPropertyValue(candidateValue));
+        Map<String, AbstractPropertyValue> templateValues = Maps.newHashMap();
+        templateValues.put(PROPERTY, new ScalarPropertyValue(templateValue));
+        return filter.matches(templateValues, candidateValues, definitions(type));
+    }
+
+    private static Map<String, PropertyDefinition> definitions(String type) {
+        PropertyDefinition propertyDefinition = new PropertyDefinition();
+        propertyDefinition.setType(type);
+        Map<String, PropertyDefinition> propertyDefinitions = Maps.newHashMap();
+        propertyDefinitions.put(PROPERTY, propertyDefinition);
+        return propertyDefinitions;
+    }
+}
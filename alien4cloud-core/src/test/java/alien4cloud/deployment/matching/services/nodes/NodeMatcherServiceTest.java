@@ -0,0 +1,191 @@
+package alien4cloud.deployment.matching.services.nodes;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.model.components.IndexedCapabilityType;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.deployment.matching.MatchingConfiguration;
+import alien4cloud.model.orchestrators.locations.Location;
+import alien4cloud.model.orchestrators.locations.LocationResourceTemplate;
+import alien4cloud.model.orchestrators.locations.LocationResources;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.orchestrators.locations.services.LocationMatchingConfigurationService;
+import alien4cloud.orchestrators.locations.services.LocationResourceService;
+import alien4cloud.orchestrators.locations.services.LocationService;
+import alien4cloud.orchestrators.plugin.IOrchestratorPlugin;
+import alien4cloud.paas.OrchestratorPluginService;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Check that the matching index of a location is reused by the matchings and created again when the resources of the location are updated.
+ */
+public class NodeMatcherServiceTest {
+    private static final String COMPUTE = "tosca.nodes.Compute";
+    private static final String NETWORK = "tosca.nodes.Network";
+
+    private NodeMatcherService nodeMatcherService;
+    private LocationResourceService locationResourceService;
+    private OrchestratorPluginService orchestratorPluginService;
+    private Location location;
+    private Map<String, IndexedNodeType> nodeTypes = Maps.newHashMap();
+    /** Resources of the location as persisted by the dao. */
+    private List<LocationResourceTemplate> resources = Lists.newArrayList();
+
+    @Before
+    public void before() {
+        IndexedNodeType computeType = new IndexedNodeType();
+        computeType.setElementId(COMPUTE);
+        computeType.setDerivedFrom(Lists.newArrayList("tosca.nodes.Root"));
+        nodeTypes.put(COMPUTE, computeType);
+
+        location = new Location();
+        location.setId("location");
+        location.setOrchestratorId("orchestrator");
+        location.setLastUpdateDate(new Date());
+        LocationService locationService = Mockito.mock(LocationService.class);
+        Mockito.when(locationService.getOrFail(location.getId())).thenReturn(location);
+        orchestratorPluginService = Mockito.mock(OrchestratorPluginService.class);
+        Mockito.when(orchestratorPluginService.getOrFail(location.getOrchestratorId())).thenReturn(Mockito.mock(IOrchestratorPlugin.class));
+        LocationMatchingConfigurationService locationMatchingConfigurationService = Mockito.mock(LocationMatchingConfigurationService.class);
+        Mockito.when(locationMatchingConfigurationService.getMatchingConfiguration(location)).thenReturn(Maps.<String, MatchingConfiguration> newHashMap());
+
+        locationResourceService = Mockito.spy(new LocationResourceService());
+        ReflectionTestUtils.setField(locationResourceService, "alienDAO", mockDao());
+        ReflectionTestUtils.setField(locationResourceService, "locationService", locationService);
+        Mockito.doAnswer(new Answer<LocationResources>() {
+            @Override
+            public LocationResources answer(InvocationOnMock invocation) {
+                LocationResources locationResources = new LocationResources();
+                locationResources.setNodeTypes(nodeTypes);
+                locationResources.setCapabilityTypes(Maps.<String, IndexedCapabilityType> newHashMap());
+                locationResources.setNodeTemplates(Lists.newArrayList(resources));
+                return locationResources;
+            }
+        }).when(locationResourceService).getLocationResources(location);
+
+        nodeMatcherService = new NodeMatcherService();
+        ReflectionTestUtils.setField(nodeMatcherService, "defaultNodeMatcher", new DefaultNodeMatcher());
+        ReflectionTestUtils.setField(nodeMatcherService, "locationService", locationService);
+        ReflectionTestUtils.setField(nodeMatcherService, "locationResourceService", locationResourceService);
+        ReflectionTestUtils.setField(nodeMatcherService, "locationMatchingConfigurationService", locationMatchingConfigurationService);
+        ReflectionTestUtils.setField(nodeMatcherService, "orchestratorPluginService", orchestratorPluginService);
+    }
+
+    @After
+    public void after() {
+        nodeMatcherService.destroy();
+    }
+
+    private IGenericSearchDAO mockDao() {
+        IGenericSearchDAO alienDAO = Mockito.mock(IGenericSearchDAO.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                Object entity = invocation.getArguments()[0];
+                if (entity instanceof LocationResourceTemplate) {
+                    resources.add((LocationResourceTemplate) entity);
+                }
+                return null;
+            }
+        }).when(alienDAO).save(Mockito.<Object> any());
+        Mockito.when(alienDAO.findById(Mockito.eq(LocationResourceTemplate.class), Mockito.anyString())).thenAnswer(new Answer<LocationResourceTemplate>() {
+            @Override
+            public LocationResourceTemplate answer(InvocationOnMock invocation) {
+                return getResource((String) invocation.getArguments()[1]);
+            }
+        });
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                resources.remove(getResource((String) invocation.getArguments()[1]));
+                return null;
+            }
+        }).when(alienDAO).delete(Mockito.eq(LocationResourceTemplate.class), Mockito.anyString());
+        return alienDAO;
+    }
+
+    private LocationResourceTemplate getResource(String id) {
+        for (LocationResourceTemplate resource : resources) {
+            if (resource.getId().equals(id)) {
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    private LocationResourceTemplate resource(String id) {
+        NodeTemplate nodeTemplate = new NodeTemplate();
+        nodeTemplate.setType(COMPUTE);
+        LocationResourceTemplate resource = new LocationResourceTemplate();
+        resource.setId(id);
+        resource.setLocationId(location.getId());
+        resource.setTemplate(nodeTemplate);
+        return resource;
+    }
+
+    private Map<String, List<LocationResourceTemplate>> match() {
+        Map<String, NodeTemplate> nodesToMatch = Maps.newHashMap();
+        for (String type : new String[] { COMPUTE, NETWORK }) {
+            NodeTemplate nodeTemplate = new NodeTemplate();
+            nodeTemplate.setType(type);
+            nodesToMatch.put(type, nodeTemplate);
+        }
+        return nodeMatcherService.match(nodeTypes, nodesToMatch, location.getId());
+    }
+
+    private void updateLater() throws InterruptedException {
+        // the index is invalidated by the last update date of the location
+        Thread.sleep(5);
+    }
+
+    @Test
+    public void matchingIndexShouldBeReusedUntilAResourceIsAddedOrRemoved() throws InterruptedException {
+        LocationResourceTemplate firstResource = resource("first");
+        resources.add(firstResource);
+
+        Map<String, List<LocationResourceTemplate>> matchingResult = match();
+        Assert.assertEquals(Lists.newArrayList(firstResource), matchingResult.get(COMPUTE));
+        // the node which type is not managed by the location is not matched
+        Assert.assertFalse(matchingResult.containsKey(NETWORK));
+        Assert.assertEquals(Lists.newArrayList(firstResource), match().get(COMPUTE));
+        Mockito.verify(locationResourceService, Mockito.times(1)).getLocationResources(location);
+
+        updateLater();
+        LocationResourceTemplate secondResource = resource("second");
+        locationResourceService.saveResource(location, secondResource);
+        Assert.assertEquals(Lists.newArrayList(firstResource, secondResource), match().get(COMPUTE));
+        Mockito.verify(locationResourceService, Mockito.times(2)).getLocationResources(location);
+
+        updateLater();
+        locationResourceService.deleteResourceTemplate(firstResource.getId());
+        Assert.assertEquals(Lists.newArrayList(secondResource), match().get(COMPUTE));
+        Assert.assertEquals(Lists.newArrayList(secondResource), match().get(COMPUTE));
+        Mockito.verify(locationResourceService, Mockito.times(3)).getLocationResources(location);
+    }
+
+    @Test
+    public void matchingIndexShouldBeCreatedAgainWhenThePluginIsReloaded() {
+        resources.add(resource("first"));
+        match();
+
+        Mockito.when(orchestratorPluginService.getOrFail(location.getOrchestratorId())).thenReturn(Mockito.mock(IOrchestratorPlugin.class));
+        LocationResourceTemplate secondResource = resource("second");
+        resources.add(secondResource);
+        Assert.assertEquals(2, match().get(COMPUTE).size());
+        Mockito.verify(locationResourceService, Mockito.times(2)).getLocationResources(location);
+    }
+}
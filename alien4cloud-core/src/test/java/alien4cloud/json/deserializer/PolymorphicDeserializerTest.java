@@ -0,0 +1,138 @@
+package alien4cloud.json.deserializer;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import alien4cloud.dao.ElasticSearchMapper;
+import alien4cloud.model.components.AbstractPropertyValue;
+import alien4cloud.model.components.ComplexPropertyValue;
+import alien4cloud.model.components.ConcatPropertyValue;
+import alien4cloud.model.components.FunctionPropertyValue;
+import alien4cloud.model.components.IValue;
+import alien4cloud.model.components.ListPropertyValue;
+import alien4cloud.model.components.PropertyConstraint;
+import alien4cloud.model.components.PropertyDefinition;
+import alien4cloud.model.components.ScalarPropertyValue;
+import alien4cloud.model.components.constraints.GreaterOrEqualConstraint;
+import alien4cloud.model.components.constraints.InRangeConstraint;
+import alien4cloud.model.components.constraints.ValidValuesConstraint;
+import alien4cloud.model.topology.AbstractPolicy;
+import alien4cloud.model.topology.GenericPolicy;
+import alien4cloud.model.topology.HaPolicy;
+import alien4cloud.topology.task.AbstractTask;
+import alien4cloud.topology.task.PropertiesTask;
+import alien4cloud.topology.task.SuggestionsTask;
+import alien4cloud.topology.task.TopologyTask;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * Check that the streaming polymorphic deserializers produce the same objects as the conversion of the whole json tree to the implementation class.
+ */
+public class PolymorphicDeserializerTest {
+    private ObjectMapper mapper;
+
+    @Before
+    public void before() {
+        mapper = ElasticSearchMapper.getInstance();
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer(AbstractPropertyValue.class, new PropertyValueDeserializer());
+        module.addDeserializer(IValue.class, new OperationParameterDeserializer());
+        module.addDeserializer(AbstractPolicy.class, new PolicyDeserializer());
+        module.addDeserializer(AbstractTask.class, new TaskDeserializer());
+        mapper.registerModule(module);
+    }
+
+    @Test
+    public void propertyValues() throws IOException {
+        assertEquivalent("{'value':'a'}", AbstractPropertyValue.class, ScalarPropertyValue.class);
+        assertEquivalent("{'value':['a','b',{'c':1}]}", AbstractPropertyValue.class, ListPropertyValue.class);
+        assertEquivalent("{'value':{'a':['b'],'c':{'d':true}}}", AbstractPropertyValue.class, ComplexPropertyValue.class);
+        assertEquivalent("{'function':'get_property','parameters':['SELF','port']}", AbstractPropertyValue.class, FunctionPropertyValue.class);
+        // the discriminator is not the first field
+        assertEquivalent("{'parameters':['SELF','port'],'function':'get_property'}", AbstractPropertyValue.class, FunctionPropertyValue.class);
+        // a discriminator name with a value of another type is skipped
+        assertEquivalent("{'value':1,'function':'get_input','parameters':['port']}", AbstractPropertyValue.class, FunctionPropertyValue.class);
+        AbstractPropertyValue value = mapper.readValue(json("'a'"), AbstractPropertyValue.class);
+        Assert.assertEquals("a", ((ScalarPropertyValue) value).getValue());
+    }
+
+    @Test
+    public void operationParameters() throws IOException {
+        assertEquivalent("{'type':'integer','required':false,'constraints':[{'greaterOrEqual':'1'}],'default':'2'}", IValue.class, PropertyDefinition.class);
+        assertEquivalent("{'value':'a'}", IValue.class, ScalarPropertyValue.class);
+        // nested polymorphic parameters are resolved from the replayed tokens
+        assertEquivalent("{'parameters':['http://',{'function':'get_attribute','parameters':['HOST','ip_address']},{'value':':80'}],'function_concat':'concat'}",
+                IValue.class, ConcatPropertyValue.class);
+    }
+
+    @Test
+    public void constraints() throws IOException {
+        assertEquivalent("{'greaterOrEqual':'2'}", PropertyConstraint.class, GreaterOrEqualConstraint.class);
+        assertEquivalent("{'validValues':['a','b']}", PropertyConstraint.class, ValidValuesConstraint.class);
+        assertEquivalent("{'rangeMinValue':'1','rangeMaxValue':'3'}", PropertyConstraint.class, InRangeConstraint.class);
+    }
+
+    @Test(expected = JsonMappingException.class)
+    public void emptyConstraintShouldFail() throws IOException {
+        mapper.readValue(json("{}"), PropertyConstraint.class);
+    }
+
+    @Test
+    public void policies() throws IOException {
+        assertEquivalent("{'name':'ha','type':'tosca.policy.ha'}", AbstractPolicy.class, HaPolicy.class);
+        AbstractPolicy policy = mapper.readValue(json("{'name':'p','type':'my.Policy','data':{'name':'p','type':'my.Policy','key':'value'}}"),
+                AbstractPolicy.class);
+        Assert.assertEquals(GenericPolicy.class, policy.getClass());
+        Assert.assertEquals("my.Policy", policy.getType());
+        Assert.assertEquals("value", ((GenericPolicy) policy).getData().get("key"));
+    }
+
+    @Test
+    public void tasks() throws IOException {
+        assertEquivalent("{'nodeTemplateName':'a','properties':{'REQUIRED':['p']},'code':'PROPERTIES'}", AbstractTask.class, PropertiesTask.class);
+        assertEquivalent("{'code':'IMPLEMENT','nodeTemplateName':'a'}", AbstractTask.class, SuggestionsTask.class);
+        // unknown code are topology tasks when they reference a node template
+        assertEquivalent("{'code':'NODE_NOT_SUBSTITUTED','nodeTemplateName':'a'}", AbstractTask.class, TopologyTask.class);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void unknownTaskShouldFail() throws IOException {
+        mapper.readValue(json("{'code':'NODE_NOT_SUBSTITUTED'}"), AbstractTask.class);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void unknownPropertyValueShouldFail() throws IOException {
+        mapper.readValue(json("{'other':'a'}"), AbstractPropertyValue.class);
+    }
+
+    @Test
+    public void parserIsPositionedAfterTheObject() throws IOException {
+        List<AbstractPropertyValue> values = mapper.readValue(json("[{'function':'get_input','parameters':['a']},{'b':{'c':[1]},'value':'b'},'c']"),
+                new TypeReference<List<AbstractPropertyValue>>() {
+                });
+        Assert.assertEquals(3, values.size());
+        Assert.assertEquals(FunctionPropertyValue.class, values.get(0).getClass());
+        Assert.assertEquals("b", ((ScalarPropertyValue) values.get(1)).getValue());
+        Assert.assertEquals("c", ((ScalarPropertyValue) values.get(2)).getValue());
+    }
+
+    private <T> void assertEquivalent(String json, Class<T> baseClass, Class<? extends T> implementationClass) throws IOException {
+        T streamed = mapper.readValue(json(json), baseClass);
+        Assert.assertEquals(implementationClass, streamed.getClass());
+        T converted = mapper.treeToValue(mapper.readTree(json(json)), implementationClass);
+        Assert.assertEquals(mapper.writeValueAsString(converted), mapper.writeValueAsString(streamed));
+    }
+
+    private static String json(String json) {
+        return json.replace('\'', '"');
+    }
+}
@@ -0,0 +1,195 @@
+package alien4cloud.paas;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.paas.model.AbstractMonitorEvent;
+import alien4cloud.paas.model.PaaSMessageMonitorEvent;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Test the persistence of the monitor events by bulks, the retry of the failed bulks and the persistence of the remaining events when the writer is stopped.
+ */
+public class MonitorEventsWriterTest {
+    private MonitorEventsWriter monitorEventsWriter;
+    private IGenericSearchDAO alienMonitorDao;
+    private List<List<AbstractMonitorEvent>> bulks = Collections.synchronizedList(Lists.<List<AbstractMonitorEvent>> newArrayList());
+    private CountDownLatch persisted;
+    /** Counted down when the thread of a blocked bulk request is interrupted. */
+    private CountDownLatch interrupted = new CountDownLatch(1);
+    /** Number of the next bulk requests that fail. */
+    private AtomicInteger failingSaves = new AtomicInteger();
+    private volatile Thread savingThread;
+
+    private void start(int bulkSize, final CountDownLatch saving, final CountDownLatch release) {
+        alienMonitorDao = Mockito.mock(IGenericSearchDAO.class);
+        final AtomicInteger activeSaves = new AtomicInteger();
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                Assert.assertEquals("Bulks must not be persisted concurrently", 1, activeSaves.incrementAndGet());
+                try {
+                    savingThread = Thread.currentThread();
+                    if (failingSaves.getAndDecrement() > 0) {
+                        throw new RuntimeException("Elastic search is not available");
+                    }
+                    AbstractMonitorEvent[] events = (AbstractMonitorEvent[]) invocation.getArguments()[0];
+                    bulks.add(Arrays.asList(events));
+                    if (saving != null && bulks.size() == 1) {
+                        saving.countDown();
+                        awaitRelease(release);
+                    }
+                    for (int i = 0; i < events.length; i++) {
+                        persisted.countDown();
+                    }
+                    return null;
+                } finally {
+                    activeSaves.decrementAndGet();
+                }
+            }
+        }).when(alienMonitorDao).save(Mockito.any(AbstractMonitorEvent[].class));
+
+        monitorEventsWriter = new MonitorEventsWriter();
+        ReflectionTestUtils.setField(monitorEventsWriter, "alienMonitorDao", alienMonitorDao);
+        ReflectionTestUtils.setField(monitorEventsWriter, "queueSize", 10);
+        ReflectionTestUtils.setField(monitorEventsWriter, "bulkSize", bulkSize);
+        ReflectionTestUtils.setField(monitorEventsWriter, "flushIntervalMs", 50L);
+        monitorEventsWriter.start();
+    }
+
+    /** Wait for the release of a bulk request that goes on when its thread is interrupted. */
+    private void awaitRelease(CountDownLatch release) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                if (release.await(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }
+    }
+
+    @After
+    public void after() throws InterruptedException {
+        monitorEventsWriter.stop();
+    }
+
+    private AbstractMonitorEvent[] events(int count) {
+        AbstractMonitorEvent[] events = new AbstractMonitorEvent[count];
+        for (int i = 0; i < count; i++) {
+            events[i] = new PaaSMessageMonitorEvent();
+        }
+        return events;
+    }
+
+    private List<AbstractMonitorEvent> persistedEvents() {
+        List<AbstractMonitorEvent> events = Lists.newArrayList();
+        synchronized (bulks) {
+            for (List<AbstractMonitorEvent> bulk : bulks) {
+                events.addAll(bulk);
+            }
+        }
+        return events;
+    }
+
+    @Test
+    public void eventsShouldBePersistedInOrderByBulks() throws InterruptedException {
+        persisted = new CountDownLatch(7);
+        start(3, null, null);
+        AbstractMonitorEvent[] events = events(7);
+        monitorEventsWriter.write(events);
+
+        Assert.assertTrue(persisted.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList(events), persistedEvents());
+        for (List<AbstractMonitorEvent> bulk : bulks) {
+            Assert.assertTrue(bulk.size() <= 3);
+        }
+        Assert.assertEquals("monitor-events-writer", savingThread.getName());
+        Assert.assertTrue(savingThread.isDaemon());
+    }
+
+    @Test
+    public void failedBulksShouldBeRetriedUntilPersisted() throws InterruptedException {
+        persisted = new CountDownLatch(7);
+        failingSaves.set(2);
+        start(3, null, null);
+        AbstractMonitorEvent[] events = events(7);
+        monitorEventsWriter.write(events);
+
+        Assert.assertTrue(persisted.await(5, TimeUnit.SECONDS));
+        // the failed bulk is not lost and the events of the next bulks are not persisted before it
+        Assert.assertEquals(Arrays.asList(events), persistedEvents());
+        Mockito.verify(alienMonitorDao, Mockito.times(bulks.size() + 2)).save(Mockito.any(AbstractMonitorEvent[].class));
+    }
+
+    @Test
+    public void incompleteBulksShouldBePersistedAfterTheFlushInterval() throws InterruptedException {
+        persisted = new CountDownLatch(1);
+        start(100, null, null);
+        AbstractMonitorEvent[] events = events(1);
+        monitorEventsWriter.write(events);
+
+        Assert.assertTrue(persisted.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList(events), persistedEvents());
+    }
+
+    @Test
+    public void remainingEventsShouldBePersistedOnceTheWriterHasStopped() throws Exception {
+        persisted = new CountDownLatch(5);
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        start(2, saving, release);
+        AbstractMonitorEvent[] firstBulk = events(2);
+        monitorEventsWriter.write(firstBulk);
+        Assert.assertTrue(saving.await(5, TimeUnit.SECONDS));
+        // the writer is blocked so these events stay in the queue
+        AbstractMonitorEvent[] remaining = events(3);
+        monitorEventsWriter.write(remaining);
+        Assert.assertEquals(7, monitorEventsWriter.getRemainingCapacity());
+
+        ExecutorService stopper = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> stop = stopper.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    monitorEventsWriter.stop();
+                    return null;
+                }
+            });
+            // the writer doesn't stop within the flush timeout so it is interrupted, the remaining events must wait for the writer to stop
+            Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            Assert.assertEquals(1, bulks.size());
+            Assert.assertFalse(stop.isDone());
+
+            release.countDown();
+            stop.get(5, TimeUnit.SECONDS);
+            Assert.assertTrue(persisted.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(2, bulks.size());
+            Assert.assertEquals(Arrays.asList(firstBulk), bulks.get(0));
+            Assert.assertEquals(Arrays.asList(remaining), bulks.get(1));
+        } finally {
+            stopper.shutdownNow();
+        }
+    }
+}
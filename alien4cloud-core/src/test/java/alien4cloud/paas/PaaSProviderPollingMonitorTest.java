@@ -5,32 +5,51 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Resource;
 
 import org.elasticsearch.client.Client;
 import org.elasticsearch.mapping.ElasticSearchClient;
+import org.elasticsearch.mapping.QueryHelper.SearchQueryHelperBuilder;
+import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import alien4cloud.dao.IGenericSearchDAO;
-import alien4cloud.paas.PaaSProviderPollingMonitor;
+import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.model.deployment.Deployment;
+import alien4cloud.paas.model.AbstractMonitorEvent;
 import alien4cloud.paas.model.DeploymentStatus;
 import alien4cloud.paas.model.PaaSDeploymentStatusMonitorEvent;
 import alien4cloud.paas.model.PaaSMessageMonitorEvent;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
 
 /**
- * Test monitoring events recovery
+ * Test monitoring events recovery, dispatch of the polled and pushed events, next polling date and queuing of the events outside of the monitor lock.
  */
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration("classpath:application-context-test.xml")
+@SuppressWarnings({ "unchecked", "rawtypes" })
 public class PaaSProviderPollingMonitorTest {
 
     @Resource(name = "alien-es-dao")
@@ -46,6 +65,15 @@ public class PaaSProviderPollingMonitorTest {
     private final ObjectMapper jsonMapper = new ObjectMapper();
     private Date latestEventDate = null;
 
+    private IPaaSProvider paaSProvider;
+    private MonitorEventsWriter eventsWriter;
+    private IPaasEventListener listener;
+    private PaaSProviderPollingMonitor monitor;
+    private ExecutorService executor = Executors.newCachedThreadPool();
+    /** Events answered by the next polls, asynchronously as providers do. */
+    private List<AbstractMonitorEvent[]> polledEvents = Lists.newArrayList();
+    private AtomicInteger polls = new AtomicInteger();
+
     @Before
     public void initMocks() throws IOException, InterruptedException {
         nodeClient = esclient.getClient();
@@ -98,7 +126,7 @@ public class PaaSProviderPollingMonitorTest {
         // init with some events
         initEvents();
 
-        PaaSProviderPollingMonitor paaSProviderPollingMonitor = new PaaSProviderPollingMonitor(alienDao, alienMonitorDao, null, null, "CloudID");
+        PaaSProviderPollingMonitor paaSProviderPollingMonitor = new PaaSProviderPollingMonitor(alienDao, alienMonitorDao, null, null, null, "CloudID");
         Field lastPollingDateField = PaaSProviderPollingMonitor.class.getDeclaredField("lastPollingDate");
         lastPollingDateField.setAccessible(true);
         Date lastDate = (Date) lastPollingDateField.get(paaSProviderPollingMonitor);
@@ -109,7 +137,7 @@ public class PaaSProviderPollingMonitorTest {
     @Test
     public void testLoadEventsWithoutEvents() throws NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
 
-        PaaSProviderPollingMonitor paaSProviderPollingMonitor = new PaaSProviderPollingMonitor(alienDao, alienMonitorDao, null, null, "CloudID");
+        PaaSProviderPollingMonitor paaSProviderPollingMonitor = new PaaSProviderPollingMonitor(alienDao, alienMonitorDao, null, null, null, "CloudID");
         Field lastPollingDateField = PaaSProviderPollingMonitor.class.getDeclaredField("lastPollingDate");
         lastPollingDateField.setAccessible(true);
         Date lastDate = (Date) lastPollingDateField.get(paaSProviderPollingMonitor);
@@ -125,4 +153,205 @@ public class PaaSProviderPollingMonitorTest {
         return afterAddingMins;
     }
 
+    @Before
+    public void initMonitor() {
+        IGenericSearchDAO dao = Mockito.mock(IGenericSearchDAO.class);
+        Mockito.when(dao.search(Mockito.eq(Deployment.class), Mockito.anyString(), Mockito.anyMap(), Mockito.anyInt())).thenReturn(
+                new GetMultipleDataResult<Deployment>(new String[0], new Deployment[] { new Deployment() }));
+        IGenericSearchDAO monitorDAO = Mockito.mock(IGenericSearchDAO.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(monitorDAO.search(Mockito.any(SearchQueryHelperBuilder.class), Mockito.anyInt(), Mockito.anyInt())).thenReturn(
+                new GetMultipleDataResult<Object>(new String[0], new Object[0]));
+
+        paaSProvider = Mockito.mock(IPaaSProvider.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                polls.incrementAndGet();
+                final IPaaSCallback<AbstractMonitorEvent[]> callback = (IPaaSCallback<AbstractMonitorEvent[]>) invocation.getArguments()[2];
+                final AbstractMonitorEvent[] events = polledEvents.isEmpty() ? new AbstractMonitorEvent[0] : polledEvents.remove(0);
+                executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onSuccess(events);
+                    }
+                });
+                return null;
+            }
+        }).when(paaSProvider).getEventsSince(Mockito.any(Date.class), Mockito.anyInt(), Mockito.any(IPaaSCallback.class));
+
+        eventsWriter = Mockito.mock(MonitorEventsWriter.class);
+        Mockito.when(eventsWriter.getRemainingCapacity()).thenReturn(1000);
+        listener = Mockito.mock(IPaasEventListener.class);
+        Mockito.when(listener.canHandle(Mockito.any(AbstractMonitorEvent.class))).thenReturn(true);
+        monitor = new PaaSProviderPollingMonitor(dao, monitorDAO, eventsWriter, paaSProvider, Lists.<IPaasEventListener> newArrayList(listener), "cloud");
+        // the first run checks that the cloud has deployments to monitor
+        monitor.run();
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    /** Run the monitor until it polls the provider again. */
+    private void runUntilPolled(int expectedPolls) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (polls.get() < expectedPolls && System.currentTimeMillis() < deadline) {
+            monitor.run();
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(expectedPolls, polls.get());
+    }
+
+    private AbstractMonitorEvent event(long date) {
+        AbstractMonitorEvent event = new PaaSMessageMonitorEvent();
+        event.setDate(date);
+        return event;
+    }
+
+    @Test
+    public void polledEventsShouldBeDispatchedAndQueued() throws InterruptedException {
+        AbstractMonitorEvent[] events = new AbstractMonitorEvent[] { event(2000), event(1000) };
+        polledEvents.add(events);
+        final CountDownLatch queued = new CountDownLatch(1);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                queued.countDown();
+                return null;
+            }
+        }).when(eventsWriter).write(events);
+
+        monitor.run();
+        Assert.assertTrue(queued.await(5, TimeUnit.SECONDS));
+        for (AbstractMonitorEvent event : events) {
+            Assert.assertEquals("cloud", event.getCloudId());
+            Mockito.verify(listener).eventHappened(event);
+        }
+
+        // the next poll starts from the date of the latest event
+        runUntilPolled(2);
+        ArgumentCaptor<Date> pollingDate = ArgumentCaptor.forClass(Date.class);
+        Mockito.verify(paaSProvider, Mockito.times(2)).getEventsSince(pollingDate.capture(), Mockito.anyInt(), Mockito.any(IPaaSCallback.class));
+        Assert.assertEquals(new Date(2000), pollingDate.getAllValues().get(1));
+    }
+
+    @Test
+    public void blockedQueuingShouldNotBlockTheMonitor() throws Exception {
+        AbstractMonitorEvent[] events = new AbstractMonitorEvent[] { event(1000) };
+        polledEvents.add(events);
+        final CountDownLatch queuing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws InterruptedException {
+                // the writer queue is full
+                queuing.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        }).when(eventsWriter).write(events);
+
+        monitor.run();
+        Assert.assertTrue(queuing.await(5, TimeUnit.SECONDS));
+        Future<?> runAndStop = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                monitor.run();
+                monitor.stop();
+            }
+        });
+        runAndStop.get(1, TimeUnit.SECONDS);
+        // the poll is still in progress until its events are queued
+        Assert.assertEquals(1, polls.get());
+
+        release.countDown();
+        runUntilPolled(2);
+    }
+
+    /** Create a monitor of a provider that streams its events, the sinks of the subscriptions are added to the given list. */
+    private PaaSProviderPollingMonitor streamMonitor(final List<IPaaSEventSink> sinks) {
+        IPaaSProvider streamProvider = Mockito.mock(IPaaSProvider.class, Mockito.withSettings().extraInterfaces(IPaaSEventStreamProvider.class));
+        Mockito.when(((IPaaSEventStreamProvider) streamProvider).subscribeEvents(Mockito.any(Date.class), Mockito.any(IPaaSEventSink.class))).thenAnswer(
+                new Answer<IPaaSEventSubscription>() {
+                    @Override
+                    public IPaaSEventSubscription answer(InvocationOnMock invocation) {
+                        sinks.add((IPaaSEventSink) invocation.getArguments()[1]);
+                        return Mockito.mock(IPaaSEventSubscription.class);
+                    }
+                });
+        IGenericSearchDAO monitorDAO = Mockito.mock(IGenericSearchDAO.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(monitorDAO.search(Mockito.any(SearchQueryHelperBuilder.class), Mockito.anyInt(), Mockito.anyInt())).thenReturn(
+                new GetMultipleDataResult<Object>(new String[0], new Object[0]));
+        return new PaaSProviderPollingMonitor(Mockito.mock(IGenericSearchDAO.class), monitorDAO, eventsWriter, streamProvider,
+                Lists.<IPaasEventListener> newArrayList(listener), "cloud");
+    }
+
+    @Test
+    public void errorOfAReplacedStreamShouldNotBreakTheCurrentStream() {
+        List<IPaaSEventSink> sinks = Lists.newArrayList();
+        PaaSProviderPollingMonitor streamMonitor = streamMonitor(sinks);
+        streamMonitor.run();
+        Assert.assertEquals(1, sinks.size());
+
+        // the broken stream is subscribed again on next run
+        sinks.get(0).onError(new RuntimeException("broken stream"));
+        streamMonitor.run();
+        Assert.assertEquals(2, sinks.size());
+
+        // a late error of the first stream doesn't break the second one
+        sinks.get(0).onError(new RuntimeException("late error"));
+        streamMonitor.run();
+        Assert.assertEquals(2, sinks.size());
+        streamMonitor.stop();
+    }
+
+    @Test
+    public void concurrentlyPushedEventsShouldBeQueuedInDispatchOrder() throws Exception {
+        final List<IPaaSEventSink> sinks = Lists.newArrayList();
+        PaaSProviderPollingMonitor streamMonitor = streamMonitor(sinks);
+        streamMonitor.run();
+        final List<AbstractMonitorEvent> queuedEvents = Collections.synchronizedList(Lists.<AbstractMonitorEvent> newArrayList());
+        final CountDownLatch queuing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws InterruptedException {
+                AbstractMonitorEvent[] events = (AbstractMonitorEvent[]) invocation.getArguments()[0];
+                queuedEvents.add(events[0]);
+                if (queuedEvents.size() == 1) {
+                    // the writer queue is full
+                    queuing.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                return null;
+            }
+        }).when(eventsWriter).write(Mockito.any(AbstractMonitorEvent[].class));
+
+        List<AbstractMonitorEvent> pushedEvents = Lists.newArrayList();
+        List<Future<?>> pushes = Lists.newArrayList();
+        for (int i = 0; i < 3; i++) {
+            final AbstractMonitorEvent event = event(1000 + i);
+            pushedEvents.add(event);
+            pushes.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    sinks.get(0).onEvents(new AbstractMonitorEvent[] { event });
+                }
+            }));
+            // the events are dispatched one push after the other
+            Mockito.verify(listener, Mockito.timeout(5000)).eventHappened(event);
+            Assert.assertTrue(queuing.await(5, TimeUnit.SECONDS));
+        }
+        // the dispatched events wait for the blocked queuing of the first push
+        Thread.sleep(100);
+        Assert.assertEquals(1, queuedEvents.size());
+
+        release.countDown();
+        for (Future<?> push : pushes) {
+            push.get(5, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(pushedEvents, queuedEvents);
+        streamMonitor.stop();
+    }
 }
@@ -0,0 +1,113 @@
+package alien4cloud.paas.wf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import alien4cloud.paas.wf.util.WorkflowGraph;
+import alien4cloud.paas.wf.util.WorkflowUtils;
+
+import com.google.common.collect.Maps;
+
+public class WorkflowGraphTest {
+
+    /**
+     * <pre>
+     *      -- b --
+     *     /       \
+     * a --         -- d
+     *     \       /
+     *      -- c --
+     * </pre>
+     */
+    @Test
+    public void testTopologicalOrderAndSequences() {
+        Workflow wf = new Workflow();
+        SimpleStep d = wf.addStep(new SimpleStep("d"));
+        SimpleStep c = wf.addStep(new SimpleStep("c"));
+        SimpleStep b = wf.addStep(new SimpleStep("b"));
+        SimpleStep a = wf.addStep(new SimpleStep("a"));
+        WorkflowUtils.linkSteps(a, b);
+        WorkflowUtils.linkSteps(a, c);
+        WorkflowUtils.linkSteps(b, d);
+        WorkflowUtils.linkSteps(c, d);
+
+        WorkflowGraph graph = new WorkflowGraph(wf);
+        assertFalse(graph.hasCycle());
+        assertTrue(graph.getCycles().isEmpty());
+        List<AbstractStep> order = graph.getTopologicalOrder();
+        assertEquals(4, order.size());
+        assertEquals(a, order.get(0));
+        assertEquals(d, order.get(3));
+
+        Map<String, List<SimpleStep>> groups = Maps.newHashMap();
+        groups.put("sequence", Arrays.asList(d, b, a));
+        groups.put("parallel", Arrays.asList(b, c));
+        Map<String, List<AbstractStep>> sequences = graph.getSequences(groups);
+        assertEquals(Arrays.<AbstractStep> asList(a, b, d), sequences.get("sequence"));
+        assertNull(sequences.get("parallel"));
+    }
+
+    /**
+     * <pre>
+     *        c
+     *       /  \
+     * a -- b -- d
+     * </pre>
+     */
+    @Test
+    public void testCycle() {
+        Workflow wf = new Workflow();
+        SimpleStep a = wf.addStep(new SimpleStep("a"));
+        SimpleStep b = wf.addStep(new SimpleStep("b"));
+        SimpleStep c = wf.addStep(new SimpleStep("c"));
+        SimpleStep d = wf.addStep(new SimpleStep("d"));
+        WorkflowUtils.linkSteps(a, b);
+        WorkflowUtils.linkSteps(b, d);
+        WorkflowUtils.linkSteps(d, c);
+        WorkflowUtils.linkSteps(c, b);
+
+        WorkflowGraph graph = new WorkflowGraph(wf);
+        assertTrue(graph.hasCycle());
+        List<List<AbstractStep>> cycles = graph.getCycles();
+        assertEquals(1, cycles.size());
+        assertEquals(Arrays.<AbstractStep> asList(b, d, c, b), cycles.get(0));
+    }
+
+    /**
+     * A succession of 64 fork / join has 2^64 paths, the graph analysis must not enumerate them.
+     */
+    @Test
+    public void testManyParallelBranches() {
+        Workflow wf = new Workflow();
+        AbstractStep join = wf.addStep(new SimpleStep("join_0"));
+        for (int i = 1; i <= 64; i++) {
+            SimpleStep left = wf.addStep(new SimpleStep("left_" + i));
+            SimpleStep right = wf.addStep(new SimpleStep("right_" + i));
+            SimpleStep nextJoin = wf.addStep(new SimpleStep("join_" + i));
+            WorkflowUtils.linkSteps(join, left);
+            WorkflowUtils.linkSteps(join, right);
+            WorkflowUtils.linkSteps(left, nextJoin);
+            WorkflowUtils.linkSteps(right, nextJoin);
+            join = nextJoin;
+        }
+        WorkflowGraph graph = new WorkflowGraph(wf);
+        assertFalse(graph.hasCycle());
+        Map<String, List<AbstractStep>> groups = Maps.newHashMap();
+        groups.put("joins", Arrays.asList(wf.getSteps().get("join_64"), wf.getSteps().get("left_32"), wf.getSteps().get("join_0")));
+        groups.put("branches", Arrays.asList(wf.getSteps().get("left_32"), wf.getSteps().get("right_32")));
+        Map<String, List<AbstractStep>> sequences = graph.getSequences(groups);
+        assertNotNull(sequences.get("joins"));
+        assertEquals("join_0", sequences.get("joins").get(0).getName());
+        assertEquals("join_64", sequences.get("joins").get(2).getName());
+        assertNull(sequences.get("branches"));
+    }
+}
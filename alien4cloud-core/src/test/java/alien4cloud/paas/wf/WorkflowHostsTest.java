@@ -0,0 +1,170 @@
+package alien4cloud.paas.wf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.component.ICSARRepositorySearchService;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.IndexedRelationshipType;
+import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.RelationshipTemplate;
+import alien4cloud.model.topology.Topology;
+import alien4cloud.paas.wf.validation.WorkflowValidator;
+import alien4cloud.tosca.normative.NormativeComputeConstants;
+import alien4cloud.tosca.normative.NormativeRelationshipConstants;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Check that the hosts of the workflow steps follow the changes of the hosting hierarchy: server <- jvm <- application.
+ */
+public class WorkflowHostsTest {
+    private static final String SOFTWARE_TYPE = "tosca.nodes.SoftwareComponent";
+
+    private WorkflowsBuilderService workflowsBuilderService;
+    private Map<String, IndexedToscaElement> elements = Maps.newHashMap();
+    private Topology topology;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void before() {
+        ICSARRepositorySearchService searchService = Mockito.mock(ICSARRepositorySearchService.class);
+        Mockito.when(searchService.getElementInDependencies(Mockito.any(Class.class), Mockito.anyString(), Mockito.anyCollectionOf(CSARDependency.class)))
+                .thenAnswer(new Answer<IndexedToscaElement>() {
+                    @Override
+                    public IndexedToscaElement answer(InvocationOnMock invocation) {
+                        return elements.get(invocation.getArguments()[1]);
+                    }
+                });
+        workflowsBuilderService = new WorkflowsBuilderService();
+        ReflectionTestUtils.setField(workflowsBuilderService, "csarRepoSearchService", searchService);
+        ReflectionTestUtils.setField(workflowsBuilderService, "installWorkflowBuilder", new InstallWorkflowBuilder());
+        ReflectionTestUtils.setField(workflowsBuilderService, "uninstallWorkflowBuilder", new UninstallWorkflowBuilder());
+        ReflectionTestUtils.setField(workflowsBuilderService, "customWorkflowBuilder", new CustomWorkflowBuilder());
+        ReflectionTestUtils.setField(workflowsBuilderService, "workflowValidator", new WorkflowValidator());
+
+        addNodeType(NormativeComputeConstants.COMPUTE_TYPE);
+        addNodeType(SOFTWARE_TYPE);
+        IndexedRelationshipType hostedOn = new IndexedRelationshipType();
+        hostedOn.setElementId(NormativeRelationshipConstants.HOSTED_ON);
+        elements.put(hostedOn.getElementId(), hostedOn);
+
+        topology = new Topology();
+        topology.setDependencies(Sets.<CSARDependency> newHashSet());
+        topology.setNodeTemplates(Maps.<String, NodeTemplate> newHashMap());
+        topology.getNodeTemplates().put("server", nodeTemplate(NormativeComputeConstants.COMPUTE_TYPE, null));
+        topology.getNodeTemplates().put("jvm", nodeTemplate(SOFTWARE_TYPE, "server"));
+        topology.getNodeTemplates().put("application", nodeTemplate(SOFTWARE_TYPE, "jvm"));
+        workflowsBuilderService.initWorkflows(workflowsBuilderService.buildTopologyContext(topology));
+        assertHostId("server", "jvm", "application");
+    }
+
+    private void addNodeType(String elementId) {
+        IndexedNodeType nodeType = new IndexedNodeType();
+        nodeType.setElementId(elementId);
+        elements.put(elementId, nodeType);
+    }
+
+    private NodeTemplate nodeTemplate(String type, String host) {
+        NodeTemplate nodeTemplate = new NodeTemplate();
+        nodeTemplate.setType(type);
+        nodeTemplate.setRelationships(Maps.<String, RelationshipTemplate> newHashMap());
+        if (host != null) {
+            RelationshipTemplate relationshipTemplate = new RelationshipTemplate();
+            relationshipTemplate.setType(NormativeRelationshipConstants.HOSTED_ON);
+            relationshipTemplate.setTarget(host);
+            nodeTemplate.getRelationships().put("hostedOn", relationshipTemplate);
+        }
+        return nodeTemplate;
+    }
+
+    /** Check that all the steps of the given nodes are hosted on the given host. */
+    private void assertHostId(String hostId, String... nodeIds) {
+        for (Workflow wf : topology.getWorkflows().values()) {
+            for (String nodeId : nodeIds) {
+                boolean hasSteps = false;
+                for (AbstractStep step : wf.getSteps().values()) {
+                    if (step instanceof NodeActivityStep && nodeId.equals(((NodeActivityStep) step).getNodeId())) {
+                        assertEquals(hostId, ((NodeActivityStep) step).getHostId());
+                        hasSteps = true;
+                    }
+                }
+                assertTrue(hasSteps);
+            }
+        }
+    }
+
+    private void assertHosts(String... hostIds) {
+        for (Workflow wf : topology.getWorkflows().values()) {
+            assertEquals(Sets.newHashSet(hostIds), wf.getHosts());
+        }
+    }
+
+    @Test
+    public void replacingAHostShouldUpdateTheHostOfTheHostedNodes() {
+        // same sequence as when a node template is replaced in the topology editor
+        NodeTemplate oldNodeTemplate = topology.getNodeTemplates().get("server");
+        NodeTemplate newNodeTemplate = nodeTemplate(NormativeComputeConstants.COMPUTE_TYPE, null);
+        topology.getNodeTemplates().put("new_server", newNodeTemplate);
+        workflowsBuilderService.removeNode(topology, "server", oldNodeTemplate);
+        topology.getNodeTemplates().remove("server");
+        topology.getNodeTemplates().get("jvm").getRelationships().get("hostedOn").setTarget("new_server");
+        workflowsBuilderService.addNode(workflowsBuilderService.buildTopologyContext(topology), "new_server", newNodeTemplate);
+
+        assertHostId("new_server", "new_server", "jvm", "application");
+        assertHosts("new_server");
+    }
+
+    @Test
+    public void addingAHostedOnRelationshipShouldUpdateTheHostOfTheHostedNodes() {
+        RelationshipTemplate hostedOn = topology.getNodeTemplates().get("jvm").getRelationships().remove("hostedOn");
+        workflowsBuilderService.removeRelationship(topology, "jvm", "hostedOn", hostedOn);
+        assertHostId(null, "jvm", "application");
+        assertHosts("server");
+
+        topology.getNodeTemplates().get("jvm").getRelationships().put("hostedOn", hostedOn);
+        workflowsBuilderService.addRelationship(workflowsBuilderService.buildTopologyContext(topology), "jvm", "hostedOn");
+        assertHostId("server", "server", "jvm", "application");
+        assertHosts("server");
+    }
+
+    @Test
+    public void removingAnIntermediateHostShouldUpdateTheHostOfTheHostedNodes() {
+        // same sequence as when a node template is deleted in the topology editor
+        NodeTemplate jvm = topology.getNodeTemplates().remove("jvm");
+        topology.getNodeTemplates().get("application").getRelationships().remove("hostedOn");
+        workflowsBuilderService.removeNode(topology, "jvm", jvm);
+
+        assertHostId("server", "server");
+        assertHostId(null, "application");
+        assertHosts("server");
+    }
+
+    @Test
+    public void removingARootHostShouldRemoveItFromTheHosts() {
+        NodeTemplate server = topology.getNodeTemplates().remove("server");
+        topology.getNodeTemplates().get("jvm").getRelationships().remove("hostedOn");
+        workflowsBuilderService.removeNode(topology, "server", server);
+
+        assertHostId(null, "jvm", "application");
+        for (Workflow wf : topology.getWorkflows().values()) {
+            assertTrue(wf.getHosts().isEmpty());
+            for (AbstractStep step : wf.getSteps().values()) {
+                assertFalse(step instanceof NodeActivityStep && "server".equals(((NodeActivityStep) step).getNodeId()));
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package alien4cloud.paas.wf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.Topology;
+import alien4cloud.paas.plan.ToscaNodeLifecycleConstants;
+import alien4cloud.paas.wf.WorkflowsBuilderService.TopologyContext;
+import alien4cloud.paas.wf.util.WorkflowUtils;
+import alien4cloud.paas.wf.validation.WorkflowValidator;
+
+import com.google.common.collect.Maps;
+
+public class WorkflowValidatorTest {
+
+    private WorkflowValidator validator = new WorkflowValidator();
+
+    private Workflow wf;
+    private TopologyContext topologyContext;
+
+    @Before
+    public void prepare() {
+        wf = new Workflow();
+        wf.setName(Workflow.INSTALL_WF);
+        wf.setStandard(true);
+        final Topology topology = new Topology();
+        Map<String, NodeTemplate> nodeTemplates = Maps.newHashMap();
+        nodeTemplates.put("nodeA", new NodeTemplate());
+        nodeTemplates.put("nodeB", new NodeTemplate());
+        topology.setNodeTemplates(nodeTemplates);
+        topologyContext = new TopologyContext() {
+            @Override
+            public Topology getTopology() {
+                return topology;
+            }
+
+            @Override
+            public <T extends IndexedToscaElement> T findElement(Class<T> clazz, String id) {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * a_cre -- a_sta -- b_cre -- b_sta
+     */
+    @Test
+    public void testAddedNodeIsValid() {
+        AbstractStep aStarted = addNode(null, "nodeA", ToscaNodeLifecycleConstants.CREATED, ToscaNodeLifecycleConstants.STARTED);
+        assertEquals(0, validator.validate(topologyContext, wf));
+        addNode(aStarted, "nodeB", ToscaNodeLifecycleConstants.CREATED, ToscaNodeLifecycleConstants.STARTED);
+        assertEquals(0, validator.validateAddedNode(topologyContext, wf, "nodeB"));
+        assertFalse(wf.hasErrors());
+    }
+
+    /**
+     * a_cre -- a_sta -- b_sta -- b_cre
+     */
+    @Test
+    public void testAddedNodeErrorsAreReported() {
+        AbstractStep aStarted = addNode(null, "nodeA", ToscaNodeLifecycleConstants.CREATED, ToscaNodeLifecycleConstants.STARTED);
+        assertEquals(0, validator.validate(topologyContext, wf));
+        addNode(aStarted, "nodeB", ToscaNodeLifecycleConstants.STARTED, ToscaNodeLifecycleConstants.CREATED);
+        assertEquals(1, validator.validateAddedNode(topologyContext, wf, "nodeB"));
+        assertEquals(1, wf.getErrors().size());
+    }
+
+    /**
+     * Add a sequence of state steps for a node after the given step and return the last one.
+     */
+    private AbstractStep addNode(AbstractStep from, String nodeId, String... states) {
+        AbstractStep last = from;
+        for (String state : states) {
+            AbstractStep step = WorkflowUtils.addStateStep(wf, nodeId, state);
+            WorkflowUtils.linkSteps(last, step);
+            last = step;
+        }
+        return last;
+    }
+}
@@ -0,0 +1,32 @@
+package alien4cloud.topology;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class TopologyChangesTest {
+
+    @Test
+    public void nodeTemplatesChanges() {
+        TopologyChanges changes = TopologyChanges.nodeTemplates("compute", "network");
+        changes.add(TopologyChanges.nodeTemplates("volume"));
+        Assert.assertEquals(Sets.newHashSet("compute", "network", "volume"), changes.getNodeTemplates());
+        Assert.assertTrue(changes.isNodeTemplatesOnly());
+    }
+
+    @Test
+    public void inputsAndOtherChanges() {
+        TopologyChanges changes = TopologyChanges.nodeTemplates("compute");
+        changes.add(TopologyChanges.inputs());
+        Assert.assertEquals(Sets.newHashSet("compute"), changes.getNodeTemplates());
+        Assert.assertTrue(changes.isInputs());
+        Assert.assertFalse(changes.isOthers());
+        Assert.assertFalse(changes.isNodeTemplatesOnly());
+
+        changes.add(TopologyChanges.unknown());
+        Assert.assertTrue(changes.isInputs());
+        Assert.assertTrue(changes.isOthers());
+        Assert.assertFalse(changes.isNodeTemplatesOnly());
+    }
+}
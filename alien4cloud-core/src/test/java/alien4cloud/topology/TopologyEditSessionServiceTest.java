@@ -0,0 +1,308 @@
+package alien4cloud.topology;
+
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.exception.VersionConflictException;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.Topology;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class TopologyEditSessionServiceTest {
+    private IGenericSearchDAO alienDAO;
+    private TaskScheduler scheduler;
+    private TopologyEditSessionService topologyEditSessionService;
+    private ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Before
+    public void before() {
+        alienDAO = Mockito.mock(IGenericSearchDAO.class);
+        scheduler = Mockito.mock(TaskScheduler.class);
+        Mockito.doReturn(Mockito.mock(ScheduledFuture.class)).when(scheduler).schedule(Mockito.any(Runnable.class), Mockito.any(Date.class));
+        topologyEditSessionService = new TopologyEditSessionService();
+        ReflectionTestUtils.setField(topologyEditSessionService, "alienDAO", alienDAO);
+        ReflectionTestUtils.setField(topologyEditSessionService, "scheduler", scheduler);
+        ReflectionTestUtils.setField(topologyEditSessionService, "flushDelayMs", 0L);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    private Topology topology(String id, Date lastUpdateDate, String... nodeNames) {
+        Topology topology = new Topology();
+        topology.setId(id);
+        topology.setLastUpdateDate(lastUpdateDate);
+        topology.setNodeTemplates(Maps.<String, NodeTemplate> newHashMap());
+        for (String nodeName : nodeNames) {
+            NodeTemplate nodeTemplate = new NodeTemplate();
+            nodeTemplate.setName(nodeName);
+            nodeTemplate.setType("tosca.nodes.Compute");
+            topology.getNodeTemplates().put(nodeName, nodeTemplate);
+        }
+        return topology;
+    }
+
+    /** Make the save of the given topology wait for the release latch and count down the saving latch when the save starts. */
+    private void blockSave(final String topologyId, final CountDownLatch saving, final CountDownLatch release) {
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws InterruptedException {
+                if (topologyId.equals(((Topology) invocation.getArguments()[0]).getId())) {
+                    saving.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                return null;
+            }
+        }).when(alienDAO).save(Mockito.any(Topology.class));
+    }
+
+    private Future<?> flushAsync(final String topologyId) {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                topologyEditSessionService.flush(topologyId);
+            }
+        });
+    }
+
+    @Test
+    public void editsShouldBeServedFromTheSessionUntilFlushed() {
+        topologyEditSessionService.update(topology("topology", null, "compute"));
+        Mockito.verify(alienDAO, Mockito.never()).save(Mockito.any(Topology.class));
+        Topology edited = topologyEditSessionService.get("topology");
+        Assert.assertEquals(Sets.newHashSet("compute"), edited.getNodeTemplates().keySet());
+        // every reader gets its own instance
+        edited.getNodeTemplates().clear();
+        Assert.assertEquals(Sets.newHashSet("compute"), topologyEditSessionService.get("topology").getNodeTemplates().keySet());
+
+        topologyEditSessionService.flush("topology");
+        Mockito.verify(alienDAO).save(Mockito.any(Topology.class));
+        Assert.assertNull(topologyEditSessionService.get("topology"));
+    }
+
+    @Test
+    public void scheduledFlushShouldPersistTheWorkingCopy() {
+        topologyEditSessionService.update(topology("topology", null, "compute"));
+        ArgumentCaptor<Runnable> flushTask = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(scheduler).schedule(flushTask.capture(), Mockito.any(Date.class));
+
+        flushTask.getValue().run();
+        Mockito.verify(alienDAO).save(Mockito.any(Topology.class));
+        Assert.assertNull(topologyEditSessionService.get("topology"));
+    }
+
+    @Test(expected = VersionConflictException.class)
+    public void editsOfAnOlderVersionShouldBeRejected() {
+        topologyEditSessionService.update(topology("topology", null, "compute"));
+        topologyEditSessionService.update(topology("topology", new Date(0), "compute", "network"));
+    }
+
+    @Test(expected = VersionConflictException.class)
+    public void editsOfAnOlderVersionThanThePersistedOneShouldBeRejected() {
+        // the session of the topology has been flushed since the edited copy has been loaded
+        Mockito.when(alienDAO.findById(Topology.class, "topology")).thenReturn(topology("topology", new Date(1000), "compute", "network"));
+        topologyEditSessionService.update(topology("topology", new Date(0), "compute"));
+    }
+
+    @Test(expected = VersionConflictException.class)
+    public void savesOfAnOlderVersionThanThePersistedOneShouldBeRejected() {
+        Mockito.when(alienDAO.findById(Topology.class, "topology")).thenReturn(topology("topology", new Date(1000), "compute", "network"));
+        topologyEditSessionService.save(topology("topology", new Date(0), "compute"));
+    }
+
+    @Test
+    public void unknownChangesShouldBeTracked() {
+        Mockito.when(alienDAO.findById(Topology.class, "topology")).thenReturn(topology("topology", new Date(0), "compute"));
+        topologyEditSessionService.update(topology("topology", new Date(0), "compute", "network"));
+        Date editDate = topologyEditSessionService.get("topology").getLastUpdateDate();
+        Assert.assertFalse(topologyEditSessionService.getChanges("topology", new Date(0), editDate).isNodeTemplatesOnly());
+    }
+
+    @Test
+    public void failedFlushesShouldBeRetriedAndReported() {
+        Mockito.doThrow(new RuntimeException("elastic search is unavailable")).when(alienDAO).save(Mockito.any(Topology.class));
+        topologyEditSessionService.update(topology("topology", null, "compute"));
+        ArgumentCaptor<Runnable> flushTask = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(scheduler).schedule(flushTask.capture(), Mockito.any(Date.class));
+        flushTask.getValue().run();
+        // the flush is rescheduled
+        Mockito.verify(scheduler, Mockito.times(2)).schedule(flushTask.capture(), Mockito.any(Date.class));
+
+        // the failure is reported to the next reader
+        try {
+            topologyEditSessionService.get("topology");
+            Assert.fail("The failure of the flush should be reported");
+        } catch (RuntimeException e) {
+            Assert.assertEquals("elastic search is unavailable", e.getMessage());
+        }
+
+        // the retry persists the working copy once elastic search is back
+        Mockito.doNothing().when(alienDAO).save(Mockito.any(Topology.class));
+        flushTask.getValue().run();
+        Mockito.verify(alienDAO, Mockito.times(3)).save(Mockito.any(Topology.class));
+        Assert.assertNull(topologyEditSessionService.get("topology"));
+    }
+
+    @Test
+    public void saveShouldWaitForTheFlushOfTheWorkingCopy() throws Exception {
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockSave("topology", saving, release);
+        topologyEditSessionService.update(topology("topology", null, "compute"));
+        final Date editDate = topologyEditSessionService.get("topology").getLastUpdateDate();
+        Future<?> flush = flushAsync("topology");
+        Assert.assertTrue(saving.await(5, TimeUnit.SECONDS));
+
+        Future<?> save = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                topologyEditSessionService.save(topology("topology", editDate, "compute", "network"));
+            }
+        });
+        try {
+            save.get(100, TimeUnit.MILLISECONDS);
+            Assert.fail("The topology should not be saved while its working copy is being saved");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        release.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        save.get(5, TimeUnit.SECONDS);
+        // the working copy is saved before the topology
+        ArgumentCaptor<Topology> savedTopologies = ArgumentCaptor.forClass(Topology.class);
+        Mockito.verify(alienDAO, Mockito.times(2)).save(savedTopologies.capture());
+        Assert.assertEquals(editDate, savedTopologies.getAllValues().get(0).getLastUpdateDate());
+        Assert.assertEquals(Sets.newHashSet("compute", "network"), savedTopologies.getAllValues().get(1).getNodeTemplates().keySet());
+        Assert.assertNull(topologyEditSessionService.get("topology"));
+    }
+
+    @Test
+    public void changesOfTheEditsShouldBeTracked() throws InterruptedException {
+        Topology persisted = topology("topology", new Date(0), "compute");
+        Mockito.when(alienDAO.findById(Topology.class, "topology")).thenReturn(persisted);
+
+        topologyEditSessionService.update(topology("topology", new Date(0), "compute", "network"), TopologyChanges.nodeTemplates("network"));
+        Date firstEditDate = topologyEditSessionService.get("topology").getLastUpdateDate();
+        // edits are versioned by date
+        Thread.sleep(5);
+        topologyEditSessionService.update(topology("topology", firstEditDate, "compute", "network", "volume"), TopologyChanges.nodeTemplates("volume"));
+        Date secondEditDate = topologyEditSessionService.get("topology").getLastUpdateDate();
+
+        Assert.assertEquals(Sets.newHashSet("network"), topologyEditSessionService.getChanges("topology", new Date(0), firstEditDate).getNodeTemplates());
+        Assert.assertEquals(Sets.newHashSet("network", "volume"), topologyEditSessionService.getChanges("topology", new Date(0), secondEditDate)
+                .getNodeTemplates());
+        Assert.assertNull(topologyEditSessionService.getChanges("topology", new Date(1), secondEditDate));
+    }
+
+    @Test
+    public void savingATopologyShouldNotBlockTheEditionOfTopologies() throws Exception {
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockSave("slow", saving, release);
+        topologyEditSessionService.update(topology("slow", null, "compute"));
+        Date savedDate = topologyEditSessionService.get("slow").getLastUpdateDate();
+        Future<?> flush = flushAsync("slow");
+        Assert.assertTrue(saving.await(5, TimeUnit.SECONDS));
+
+        Future<Topology> edition = executor.submit(new Callable<Topology>() {
+            @Override
+            public Topology call() {
+                topologyEditSessionService.update(topology("other", null, "compute"));
+                return topologyEditSessionService.get("other");
+            }
+        });
+        Assert.assertNotNull(edition.get(1, TimeUnit.SECONDS));
+        // the topology being saved can be edited too
+        topologyEditSessionService.update(topology("slow", savedDate, "compute", "network"));
+
+        release.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        // the edit made during the save has not been persisted so the session is kept
+        Assert.assertEquals(Sets.newHashSet("compute", "network"), topologyEditSessionService.get("slow").getNodeTemplates().keySet());
+    }
+
+    @Test
+    public void loadingATopologyShouldNotBlockTheEditionOfOtherTopologies() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(alienDAO.findById(Topology.class, "slow")).thenAnswer(new Answer<Topology>() {
+            @Override
+            public Topology answer(InvocationOnMock invocation) throws InterruptedException {
+                loading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return topology("slow", new Date(0), "compute");
+            }
+        });
+        Future<?> slowEdition = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                topologyEditSessionService.update(topology("slow", new Date(0), "compute", "network"), TopologyChanges.nodeTemplates("network"));
+            }
+        });
+        Assert.assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        Future<Topology> edition = executor.submit(new Callable<Topology>() {
+            @Override
+            public Topology call() {
+                topologyEditSessionService.update(topology("other", null, "compute"));
+                return topologyEditSessionService.get("other");
+            }
+        });
+        Assert.assertNotNull(edition.get(1, TimeUnit.SECONDS));
+
+        release.countDown();
+        slowEdition.get(5, TimeUnit.SECONDS);
+        Date editDate = topologyEditSessionService.get("slow").getLastUpdateDate();
+        Assert.assertEquals(Sets.newHashSet("network"), topologyEditSessionService.getChanges("slow", new Date(0), editDate).getNodeTemplates());
+    }
+
+    @Test
+    public void discardShouldWaitForTheSaveInProgress() throws Exception {
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockSave("topology", saving, release);
+        topologyEditSessionService.update(topology("topology", null, "compute"));
+        Future<?> flush = flushAsync("topology");
+        Assert.assertTrue(saving.await(5, TimeUnit.SECONDS));
+
+        Future<?> discard = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                topologyEditSessionService.discard("topology");
+            }
+        });
+        try {
+            discard.get(100, TimeUnit.MILLISECONDS);
+            Assert.fail("The session should not be discarded while its working copy is being saved");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        release.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        discard.get(5, TimeUnit.SECONDS);
+        Assert.assertNull(topologyEditSessionService.get("topology"));
+    }
+}
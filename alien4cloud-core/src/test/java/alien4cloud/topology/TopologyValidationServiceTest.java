@@ -0,0 +1,138 @@
+package alien4cloud.topology;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.component.ICSARRepositorySearchService;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.Topology;
+import alien4cloud.paas.wf.WorkflowsBuilderService;
+import alien4cloud.topology.task.AbstractTask;
+import alien4cloud.topology.task.NodeFiltersTask;
+import alien4cloud.topology.task.PropertiesTask;
+import alien4cloud.topology.task.RequirementsTask;
+import alien4cloud.topology.task.TaskLevel;
+import alien4cloud.topology.task.TopologyTask;
+import alien4cloud.topology.task.WorkflowTask;
+import alien4cloud.topology.validation.NodeFilterValidationService;
+import alien4cloud.topology.validation.TopologyAbstractRelationshipValidationService;
+import alien4cloud.topology.validation.TopologyPropertiesValidationService;
+import alien4cloud.topology.validation.TopologyRequirementBoundsValidationServices;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Check that the validations of a topology run concurrently when a thread pool is configured, sequentially in the caller thread otherwise, and that their
+ * tasks are merged in the validations order.
+ */
+public class TopologyValidationServiceTest {
+    private static final int VALIDATIONS_COUNT = 5;
+
+    private TopologyValidationService topologyValidationService;
+    private WorkflowsBuilderService workflowsBuilderService;
+    private TopologyAbstractRelationshipValidationService abstractRelationshipValidationService;
+    private TopologyRequirementBoundsValidationServices requirementBoundsValidationServices;
+    private NodeFilterValidationService nodeFilterValidationService;
+    private TopologyPropertiesValidationService propertiesValidationService;
+    private List<String> validationThreads = Collections.synchronizedList(Lists.<String> newArrayList());
+
+    private void init(int threadPoolSize) {
+        workflowsBuilderService = Mockito.mock(WorkflowsBuilderService.class);
+        abstractRelationshipValidationService = Mockito.mock(TopologyAbstractRelationshipValidationService.class);
+        requirementBoundsValidationServices = Mockito.mock(TopologyRequirementBoundsValidationServices.class);
+        nodeFilterValidationService = Mockito.mock(NodeFilterValidationService.class);
+        propertiesValidationService = Mockito.mock(TopologyPropertiesValidationService.class);
+        topologyValidationService = new TopologyValidationService();
+        ReflectionTestUtils.setField(topologyValidationService, "workflowBuilderService", workflowsBuilderService);
+        ReflectionTestUtils.setField(topologyValidationService, "topologyAbstractRelationshipValidationService", abstractRelationshipValidationService);
+        ReflectionTestUtils.setField(topologyValidationService, "topologyRequirementBoundsValidationServices", requirementBoundsValidationServices);
+        ReflectionTestUtils.setField(topologyValidationService, "nodeFilterValidationService", nodeFilterValidationService);
+        ReflectionTestUtils.setField(topologyValidationService, "topologyPropertiesValidationService", propertiesValidationService);
+        ReflectionTestUtils.setField(topologyValidationService, "csarRepoSearchService", Mockito.mock(ICSARRepositorySearchService.class));
+        ReflectionTestUtils.setField(topologyValidationService, "threadPoolSize", threadPoolSize);
+        topologyValidationService.init();
+    }
+
+    @After
+    public void after() {
+        topologyValidationService.destroy();
+    }
+
+    private Topology topology() {
+        Topology topology = new Topology();
+        topology.setNodeTemplates(Maps.<String, NodeTemplate> newHashMap());
+        NodeTemplate nodeTemplate = new NodeTemplate();
+        nodeTemplate.setType("tosca.nodes.Compute");
+        topology.getNodeTemplates().put("compute", nodeTemplate);
+        return topology;
+    }
+
+    /** Answer the given task once all the validations are running if a barrier is given. */
+    private Answer<Object> validation(final AbstractTask task, final CyclicBarrier barrier) {
+        return new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Exception {
+                validationThreads.add(Thread.currentThread().getName());
+                if (barrier != null) {
+                    barrier.await(5, TimeUnit.SECONDS);
+                }
+                return Lists.newArrayList(task);
+            }
+        };
+    }
+
+    private List<AbstractTask> mockValidations(Topology topology, CyclicBarrier barrier) {
+        List<AbstractTask> tasks = Lists.<AbstractTask> newArrayList(new WorkflowTask(), new TopologyTask(), new RequirementsTask(), new NodeFiltersTask());
+        PropertiesTask propertiesTask = new PropertiesTask();
+        Map<TaskLevel, List<String>> properties = Maps.newHashMap();
+        properties.put(TaskLevel.REQUIRED, Lists.newArrayList("mem_size"));
+        propertiesTask.setProperties(properties);
+        tasks.add(propertiesTask);
+        Mockito.when(workflowsBuilderService.validateWorkflows(topology)).thenAnswer(validation(tasks.get(0), barrier));
+        Mockito.when(abstractRelationshipValidationService.validateAbstractRelationships(topology)).thenAnswer(validation(tasks.get(1), barrier));
+        Mockito.when(requirementBoundsValidationServices.validateRequirementsLowerBounds(topology)).thenAnswer(validation(tasks.get(2), barrier));
+        Mockito.when(nodeFilterValidationService.validateRequirementFilters(topology)).thenAnswer(validation(tasks.get(3), barrier));
+        Mockito.when(propertiesValidationService.validateStaticProperties(topology)).thenAnswer(validation(tasks.get(4), barrier));
+        return tasks;
+    }
+
+    @Test
+    public void validationsShouldRunConcurrently() {
+        init(VALIDATIONS_COUNT);
+        Topology topology = topology();
+        // every validation waits for all the others to be running
+        List<AbstractTask> tasks = mockValidations(topology, new CyclicBarrier(VALIDATIONS_COUNT));
+
+        TopologyValidationResult result = topologyValidationService.validateTopology(topology);
+        Assert.assertFalse(result.isValid());
+        Assert.assertEquals(tasks, result.getTaskList());
+        Assert.assertEquals(VALIDATIONS_COUNT, validationThreads.size());
+        for (String validationThread : validationThreads) {
+            Assert.assertTrue(validationThread.startsWith("topology-validation-"));
+        }
+    }
+
+    @Test
+    public void validationsShouldRunInTheCallerThreadWithoutThreadPool() {
+        init(0);
+        Topology topology = topology();
+        List<AbstractTask> tasks = mockValidations(topology, null);
+
+        TopologyValidationResult result = topologyValidationService.validateTopology(topology);
+        Assert.assertFalse(result.isValid());
+        Assert.assertEquals(tasks, result.getTaskList());
+        Assert.assertEquals(Collections.nCopies(VALIDATIONS_COUNT, Thread.currentThread().getName()), validationThreads);
+    }
+}
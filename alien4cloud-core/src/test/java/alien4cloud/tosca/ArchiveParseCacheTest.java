@@ -0,0 +1,255 @@
+package alien4cloud.tosca;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Resource;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.csar.services.CsarFinderService;
+import alien4cloud.csar.services.CsarService;
+import alien4cloud.git.RepositoryManager;
+import alien4cloud.tosca.model.ArchiveRoot;
+import alien4cloud.tosca.parser.ParsingException;
+import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.tosca.parser.ToscaParser;
+import alien4cloud.utils.FileUtil;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Check that the parsing results served by the cache, once serialized, spilled and read again, are equal to the results of a fresh parsing.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:tosca/archive-parser-application-context.xml")
+public class ArchiveParseCacheTest {
+    private static final Path WORK_DIRECTORY = Paths.get("target/archive-parse-cache-tests");
+    private static final Path WD03_DIRECTORY = Paths.get("src/test/resources/tosca/SimpleProfile_wd03/parsing/");
+    private Path artifactsDirectory = Paths.get("../target/it-artifacts");
+    private RepositoryManager repositoryManager = new RepositoryManager();
+
+    @Resource
+    private ArchiveParser archiveParser;
+    @Resource
+    private ToscaParser toscaParser;
+    @Resource
+    private CsarService csarService;
+
+    private ArchiveParseCache parseCache;
+
+    @Before
+    public void before() throws IOException {
+        FileUtil.delete(WORK_DIRECTORY);
+        parseCache = newParseCache(1, 64);
+    }
+
+    /** Create a cache that keeps a single result in memory so every other result is spilled. */
+    private ArchiveParseCache newParseCache(long maxSize, long spillMaxSizeMb) throws IOException {
+        ArchiveParseCache archiveParseCache = new ArchiveParseCache();
+        ReflectionTestUtils.setField(archiveParseCache, "toscaParser", toscaParser);
+        ReflectionTestUtils.setField(archiveParseCache, "csarService", csarService);
+        ReflectionTestUtils.setField(archiveParseCache, "maxSize", maxSize);
+        ReflectionTestUtils.setField(archiveParseCache, "spillMaxSizeMb", spillMaxSizeMb);
+        archiveParseCache.setSpillRootPath(WORK_DIRECTORY.toString());
+        archiveParseCache.init();
+        return archiveParseCache;
+    }
+
+    private void assertCachedResultEqualsParsedResult(Map<String, ParsingResult<ArchiveRoot>> parsingResults) {
+        for (Map.Entry<String, ParsingResult<ArchiveRoot>> parsingResult : parsingResults.entrySet()) {
+            parseCache.put(parsingResult.getKey(), parsingResult.getValue());
+        }
+        for (Map.Entry<String, ParsingResult<ArchiveRoot>> parsingResult : parsingResults.entrySet()) {
+            ParsingResult<ArchiveRoot> cachedResult = parseCache.get(parsingResult.getKey());
+            Assert.assertNotNull("Parsing result of <" + parsingResult.getKey() + "> should be cached", cachedResult);
+            List<String> differences = Lists.newArrayList();
+            compare(parsingResult.getKey(), parsingResult.getValue(), cachedResult, differences, new IdentityHashMap<Object, Object>());
+            Assert.assertTrue("Cached parsing result differs from the parsed one: " + differences, differences.isEmpty());
+        }
+    }
+
+    private ParsingResult<ArchiveRoot> parseFile(String fileName) throws ParsingException {
+        return toscaParser.parseFile(WD03_DIRECTORY.resolve(fileName));
+    }
+
+    @Test
+    public void cachedResultsOfTheNormativeTypesAndSamplesShouldEqualParsedResults() throws ParsingException, IOException {
+        Map<String, ParsingResult<ArchiveRoot>> parsingResults = Maps.newLinkedHashMap();
+        Path normativeTypesPath = artifactsDirectory.resolve("tosca-normative-types");
+        repositoryManager.cloneOrCheckout(artifactsDirectory, "https://github.com/alien4cloud/tosca-normative-types.git", "master", "tosca-normative-types");
+        parsingResults.put(FileUtil.digest(normativeTypesPath), archiveParser.parse(normativeTypesPath));
+
+        Path samplesPath = artifactsDirectory.resolve("samples");
+        repositoryManager.cloneOrCheckout(artifactsDirectory, "https://github.com/alien4cloud/samples.git", "master", "samples");
+        for (Path samplePath : new CsarFinderService().prepare(samplesPath, Maps.<String, String> newHashMap()).values()) {
+            try {
+                parsingResults.put(FileUtil.digest(samplePath), archiveParser.parse(samplePath));
+            } catch (ParsingException e) {
+                // samples that cannot be parsed without their dependencies are not cached
+            }
+        }
+        assertCachedResultEqualsParsedResult(parsingResults);
+    }
+
+    @Test
+    public void cachedResultsShouldEqualParsedResults() throws ParsingException {
+        Map<String, ParsingResult<ArchiveRoot>> parsingResults = Maps.newLinkedHashMap();
+        // constraints, interfaces and requirements
+        parsingResults.put("node-type", parseFile("tosca-node-type.yml"));
+        // polymorphic property values (functions, complex values)
+        parsingResults.put("functions", parseFile("tosca-functions.yml"));
+        parsingResults.put("data-types", parseFile("tosca-data-types.yml"));
+        // topology templates and parsing errors with marks
+        parsingResults.put("topology-template", parseFile("tosca-topology-template-apache.yml"));
+        parsingResults.put("topology-template-errors", parseFile("tosca-topology-template-badinputs.yml"));
+        Assert.assertFalse(parsingResults.get("topology-template-errors").getContext().getParsingErrors().isEmpty());
+        // local imports
+        ParsingResult<ArchiveRoot> localImports = parseFile("tosca-topology-template-customtypes.yml");
+        localImports.getResult().setLocalImports(Lists.newArrayList(parseFile("tosca-node-type.yml").getResult()));
+        parsingResults.put("local-imports", localImports);
+
+        assertCachedResultEqualsParsedResult(parsingResults);
+    }
+
+    @Test
+    public void spilledResultsShouldBeRemovedWhenTheMappingsChange() throws IOException {
+        Path otherMappingsResult = WORK_DIRECTORY.resolve("parsing-cache").resolve("other-mappings").resolve("digest");
+        Files.createDirectories(otherMappingsResult.getParent());
+        Files.write(otherMappingsResult, new byte[] { 1 });
+
+        newParseCache(1, 64);
+
+        Assert.assertFalse(Files.exists(otherMappingsResult.getParent()));
+        Assert.assertTrue(Files.isDirectory(WORK_DIRECTORY.resolve("parsing-cache").resolve(toscaParser.getMappingVersion())));
+    }
+
+    @Test
+    public void spilledResultsShouldNotExceedTheSpillMaximumSize() throws ParsingException, IOException {
+        parseCache = newParseCache(1, 0);
+        parseCache.put("node-type", parseFile("tosca-node-type.yml"));
+        // the first result is spilled then removed as the spill directory cannot contain any result
+        parseCache.put("data-types", parseFile("tosca-data-types.yml"));
+
+        Path spillPath = WORK_DIRECTORY.resolve("parsing-cache").resolve(toscaParser.getMappingVersion());
+        Assert.assertEquals(0, FileUtil.listFiles(spillPath, ".*").size());
+        Assert.assertNull(parseCache.get("node-type"));
+        Assert.assertNotNull(parseCache.get("data-types"));
+    }
+
+    /**
+     * Compare two objects field by field, collections and maps are compared by content whatever their implementation.
+     */
+    private void compare(String path, Object expected, Object actual, List<String> differences, IdentityHashMap<Object, Object> compared) {
+        if (expected == null || actual == null) {
+            if (expected != actual) {
+                differences.add(path + ": <" + expected + "> != <" + actual + ">");
+            }
+            return;
+        }
+        if (isValue(expected)) {
+            if (!expected.equals(actual)) {
+                differences.add(path + ": <" + expected + "> != <" + actual + ">");
+            }
+            return;
+        }
+        if (compared.put(expected, actual) != null) {
+            return;
+        }
+        if (expected instanceof Map && actual instanceof Map) {
+            Map<?, ?> expectedMap = (Map<?, ?>) expected;
+            Map<?, ?> actualMap = (Map<?, ?>) actual;
+            if (!expectedMap.keySet().equals(actualMap.keySet())) {
+                differences.add(path + ": keys " + expectedMap.keySet() + " != " + actualMap.keySet());
+                return;
+            }
+            for (Map.Entry<?, ?> entry : expectedMap.entrySet()) {
+                compare(path + "." + entry.getKey(), entry.getValue(), actualMap.get(entry.getKey()), differences, compared);
+            }
+        } else if (expected instanceof Set && actual instanceof Set) {
+            compareSets(path, (Set<?>) expected, (Set<?>) actual, differences);
+        } else if (expected instanceof Collection && actual instanceof Collection) {
+            List<?> expectedList = Lists.newArrayList((Collection<?>) expected);
+            List<?> actualList = Lists.newArrayList((Collection<?>) actual);
+            if (expectedList.size() != actualList.size()) {
+                differences.add(path + ": size " + expectedList.size() + " != " + actualList.size());
+                return;
+            }
+            for (int i = 0; i < expectedList.size(); i++) {
+                compare(path + "[" + i + "]", expectedList.get(i), actualList.get(i), differences, compared);
+            }
+        } else if (expected.getClass().isArray() && actual.getClass().isArray()) {
+            compare(path, arrayToList(expected), arrayToList(actual), differences, compared);
+        } else if (!expected.getClass().equals(actual.getClass())) {
+            differences.add(path + ": type " + expected.getClass().getName() + " != " + actual.getClass().getName());
+        } else {
+            for (Class<?> clazz = expected.getClass(); clazz != null && !Object.class.equals(clazz); clazz = clazz.getSuperclass()) {
+                for (Field field : clazz.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) || field.isSynthetic()) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    try {
+                        compare(path + "." + field.getName(), field.get(expected), field.get(actual), differences, compared);
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException("Cannot read field " + path + "." + field.getName(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Elements of sets are matched whatever their order, elements that don't implement equals are compared field by field. */
+    private void compareSets(String path, Set<?> expected, Set<?> actual, List<String> differences) {
+        if (expected.size() != actual.size()) {
+            differences.add(path + ": size " + expected.size() + " != " + actual.size());
+            return;
+        }
+        List<Object> unmatchedElements = Lists.<Object> newArrayList(actual);
+        for (Object expectedElement : expected) {
+            boolean matched = false;
+            for (int i = 0; i < unmatchedElements.size() && !matched; i++) {
+                List<String> elementDifferences = Lists.newArrayList();
+                compare(path, expectedElement, unmatchedElements.get(i), elementDifferences, new IdentityHashMap<Object, Object>());
+                if (elementDifferences.isEmpty()) {
+                    unmatchedElements.remove(i);
+                    matched = true;
+                }
+            }
+            if (!matched) {
+                differences.add(path + ": no element matches <" + expectedElement + ">");
+            }
+        }
+    }
+
+    private boolean isValue(Object object) {
+        return object instanceof String || object instanceof Number || object instanceof Boolean || object instanceof Character || object instanceof Enum
+                || object instanceof Date || object instanceof Class;
+    }
+
+    private List<Object> arrayToList(Object array) {
+        List<Object> list = Lists.newArrayList();
+        for (int i = 0; i < Array.getLength(array); i++) {
+            list.add(Array.get(array, i));
+        }
+        return list;
+    }
+}
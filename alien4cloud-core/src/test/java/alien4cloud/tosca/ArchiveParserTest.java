@@ -1,6 +1,7 @@
 package alien4cloud.tosca;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -18,8 +19,11 @@ import alien4cloud.tosca.parser.ParsingError;
 import alien4cloud.tosca.parser.ParsingErrorLevel;
 import alien4cloud.tosca.parser.ParsingException;
 import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.tosca.parser.impl.ErrorCode;
 import alien4cloud.utils.FileUtil;
 
+import com.google.common.base.Charsets;
+
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration("classpath:tosca/archive-parser-application-context.xml")
 public class ArchiveParserTest {
@@ -47,6 +51,22 @@ public class ArchiveParserTest {
         Assert.assertFalse(ArchiveUploadService.hasError(parsingResult, ParsingErrorLevel.ERROR));
     }
 
+    @Test
+    public void entryDefinitionsOutsideOfTheArchiveShouldBeRejected() throws IOException {
+        Path archivePath = Paths.get("target/archive-parser-tests/archive");
+        FileUtil.delete(archivePath.getParent());
+        Files.createDirectories(archivePath.resolve(ArchiveParser.TOSCA_META_FOLDER_NAME));
+        Files.write(archivePath.getParent().resolve("outside.yml"), "tosca_definitions_version: alien_dsl_1_1_0\n".getBytes(Charsets.UTF_8));
+        Files.write(archivePath.resolve(ArchiveParser.TOSCA_META_FOLDER_NAME).resolve("TOSCA.meta"), ("TOSCA-Meta-File-Version: 1.0\nCSAR-Version: 1.1\n"
+                + "Created-By: Alien4Cloud\nEntry-Definitions: ../outside.yml\n").getBytes(Charsets.UTF_8));
+        try {
+            archiveParser.parse(archivePath);
+            Assert.fail("Entry definitions outside of the archive should not be parsed.");
+        } catch (ParsingException e) {
+            Assert.assertEquals(ErrorCode.ENTRY_DEFINITION_NOT_FOUND, e.getParsingErrors().get(0).getErrorCode());
+        }
+    }
+
     public static void displayErrors(ParsingResult<?> parsingResult) {
         System.out.println("\n\nERRORS: \n");
         for (int i = 0; i < parsingResult.getContext().getParsingErrors().size(); i++) {
@@ -3,8 +3,10 @@ package alien4cloud.tosca.container;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Resource;
@@ -18,6 +20,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import alien4cloud.model.components.IndexedInheritableToscaElement;
 import alien4cloud.model.common.Tag;
+import alien4cloud.model.components.IndexedNodeType;
 import alien4cloud.dao.IGenericIdDAO;
 import alien4cloud.images.IImageDAO;
 import alien4cloud.images.ImageData;
@@ -26,11 +29,15 @@ import alien4cloud.tosca.ArchiveParser;
 import alien4cloud.tosca.ArchivePostProcessor;
 import alien4cloud.tosca.ArchiveUploadService;
 import alien4cloud.tosca.model.ArchiveRoot;
+import alien4cloud.tosca.parser.ParsingError;
 import alien4cloud.tosca.parser.ParsingErrorLevel;
 import alien4cloud.tosca.parser.ParsingException;
 import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.tosca.parser.impl.ErrorCode;
 import alien4cloud.utils.FileUtil;
 
+import com.google.common.collect.Lists;
+
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration("classpath:application-context-test.xml")
 public class ArchiveImageLoaderTest {
@@ -72,6 +79,24 @@ public class ArchiveImageLoaderTest {
         checkImages(result.getResult().getNodeTypes());
     }
 
+    @Test
+    public void iconOutsideOfTheArchiveShouldNotBeImported() throws IOException {
+        Path archiveDirectory = CSAR_OUTPUT_FOLDER.resolve("archive");
+        Files.createDirectories(archiveDirectory);
+        Files.copy(PATH_TOSCA_BASE_TYPES.resolve("work.jpg"), CSAR_OUTPUT_FOLDER.resolve("outside.jpg"));
+        IndexedNodeType nodeType = new IndexedNodeType();
+        nodeType.setTags(Lists.newArrayList(new Tag("icon", "../outside.jpg")));
+        ArchiveRoot archiveRoot = new ArchiveRoot();
+        archiveRoot.getNodeTypes().put("tosca.nodes.Compute", nodeType);
+        List<ParsingError> parsingErrors = Lists.newArrayList();
+
+        imageLoader.importImages(archiveDirectory, archiveRoot, parsingErrors);
+
+        Assert.assertEquals("../outside.jpg", nodeType.getTags().get(0).getValue());
+        Assert.assertEquals(1, parsingErrors.size());
+        Assert.assertEquals(ErrorCode.MISSING_FILE, parsingErrors.get(0).getErrorCode());
+    }
+
     private void checkImages(Map<String, ? extends IndexedInheritableToscaElement> elements) {
         boolean elementHasTags = false;
         String currentUUID = null;
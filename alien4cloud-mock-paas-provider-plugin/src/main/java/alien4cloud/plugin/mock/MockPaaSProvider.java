@@ -31,6 +31,9 @@ import alien4cloud.model.topology.RelationshipTemplate;
 import alien4cloud.model.topology.ScalingPolicy;
 import alien4cloud.model.topology.Topology;
 import alien4cloud.paas.IPaaSCallback;
+import alien4cloud.paas.IPaaSEventSink;
+import alien4cloud.paas.IPaaSEventStreamProvider;
+import alien4cloud.paas.IPaaSEventSubscription;
 import alien4cloud.paas.exception.PluginConfigurationException;
 import alien4cloud.paas.model.AbstractMonitorEvent;
 import alien4cloud.paas.model.DeploymentStatus;
@@ -54,7 +57,7 @@ import alien4cloud.tosca.normative.NormativeRelationshipConstants;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 @Slf4j
-public abstract class MockPaaSProvider extends AbstractPaaSProvider {
+public abstract class MockPaaSProvider extends AbstractPaaSProvider implements IPaaSEventStreamProvider {
     public static final String PUBLIC_IP = "ip_address";
     public static final String TOSCA_ID = "tosca_id";
     public static final String TOSCA_NAME = "tosca_name";
@@ -69,6 +72,11 @@ public abstract class MockPaaSProvider extends AbstractPaaSProvider {
 
     private final List<AbstractMonitorEvent> toBeDeliveredEvents = Collections.synchronizedList(new ArrayList<AbstractMonitorEvent>());
 
+    /** Sink of the events stream subscription, events are pushed to it rather than waiting for a poll when not null. */
+    private volatile IPaaSEventSink eventSink;
+    /** Lock of the events push, the events delivered concurrently are pushed one batch after the other in the order they have been delivered. */
+    private final Object pushLock = new Object();
+
     @Resource
     private ICSARRepositorySearchService csarRepoSearchService;
 
@@ -225,12 +233,12 @@ public abstract class MockPaaSProvider extends AbstractPaaSProvider {
                 event.setDeploymentStatus(status);
                 event.setDate((new Date()).getTime());
                 event.setDeploymentId(paaSDeploymentIdToAlienDeploymentIdMap.get(deploymentPaaSId));
-                toBeDeliveredEvents.add(event);
+                deliverEvent(event);
                 PaaSMessageMonitorEvent messageMonitorEvent = new PaaSMessageMonitorEvent();
                 messageMonitorEvent.setDate((new Date()).getTime());
                 messageMonitorEvent.setDeploymentId(paaSDeploymentIdToAlienDeploymentIdMap.get(deploymentPaaSId));
                 messageMonitorEvent.setMessage("APPLICATIONS.RUNTIME.EVENTS.MESSAGE_EVENT.STATUS_DEPLOYMENT_CHANGED");
-                toBeDeliveredEvents.add(messageMonitorEvent);
+                deliverEvent(messageMonitorEvent);
             }
         }, 2, TimeUnit.SECONDS);
 
@@ -261,19 +269,19 @@ public abstract class MockPaaSProvider extends AbstractPaaSProvider {
                 event.setDeploymentId(paaSDeploymentIdToAlienDeploymentIdMap.get(deploymentPaaSId));
                 event.setRuntimeProperties(cloned.getRuntimeProperties());
                 event.setAttributes(cloned.getAttributes());
-                toBeDeliveredEvents.add(event);
+                deliverEvent(event);
 
                 if (deployment.getSourceName().equals(BLOCKSTORAGE_APPLICATION) && cloned.getState().equalsIgnoreCase("created")) {
                     PaaSInstancePersistentResourceMonitorEvent prme = new PaaSInstancePersistentResourceMonitorEvent(nodeId, instanceId.toString(),
                             NormativeBlockStorageConstants.VOLUME_ID, UUID.randomUUID().toString());
-                    toBeDeliveredEvents.add(prme);
+                    deliverEvent(prme);
                 }
 
                 PaaSMessageMonitorEvent messageMonitorEvent = new PaaSMessageMonitorEvent();
                 messageMonitorEvent.setDate((new Date()).getTime());
                 messageMonitorEvent.setDeploymentId(paaSDeploymentIdToAlienDeploymentIdMap.get(deploymentPaaSId));
                 messageMonitorEvent.setMessage("APPLICATIONS.RUNTIME.EVENTS.MESSAGE_EVENT.INSTANCE_STATE_CHANGED");
-                toBeDeliveredEvents.add(messageMonitorEvent);
+                deliverEvent(messageMonitorEvent);
             }
         }, delay, TimeUnit.SECONDS);
     }
@@ -288,7 +296,7 @@ public abstract class MockPaaSProvider extends AbstractPaaSProvider {
                 event.setNodeTemplateId(nodeId);
                 event.setDate((new Date()).getTime());
                 event.setDeploymentId(paaSDeploymentIdToAlienDeploymentIdMap.get(deploymentPaaSId));
-                toBeDeliveredEvents.add(event);
+                deliverEvent(event);
             }
         }, delay, TimeUnit.SECONDS);
     }
@@ -450,9 +458,52 @@ public abstract class MockPaaSProvider extends AbstractPaaSProvider {
 
     @Override
     public void getEventsSince(Date date, int maxEvents, IPaaSCallback<AbstractMonitorEvent[]> eventsCallback) {
-        AbstractMonitorEvent[] events = toBeDeliveredEvents.toArray(new AbstractMonitorEvent[toBeDeliveredEvents.size()]);
-        toBeDeliveredEvents.clear();
-        eventsCallback.onSuccess(events);
+        eventsCallback.onSuccess(drainEvents());
+    }
+
+    @Override
+    public IPaaSEventSubscription subscribeEvents(Date since, final IPaaSEventSink sink) {
+        // the mock doesn't keep an history of events so the cursor is ignored, events waiting for a poll are pushed to the new subscription.
+        eventSink = sink;
+        executorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                pushEvents(sink);
+            }
+        });
+        return new IPaaSEventSubscription() {
+            @Override
+            public void cancel() {
+                if (eventSink == sink) {
+                    eventSink = null;
+                }
+            }
+        };
+    }
+
+    private void deliverEvent(AbstractMonitorEvent event) {
+        toBeDeliveredEvents.add(event);
+        IPaaSEventSink sink = eventSink;
+        if (sink != null) {
+            pushEvents(sink);
+        }
+    }
+
+    private void pushEvents(IPaaSEventSink sink) {
+        synchronized (pushLock) {
+            AbstractMonitorEvent[] events = drainEvents();
+            if (events.length > 0) {
+                sink.onEvents(events);
+            }
+        }
+    }
+
+    private AbstractMonitorEvent[] drainEvents() {
+        synchronized (toBeDeliveredEvents) {
+            AbstractMonitorEvent[] events = toBeDeliveredEvents.toArray(new AbstractMonitorEvent[toBeDeliveredEvents.size()]);
+            toBeDeliveredEvents.clear();
+            return events;
+        }
     }
 
     @Override
@@ -56,6 +56,7 @@ import alien4cloud.security.model.ApplicationRole;
 import alien4cloud.security.model.DeployerRole;
 import alien4cloud.topology.TopologyValidationResult;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -197,24 +198,28 @@ public class ApplicationDeploymentController {
     public RestResponse<Map<String, Map<String, EnvironmentStatusDTO>>> getApplicationsStatuses(@RequestBody List<String> applicationIds) {
         Map<String, Map<String, EnvironmentStatusDTO>> statuses = Maps.newHashMap();
 
+        // collect the environments the user is allowed to see so their statuses are resolved in a single batch
+        Map<String, List<ApplicationEnvironment>> environmentsByApplication = Maps.newLinkedHashMap();
+        List<ApplicationEnvironment> allowedEnvironments = Lists.newArrayList();
         for (String applicationId : applicationIds) {
-            Map<String, EnvironmentStatusDTO> environmentStatuses = Maps.newHashMap();
             Application application = applicationService.checkAndGetApplication(applicationId);
-            // get all environments status for the current application
-            ApplicationEnvironment[] environments = applicationEnvironmentService.getByApplicationId(application.getId());
-            for (ApplicationEnvironment env : environments) {
+            List<ApplicationEnvironment> applicationEnvironments = Lists.newArrayList();
+            for (ApplicationEnvironment env : applicationEnvironmentService.getByApplicationId(application.getId())) {
                 if (AuthorizationUtil.hasAuthorizationForEnvironment(env, ApplicationEnvironmentRole.values())) {
-                    DeploymentStatus status = DeploymentStatus.UNKNOWN;
-                    try {
-                        status = applicationEnvironmentService.getStatus(env);
-                    } catch (Exception e) {
-                        log.debug("Getting status for the environment <" + env.getId()
-                                + "> failed because the associated orchestrator seems disabled. Returned status is UNKNOWN.", e);
-                    }
-                    environmentStatuses.put(env.getId(), new EnvironmentStatusDTO(env.getName(), status));
+                    applicationEnvironments.add(env);
                 }
             }
-            statuses.put(applicationId, environmentStatuses);
+            environmentsByApplication.put(applicationId, applicationEnvironments);
+            allowedEnvironments.addAll(applicationEnvironments);
+        }
+
+        Map<String, DeploymentStatus> environmentsStatuses = applicationEnvironmentService.getStatuses(allowedEnvironments);
+        for (Map.Entry<String, List<ApplicationEnvironment>> applicationEnvironments : environmentsByApplication.entrySet()) {
+            Map<String, EnvironmentStatusDTO> environmentStatuses = Maps.newHashMap();
+            for (ApplicationEnvironment env : applicationEnvironments.getValue()) {
+                environmentStatuses.put(env.getId(), new EnvironmentStatusDTO(env.getName(), environmentsStatuses.get(env.getId())));
+            }
+            statuses.put(applicationEnvironments.getKey(), environmentStatuses);
         }
         return RestResponseBuilder.<Map<String, Map<String, EnvironmentStatusDTO>>> builder().data(statuses).build();
     }
@@ -1,5 +1,6 @@
 package alien4cloud.rest.application;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -255,6 +256,7 @@ public class ApplicationEnvironmentController {
     private ApplicationEnvironmentDTO[] getApplicationEnvironmentDTO(ApplicationEnvironment[] applicationEnvironments) {
         List<ApplicationEnvironmentDTO> listApplicationEnvironmentsDTO = Lists.newArrayList();
         ApplicationEnvironmentDTO tempEnvDTO = null;
+        Map<String, DeploymentStatus> statuses = applicationEnvironmentService.getStatuses(Arrays.asList(applicationEnvironments));
         for (ApplicationEnvironment env : applicationEnvironments) {
             tempEnvDTO = new ApplicationEnvironmentDTO();
             tempEnvDTO.setApplicationId(env.getApplicationId());
@@ -266,13 +268,7 @@ public class ApplicationEnvironmentController {
             tempEnvDTO.setGroupRoles(env.getGroupRoles());
             ApplicationVersion applicationVersion = applicationVersionService.get(env.getCurrentVersionId());
             tempEnvDTO.setCurrentVersionName(applicationVersion != null ? applicationVersion.getVersion() : null);
-            try {
-                tempEnvDTO.setStatus(applicationEnvironmentService.getStatus(env));
-            } catch (Exception e) {
-                log.debug("Getting status for the environment <" + env.getId()
-                        + "> failed because the associated orchestrator cannot be reached. Returned status is UNKNOWN.", e);
-                tempEnvDTO.setStatus(DeploymentStatus.UNKNOWN);
-            }
+            tempEnvDTO.setStatus(statuses.get(env.getId()));
             listApplicationEnvironmentsDTO.add(tempEnvDTO);
         }
         return listApplicationEnvironmentsDTO.toArray(new ApplicationEnvironmentDTO[listApplicationEnvironmentsDTO.size()]);
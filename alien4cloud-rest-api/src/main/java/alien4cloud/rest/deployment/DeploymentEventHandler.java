@@ -16,6 +16,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.deployment.DeploymentStatusRegistry;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.application.ApplicationEnvironment;
 import alien4cloud.model.deployment.Deployment;
@@ -51,6 +52,9 @@ public class DeploymentEventHandler implements IPaasEventListener<AbstractMonito
     @Resource
     private SimpMessagingTemplate template;
 
+    @Resource
+    private DeploymentStatusRegistry deploymentStatusRegistry;
+
     protected void send(AbstractMonitorEvent event) {
         String eventType = MappingBuilder.indexTypeFromClass(event.getClass());
         String topicName = TOPIC_PREFIX + '/' + event.getDeploymentId() + '/' + eventType;
@@ -60,29 +64,29 @@ public class DeploymentEventHandler implements IPaasEventListener<AbstractMonito
         template.convertAndSend(topicName, event);
 
         if (event instanceof PaaSDeploymentStatusMonitorEvent) {
+            if (DeploymentStatus.UNDEPLOYED.equals(((PaaSDeploymentStatusMonitorEvent) event).getDeploymentStatus())) {
+                endDeployment(event.getDeploymentId());
+            }
 
-            Deployment deployment = alienDAO.findById(Deployment.class, event.getDeploymentId());
-
-            if (deployment != null) {
-                updateDeploymentStatus(deployment, ((PaaSDeploymentStatusMonitorEvent) event).getDeploymentStatus());
-
-                if (deployment.getEnvironmentId() != null) {
-                    // dispatch an event on the environment topic
-                    topicName = ENV_TOPIC_PREFIX + "/" + deployment.getEnvironmentId();
-                    if (log.isDebugEnabled()) {
-                        log.debug("Send [" + event.getClass().getSimpleName() + "] to [" + topicName + "]: " + event);
-                    }
-                    template.convertAndSend(topicName, event);
+            // the environment of the deployment is known by the statuses registry so the deployment is not loaded for every status event
+            String environmentId = deploymentStatusRegistry.getEnvironmentId(event.getDeploymentId());
+            if (environmentId != null) {
+                // dispatch an event on the environment topic
+                topicName = ENV_TOPIC_PREFIX + "/" + environmentId;
+                if (log.isDebugEnabled()) {
+                    log.debug("Send [" + event.getClass().getSimpleName() + "] to [" + topicName + "]: " + event);
                 }
+                template.convertAndSend(topicName, event);
             }
         }
     }
 
-    private void updateDeploymentStatus(Deployment deployment, DeploymentStatus newStatus) {
-        if (DeploymentStatus.UNDEPLOYED.equals(newStatus)) {
+    private void endDeployment(String deploymentId) {
+        Deployment deployment = alienDAO.findById(Deployment.class, deploymentId);
+        if (deployment != null && deployment.getEndDate() == null) {
             deployment.setEndDate(new Date());
+            alienDAO.save(deployment);
         }
-        alienDAO.save(deployment);
     }
 
     /**
@@ -60,6 +60,7 @@ import alien4cloud.rest.model.RestErrorCode;
 import alien4cloud.rest.model.RestResponse;
 import alien4cloud.rest.model.RestResponseBuilder;
 import alien4cloud.security.model.ApplicationRole;
+import alien4cloud.topology.TopologyChanges;
 import alien4cloud.topology.TopologyDTO;
 import alien4cloud.topology.TopologyService;
 import alien4cloud.topology.TopologyServiceCore;
@@ -212,7 +213,7 @@ public class TopologyController {
 
         TopologyContext topologyContext = workflowBuilderService.buildTopologyContext(topology);
         workflowBuilderService.addNode(topologyContext, nodeTemplateRequest.getName(), nodeTemplate);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -245,7 +246,7 @@ public class TopologyController {
         workflowBuilderService.renameNode(topology, nodeTemplate, nodeTemplateName, newNodeTemplateName);
         log.debug("Renaming the Node template <{}> with <{}> in the topology <{}> .", nodeTemplateName, newNodeTemplateName, topologyId);
 
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -416,7 +417,7 @@ public class TopologyController {
         relationships.put(relationshipName, relationship);
         TopologyContext topologyContext = workflowBuilderService.buildTopologyContext(topology);
         workflowBuilderService.addRelationship(topologyContext, nodeTemplateName, relationshipName);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         log.info("Added relationship to the topology [" + topologyId + "], node name [" + nodeTemplateName + "], relationship name [" + relationshipName + "]");
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
@@ -484,7 +485,7 @@ public class TopologyController {
         updateGroupMembers(topology, template, nodeTemplateName, null);
         // update the workflows
         workflowBuilderService.removeNode(topology, nodeTemplateName, template);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         topologyServiceCore.updateSubstitutionType(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
@@ -590,7 +591,7 @@ public class TopologyController {
                 topology.getId(), nodeTemp.getProperties().get(propertyName), propertyValue);
 
         PropertyUtil.setPropertyValue(nodeTemp, propertyDefinition, propertyName, propertyValue);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology, TopologyChanges.nodeTemplates(nodeTemplateName));
         return RestResponseBuilder.<ConstraintInformation> builder().build();
     }
 
@@ -637,7 +638,7 @@ public class TopologyController {
         PropertyUtil.setPropertyValue(relationships.get(relationshipName).getProperties(),
                 relationshipTypes.get(relationshipType).getProperties().get(propertyName), propertyName, propertyValue);
 
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology, TopologyChanges.nodeTemplates(nodeTemplateName));
         return RestResponseBuilder.<ConstraintInformation> builder().build();
     }
 
@@ -685,7 +686,7 @@ public class TopologyController {
         PropertyUtil.setPropertyValue(capabilities.get(capabilityId).getProperties(), capabilityTypes.get(capabilityType).getProperties().get(propertyName),
                 propertyName, propertyValue);
 
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology, TopologyChanges.nodeTemplates(nodeTemplateName));
         return RestResponseBuilder.<ConstraintInformation> builder().build();
     }
 
@@ -768,7 +769,7 @@ public class TopologyController {
         // add the new node to the workflow
         workflowBuilderService.addNode(workflowBuilderService.buildTopologyContext(topology), nodeTemplateRequest.getName(), newNodeTemplate);
 
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -812,7 +813,7 @@ public class TopologyController {
             artifact.setArtifactName(artifactFile.getOriginalFilename());
             artifact.setArtifactRef(artifactFileId);
             artifact.setArtifactRepository(ArtifactRepositoryConstants.ALIEN_ARTIFACT_REPOSITORY);
-            topologyServiceCore.save(topology);
+            topologyServiceCore.update(topology);
             return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
         } finally {
             Closeables.close(artifactStream, true);
@@ -854,7 +855,7 @@ public class TopologyController {
             artifact.setArtifactRepository(null);
             artifact.setArtifactRef(baseArtifact.getArtifactRef());
             artifact.setArtifactName(baseArtifact.getArtifactName());
-            topologyServiceCore.save(topology);
+            topologyServiceCore.update(topology);
         } else {
             log.warn("Reset service for the artifact <" + artifactId + "> on the node template <" + nodeTemplateName + "> failed.");
         }
@@ -898,7 +899,7 @@ public class TopologyController {
             artifact.setArtifactName(artifactFile.getOriginalFilename());
             artifact.setArtifactRef(artifactFileId);
             artifact.setArtifactRepository(ArtifactRepositoryConstants.ALIEN_ARTIFACT_REPOSITORY);
-            topologyServiceCore.save(topology);
+            topologyServiceCore.update(topology);
             return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
         } finally {
             Closeables.close(artifactStream, true);
@@ -971,7 +972,7 @@ public class TopologyController {
                     + "] of the topology [" + topologyId + "]");
         }
         workflowBuilderService.removeRelationship(topology, nodeTemplateName, relationshipName, relationshipTemplate);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -992,7 +993,7 @@ public class TopologyController {
             // attributeName does not exists in the node template
             return RestResponseBuilder.<TopologyDTO> builder().error(RestErrorBuilder.builder(RestErrorCode.PROPERTY_MISSING_ERROR).build()).build();
         }
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         topologyServiceCore.updateSubstitutionType(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
@@ -1054,7 +1055,7 @@ public class TopologyController {
         }
 
         topology.setOutputCapabilityProperties(outputCapabilityProperties);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         topologyServiceCore.updateSubstitutionType(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
@@ -1079,7 +1080,7 @@ public class TopologyController {
         outputCapabilityProperties.get(nodeTemplateName).get(capabilityId).remove(propertyId);
 
         topology.setOutputCapabilityProperties(outputCapabilityProperties);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         topologyServiceCore.updateSubstitutionType(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
@@ -1102,7 +1103,7 @@ public class TopologyController {
             // attributeName does not exists in the node template
             return RestResponseBuilder.<TopologyDTO> builder().error(RestErrorBuilder.builder(RestErrorCode.PROPERTY_MISSING_ERROR).build()).build();
         }
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         topologyServiceCore.updateSubstitutionType(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
@@ -1117,7 +1118,7 @@ public class TopologyController {
         topologyService.throwsErrorIfReleased(topology);
 
         topology.setOutputProperties(removeValueFromMap(topology.getOutputProperties(), nodeTemplateName, propertyName));
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         topologyServiceCore.updateSubstitutionType(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
@@ -1132,7 +1133,7 @@ public class TopologyController {
         topologyService.throwsErrorIfReleased(topology);
 
         topology.setOutputAttributes(removeValueFromMap(topology.getOutputAttributes(), nodeTemplateName, attributeName));
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         topologyServiceCore.updateSubstitutionType(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
@@ -1171,7 +1172,7 @@ public class TopologyController {
             // attributeName does not exists in the node template
             return RestResponseBuilder.<TopologyDTO> builder().error(RestErrorBuilder.builder(RestErrorCode.PROPERTY_MISSING_ERROR).build()).build();
         }
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -1189,7 +1190,7 @@ public class TopologyController {
         if (nodeTemplate.getArtifacts() != null && nodeTemplate.getArtifacts().containsKey(artifactId)) {
             InputArtifactUtil.unsetInputArtifact(nodeTemplate.getArtifacts().get(artifactId));
         }
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -1220,7 +1221,7 @@ public class TopologyController {
 
         }
 
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -1248,7 +1249,7 @@ public class TopologyController {
 
         }
 
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -1316,7 +1317,7 @@ public class TopologyController {
         log.debug("Renaiming the relationship <{}> with <{}> in the node template <{}> of topology <{}> .", relationshipName, newRelationshipName,
                 nodeTemplateName, topologyId);
 
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -1351,7 +1352,7 @@ public class TopologyController {
             topology.getGroups().put(newGroupName, nodeGroup);
         }
 
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -1373,7 +1374,7 @@ public class TopologyController {
             }
         }
 
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -1416,7 +1417,7 @@ public class TopologyController {
         }
         nodeTemplate.getGroups().add(groupName);
         nodeGroup.getMembers().add(nodeName);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -1438,7 +1439,7 @@ public class TopologyController {
             nodeTemplate.getGroups().remove(groupName);
         }
 
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -99,7 +99,7 @@ public class TopologyInputsController {
         topology.setInputs(inputs);
 
         log.debug("Add a new input <{}> for the topology <{}>.", inputId, topologyId);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         if (StringUtils.isNotEmpty(newPropertyDefinition.getDefault())) {
             DeploymentTopology[] deploymentTopologies = deploymentTopologyService.getByTopologyId(topologyId);
             for (DeploymentTopology deploymentTopology : deploymentTopologies) {
@@ -184,7 +184,7 @@ public class TopologyInputsController {
         }
 
         log.debug("Change the name of an input parameter <{}> to <{}> for the topology ", inputId, newInputId, topologyId);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         DeploymentTopology[] deploymentTopologies = deploymentTopologyService.getByTopologyId(topologyId);
         for (DeploymentTopology deploymentTopology : deploymentTopologies) {
             if (deploymentTopology.getInputProperties() != null && deploymentTopology.getInputProperties().containsKey(inputId)) {
@@ -266,7 +266,7 @@ public class TopologyInputsController {
         }
 
         log.debug("Remove the input " + inputId + " from the topology " + topologyId);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         DeploymentTopology[] deploymentTopologies = deploymentTopologyService.getByTopologyId(topologyId);
         for (DeploymentTopology deploymentTopology : deploymentTopologies) {
             if (deploymentTopology.getInputProperties() != null && deploymentTopology.getInputProperties().containsKey(inputId)) {
@@ -326,7 +326,7 @@ public class TopologyInputsController {
         topology.setInputs(inputs);
 
         log.debug("Associate the property <{}> of the node template <{}> to an input of the topology <{}>.", propertyId, nodeTemplateName, topologyId);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -362,7 +362,7 @@ public class TopologyInputsController {
                 nodeTemplate.getProperties().put(propertyId, null);
             }
             log.debug("Disassociated the property <{}> of the node template <{}> to an input of the topology <{}>.", propertyId, nodeTemplateName, topologyId);
-            topologyServiceCore.save(topology);
+            topologyServiceCore.update(topology);
         }
 
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
@@ -517,7 +517,7 @@ public class TopologyInputsController {
         topology.setInputs(inputs);
 
         log.debug("Associate the property <{}> of the relationship template <{}> to an input of the topology <{}>.", propertyId, relationshipId, topologyId);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -566,7 +566,7 @@ public class TopologyInputsController {
         } else {
             throw new NotFoundException("Property " + propertyId + " do not exist for relationship " + relationshipId + " of node " + nodeTemplateName);
         }
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -624,7 +624,7 @@ public class TopologyInputsController {
         topology.setInputs(inputs);
 
         log.debug("Associate the property <{}> of the capability template <{}> to an input of the topology <{}>.", propertyId, capabilityId, topologyId);
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -673,7 +673,7 @@ public class TopologyInputsController {
         } else {
             throw new NotFoundException("Property " + propertyId + " do not exist for capability " + capabilityId + " of node " + nodeTemplateName);
         }
-        topologyServiceCore.save(topology);
+        topologyServiceCore.update(topology);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
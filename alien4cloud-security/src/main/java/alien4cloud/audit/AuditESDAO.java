@@ -11,6 +11,7 @@ import org.springframework.stereotype.Component;
 import alien4cloud.audit.model.AuditConfiguration;
 import alien4cloud.audit.model.AuditTrace;
 import alien4cloud.dao.ESGenericSearchDAO;
+import alien4cloud.dao.RefreshPolicy;
 import alien4cloud.exception.IndexingServiceException;
 
 @Component("alien-audit-dao")
@@ -28,8 +29,8 @@ public class AuditESDAO extends ESGenericSearchDAO {
         } catch (IntrospectionException | IOException e) {
             throw new IndexingServiceException("Could not initialize elastic search mapping builder", e);
         }
-        // Audit trace index
-        initIndices(ALIEN_AUDIT_INDEX, auditTtl, AuditTrace.class, AuditConfiguration.class);
+        // Audit trace index, a trace is written for every audited request: traces share index refreshes instead of each one triggering a refresh.
+        initIndices(ALIEN_AUDIT_INDEX, auditTtl, RefreshPolicy.WAIT_FOR, AuditTrace.class, AuditConfiguration.class);
         initCompleted();
     }
 }
\ No newline at end of file
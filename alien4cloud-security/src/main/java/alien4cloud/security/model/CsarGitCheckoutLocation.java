@@ -1,5 +1,8 @@
 package alien4cloud.security.model;
 
+import java.util.Map;
+import java.util.Set;
+
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -21,4 +24,8 @@ public class CsarGitCheckoutLocation {
     private String subPath;
     @ApiModelProperty(value = "unused field.", hidden = true)
     private String lastImportedHash;
+    @ApiModelProperty(value = "Digests of the content of the imported archives by path of the archive in the location.", hidden = true)
+    private Map<String, String> archiveDigests;
+    @ApiModelProperty(value = "Ids (name:version) of the dependencies of the imported archives by path of the archive in the location.", hidden = true)
+    private Map<String, Set<String>> archiveDependencies;
 }